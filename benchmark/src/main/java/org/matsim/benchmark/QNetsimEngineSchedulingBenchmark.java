@@ -0,0 +1,68 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineSchedulingBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimEngineScheduling;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+
+/**
+ * Compares the speed-up of the netsim engine with static partitioning and with work stealing for an increasing number
+ * of threads.  Run with <code>QNetsimEngineSchedulingBenchmark [maxNumberOfThreads] [numberOfAgents] [repetitions]</code>.
+ */
+public class QNetsimEngineSchedulingBenchmark {
+
+	public static void main(String[] args) {
+		int maxNumberOfThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int numberOfAgents = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+		for (NetsimEngineScheduling scheduling : NetsimEngineScheduling.values()) {
+			long singleThreaded = 0;
+			for (int numberOfThreads = 1; numberOfThreads <= maxNumberOfThreads; numberOfThreads *= 2) {
+				long best = Long.MAX_VALUE;
+				for (int i = 0; i < repetitions; i++) {
+					best = Math.min(best, run(scheduling, numberOfThreads, numberOfAgents));
+				}
+				if (numberOfThreads == 1) {
+					singleThreaded = best;
+				}
+				System.out.printf("%s threads=%d: %d ms, speed-up %.2f%n", scheduling, numberOfThreads, best, (double) singleThreaded / best);
+			}
+		}
+	}
+
+	private static long run(NetsimEngineScheduling scheduling, int numberOfThreads, int numberOfAgents) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNetsimEngineScheduling(scheduling);
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		Scenario scenario = QSimAllocationBenchmark.createScenario(config, numberOfAgents);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		long start = System.currentTimeMillis();
+		new QSimBuilder(config).useDefaults().build(scenario, EventsUtils.createEventsManager(config)).run();
+		return System.currentTimeMillis() - start;
+	}
+}
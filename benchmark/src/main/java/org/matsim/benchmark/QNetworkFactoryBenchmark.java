@@ -0,0 +1,73 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkFactoryBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import com.google.inject.Singleton;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.AbstractQSimModule;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.mobsim.qsim.qnetsimengine.PackedQNetworkFactory;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkFactory;
+
+/**
+ * Compares the run time of the QSim with the default links and with the links of {@link PackedQNetworkFactory}.
+ * Run with <code>QNetworkFactoryBenchmark [numberOfThreads] [numberOfAgents] [repetitions]</code>.  The first
+ * repetition serves as warm-up.
+ */
+public class QNetworkFactoryBenchmark {
+
+	public static void main(String[] args) {
+		int numberOfThreads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+		int numberOfAgents = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+		for (int i = 0; i < repetitions; i++) {
+			for (boolean packed : new boolean[] { false, true }) {
+				long millis = run(packed, numberOfThreads, numberOfAgents);
+				System.out.printf("packed=%b threads=%d: %d ms%n", packed, numberOfThreads, millis);
+			}
+		}
+	}
+
+	private static long run(boolean packed, int numberOfThreads, int numberOfAgents) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		Scenario scenario = QSimAllocationBenchmark.createScenario(config, numberOfAgents);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		QSimBuilder builder = new QSimBuilder(config).useDefaults();
+		if (packed) {
+			builder.addOverridingQSimModule(new AbstractQSimModule() {
+				@Override
+				protected void configureQSim() {
+					bind(QNetworkFactory.class).to(PackedQNetworkFactory.class).in(Singleton.class);
+				}
+			});
+		}
+		long start = System.currentTimeMillis();
+		builder.build(scenario, EventsUtils.createEventsManager(config)).run();
+		return System.currentTimeMillis() - start;
+	}
+}
@@ -0,0 +1,197 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimAllocationBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Measures how many bytes the QSim allocates per vehicle moving over a node, with and without pooled link events.
+ * Run with <code>QSimAllocationBenchmark [numberOfThreads] [numberOfAgents] [repetitions]</code>.
+ * <p>
+ * The allocated bytes are summed over all threads that are alive during the simulated day, i.e. they include the
+ * allocations of activities, departures and arrivals, too. Only the difference between the two modes is caused by
+ * the vehicle movement.
+ */
+public class QSimAllocationBenchmark {
+
+	private static final int GRID_SIZE = 30;
+
+	public static void main(String[] args) {
+		int numberOfThreads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+		int numberOfAgents = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+		for (int i = 0; i < repetitions; i++) {
+			for (boolean pooled : new boolean[] { false, true }) {
+				Result result = run(pooled, numberOfThreads, numberOfAgents);
+				System.out.printf("pooled=%b threads=%d: %d link enter events, %.1f bytes/event, %d ms%n", pooled, numberOfThreads,
+						result.linkEnterEvents, (double) result.allocatedBytes / result.linkEnterEvents, result.millis);
+			}
+		}
+	}
+
+	private static Result run(boolean pooled, int numberOfThreads, int numberOfAgents) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setUsingPooledLinkEvents(pooled);
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		Scenario scenario = createScenario(config, numberOfAgents);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsManager events = EventsUtils.createEventsManager(scenario.getConfig());
+		Result result = new Result();
+		events.addHandler((LinkEnterEventHandler) event -> result.linkEnterEvents++);
+
+		QSim qsim = new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, events);
+		AllocationProbe probe = new AllocationProbe();
+		qsim.addQueueSimulationListeners(probe);
+
+		System.gc();
+		long start = System.currentTimeMillis();
+		qsim.run();
+		result.millis = System.currentTimeMillis() - start;
+		result.allocatedBytes = probe.allocatedBytes();
+		return result;
+	}
+
+	private static class Result {
+		long linkEnterEvents = 0;
+		long allocatedBytes;
+		long millis;
+	}
+
+	/**
+	 * Samples the bytes allocated by all live threads once per simulated hour. Threads of the mobsim are only alive
+	 * while it runs, so they cannot be sampled before and after.
+	 */
+	private static class AllocationProbe implements MobsimAfterSimStepListener {
+		private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		private final Map<Long, Long> first = new HashMap<>();
+		private final Map<Long, Long> last = new HashMap<>();
+
+		@Override
+		public void notifyMobsimAfterSimStep(@SuppressWarnings("rawtypes") MobsimAfterSimStepEvent e) {
+			if (!this.first.isEmpty() && e.getSimulationTime() % 3600 != 0) {
+				return;
+			}
+			long[] ids = this.threads.getAllThreadIds();
+			long[] bytes = this.threads.getThreadAllocatedBytes(ids);
+			for (int i = 0; i < ids.length; i++) {
+				if (bytes[i] >= 0) {
+					this.first.putIfAbsent(ids[i], bytes[i]);
+					this.last.put(ids[i], bytes[i]);
+				}
+			}
+		}
+
+		long allocatedBytes() {
+			long sum = 0;
+			for (Map.Entry<Long, Long> entry : this.last.entrySet()) {
+				sum += entry.getValue() - this.first.get(entry.getKey());
+			}
+			return sum;
+		}
+	}
+
+	/**
+	 * A grid of 30x30 nodes with agents driving between random links in the morning and back in the afternoon.
+	 */
+	static Scenario createScenario(Config config, int numberOfAgents) {
+		config.qsim().setEndTime(30 * 3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 500, y * 500));
+			}
+		}
+		List<Link> links = new ArrayList<>();
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					links.add(createLink(network, nodes[x][y], nodes[x + 1][y]));
+					links.add(createLink(network, nodes[x + 1][y], nodes[x][y]));
+				}
+				if (y + 1 < GRID_SIZE) {
+					links.add(createLink(network, nodes[x][y], nodes[x][y + 1]));
+					links.add(createLink(network, nodes[x][y + 1], nodes[x][y]));
+				}
+			}
+		}
+
+		Random random = new Random(4711);
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < numberOfAgents; i++) {
+			Person person = population.getFactory().createPerson(Id.createPersonId(i));
+			Plan plan = population.getFactory().createPlan();
+			Link home = links.get(random.nextInt(links.size()));
+			Link work = links.get(random.nextInt(links.size()));
+			Activity h = population.getFactory().createActivityFromLinkId("h", home.getId());
+			h.setEndTime(6 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(h);
+			plan.addLeg(population.getFactory().createLeg(TransportMode.car));
+			Activity w = population.getFactory().createActivityFromLinkId("w", work.getId());
+			w.setEndTime(15 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(w);
+			plan.addLeg(population.getFactory().createLeg(TransportMode.car));
+			plan.addActivity(population.getFactory().createActivityFromLinkId("h", home.getId()));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return scenario;
+	}
+
+	private static Link createLink(Network network, Node from, Node to) {
+		Id<Link> id = Id.createLinkId(from.getId() + "-" + to.getId());
+		return NetworkUtils.createAndAddLink(network, id, from, to, 500, 10, 1800, 1);
+	}
+}
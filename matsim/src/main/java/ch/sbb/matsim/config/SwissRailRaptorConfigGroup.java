@@ -29,10 +29,20 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     public static final String GROUP = "swissRailRaptor";
 
     private static final String PARAM_USE_RANGE_QUERY = "useRangeQuery";
+    private static final String PARAM_RANGE_QUERY_PROFILE_CACHE_SIZE = "rangeQueryProfileCacheSize";
+    private static final String PARAM_RANGE_QUERY_PROFILE_CACHE_SIZE_DESC = "Only used with range queries. The maximum number of range query profiles (all journeys from one stop " +
+            "within a time bin) that each router keeps for later range queries from the same stop, e.g. for other agents with the same access stops. " +
+            "Profiles are only shared between persons with the same raptor parameters, and not at all if the in-vehicle costs depend on the person. " +
+            "Each profile can require quite some memory on large schedules. 0 (default) disables the cache.";
     private static final String PARAM_USE_INTERMODAL_ACCESS_EGRESS = "useIntermodalAccessEgress";
     private static final String PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION = "intermodalAccessEgressModeSelection";
     private static final String PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION_DESC = "Sets whether intermodal access and egress modes are selected by " +
             "least cost (default) or randomly chosen out of the available access / egress modes.";
+    private static final String PARAM_INTERMODAL_ACCESS_EGRESS_ROUTE_CACHE_SIZE = "intermodalAccessEgressRouteCacheSize";
+    private static final String PARAM_INTERMODAL_ACCESS_EGRESS_ROUTE_CACHE_SIZE_DESC = "Only used with intermodal access and egress. The maximum number of access and egress " +
+            "routes (from one location to one stop with one mode within a time bin) that each router keeps for later requests between the same location and stop, " +
+            "e.g. for other agents living at the same location. The routes are computed with the person of the first request, only the times and the vehicles " +
+            "are adapted to later requests, so person-specific routes are not supported. 0 (default) disables the cache.";
     private static final String PARAM_USE_MODE_MAPPING = "useModeMappingForPassengers";
     private static final String PARAM_SCORING_PARAMETERS = "scoringParameters";
     private static final String PARAM_TRANSFER_PENALTY_BASE = "transferPenaltyBaseCost";
@@ -46,11 +56,18 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private static final String PARAM_TRANSFER_WALK_MARGIN = "transferWalkMargin";
     private static final String PARAM_TRANSFER_WALK_MARGIN_DESC = "time deducted from transfer walk leg during transfers between pt legs in order to avoid missing a vehicle by a few seconds due to delays.";
 
+    private static final String PARAM_TRANSFERS_CACHE_DIRECTORY = "transfersCacheDirectory";
+    private static final String PARAM_TRANSFERS_CACHE_DIRECTORY_DESC = "A directory to store the transfers between route stops in, so later runs with the same " +
+            "transit schedule and the same transfer settings can read them instead of computing them again. Default: none.";
+
     private boolean useRangeQuery = false;
+    private int rangeQueryProfileCacheSize = 0;
     private boolean useIntermodality = false;
     private IntermodalAccessEgressModeSelection intermodalAccessEgressModeSelection = IntermodalAccessEgressModeSelection.CalcLeastCostModePerStop;
+    private int intermodalAccessEgressRouteCacheSize = 0;
     private boolean useModeMapping = false;
     private boolean useCapacityConstraints = false;
+    private String transfersCacheDirectory = null;
 
     private double transferPenaltyBaseCost = 0;
     private double transferPenaltyMinCost = Double.NEGATIVE_INFINITY;
@@ -88,6 +105,16 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         this.useRangeQuery = useRangeQuery;
     }
 
+    @StringGetter(PARAM_RANGE_QUERY_PROFILE_CACHE_SIZE)
+    public int getRangeQueryProfileCacheSize() {
+        return this.rangeQueryProfileCacheSize;
+    }
+
+    @StringSetter(PARAM_RANGE_QUERY_PROFILE_CACHE_SIZE)
+    public void setRangeQueryProfileCacheSize(int rangeQueryProfileCacheSize) {
+        this.rangeQueryProfileCacheSize = rangeQueryProfileCacheSize;
+    }
+
     @StringGetter(PARAM_USE_INTERMODAL_ACCESS_EGRESS)
     public boolean isUseIntermodalAccessEgress() {
         return this.useIntermodality;
@@ -108,6 +135,26 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         this.intermodalAccessEgressModeSelection = intermodalAccessEgressModeSelection;
     }
 
+    @StringGetter(PARAM_INTERMODAL_ACCESS_EGRESS_ROUTE_CACHE_SIZE)
+    public int getIntermodalAccessEgressRouteCacheSize() {
+        return this.intermodalAccessEgressRouteCacheSize;
+    }
+
+    @StringSetter(PARAM_INTERMODAL_ACCESS_EGRESS_ROUTE_CACHE_SIZE)
+    public void setIntermodalAccessEgressRouteCacheSize(int intermodalAccessEgressRouteCacheSize) {
+        this.intermodalAccessEgressRouteCacheSize = intermodalAccessEgressRouteCacheSize;
+    }
+
+    @StringGetter(PARAM_TRANSFERS_CACHE_DIRECTORY)
+    public String getTransfersCacheDirectory() {
+        return this.transfersCacheDirectory;
+    }
+
+    @StringSetter(PARAM_TRANSFERS_CACHE_DIRECTORY)
+    public void setTransfersCacheDirectory(String transfersCacheDirectory) {
+        this.transfersCacheDirectory = transfersCacheDirectory;
+    }
+
     @StringGetter(PARAM_TRANSFER_WALK_MARGIN)
     public double getTransferWalkMargin() {
         return transferWalkMargin;
@@ -612,6 +659,9 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         comments.put(PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION, PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION_DESC);
         comments.put(PARAM_USE_CAPACITY_CONSTRAINTS, PARAM_USE_CAPACITY_CONSTRAINTS_DESC);
         comments.put(PARAM_TRANSFER_WALK_MARGIN, PARAM_TRANSFER_WALK_MARGIN_DESC);
+        comments.put(PARAM_RANGE_QUERY_PROFILE_CACHE_SIZE, PARAM_RANGE_QUERY_PROFILE_CACHE_SIZE_DESC);
+        comments.put(PARAM_INTERMODAL_ACCESS_EGRESS_ROUTE_CACHE_SIZE, PARAM_INTERMODAL_ACCESS_EGRESS_ROUTE_CACHE_SIZE_DESC);
+        comments.put(PARAM_TRANSFERS_CACHE_DIRECTORY, PARAM_TRANSFERS_CACHE_DIRECTORY_DESC);
         return comments;
     }
 
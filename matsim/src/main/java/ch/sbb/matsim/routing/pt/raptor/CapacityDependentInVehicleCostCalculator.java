@@ -81,4 +81,10 @@ public class CapacityDependentInVehicleCostCalculator implements RaptorInVehicle
 		}
 		return costSum;
 	}
+
+	@Override
+	public boolean isPersonDependent() {
+		return false;
+	}
+
 }
@@ -13,4 +13,9 @@ public class DefaultRaptorInVehicleCostCalculator implements RaptorInVehicleCost
 		return inVehicleTime * -marginalUtility_utl_s;
 	}
 
+	@Override
+	public boolean isPersonDependent() {
+		return false;
+	}
+
 }
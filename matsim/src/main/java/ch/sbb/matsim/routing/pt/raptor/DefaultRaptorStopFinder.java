@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -17,6 +19,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Identifiable;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.PlanElement;
@@ -25,14 +28,17 @@ import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.router.DefaultRoutingRequest;
 import org.matsim.core.router.RoutingModule;
+import org.matsim.core.router.StageActivityTypeIdentifier;
 import org.matsim.core.utils.collections.QuadTree;
 import org.matsim.core.utils.geometry.CoordUtils;
 import org.matsim.facilities.Facility;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.VehicleUtils;
 
 import ch.sbb.matsim.config.SwissRailRaptorConfigGroup;
 import ch.sbb.matsim.config.SwissRailRaptorConfigGroup.IntermodalAccessEgressParameterSet;
@@ -42,9 +48,13 @@ import ch.sbb.matsim.config.SwissRailRaptorConfigGroup.IntermodalAccessEgressPar
  */
 public class DefaultRaptorStopFinder implements RaptorStopFinder {
 
+	/** access and egress routes with a departure time in the same time bin share the cached route */
+	private static final double ROUTE_CACHE_TIME_BIN_SIZE = 900;
+
 	private final RaptorIntermodalAccessEgress intermodalAE;
 	private final Map<String, RoutingModule> routingModules;
     private final Random random = MatsimRandom.getLocalInstance();
+	private final Map<RouteKey, CachedRoute> routeCache = new LinkedHashMap<>(16, 0.75f, true);
 
 	@Inject
 	public DefaultRaptorStopFinder(Config config, RaptorIntermodalAccessEgress intermodalAE, Map<String, Provider<RoutingModule>> routingModuleProviders) {
@@ -186,20 +196,7 @@ public class DefaultRaptorStopFinder implements RaptorStopFinder {
                     }
                 }
 
-                List<? extends PlanElement> routeParts;
-                if (direction == Direction.ACCESS) {
-                    RoutingModule module = this.routingModules.get(mode);
-                    routeParts = module.calcRoute(DefaultRoutingRequest.of(facility, stopFacility, departureTime, person, routingAttributes));
-                } else { // it's Egress
-                    // We don't know the departure time for the egress trip, so just use the original departureTime,
-                    // although it is wrong and might result in a wrong traveltime and thus wrong route.
-                    RoutingModule module = this.routingModules.get(mode);
-                    routeParts = module.calcRoute(DefaultRoutingRequest.of(stopFacility, facility, departureTime, person, routingAttributes));
-                    if (routeParts == null) {
-                        // the router for the access/egress mode could not find a route, skip that access/egress mode
-                        continue;
-                    }
-                }
+                List<? extends PlanElement> routeParts = calcAccessEgressRoute(mode, direction, facility, stopFacility, stop, departureTime, person, routingAttributes, parameters);
                 if (routeParts == null) {
                     // the router for the access/egress mode could not find a route, skip that access/egress mode
                     continue;
@@ -248,6 +245,75 @@ public class DefaultRaptorStopFinder implements RaptorStopFinder {
         }
 	}
 
+	/**
+	 * Calculates the access or egress route with the routing module of the mode.  If enabled, the route is taken from
+	 * the routes cached for earlier requests between the same facility location and stop in the same time bin, see
+	 * {@link SwissRailRaptorConfigGroup#getIntermodalAccessEgressRouteCacheSize()}.  A cached route is copied, its
+	 * times are shifted to the actual departure time, and its network routes get the vehicle of the actual person.
+	 */
+	private List<? extends PlanElement> calcAccessEgressRoute(String mode, Direction direction, Facility facility, Facility stopFacility, TransitStopFacility stop,
+			double departureTime, Person person, Attributes routingAttributes, RaptorParameters parameters) {
+		int cacheSize = parameters.getConfig().getIntermodalAccessEgressRouteCacheSize();
+		if (cacheSize <= 0) {
+			return calcAccessEgressRoute(mode, direction, facility, stopFacility, departureTime, person, routingAttributes);
+		}
+		long timeBin = (long) Math.floor(departureTime / ROUTE_CACHE_TIME_BIN_SIZE);
+		RouteKey key = new RouteKey(mode, direction, facility.getLinkId(), facility.getCoord(), stopFacility.getLinkId(), stop.getId(), timeBin);
+		CachedRoute cached = this.routeCache.get(key);
+		if (cached == null) {
+			List<? extends PlanElement> routeParts = calcAccessEgressRoute(mode, direction, facility, stopFacility, departureTime, person, routingAttributes);
+			cached = new CachedRoute(departureTime, routeParts == null ? null : copyRouteParts(routeParts, 0, null));
+			this.routeCache.put(key, cached);
+			Iterator<CachedRoute> iter = this.routeCache.values().iterator();
+			while (this.routeCache.size() > cacheSize) {
+				iter.next();
+				iter.remove(); // the least recently used one
+			}
+			return routeParts;
+		}
+		if (cached.routeParts == null) {
+			return null;
+		}
+		return copyRouteParts(cached.routeParts, departureTime - cached.departureTime, person);
+	}
+
+	private List<? extends PlanElement> calcAccessEgressRoute(String mode, Direction direction, Facility facility, Facility stopFacility,
+			double departureTime, Person person, Attributes routingAttributes) {
+		RoutingModule module = this.routingModules.get(mode);
+		if (direction == Direction.ACCESS) {
+			return module.calcRoute(DefaultRoutingRequest.of(facility, stopFacility, departureTime, person, routingAttributes));
+		}
+		// it's Egress
+		// We don't know the departure time for the egress trip, so just use the original departureTime,
+		// although it is wrong and might result in a wrong traveltime and thus wrong route.
+		return module.calcRoute(DefaultRoutingRequest.of(stopFacility, facility, departureTime, person, routingAttributes));
+	}
+
+	private static List<PlanElement> copyRouteParts(List<? extends PlanElement> routeParts, double timeShift, Person person) {
+		List<PlanElement> copy = new ArrayList<>(routeParts.size());
+		for (PlanElement pe : routeParts) {
+			if (pe instanceof Leg leg) {
+				Leg newLeg = PopulationUtils.createLeg(leg);
+				leg.getDepartureTime().ifDefined(time -> newLeg.setDepartureTime(time + timeShift));
+				if (person != null && newLeg.getRoute() instanceof NetworkRoute route && route.getVehicleId() != null) {
+					route.setVehicleId(VehicleUtils.getVehicleId(person, newLeg.getMode()));
+				}
+				copy.add(newLeg);
+			} else if (pe instanceof Activity act) {
+				// the interaction activities of the routing modules usually are light-weight ones without times
+				boolean interaction = StageActivityTypeIdentifier.isStageActivity(act.getType()) && act.getStartTime().isUndefined()
+						&& act.getEndTime().isUndefined() && act.getMaximumDuration().orElse(-1) == 0;
+				Activity newAct = interaction ? PopulationUtils.createInteractionActivity(act) : PopulationUtils.createActivity(act);
+				act.getStartTime().ifDefined(time -> newAct.setStartTime(time + timeShift));
+				act.getEndTime().ifDefined(time -> newAct.setEndTime(time + timeShift));
+				copy.add(newAct);
+			} else {
+				throw new IllegalArgumentException("unrecognized plan element type discovered");
+			}
+		}
+		return copy;
+	}
+
 	private List<TransitStopFacility> findNearbyStops(Facility facility, RaptorParameters parameters, SwissRailRaptorData data) {
 		double x = facility.getCoord().getX();
 		double y = facility.getCoord().getY();
@@ -293,4 +359,11 @@ public class DefaultRaptorStopFinder implements RaptorStopFinder {
 			return this.delegate.getId();
 		}
 	}
+
+	private record RouteKey(String mode, Direction direction, Id<Link> facilityLinkId, Coord facilityCoord, Id<Link> stopLinkId,
+			Id<TransitStopFacility> stopId, long timeBin) {
+	}
+
+	private record CachedRoute(double departureTime, List<PlanElement> routeParts) {
+	}
 }
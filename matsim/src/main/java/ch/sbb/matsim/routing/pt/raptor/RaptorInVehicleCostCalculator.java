@@ -10,6 +10,14 @@ public interface RaptorInVehicleCostCalculator {
 
 	double getInVehicleCost(double inVehicleTime, double marginalUtility_utl_s, Person person, Vehicle vehicle, RaptorParameters paramters, RouteSegmentIterator iterator);
 
+	/**
+	 * @return <code>false</code> if the costs do not depend on the person, so that range query profiles can be shared
+	 * between persons with the same {@link RaptorParameters}.
+	 */
+	default boolean isPersonDependent() {
+		return true;
+	}
+
 	interface RouteSegmentIterator {
 		boolean hasNext();
 		void next();
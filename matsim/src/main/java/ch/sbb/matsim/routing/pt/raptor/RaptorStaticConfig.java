@@ -47,6 +47,16 @@ public class RaptorStaticConfig {
 
     private RaptorOptimization optimization = RaptorOptimization.OneToOneRouting;
 
+    /**
+     * The number of threads used to build the dataset for SwissRailRaptor.
+     */
+    private int numberOfThreads = 1;
+
+    /**
+     * A directory to store the transfers between route stops in, see {@link SwissRailRaptorData}.
+     */
+    private String transfersCacheDirectory = null;
+
     public double getBeelineWalkConnectionDistance() {
         return this.beelineWalkConnectionDistance;
     }
@@ -118,4 +128,20 @@ public class RaptorStaticConfig {
     public void setOptimization(RaptorOptimization optimization) {
         this.optimization = optimization;
     }
+
+    public int getNumberOfThreads() {
+        return this.numberOfThreads;
+    }
+
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    public String getTransfersCacheDirectory() {
+        return this.transfersCacheDirectory;
+    }
+
+    public void setTransfersCacheDirectory(String transfersCacheDirectory) {
+        this.transfersCacheDirectory = transfersCacheDirectory;
+    }
 }
@@ -56,6 +56,8 @@ public final class RaptorUtils {
             }
         }
         staticConfig.setUseCapacityConstraints(srrConfig.isUseCapacityConstraints());
+        staticConfig.setNumberOfThreads(config.global().getNumberOfThreads());
+        staticConfig.setTransfersCacheDirectory(srrConfig.getTransfersCacheDirectory());
 
         return staticConfig;
     }
@@ -8,6 +8,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -28,6 +29,7 @@ import org.matsim.utils.objectattributes.attributable.Attributes;
 
 import ch.sbb.matsim.config.SwissRailRaptorConfigGroup;
 import ch.sbb.matsim.routing.pt.raptor.RaptorRoute.RoutePart;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorCore.RangeQueryProfile;
 
 /**
  * Provides public transport route search capabilities using an implementation of the
@@ -39,11 +41,18 @@ public class SwissRailRaptor implements TransitRouter {
 
     private static final Logger log = LogManager.getLogger(SwissRailRaptor.class);
 
+    /** range queries with a desired departure time in the same time bin share the profiles of their access stops */
+    private static final double PROFILE_TIME_BIN_SIZE = 900;
+    /** the time window of a profile is extended by this time so it also covers queries with a longer access time */
+    private static final double PROFILE_ACCESS_TIME_MARGIN = 900;
+
     private final SwissRailRaptorData data;
     private final SwissRailRaptorCore raptor;
     private final RaptorParametersForPerson parametersForPerson;
     private final RaptorRouteSelector defaultRouteSelector;
     private final RaptorStopFinder stopFinder;
+    private final Map<ProfileKey, RangeQueryProfile> profileCache = new LinkedHashMap<>(16, 0.75f, true);
+    private final boolean profilesDependOnPerson;
 
     private boolean treeWarningShown = false;
 
@@ -55,6 +64,7 @@ public class SwissRailRaptor implements TransitRouter {
 													 RaptorTransferCostCalculator transferCostCalculator) {
         this.data = data;
         this.raptor = new SwissRailRaptorCore(data, inVehicleCostCalculator, transferCostCalculator);
+        this.profilesDependOnPerson = inVehicleCostCalculator.isPersonDependent();
         this.parametersForPerson = parametersForPerson;
         this.defaultRouteSelector = routeSelector;
         this.stopFinder = stopFinder;
@@ -164,7 +174,7 @@ public class SwissRailRaptor implements TransitRouter {
         List<InitialStop> accessStops = findAccessStops(fromFacility, toFacility, person, desiredDepartureTime, routingAttributes, parameters);
         List<InitialStop> egressStops = findEgressStops(fromFacility, toFacility, person, desiredDepartureTime, routingAttributes, parameters);
 
-        List<RaptorRoute> foundRoutes = this.raptor.calcRoutes(earliestDepartureTime, desiredDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, egressStops, parameters, person);
+        List<RaptorRoute> foundRoutes = calcRangeQueryRoutes(fromFacility, toFacility, earliestDepartureTime, desiredDepartureTime, latestDepartureTime, accessStops, egressStops, parameters, person);
         RaptorRoute foundRoute = selector.selectOne(foundRoutes, desiredDepartureTime);
         RaptorRoute directWalk = createDirectWalk(fromFacility, toFacility, desiredDepartureTime, person, parameters);
 
@@ -200,7 +210,7 @@ public class SwissRailRaptor implements TransitRouter {
         List<InitialStop> accessStops = findAccessStops(fromFacility, toFacility, person, desiredDepartureTime, routingAttributes, parameters);
         List<InitialStop> egressStops = findEgressStops(fromFacility, toFacility, person, desiredDepartureTime, routingAttributes, parameters);
 
-        List<RaptorRoute> foundRoutes = this.raptor.calcRoutes(earliestDepartureTime, desiredDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, egressStops, parameters, person);
+        List<RaptorRoute> foundRoutes = calcRangeQueryRoutes(fromFacility, toFacility, earliestDepartureTime, desiredDepartureTime, latestDepartureTime, accessStops, egressStops, parameters, person);
         RaptorRoute directWalk = createDirectWalk(fromFacility, toFacility, desiredDepartureTime, person, parameters);
 
         if (foundRoutes == null) {
@@ -219,6 +229,51 @@ public class SwissRailRaptor implements TransitRouter {
         return foundRoutes;
     }
 
+    /**
+     * Calculates the routes of a range query. If enabled, the query is answered from the cached profiles of the
+     * access stops, see {@link SwissRailRaptorConfigGroup#getRangeQueryProfileCacheSize()}. Queries with intermodal
+     * access or with an access time not covered by the time window of the profiles are calculated without the cache.
+     */
+    private List<RaptorRoute> calcRangeQueryRoutes(Facility fromFacility, Facility toFacility, double earliestDepartureTime, double desiredDepartureTime, double latestDepartureTime,
+                                                   List<InitialStop> accessStops, List<InitialStop> egressStops, RaptorParameters parameters, Person person) {
+        int cacheSize = parameters.getConfig().getRangeQueryProfileCacheSize();
+        if (cacheSize > 0) {
+            double binStartTime = Math.floor(desiredDepartureTime / PROFILE_TIME_BIN_SIZE) * PROFILE_TIME_BIN_SIZE;
+            double profileEarliestTime = binStartTime - (desiredDepartureTime - earliestDepartureTime);
+            double profileLatestTime = binStartTime + PROFILE_TIME_BIN_SIZE + PROFILE_ACCESS_TIME_MARGIN + (latestDepartureTime - desiredDepartureTime);
+            List<RangeQueryProfile> profiles = new ArrayList<>(accessStops.size());
+            for (InitialStop accessStop : accessStops) {
+                if (accessStop.planElements != null || latestDepartureTime + accessStop.accessTime > profileLatestTime) {
+                    profiles = null;
+                    break;
+                }
+            }
+            if (profiles != null) {
+                for (InitialStop accessStop : accessStops) {
+                    profiles.add(getProfile(accessStop.stop, profileEarliestTime, profileLatestTime, parameters, person, cacheSize));
+                }
+                return this.raptor.calcRoutes(earliestDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, profiles, egressStops);
+            }
+        }
+        return this.raptor.calcRoutes(earliestDepartureTime, desiredDepartureTime, latestDepartureTime, fromFacility, toFacility, accessStops, egressStops, parameters, person);
+    }
+
+    private RangeQueryProfile getProfile(TransitStopFacility stop, double earliestTimeAtStop, double latestTimeAtStop, RaptorParameters parameters, Person person, int cacheSize) {
+        // the in-vehicle costs may depend on the person, the other costs only depend on the parameters
+        ProfileKey key = new ProfileKey(stop, earliestTimeAtStop, latestTimeAtStop, parameters, this.profilesDependOnPerson ? person : null);
+        RangeQueryProfile profile = this.profileCache.get(key);
+        if (profile == null) {
+            profile = this.raptor.calcProfile(stop, earliestTimeAtStop, latestTimeAtStop, parameters, person);
+            this.profileCache.put(key, profile);
+            Iterator<RangeQueryProfile> iter = this.profileCache.values().iterator();
+            while (this.profileCache.size() > cacheSize) {
+                iter.next();
+                iter.remove(); // the least recently used one
+            }
+        }
+        return profile;
+    }
+
     public Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcTree(TransitStopFacility fromStop, double departureTime, RaptorParameters parameters, Person person) {
         return this.calcTree(Collections.singletonList(fromStop), departureTime, parameters, person);
     }
@@ -313,4 +368,6 @@ public class SwissRailRaptor implements TransitRouter {
 			}
 		}
 
+    private record ProfileKey(TransitStopFacility stop, double earliestTimeAtStop, double latestTimeAtStop, RaptorParameters parameters, Person person) {
+    }
 }
@@ -24,7 +24,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -290,46 +292,11 @@ public class SwissRailRaptorCore {
         for (InitialStop accessStop : accessStops) {
             double earliestTimeAtStop = earliestDepTime + accessStop.accessTime;
             double latestTimeAtStop = latestDepTime + accessStop.accessTime;
-            TransitStopFacility stop = accessStop.stop;
-            int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(stop);
-            if (routeStopIndices != null) {
-                for (int routeStopIndex : routeStopIndices) {
-                    RRouteStop routeStop = this.data.routeStops[routeStopIndex];
-                    if (routeStop.routeStop == routeStop.route.getStops().get(routeStop.route.getStops().size() - 1)) {
-                        // this is the last stop of a route
-                        continue;
-                    }
-                    RRoute route = this.data.routes[routeStop.transitRouteIndex];
-                    int depOffset = routeStop.departureOffset;
-                    for (int depIndex = route.indexFirstDeparture; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
-                        int depTimeAtStart = this.data.departures[depIndex];
-                        int depTimeAtStop = depTimeAtStart + depOffset;
-                        if (depTimeAtStop >= earliestTimeAtStop && depTimeAtStop <= latestTimeAtStop) {
-                            double costOffset = (depTimeAtStop - earliestTimeAtStop) * marginalUtilityOfWaitingPt_utl_s;
-                            departures.add(new DepartureAtRouteStop(routeStop, routeStopIndex, depIndex, depTimeAtStop, costOffset, accessStop));
-                        }
-                    }
-                }
-            }
+            addDepartures(accessStop, earliestTimeAtStop, latestTimeAtStop, marginalUtilityOfWaitingPt_utl_s, departures);
         }
-        departures.sort((d1, d2) -> {
-            // sort the departures by cost, not by time as in the original algorithm
-            double c1 = d1.costOffset + d1.accessStop.accessCost;
-            double c2 = d2.costOffset + d2.accessStop.accessCost;
-            int cmp = Double.compare(c1, c2);
-            if (cmp == 0) {
-                cmp = Integer.compare(d1.departureIndex, d2.departureIndex);
-            }
-            return -cmp; // negate, we want to order from biggest to smallest
-        });
+        sortDepartures(departures);
 
-        Map<TransitStopFacility, InitialStop> destinationStops = new HashMap<>();
-        for (InitialStop egressStop : egressStops) {
-            InitialStop alternative = destinationStops.get(egressStop.stop);
-            if (alternative == null || egressStop.accessCost < alternative.accessCost) {
-                destinationStops.put(egressStop.stop, egressStop);
-            }
-        }
+        Map<TransitStopFacility, InitialStop> destinationStops = getDestinationStops(egressStops);
         for (InitialStop egressStop : destinationStops.values()) {
             int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(egressStop.stop);
             if (routeStopIndices != null) {
@@ -403,6 +370,206 @@ public class SwissRailRaptorCore {
         return routes;
     }
 
+    /**
+     * Calculates a profile for all departures from a single stop within the given time window, see
+     * {@link RangeQueryProfile}. The profile can then be used for range queries to any destination with
+     * {@link #calcRoutes(double, double, Facility, Facility, List, List, List)}.
+     */
+    RangeQueryProfile calcProfile(TransitStopFacility fromStop, double earliestTimeAtStop, double latestTimeAtStop, RaptorParameters parameters, Person person) {
+        final int maxTransfers = 20; // same as in calcRoutes, but without the reduction after the first arrival as there is no destination
+
+        reset();
+
+        double marginalUtilityOfWaitingPt_utl_s = parameters.getMarginalUtilityOfWaitingPt_utl_s();
+        InitialStop accessStop = new InitialStop(fromStop, 0, 0, 0, null);
+        List<DepartureAtRouteStop> departures = new ArrayList<>();
+        addDepartures(accessStop, earliestTimeAtStop, latestTimeAtStop, marginalUtilityOfWaitingPt_utl_s, departures);
+        sortDepartures(departures);
+
+        RangeQueryProfile profile = new RangeQueryProfile(this.data.countStops, earliestTimeAtStop, latestTimeAtStop, marginalUtilityOfWaitingPt_utl_s);
+        for (DepartureAtRouteStop depAtRouteStop : departures) {
+            this.improvedStops.clear();
+            this.improvedRouteStopIndices.clear();
+            { // initialization for this departure Time, see calcRoutes
+                int arrivalTime = depAtRouteStop.depTime;
+                double arrivalCost = depAtRouteStop.costOffset;
+                RRouteStop toRouteStop = depAtRouteStop.routeStop;
+                int routeStopIndex = depAtRouteStop.routeStopIndex;
+                PathElement pe = new PathElement(null, toRouteStop, depAtRouteStop.depTime, depAtRouteStop.depTime, arrivalTime, arrivalCost, 0, 0, 0, true, null, accessStop);
+                this.arrivalPathPerRouteStop[routeStopIndex] = pe;
+                this.leastArrivalCostAtRouteStop[routeStopIndex] = arrivalCost;
+                this.arrivalPathPerStop[toRouteStop.stopFacilityIndex] = pe;
+                this.leastArrivalCostAtStop[toRouteStop.stopFacilityIndex] = arrivalCost;
+                this.improvedRouteStopIndices.set(routeStopIndex);
+            }
+
+            for (int k = 0; k <= maxTransfers; k++) {
+                exploreRoutes(parameters, person);
+                for (int stopIndex = this.improvedStops.nextSetBit(0); stopIndex >= 0; stopIndex = this.improvedStops.nextSetBit(stopIndex + 1)) {
+                    profile.add(stopIndex, this.arrivalPathPerStop[stopIndex]);
+                }
+                if (this.improvedStops.isEmpty()) {
+                    break;
+                }
+
+                handleTransfers(false, parameters);
+                for (int stopIndex = this.tmpImprovedStops.nextSetBit(0); stopIndex >= 0; stopIndex = this.tmpImprovedStops.nextSetBit(stopIndex + 1)) {
+                    profile.add(stopIndex, this.arrivalPathPerStop[stopIndex]);
+                }
+                if (this.improvedRouteStopIndices.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        profile.finish();
+        return profile;
+    }
+
+    /**
+     * Calculates the routes of a range query based on the profiles of the access stops. In contrast to
+     * {@link #calcRoutes(double, double, double, Facility, Facility, List, List, RaptorParameters, Person)}, the
+     * journeys from the different access stops are not compared during the search, but only afterwards: all journeys
+     * from one of the access stops to one of the egress stops that depart within the time window are collected, reduced
+     * per departure to the ones the search would find, and then filtered the same way.
+     *
+     * @param profiles the profile of every access stop, in the same order as the access stops. The time window of a
+     * profile must cover the time window of the query at its stop, taking the access time into account.
+     */
+    List<RaptorRoute> calcRoutes(double earliestDepTime, double latestDepTime, Facility fromFacility, Facility toFacility,
+                                 List<InitialStop> accessStops, List<RangeQueryProfile> profiles, List<InitialStop> egressStops) {
+        Map<TransitStopFacility, InitialStop> destinationStops = getDestinationStops(egressStops);
+
+        // collect the candidates first, creating a RaptorRoute for each of them would be too expensive
+        Map<PathElement, List<ProfileJourney>> journeysPerDeparture = new LinkedHashMap<>();
+        for (int i = 0; i < accessStops.size(); i++) {
+            InitialStop accessStop = accessStops.get(i);
+            RangeQueryProfile profile = profiles.get(i);
+            double earliestTimeAtStop = earliestDepTime + accessStop.accessTime;
+            double latestTimeAtStop = latestDepTime + accessStop.accessTime;
+            for (InitialStop egressStop : destinationStops.values()) {
+                int stopIndex = this.data.stopFacilityIndices.get(egressStop.stop);
+                for (int e = profile.firstEntryPerStop[stopIndex], last = profile.firstEntryPerStop[stopIndex + 1]; e < last; e++) {
+                    PathElement pe = profile.entries[e];
+                    PathElement firstPE = pe;
+                    int ptLegCount = 0;
+                    while (firstPE.comingFrom != null) {
+                        if (!firstPE.isTransfer) {
+                            ptLegCount++;
+                        }
+                        firstPE = firstPE.comingFrom;
+                    }
+                    if (ptLegCount == 0 || firstPE.arrivalTime < earliestTimeAtStop || firstPE.arrivalTime > latestTimeAtStop) {
+                        continue;
+                    }
+                    double costOffset = (firstPE.arrivalTime - profile.earliestTimeAtStop) * profile.marginalUtilityOfWaitingPt_utl_s;
+                    double depTime = Math.floor(firstPE.arrivalTime - this.data.config.getMinimalTransferTime() - accessStop.accessTime);
+                    double arrTime = (int) (pe.arrivalTime + egressStop.accessTime);
+                    double cost = accessStop.accessCost + pe.arrivalTravelCost - costOffset + pe.arrivalTransferCost + egressStop.accessCost;
+                    journeysPerDeparture.computeIfAbsent(firstPE, k -> new ArrayList<>()).add(new ProfileJourney(pe, firstPE, costOffset, accessStop, egressStop, ptLegCount - 1, depTime, arrTime, cost));
+                }
+            }
+        }
+
+        // the search of calcRoutes only finds another journey for a departure if it is cheaper than the ones with fewer
+        // transfers, taking all egress stops into account
+        List<ProfileJourney> journeys = new ArrayList<>();
+        for (List<ProfileJourney> departureJourneys : journeysPerDeparture.values()) {
+            departureJourneys.sort(Comparator.comparingInt((ProfileJourney j) -> j.transferCount).thenComparingDouble(j -> j.cost));
+            double leastCost = Double.POSITIVE_INFINITY;
+            for (ProfileJourney journey : departureJourneys) {
+                if (journey.cost < leastCost) {
+                    journeys.add(journey);
+                    leastCost = journey.cost;
+                }
+            }
+        }
+
+        // eliminate duplicates, keeping the one with the least cost, and dominated journeys like in filterRoutes
+        journeys.sort((j1, j2) -> {
+            int cmp = Integer.compare(j1.transferCount, j2.transferCount);
+            if (cmp == 0) {
+                cmp = Double.compare(j1.depTime, j2.depTime);
+            }
+            if (cmp == 0) {
+                cmp = Double.compare(j1.arrTime, j2.arrTime);
+            }
+            if (cmp == 0) {
+                cmp = Double.compare(j1.cost, j2.cost);
+            }
+            return cmp;
+        });
+        List<ProfileJourney> uniqueJourneys = new ArrayList<>();
+        ProfileJourney last = null;
+        for (ProfileJourney journey : journeys) {
+            if (last == null || journey.transferCount != last.transferCount || journey.depTime != last.depTime || journey.arrTime != last.arrTime) {
+                uniqueJourneys.add(journey);
+                last = journey;
+            }
+        }
+        List<RaptorRoute> routes = new ArrayList<>();
+        for (ProfileJourney journey1 : uniqueJourneys) {
+            boolean dominated = false;
+            for (ProfileJourney journey2 : uniqueJourneys) {
+                if (journey1 != journey2 && journey2.transferCount <= journey1.transferCount && journey2.depTime >= journey1.depTime && journey2.arrTime <= journey1.arrTime) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated) {
+                routes.add(createRaptorRoute(fromFacility, toFacility, journey1.createPath(), journey1.depTime));
+            }
+        }
+        return filterRoutes(routes);
+    }
+
+    private static Map<TransitStopFacility, InitialStop> getDestinationStops(List<InitialStop> egressStops) {
+        Map<TransitStopFacility, InitialStop> destinationStops = new HashMap<>();
+        for (InitialStop egressStop : egressStops) {
+            InitialStop alternative = destinationStops.get(egressStop.stop);
+            if (alternative == null || egressStop.accessCost < alternative.accessCost) {
+                destinationStops.put(egressStop.stop, egressStop);
+            }
+        }
+        return destinationStops;
+    }
+
+    private void addDepartures(InitialStop accessStop, double earliestTimeAtStop, double latestTimeAtStop, double marginalUtilityOfWaitingPt_utl_s, List<DepartureAtRouteStop> departures) {
+        TransitStopFacility stop = accessStop.stop;
+        int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(stop);
+        if (routeStopIndices != null) {
+            for (int routeStopIndex : routeStopIndices) {
+                RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+                if (routeStop.routeStop == routeStop.route.getStops().get(routeStop.route.getStops().size() - 1)) {
+                    // this is the last stop of a route
+                    continue;
+                }
+                RRoute route = this.data.routes[routeStop.transitRouteIndex];
+                int depOffset = routeStop.departureOffset;
+                for (int depIndex = route.indexFirstDeparture; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
+                    int depTimeAtStart = this.data.departures[depIndex];
+                    int depTimeAtStop = depTimeAtStart + depOffset;
+                    if (depTimeAtStop >= earliestTimeAtStop && depTimeAtStop <= latestTimeAtStop) {
+                        double costOffset = (depTimeAtStop - earliestTimeAtStop) * marginalUtilityOfWaitingPt_utl_s;
+                        departures.add(new DepartureAtRouteStop(routeStop, routeStopIndex, depIndex, depTimeAtStop, costOffset, accessStop));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void sortDepartures(List<DepartureAtRouteStop> departures) {
+        departures.sort((d1, d2) -> {
+            // sort the departures by cost, not by time as in the original algorithm
+            double c1 = d1.costOffset + d1.accessStop.accessCost;
+            double c2 = d2.costOffset + d2.accessStop.accessCost;
+            int cmp = Double.compare(c1, c2);
+            if (cmp == 0) {
+                cmp = Integer.compare(d1.departureIndex, d2.departureIndex);
+            }
+            return -cmp; // negate, we want to order from biggest to smallest
+        });
+    }
+
     private double calculateOptimalDepartureTime(PathElement leastCostPath, Map<PathElement, InitialStop> initialStopsPerStartPath) {
         PathElement firstPE = leastCostPath;
         while (firstPE.comingFrom != null) {
@@ -886,6 +1053,112 @@ public class SwissRailRaptorCore {
         }
     }
 
+    /**
+     * All journeys found by a range query from a single stop within a time window, without any destination. For
+     * every stop, it contains every path element that was the least cost arrival at the stop after a round of the
+     * range query. These are exactly the path elements that a range query with a destination at that stop would
+     * consider, as long as the destination does not limit the search. The path elements include the cost offset
+     * of their departure, see calcRoutes, and start with an access of zero cost and time.
+     *
+     * A profile does not depend on the origin or destination of a trip, so it can be shared by all range queries
+     * starting at the same stop in the same time window with the same parameters.
+     */
+    static final class RangeQueryProfile {
+        final double earliestTimeAtStop;
+        final double latestTimeAtStop;
+        final double marginalUtilityOfWaitingPt_utl_s;
+        private int[] stopIndices = new int[64];
+        private PathElement[] entries = new PathElement[64];
+        private int entryCount = 0;
+        private int[] firstEntryPerStop;
+
+        private RangeQueryProfile(int countStops, double earliestTimeAtStop, double latestTimeAtStop, double marginalUtilityOfWaitingPt_utl_s) {
+            this.earliestTimeAtStop = earliestTimeAtStop;
+            this.latestTimeAtStop = latestTimeAtStop;
+            this.marginalUtilityOfWaitingPt_utl_s = marginalUtilityOfWaitingPt_utl_s;
+            this.firstEntryPerStop = new int[countStops + 1];
+        }
+
+        private void add(int stopIndex, PathElement pe) {
+            if (pe.comingFrom == null) {
+                return; // the departure stop itself
+            }
+            if (this.entryCount == this.entries.length) {
+                this.stopIndices = Arrays.copyOf(this.stopIndices, this.entryCount * 2);
+                this.entries = Arrays.copyOf(this.entries, this.entryCount * 2);
+            }
+            this.stopIndices[this.entryCount] = stopIndex;
+            this.entries[this.entryCount] = pe;
+            this.entryCount++;
+        }
+
+        private void finish() {
+            // sort the entries by stop, so the entries of a stop can be found quickly
+            for (int i = 0; i < this.entryCount; i++) {
+                this.firstEntryPerStop[this.stopIndices[i] + 1]++;
+            }
+            for (int stopIndex = 1; stopIndex < this.firstEntryPerStop.length; stopIndex++) {
+                this.firstEntryPerStop[stopIndex] += this.firstEntryPerStop[stopIndex - 1];
+            }
+            int[] position = Arrays.copyOf(this.firstEntryPerStop, this.firstEntryPerStop.length - 1);
+            PathElement[] sortedEntries = new PathElement[this.entryCount];
+            for (int i = 0; i < this.entryCount; i++) {
+                sortedEntries[position[this.stopIndices[i]]++] = this.entries[i];
+            }
+            this.entries = sortedEntries;
+            this.stopIndices = null;
+        }
+
+        /**
+         * @return the number of journeys stored in this profile
+         */
+        int size() {
+            return this.entryCount;
+        }
+    }
+
+    private static class ProfileJourney {
+        final PathElement lastPE;
+        final PathElement firstPE;
+        final double costOffset;
+        final InitialStop accessStop;
+        final InitialStop egressStop;
+        final int transferCount;
+        final double depTime;
+        final double arrTime;
+        final double cost;
+
+        ProfileJourney(PathElement lastPE, PathElement firstPE, double costOffset, InitialStop accessStop, InitialStop egressStop, int transferCount, double depTime, double arrTime, double cost) {
+            this.lastPE = lastPE;
+            this.firstPE = firstPE;
+            this.costOffset = costOffset;
+            this.accessStop = accessStop;
+            this.egressStop = egressStop;
+            this.transferCount = transferCount;
+            this.depTime = depTime;
+            this.arrTime = arrTime;
+            this.cost = cost;
+        }
+
+        /**
+         * Creates the path elements of this journey with the actual access and egress, without the cost offset.
+         */
+        PathElement createPath() {
+            PathElement pe = copyPath(this.lastPE, this.accessStop.accessCost - this.costOffset);
+            int arrivalTime = (int) (pe.arrivalTime + this.egressStop.accessTime);
+            double arrivalTravelCost = pe.arrivalTravelCost + this.egressStop.accessCost;
+            return new PathElement(pe, null, pe.firstDepartureTime, TIME_UNDEFINED, arrivalTime, arrivalTravelCost, pe.arrivalTransferCost, this.egressStop.distance, pe.transferCount, true, null, this.egressStop); // this is the egress leg
+        }
+
+        private PathElement copyPath(PathElement pe, double additionalCost) {
+            if (pe == this.firstPE) {
+                return new PathElement(null, pe.toRouteStop, pe.firstDepartureTime, pe.boardingTime, pe.arrivalTime, pe.arrivalTravelCost + additionalCost, 0, this.accessStop.distance, 0, true, null, this.accessStop);
+            }
+            PathElement comingFrom = copyPath(pe.comingFrom, additionalCost);
+            return new PathElement(comingFrom, pe.toRouteStop, pe.firstDepartureTime, pe.boardingTime, pe.arrivalTime, pe.arrivalTravelCost + additionalCost, pe.arrivalTransferCost, pe.distance, pe.transferCount, pe.isTransfer, pe.transfer, pe.initialStop);
+        }
+    }
+
     private static class DepartureAtRouteStop {
         final RRouteStop routeStop;
         final InitialStop accessStop;
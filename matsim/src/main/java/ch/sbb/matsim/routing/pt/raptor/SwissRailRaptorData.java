@@ -26,6 +26,15 @@ import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.Vehicles;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -36,15 +45,33 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
 
 /**
+ * The data SwissRailRaptor works on, prepared from the transit schedule by {@link #create(TransitSchedule, Vehicles, RaptorStaticConfig, Network, OccupancyData)}.
+ *
+ * The route stops and the transfers between them are calculated in parallel with the number of threads given in the
+ * {@link RaptorStaticConfig}. The calculation of the transfers takes most of the time for large schedules. If
+ * {@link RaptorStaticConfig#getTransfersCacheDirectory()} is set, the transfers are additionally stored in a cache
+ * file, named after a hash of the route stops, the departure times, the minimal transfer times and the transfer settings.
+ * Later runs with the same schedule and settings read this file (memory-mapped) instead of calculating the transfers again.
+ * The rest of the data references the objects of the transit schedule and is thus always created again.
+ *
  * @author mrieser / SBB
  */
 public class SwissRailRaptorData {
 
     private static final Logger log = LogManager.getLogger(SwissRailRaptorData.class);
 
+    private static final int CACHE_FILE_MAGIC = 0x53525254; // "SRRT"
+    private static final int CACHE_FILE_VERSION = 1;
+    private static final int CACHE_FILE_HEADER_SIZE = 4 + 4 + 4 + 4 + 8;
+
     final RaptorStaticConfig config;
     final int countStops;
     final int countRouteStops;
@@ -110,6 +137,9 @@ public class SwissRailRaptorData {
         Id<Departure>[] departureIds = new Id[(int) countDepartures];
         RRoute[] routes = new RRoute[countRoutes];
         RRouteStop[] routeStops = new RRouteStop[(int) countRouteStops];
+        TransitLine[] transitLines = new TransitLine[countRoutes];
+        TransitRoute[] transitRoutes = new TransitRoute[countRoutes];
+        int[] routeStopFacilityIndices = new int[(int) countRouteStops];
 
         int indexRoutes = 0;
         int indexRouteStops = 0;
@@ -118,92 +148,155 @@ public class SwissRailRaptorData {
         // enumerate TransitStopFacilities along their usage in transit routes to (hopefully) achieve a better memory locality
         // well, I'm not even sure how often we'll need the transit stop facilities, likely we'll use RouteStops more often
         Map<TransitStopFacility, Integer> stopFacilityIndices = new HashMap<>((int) (schedule.getFacilities().size() * 1.5));
-        Map<TransitStopFacility, int[]> routeStopsPerStopFacility = new HashMap<>();
 
-        boolean useModeMapping = staticConfig.isUseModeMappingForPassengers();
+        // first only enumerate everything, so the actual objects can be created in parallel afterwards
         for (TransitLine line : schedule.getTransitLines().values()) {
-            List<TransitRoute> transitRoutes = new ArrayList<>(line.getRoutes().values());
-            transitRoutes.sort(Comparator.comparingDouble(tr -> getEarliestDeparture(tr).getDepartureTime())); // sort routes by earliest departure for additional performance gains
-            for (TransitRoute route : transitRoutes) {
-                int indexFirstDeparture = indexDeparture;
-                String mode = TransportMode.pt;
-                if (useModeMapping) {
-                    mode = staticConfig.getPassengerMode(route.getTransportMode());
-                }
-                RRoute rroute = new RRoute(indexRouteStops, route.getStops().size(), indexFirstDeparture, route.getDepartures().size());
-                routes[indexRoutes] = rroute;
-                NetworkRoute networkRoute = route.getRoute();
-                List<Id<Link>> allLinkIds = new ArrayList<>();
-                allLinkIds.add(networkRoute.getStartLinkId());
-                allLinkIds.addAll(networkRoute.getLinkIds());
-                if (allLinkIds.size() > 1 || networkRoute.getStartLinkId() != networkRoute.getEndLinkId()) {
-                    allLinkIds.add(networkRoute.getEndLinkId());
-                }
-                Iterator<Id<Link>> linkIdIterator = allLinkIds.iterator();
-                Id<Link> currentLinkId = linkIdIterator.next();
-                double distanceAlongRoute = 0.0;
+            List<TransitRoute> lineRoutes = new ArrayList<>(line.getRoutes().values());
+            lineRoutes.sort(Comparator.comparingDouble(tr -> getEarliestDeparture(tr).getDepartureTime())); // sort routes by earliest departure for additional performance gains
+            for (TransitRoute route : lineRoutes) {
+                routes[indexRoutes] = new RRoute(indexRouteStops, route.getStops().size(), indexDeparture, route.getDepartures().size());
+                transitLines[indexRoutes] = line;
+                transitRoutes[indexRoutes] = route;
                 for (TransitRouteStop routeStop : route.getStops()) {
-                    while (!routeStop.getStopFacility().getLinkId().equals(currentLinkId)) {
-                        if (linkIdIterator.hasNext()) {
-                            currentLinkId = linkIdIterator.next();
-                            Link link = network.getLinks().get(currentLinkId);
-                            distanceAlongRoute += link.getLength();
-                        } else {
-                            distanceAlongRoute = Double.NaN;
-                            break;
-                        }
-                    }
-                    int stopFacilityIndex = stopFacilityIndices.computeIfAbsent(routeStop.getStopFacility(), stop -> stopFacilityIndices.size());
-                    final int thisRouteStopIndex = indexRouteStops;
-                    RRouteStop rRouteStop = new RRouteStop(thisRouteStopIndex, routeStop, line, route, mode, indexRoutes, stopFacilityIndex, distanceAlongRoute);
-                    routeStops[thisRouteStopIndex] = rRouteStop;
-                    routeStopsPerStopFacility.compute(routeStop.getStopFacility(), (stop, currentRouteStops) -> {
-                        if (currentRouteStops == null) {
-                            return new int[] { thisRouteStopIndex };
-                        }
-                        int[] tmp = new int[currentRouteStops.length + 1];
-                        System.arraycopy(currentRouteStops, 0, tmp, 0, currentRouteStops.length);
-                        tmp[currentRouteStops.length] = thisRouteStopIndex;
-                        return tmp;
-                    });
+                    routeStopFacilityIndices[indexRouteStops] = stopFacilityIndices.computeIfAbsent(routeStop.getStopFacility(), stop -> stopFacilityIndices.size());
                     indexRouteStops++;
                 }
-                for (Departure dep : route.getDepartures().values()) {
-                    departures[indexDeparture] = (int) dep.getDepartureTime();
-                    departureVehicles[indexDeparture] = vehicles.get(dep.getVehicleId());
-                    departureIds[indexDeparture] = dep.getId();
-                    indexDeparture++;
-                }
-                Arrays.sort(departures, indexFirstDeparture, indexDeparture);
+                indexDeparture += route.getDepartures().size();
                 indexRoutes++;
             }
         }
 
+        double[] earliestDepartureTimes = new double[countRoutes];
+        double[] latestDepartureTimes = new double[countRoutes];
+        boolean useModeMapping = staticConfig.isUseModeMappingForPassengers();
+        runInParallel(countRoutes, staticConfig.getNumberOfThreads(), routeIndex -> {
+            TransitLine line = transitLines[routeIndex];
+            TransitRoute route = transitRoutes[routeIndex];
+            RRoute rroute = routes[routeIndex];
+            String mode = TransportMode.pt;
+            if (useModeMapping) {
+                mode = staticConfig.getPassengerMode(route.getTransportMode());
+            }
+            NetworkRoute networkRoute = route.getRoute();
+            List<Id<Link>> allLinkIds = new ArrayList<>();
+            allLinkIds.add(networkRoute.getStartLinkId());
+            allLinkIds.addAll(networkRoute.getLinkIds());
+            if (allLinkIds.size() > 1 || networkRoute.getStartLinkId() != networkRoute.getEndLinkId()) {
+                allLinkIds.add(networkRoute.getEndLinkId());
+            }
+            Iterator<Id<Link>> linkIdIterator = allLinkIds.iterator();
+            Id<Link> currentLinkId = linkIdIterator.next();
+            double distanceAlongRoute = 0.0;
+            int routeStopIndex = rroute.indexFirstRouteStop;
+            for (TransitRouteStop routeStop : route.getStops()) {
+                while (!routeStop.getStopFacility().getLinkId().equals(currentLinkId)) {
+                    if (linkIdIterator.hasNext()) {
+                        currentLinkId = linkIdIterator.next();
+                        Link link = network.getLinks().get(currentLinkId);
+                        distanceAlongRoute += link.getLength();
+                    } else {
+                        distanceAlongRoute = Double.NaN;
+                        break;
+                    }
+                }
+                routeStops[routeStopIndex] = new RRouteStop(routeStopIndex, routeStop, line, route, mode, routeIndex, routeStopFacilityIndices[routeStopIndex], distanceAlongRoute);
+                routeStopIndex++;
+            }
+            int departureIndex = rroute.indexFirstDeparture;
+            double earliestDepartureTime = Double.NaN;
+            double latestDepartureTime = Double.NaN;
+            for (Departure dep : route.getDepartures().values()) {
+                departures[departureIndex] = (int) dep.getDepartureTime();
+                departureVehicles[departureIndex] = vehicles.get(dep.getVehicleId());
+                departureIds[departureIndex] = dep.getId();
+                earliestDepartureTime = departureIndex == rroute.indexFirstDeparture ? dep.getDepartureTime() : Math.min(earliestDepartureTime, dep.getDepartureTime());
+                latestDepartureTime = departureIndex == rroute.indexFirstDeparture ? dep.getDepartureTime() : Math.max(latestDepartureTime, dep.getDepartureTime());
+                departureIndex++;
+            }
+            Arrays.sort(departures, rroute.indexFirstDeparture, departureIndex);
+            earliestDepartureTimes[routeIndex] = earliestDepartureTime;
+            latestDepartureTimes[routeIndex] = latestDepartureTime;
+        });
+
+        // collect the route stops per stop facility, in the order of their index
+        TransitStopFacility[] stopFacilities = new TransitStopFacility[stopFacilityIndices.size()];
+        for (Map.Entry<TransitStopFacility, Integer> e : stopFacilityIndices.entrySet()) {
+            stopFacilities[e.getValue()] = e.getKey();
+        }
+        int[][] routeStopsPerStopFacilityIndex = new int[stopFacilities.length][];
+        int[] routeStopCounts = new int[stopFacilities.length];
+        for (int stopFacilityIndex : routeStopFacilityIndices) {
+            routeStopCounts[stopFacilityIndex]++;
+        }
+        for (int i = 0; i < stopFacilities.length; i++) {
+            routeStopsPerStopFacilityIndex[i] = new int[routeStopCounts[i]];
+            routeStopCounts[i] = 0;
+        }
+        for (int routeStopIndex = 0; routeStopIndex < routeStopFacilityIndices.length; routeStopIndex++) {
+            int stopFacilityIndex = routeStopFacilityIndices[routeStopIndex];
+            routeStopsPerStopFacilityIndex[stopFacilityIndex][routeStopCounts[stopFacilityIndex]++] = routeStopIndex;
+        }
+        Map<TransitStopFacility, int[]> routeStopsPerStopFacility = new HashMap<>((int) (stopFacilities.length * 1.5));
+        for (int i = 0; i < stopFacilities.length; i++) {
+            routeStopsPerStopFacility.put(stopFacilities[i], routeStopsPerStopFacilityIndex[i]);
+        }
+
         // only put used transit stops into the quad tree
         Set<TransitStopFacility> stops = routeStopsPerStopFacility.keySet();
         QuadTree<TransitStopFacility> stopsQT = TransitScheduleUtils.createQuadTreeOfTransitStopFacilities(stops);
         int countStopFacilities = stops.size();
 
-        Map<Integer, RTransfer[]> allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
-        long countTransfers = 0;
-        for (RTransfer[] transfers : allTransfers.values()) {
-            countTransfers += transfers.length;
-        }
-        if (countTransfers > Integer.MAX_VALUE) {
-            throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
-        }
-        RTransfer[] transfers = new RTransfer[(int) countTransfers];
-        int indexTransfer = 0;
-        for (int routeStopIndex = 0; routeStopIndex < routeStops.length; routeStopIndex++) {
-            RTransfer[] stopTransfers = allTransfers.get(routeStopIndex);
-            int transferCount = stopTransfers == null ? 0 : stopTransfers.length;
-            if (transferCount > 0) {
-                RRouteStop routeStop = routeStops[routeStopIndex];
+        Path cacheFile = null;
+        long hash = 0;
+        RTransfer[] transfers = null;
+        if (staticConfig.getTransfersCacheDirectory() != null) {
+            hash = calcTransfersHash(schedule, routeStops, earliestDepartureTimes, latestDepartureTimes, staticConfig);
+            cacheFile = Path.of(staticConfig.getTransfersCacheDirectory()).resolve("transfers-" + Long.toHexString(hash) + ".bin");
+            if (Files.exists(cacheFile)) {
+                try {
+                    transfers = readTransfersCacheFile(routeStops.length, hash, cacheFile);
+                    if (transfers != null) {
+                        log.info("read transfers from " + cacheFile);
+                    } else {
+                        log.warn("transfers in " + cacheFile + " do not match the transit schedule, they are calculated again.");
+                    }
+                } catch (IOException e) {
+                    log.warn("could not read transfers from " + cacheFile + ", they are calculated again.", e);
+                }
+            }
+        }
+        if (transfers == null) {
+            RTransfer[][] allTransfers = calculateRouteStopTransfers(schedule, stopsQT, stopFacilities, routeStopsPerStopFacilityIndex, routeStops, earliestDepartureTimes, latestDepartureTimes, staticConfig);
+            long countTransfers = 0;
+            for (RTransfer[] stopTransfers : allTransfers) {
+                countTransfers += stopTransfers == null ? 0 : stopTransfers.length;
+            }
+            if (countTransfers > Integer.MAX_VALUE) {
+                throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
+            }
+            transfers = new RTransfer[(int) countTransfers];
+            int indexTransfer = 0;
+            for (RTransfer[] stopTransfers : allTransfers) {
+                if (stopTransfers != null) {
+                    System.arraycopy(stopTransfers, 0, transfers, indexTransfer, stopTransfers.length);
+                    indexTransfer += stopTransfers.length;
+                }
+            }
+            if (cacheFile != null) {
+                try {
+                    writeTransfersCacheFile(transfers, routeStops.length, hash, cacheFile);
+                } catch (IOException e) {
+                    log.warn("could not write transfers to " + cacheFile, e);
+                }
+            }
+        }
+        // the transfers are sorted by their fromRouteStop
+        for (int indexTransfer = 0; indexTransfer < transfers.length; indexTransfer++) {
+            RRouteStop routeStop = routeStops[transfers[indexTransfer].fromRouteStop];
+            if (routeStop.countTransfers == 0) {
                 routeStop.indexFirstTransfer = indexTransfer;
-                routeStop.countTransfers = transferCount;
-                System.arraycopy(stopTransfers, 0, transfers, indexTransfer, transferCount);
-                indexTransfer += transferCount;
             }
+            routeStop.countTransfers++;
         }
 
         SwissRailRaptorData data = new SwissRailRaptorData(staticConfig, countStopFacilities, routes, departures, departureVehicles, departureIds, routeStops, transfers, stopFacilityIndices, routeStopsPerStopFacility, stopsQT, occupancyData);
@@ -218,47 +311,92 @@ public class SwissRailRaptorData {
         return data;
     }
 
-    // calculate possible transfers between TransitRouteStops
-    private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
-        Map<Integer, RTransfer[]> transfers = new HashMap<>(stopsQT.size() * 5);
+    /**
+     * Runs the task for every index from 0 to count - 1, distributed to the given number of threads.
+     */
+    private static void runInParallel(int count, int numberOfThreads, IntConsumer task) {
+        if (numberOfThreads <= 1 || count <= 1) {
+            for (int i = 0; i < count; i++) {
+                task.accept(i);
+            }
+            return;
+        }
+        int threads = Math.min(numberOfThreads, count);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int first = t;
+                // neighbouring indices are usually similar, so interleave them instead of handing out blocks
+                futures.add(executor.submit(() -> {
+                    for (int i = first; i < count; i += threads) {
+                        task.accept(i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // calculate possible transfers between TransitRouteStops, the transfers of every route stop are stored at its index
+    private static RTransfer[][] calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, TransitStopFacility[] stopFacilities,
+                                                             int[][] routeStopsPerStopFacilityIndex, RRouteStop[] routeStops,
+                                                             double[] earliestDepartureTimes, double[] latestDepartureTimes, RaptorStaticConfig config) {
+        RTransfer[][] transfers = new RTransfer[routeStops.length][];
         double maxBeelineWalkConnectionDistance = config.getBeelineWalkConnectionDistance();
         double beelineWalkSpeed = config.getBeelineWalkSpeed();
         double beelineDistanceFactor = config.getBeelineWalkDistanceFactor();
         double minimalTransferTime = config.getMinimalTransferTime();
 
-        Map<TransitStopFacility, List<TransitStopFacility>> stopToStopsTransfers = new HashMap<>();
-
-        // first, add transfers based on distance
-        for (TransitStopFacility fromStop : routeStopsPerStopFacility.keySet()) {
-            Coord fromCoord = fromStop.getCoord();
-            Collection<TransitStopFacility> nearbyStops = stopsQT.getDisk(fromCoord.getX(), fromCoord.getY(), maxBeelineWalkConnectionDistance);
-            stopToStopsTransfers.computeIfAbsent(fromStop, stop -> new ArrayList<>(5)).addAll(nearbyStops);
-        }
-
         // take the transfers from the schedule into account
+        Map<TransitStopFacility, List<TransitStopFacility>> scheduleTransfers = new HashMap<>();
         MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
         while (iter.hasNext()) {
             iter.next();
-            Id<TransitStopFacility> fromStopId = iter.getFromStopId();
-            TransitStopFacility fromStop = schedule.getFacilities().get(fromStopId);
-            Id<TransitStopFacility> toStopId = iter.getToStopId();
-            TransitStopFacility toStop = schedule.getFacilities().get(toStopId);
-            List<TransitStopFacility> destinationStops = stopToStopsTransfers.computeIfAbsent(fromStop, stop -> new ArrayList<>(5));
-            if (!destinationStops.contains(toStop)) {
-                destinationStops.add(toStop);
-            }
+            TransitStopFacility fromStop = schedule.getFacilities().get(iter.getFromStopId());
+            TransitStopFacility toStop = schedule.getFacilities().get(iter.getToStopId());
+            scheduleTransfers.computeIfAbsent(fromStop, stop -> new ArrayList<>(5)).add(toStop);
+        }
+        Map<TransitStopFacility, Integer> stopFacilityIndices = new HashMap<>((int) (stopFacilities.length * 1.5));
+        for (int i = 0; i < stopFacilities.length; i++) {
+            stopFacilityIndices.put(stopFacilities[i], i);
         }
 
-        // now calculate the transfers between the route stops
+        // now calculate the transfers between the route stops. Each stop facility only writes the transfers of its own route stops.
         MinimalTransferTimes mtt = schedule.getMinimalTransferTimes();
-        ArrayList<RTransfer> stopTransfers = new ArrayList<>();
-        for (Map.Entry<TransitStopFacility, List<TransitStopFacility>> e : stopToStopsTransfers.entrySet()) {
-            TransitStopFacility fromStop = e.getKey();
+        runInParallel(stopFacilities.length, config.getNumberOfThreads(), fromStopIndex -> {
+            TransitStopFacility fromStop = stopFacilities[fromStopIndex];
             Coord fromCoord = fromStop.getCoord();
-            int[] fromRouteStopIndices = routeStopsPerStopFacility.get(fromStop);
-            Collection<TransitStopFacility> nearbyStops = e.getValue();
+            // first, add transfers based on distance
+            List<TransitStopFacility> nearbyStops = new ArrayList<>(stopsQT.getDisk(fromCoord.getX(), fromCoord.getY(), maxBeelineWalkConnectionDistance));
+            for (TransitStopFacility toStop : scheduleTransfers.getOrDefault(fromStop, Collections.emptyList())) {
+                if (!nearbyStops.contains(toStop)) {
+                    nearbyStops.add(toStop);
+                }
+            }
+            int[] fromRouteStopIndices = routeStopsPerStopFacilityIndex[fromStopIndex];
+            List<List<RTransfer>> stopTransfers = new ArrayList<>(fromRouteStopIndices.length);
+            for (int i = 0; i < fromRouteStopIndices.length; i++) {
+                stopTransfers.add(new ArrayList<>());
+            }
             for (TransitStopFacility toStop : nearbyStops) {
-                int[] toRouteStopIndices = routeStopsPerStopFacility.get(toStop);
+                Integer toStopIndex = stopFacilityIndices.get(toStop);
+                if (toStopIndex == null) {
+                    continue; // the stop facility is not served by any route
+                }
+                int[] toRouteStopIndices = routeStopsPerStopFacilityIndex[toStopIndex];
                 double beelineDistance = CoordUtils.calcEuclideanDistance(fromCoord, toStop.getCoord());
                 double transferTime = beelineDistance / beelineWalkSpeed;
                 if (transferTime < minimalTransferTime) {
@@ -267,35 +405,124 @@ public class SwissRailRaptorData {
 
                 transferTime = mtt.get(fromStop.getId(), toStop.getId(), transferTime);
 
-                final double fixedTransferTime = transferTime; // variables must be effective final to be used in lambdas (below)
-
-                for (int fromRouteStopIndex : fromRouteStopIndices) {
+                for (int i = 0; i < fromRouteStopIndices.length; i++) {
+                    int fromRouteStopIndex = fromRouteStopIndices[i];
                     RRouteStop fromRouteStop = routeStops[fromRouteStopIndex];
-                    stopTransfers.clear();
                     for (int toRouteStopIndex : toRouteStopIndices) {
                         RRouteStop toRouteStop = routeStops[toRouteStopIndex];
-                        if (isUsefulTransfer(fromRouteStop, toRouteStop, maxBeelineWalkConnectionDistance, config.getOptimization())) {
-                            RTransfer newTransfer = new RTransfer(fromRouteStopIndex, toRouteStopIndex, fixedTransferTime, beelineDistance * beelineDistanceFactor);
-                            stopTransfers.add(newTransfer);
+                        if (isUsefulTransfer(fromRouteStop, toRouteStop, earliestDepartureTimes, latestDepartureTimes, maxBeelineWalkConnectionDistance, config.getOptimization())) {
+                            stopTransfers.get(i).add(new RTransfer(fromRouteStopIndex, toRouteStopIndex, transferTime, beelineDistance * beelineDistanceFactor));
                         }
                     }
-                    RTransfer[] newTransfers = stopTransfers.toArray(new RTransfer[0]);
-                    transfers.compute(fromRouteStopIndex, (routeStopIndex, currentTransfers) -> {
-                        if (currentTransfers == null) {
-                            return newTransfers;
-                        }
-                        RTransfer[] tmp = new RTransfer[currentTransfers.length + newTransfers.length];
-                        System.arraycopy(currentTransfers, 0, tmp, 0, currentTransfers.length);
-                        System.arraycopy(newTransfers, 0, tmp, currentTransfers.length, newTransfers.length);
-                        return tmp;
-                    });
                 }
             }
-        }
+            for (int i = 0; i < fromRouteStopIndices.length; i++) {
+                transfers[fromRouteStopIndices[i]] = stopTransfers.get(i).toArray(new RTransfer[0]);
+            }
+        });
         return transfers;
     }
 
-    private static boolean isUsefulTransfer(RRouteStop fromRouteStop, RRouteStop toRouteStop, double maxBeelineWalkConnectionDistance, RaptorStaticConfig.RaptorOptimization optimization) {
+    /**
+     * @return a hash of everything the transfers depend on: the route stops with their stop facilities, offsets and
+     * routes, the departure times of the routes, the minimal transfer times of the schedule and the transfer settings.
+     */
+    private static long calcTransfersHash(TransitSchedule schedule, RRouteStop[] routeStops, double[] earliestDepartureTimes, double[] latestDepartureTimes, RaptorStaticConfig config) {
+        long hash = 31L * routeStops.length + earliestDepartureTimes.length;
+        hash = 31 * hash + Double.doubleToLongBits(config.getBeelineWalkConnectionDistance());
+        hash = 31 * hash + Double.doubleToLongBits(config.getBeelineWalkSpeed());
+        hash = 31 * hash + Double.doubleToLongBits(config.getBeelineWalkDistanceFactor());
+        hash = 31 * hash + Double.doubleToLongBits(config.getMinimalTransferTime());
+        hash = 31 * hash + config.getOptimization().ordinal();
+        for (RRouteStop routeStop : routeStops) {
+            TransitStopFacility stop = routeStop.routeStop.getStopFacility();
+            hash = 31 * hash + stop.getId().toString().hashCode();
+            hash = 31 * hash + Double.doubleToLongBits(stop.getCoord().getX());
+            hash = 31 * hash + Double.doubleToLongBits(stop.getCoord().getY());
+            hash = 31 * hash + routeStop.line.getId().toString().hashCode();
+            hash = 31 * hash + routeStop.route.getId().toString().hashCode();
+            hash = 31 * hash + routeStop.arrivalOffset;
+            hash = 31 * hash + routeStop.departureOffset;
+        }
+        for (int routeIndex = 0; routeIndex < earliestDepartureTimes.length; routeIndex++) {
+            hash = 31 * hash + Double.doubleToLongBits(earliestDepartureTimes[routeIndex]);
+            hash = 31 * hash + Double.doubleToLongBits(latestDepartureTimes[routeIndex]);
+        }
+        // the minimal transfer times are not ordered, so just sum them up
+        long mttHash = 0;
+        MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+        while (iter.hasNext()) {
+            iter.next();
+            long entryHash = 31L * iter.getFromStopId().toString().hashCode() + iter.getToStopId().toString().hashCode();
+            mttHash += 31 * entryHash + Double.doubleToLongBits(iter.getSeconds());
+        }
+        return 31 * hash + mttHash;
+    }
+
+    private static RTransfer[] readTransfersCacheFile(int countRouteStops, long hash, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.nativeOrder());
+            if (buffer.remaining() < CACHE_FILE_HEADER_SIZE
+                    || buffer.getInt() != CACHE_FILE_MAGIC
+                    || buffer.getInt() != CACHE_FILE_VERSION
+                    || buffer.getInt() != countRouteStops) {
+                return null;
+            }
+            int countTransfers = buffer.getInt();
+            if (buffer.getLong() != hash || countTransfers < 0 || buffer.remaining() != (long) countTransfers * 4 * Integer.BYTES) {
+                return null;
+            }
+            IntBuffer values = buffer.asIntBuffer();
+            RTransfer[] transfers = new RTransfer[countTransfers];
+            int previousFromRouteStop = 0;
+            for (int i = 0; i < countTransfers; i++) {
+                int fromRouteStop = values.get();
+                int toRouteStop = values.get();
+                int transferTime = values.get();
+                int transferDistance = values.get();
+                if (fromRouteStop < previousFromRouteStop || fromRouteStop >= countRouteStops || toRouteStop < 0 || toRouteStop >= countRouteStops) {
+                    return null;
+                }
+                transfers[i] = new RTransfer(fromRouteStop, toRouteStop, transferTime, transferDistance);
+                previousFromRouteStop = fromRouteStop;
+            }
+            return transfers;
+        }
+    }
+
+    private static void writeTransfersCacheFile(RTransfer[] transfers, int countRouteStops, long hash, Path file) throws IOException {
+        if ((long) transfers.length * 4 * Integer.BYTES + CACHE_FILE_HEADER_SIZE > Integer.MAX_VALUE) {
+            log.warn("there are too many transfers to write them to " + file);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CACHE_FILE_HEADER_SIZE + transfers.length * 4 * Integer.BYTES).order(ByteOrder.nativeOrder());
+        buffer.putInt(CACHE_FILE_MAGIC);
+        buffer.putInt(CACHE_FILE_VERSION);
+        buffer.putInt(countRouteStops);
+        buffer.putInt(transfers.length);
+        buffer.putLong(hash);
+        for (RTransfer transfer : transfers) {
+            buffer.putInt(transfer.fromRouteStop);
+            buffer.putInt(transfer.toRouteStop);
+            buffer.putInt(transfer.transferTime);
+            buffer.putInt(transfer.transferDistance);
+        }
+        buffer.flip();
+
+        // write to a temporary file first, so concurrent runs never see an incomplete file
+        Files.createDirectories(file.getParent());
+        Path tmpFile = Files.createTempFile(file.getParent(), "transfers", ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("wrote transfers to " + file);
+    }
+
+    private static boolean isUsefulTransfer(RRouteStop fromRouteStop, RRouteStop toRouteStop, double[] earliestDepartureTimes, double[] latestDepartureTimes,
+                                            double maxBeelineWalkConnectionDistance, RaptorStaticConfig.RaptorOptimization optimization) {
         if (fromRouteStop == toRouteStop) {
             return false;
         }
@@ -309,7 +536,7 @@ public class SwissRailRaptorData {
         }
         // if the first departure at fromRouteStop arrives after the last departure at toRouteStop,
         // we'll never get any connection here
-        if (hasNoPossibleDeparture(fromRouteStop, toRouteStop)) {
+        if (hasNoPossibleDeparture(fromRouteStop, toRouteStop, earliestDepartureTimes, latestDepartureTimes)) {
             return false;
         }
         // if the stop facilities are different, and the destination stop is part
@@ -348,14 +575,14 @@ public class SwissRailRaptorData {
         return routeStop.routeStop == lastRouteStop;
     }
 
-    private static boolean hasNoPossibleDeparture(RRouteStop fromRouteStop, RRouteStop toRouteStop) {
-        Departure earliestDep = getEarliestDeparture(fromRouteStop.route);
-        Departure latestDep = getLatestDeparture(toRouteStop.route);
-        if (earliestDep == null || latestDep == null) {
+    private static boolean hasNoPossibleDeparture(RRouteStop fromRouteStop, RRouteStop toRouteStop, double[] earliestDepartureTimes, double[] latestDepartureTimes) {
+        double earliestDep = earliestDepartureTimes[fromRouteStop.transitRouteIndex];
+        double latestDep = latestDepartureTimes[toRouteStop.transitRouteIndex];
+        if (Double.isNaN(earliestDep) || Double.isNaN(latestDep)) {
             return true;
         }
-        double earliestArrival = earliestDep.getDepartureTime() + fromRouteStop.arrivalOffset;
-        double latestDeparture = latestDep.getDepartureTime() + toRouteStop.departureOffset;
+        double earliestArrival = earliestDep + fromRouteStop.arrivalOffset;
+        double latestDeparture = latestDep + toRouteStop.departureOffset;
         return earliestArrival > latestDeparture;
     }
 
@@ -369,16 +596,6 @@ public class SwissRailRaptorData {
         return earliest;
     }
 
-    private static Departure getLatestDeparture(TransitRoute route) {
-        Departure latest = null;
-        for (Departure dep : route.getDepartures().values()) {
-            if (latest == null || dep.getDepartureTime() > latest.getDepartureTime()) {
-                latest = dep;
-            }
-        }
-        return latest;
-    }
-
     private static boolean toStopIsPartOfRouteButNotSame(RRouteStop fromRouteStop, RRouteStop toRouteStop) {
         TransitStopFacility fromStopFacility = fromRouteStop.routeStop.getStopFacility();
         TransitStopFacility toStopFacility = toRouteStop.routeStop.getStopFacility();
@@ -70,8 +70,8 @@ public class LinkEnterEvent extends Event implements HasLinkId, HasVehicleId{
 	@Override
 	public Map<String, String> getAttributes() {
 		Map<String, String> attr = super.getAttributes();
-		attr.put(ATTRIBUTE_VEHICLE, this.vehicleId.toString());
-		attr.put(ATTRIBUTE_LINK, this.linkId.toString());
+		attr.put(ATTRIBUTE_VEHICLE, getVehicleId().toString());
+		attr.put(ATTRIBUTE_LINK, getLinkId().toString());
 		return attr;
 	}
 }
@@ -26,6 +26,7 @@ import org.matsim.utils.objectattributes.AttributeConverter;
 
 import java.io.OutputStream;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -70,11 +71,16 @@ public final class PopulationWriter implements MatsimWriter {
 	}
 
 	/**
-	 * Writes the population in the most current format (currently population_v6.dtd).
+	 * Writes the population in the most current format (currently population_v6.dtd), or in the binary
+	 * format if the filename ends with <code>.bin</code>.
 	 */
 	@Override
 	public void write(final String filename) {
-		writeV6( filename );
+		if ( filename.toLowerCase( Locale.ROOT ).endsWith( ".bin" ) ) {
+			writeBinary( filename );
+		} else {
+			writeV6( filename );
+		}
 	}
 
 	public void write(final OutputStream stream) {
@@ -111,6 +117,19 @@ public final class PopulationWriter implements MatsimWriter {
 		writer.writeV6(filename);
 	}
 
+	/**
+	 * Writes the population in the binary format of {@link org.matsim.core.population.io.PopulationWriterBinary},
+	 * which is a lot faster to write and read than xml.
+	 *
+	 * @param filename
+	 */
+	public void writeBinary(final String filename) {
+		final org.matsim.core.population.io.PopulationWriter writer =
+				new org.matsim.core.population.io.PopulationWriter( transformation , this.population, this.network);
+		writer.putAttributeConverters( attributeConverters );
+		writer.writeBinary(filename);
+	}
+
 	public void writeV6(final OutputStream stream) {
 		final org.matsim.core.population.io.PopulationWriter writer =
 				new org.matsim.core.population.io.PopulationWriter( transformation , this.population, this.network);
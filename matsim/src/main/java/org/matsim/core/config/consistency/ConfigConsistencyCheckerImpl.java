@@ -157,6 +157,17 @@ public final class ConfigConsistencyCheckerImpl implements ConfigConsistencyChec
 				config.controler().getRoutingAlgorithmType() != RoutingAlgorithmType.Dijkstra ) {
 			log.warn("We don't know if non-Dijkstra routing works together with LinkToLink routing.");
 		}
+
+		if ( config.controler().getRoutingAlgorithmType() == RoutingAlgorithmType.SpeedyCCH &&
+				config.plansCalcRoute().getRoutingRandomness() != 0. ) {
+			log.warn("SpeedyCCH computes the travel costs without the person, which does not work with a randomized travel disutility. " +
+					"Set the routing randomness to 0 or use SpeedyALT.");
+		}
+
+		if ( config.plansCalcRoute().isBatchedNetworkRouting() && config.plansCalcRoute().getRoutingRandomness() != 0. ) {
+			log.warn("Batched network routing computes the routes without the person, which does not work with a randomized travel disutility. " +
+					"The routes will not be computed in batches. Set the routing randomness to 0 to use it.");
+		}
 		
 	}
 
@@ -496,6 +496,7 @@ public final class VspConfigConsistencyCheckerImpl implements ConfigConsistencyC
 				System.out.flush();
 				break;
 			case SpeedyALT:
+			case SpeedyCCH:
 				break;
 		}
 		return problem;
@@ -34,11 +34,13 @@ import java.util.*;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = LogManager.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, SpeedyALT}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, SpeedyALT, SpeedyCCH}
 	
 	public enum EventTypeToCreateScoringFunctions {IterationStarts, BeforeMobsim}
 	
-	public enum EventsFileFormat {xml, pb, json}
+	public enum EventsFileFormat {xml, pb, json, bin}
+
+	public enum PlansFileFormat {xml, bin}
 
 	public enum CompressionType {
 		none(""),
@@ -64,12 +66,15 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String FIRST_ITERATION = "firstIteration";
 	private static final String LAST_ITERATION = "lastIteration";
 	private static final String ROUTINGALGORITHM_TYPE = "routingAlgorithmType";
+	private static final String LANDMARKS_CACHE_DIRECTORY = "landmarksCacheDirectory";
+	private static final String TIME_DEPENDENT_LANDMARKS = "timeDependentLandmarks";
 	private static final String RUNID = "runId";
 	private static final String LINKTOLINK_ROUTING_ENABLED = "enableLinkToLinkRouting";
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
 	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
+	private static final String PLANS_FILE_FORMAT = "plansFileFormat";
 	private static final String WRITE_TRIPS_INTERVAL = "writeTripsInterval";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
@@ -88,6 +93,8 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int firstIteration = 0;
 	private int lastIteration = 1000;
 	private RoutingAlgorithmType routingAlgorithmType = RoutingAlgorithmType.AStarLandmarks;
+	private String landmarksCacheDirectory = null;
+	private boolean timeDependentLandmarks = false;
 	private EventTypeToCreateScoringFunctions eventTypeToCreateScoringFunctions = EventTypeToCreateScoringFunctions.IterationStarts;
 	
 	private boolean linkToLinkRoutingEnabled = false;
@@ -98,6 +105,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 
 	private int writeEventsInterval= 50;
 	private int writePlansInterval= 50;
+	private PlansFileFormat plansFileFormat = PlansFileFormat.xml;
 	private int writeTripsInterval = 50;
 	private String mobsim = MobsimType.qsim.toString();
 	private int writeSnapshotsInterval = 1;
@@ -117,6 +125,12 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + Arrays.toString(RoutingAlgorithmType.values()));
+		map.put(LANDMARKS_CACHE_DIRECTORY, "Only used with " + RoutingAlgorithmType.SpeedyALT + ". A directory to store the landmarks in, so later runs " +
+				"with the same network and the same minimal travel costs can read them instead of computing them again. Default: none.");
+		map.put(TIME_DEPENDENT_LANDMARKS, "Only used with " + RoutingAlgorithmType.SpeedyALT + ". If true, additional landmarks are computed for every half " +
+				"hour with congestion, using the travel times of the last iteration as lower bounds. This speeds up the routing in the congested " +
+				"peak, but needs additional memory, and assumes that the travel disutility grows with the travel time at least by the marginal " +
+				"cost of time of the scoring. Default: false.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
 		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: " + Arrays.toString(EventsFileFormat.values()) + IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
@@ -126,6 +140,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
                 "to a file. `0' disables trips writing completely.");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
                 "written to a file. `0' disables plans writing completely.  Some plans in early iterations are always written");
+		map.put(PLANS_FILE_FORMAT, "Default="+PlansFileFormat.xml+"; Specifies the file format of the plans written during the iterations. " +
+				"Possible values: " + Arrays.toString(PlansFileFormat.values()) + ". The binary format is written and read a lot faster and can be " +
+				"read with the PopulationReader as well, but cannot be looked at. The final output plans are always written as xml.");
 		map.put(LINKTOLINK_ROUTING_ENABLED, "Default=false. If enabled, the router takes travel times needed for turning moves into account."
 		        + " Cannot be used if the (Fast)AStarLandmarks routing or TravelTimeCalculator.separateModes is enabled.");
 		map.put(FIRST_ITERATION, "Default=0. First Iteration of a simulation.");
@@ -195,6 +212,26 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.routingAlgorithmType = type;
 	}
 
+	@StringGetter( LANDMARKS_CACHE_DIRECTORY )
+	public String getLandmarksCacheDirectory() {
+		return this.landmarksCacheDirectory;
+	}
+
+	@StringSetter( LANDMARKS_CACHE_DIRECTORY )
+	public void setLandmarksCacheDirectory(final String landmarksCacheDirectory) {
+		this.landmarksCacheDirectory = landmarksCacheDirectory;
+	}
+
+	@StringGetter( TIME_DEPENDENT_LANDMARKS )
+	public boolean isTimeDependentLandmarks() {
+		return this.timeDependentLandmarks;
+	}
+
+	@StringSetter( TIME_DEPENDENT_LANDMARKS )
+	public void setTimeDependentLandmarks(final boolean timeDependentLandmarks) {
+		this.timeDependentLandmarks = timeDependentLandmarks;
+	}
+
 	@StringGetter( COMPRESSION_TYPE )
 	public CompressionType getCompressionType() {
 		return this.compressionType;
@@ -348,6 +385,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.writePlansInterval = writePlansInterval;
 	}
 	
+	@StringGetter( PLANS_FILE_FORMAT )
+	public PlansFileFormat getPlansFileFormat() {
+		return this.plansFileFormat;
+	}
+
+	@StringSetter( PLANS_FILE_FORMAT )
+	public void setPlansFileFormat(final PlansFileFormat plansFileFormat) {
+		this.plansFileFormat = plansFileFormat;
+	}
+
 	@StringGetter( WRITE_SNAPSHOTS_INTERVAL )
 	public int getWriteSnapshotsInterval() {
 		return writeSnapshotsInterval;
@@ -49,6 +49,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	private final static String EVENTS_QUEUE_SIZE_COMMENT = "Size of the events Queue. Increase for very large scenarios";
 	private int eventsQueueSize = 65536 * 2 ;
 
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private Boolean useRingBuffer = false;
+
 
 
 	private boolean locked = false;
@@ -67,6 +70,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
 		comments.put(EVENTS_QUEUE_SIZE,EVENTS_QUEUE_SIZE_COMMENT);
+		comments.put(USE_RING_BUFFER, "If enabled, events are passed to the handlers through a lock-free ring buffer of size " + EVENTS_QUEUE_SIZE + ". "
+				+ "Uses one thread per handler if " + NUMBER_OF_THREADS + " is not set or " + ONE_THREAD_PER_HANDLER + " is enabled. "
+				+ "This feature is still experimental!");
 		return comments;
 	}
 
@@ -144,6 +150,20 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( USE_RING_BUFFER )
+	public Boolean getUseRingBuffer() {
+		return this.useRingBuffer;
+	}
+
+	@StringSetter( USE_RING_BUFFER )
+	public void setUseRingBuffer(Boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
@@ -73,6 +73,7 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 	private static final String WAITING_PT = "waitingPt";
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
+	private static final String EVENT_HANDLER_SHARDS = "eventHandlerShards";
 
 	private static final String MARGINAL_UTL_OF_MONEY = "marginalUtilityOfMoney";
 
@@ -417,6 +418,11 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 				"[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money).");
 		map.put(WRITE_EXPERIENCED_PLANS,
 				"write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(EVENT_HANDLER_SHARDS,
+				"The number of event handlers among which the scoring of the persons is split by person. With a parallel events manager, "
+						+ "each of them runs in its own thread. Custom scoring functions must then not share state between persons. "
+						+ "The experienced legs and activities are passed to the other leg and activity handlers, e.g. the experienced plans, "
+						+ "after the mobsim, person by person.");
 
 		return map;
 	}
@@ -783,6 +789,14 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		delegate.setWriteExperiencedPlans(writeExperiencedPlans);
 	}
 
+	public int getEventHandlerShards() {
+		return delegate.getEventHandlerShards();
+	}
+
+	public void setEventHandlerShards(int eventHandlerShards) {
+		delegate.setEventHandlerShards(eventHandlerShards);
+	}
+
 	public double getMarginalUtlOfWaiting_utils_hr() {
 		if (getScoringParameters(null) != null)
 			return getScoringParameters(null).getMarginalUtlOfWaiting_utils_hr();
@@ -1581,6 +1595,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean writeExperiencedPlans = false;
 
+		private int eventHandlerShards = 1;
+
 		private Double fractionOfIterationsToStartScoreMSA = null;
 
 		private boolean usingOldScoringBelowZeroUtilityDuration = false;
@@ -1659,5 +1675,16 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter(EVENT_HANDLER_SHARDS)
+		public int getEventHandlerShards() {
+			return eventHandlerShards;
+		}
+
+		@StringSetter(EVENT_HANDLER_SHARDS)
+		public void setEventHandlerShards(int eventHandlerShards) {
+			testForLocked();
+			this.eventHandlerShards = eventHandlerShards;
+		}
+
 	}
 }
@@ -98,6 +98,14 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	private static final String RANDOMNESS = "routingRandomness" ;
 	private double routingRandomness = 3. ;
 	// ---
+	private static final String BATCHED_NETWORK_ROUTING = "batchedNetworkRouting";
+	private static final String BATCHED_NETWORK_ROUTING_CMT = "If true, the replanning threads compute the network routes from the same link in the same 15 minute time bin " +
+																		"with a single one-to-many search, if there are enough of them.  This is an approximation:  the routes are computed for the earliest departure " +
+																		"of the time bin and without person-specific travel disutilities, so they only equal the individually computed routes if the travel " +
+																		"disutilities do not change within the time bin and do not depend on the person.  Requires routingRandomness=0, and does not apply " +
+																		"if an accessEgressType is set.";
+	private boolean batchedNetworkRouting = false;
+	// ---
 	private static final String CLEAR_MODE_ROUTING_PARAMS = "clearDefaultTeleportedModeParams";
 	private static final String CLEAR_MODE_ROUTING_PARAMS_CMT = "Some typical teleportation routing params are set by default, such as for walk and bike.  " +
 																		"Setting this switch to \"true\" will clear them.  Note that this will also clear " +
@@ -520,6 +528,9 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		else if (ACCESSEGRESSTYPE.equals( key ) ) {
 			this.setAccessEgressType(AccessEgressType.valueOf(value));
 		}
+		else if (BATCHED_NETWORK_ROUTING.equals( key ) ) {
+			this.setBatchedNetworkRouting(Boolean.parseBoolean(value));
+		}
 		else {
 			throw new IllegalArgumentException(key);
 		}
@@ -532,6 +543,7 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		map.put(  CLEAR_MODE_ROUTING_PARAMS, Boolean.toString( this.clearingDefaultModeRoutingParams ) ) ;
 		map.put(  RANDOMNESS, Double.toString( this.routingRandomness ) ) ;
 		map.put(  ACCESSEGRESSTYPE, getAccessEgressType().toString()) ;
+		map.put(  BATCHED_NETWORK_ROUTING, Boolean.toString( this.batchedNetworkRouting ) ) ;
 		return map;
 	}
 
@@ -547,6 +559,7 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
 		map.put( CLEAR_MODE_ROUTING_PARAMS, CLEAR_MODE_ROUTING_PARAMS_CMT ) ;
 		map.put(ACCESSEGRESSTYPE, ACCESSEGRESSTYPE_CMT);
+		map.put(BATCHED_NETWORK_ROUTING, BATCHED_NETWORK_ROUTING_CMT);
 		return map;
 	}
 
@@ -650,6 +663,21 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.routingRandomness = routingRandomness;
 	}
 
+	@StringGetter(BATCHED_NETWORK_ROUTING)
+	public boolean isBatchedNetworkRouting() {
+		return batchedNetworkRouting;
+	}
+	/**
+	 * Lets the replanning compute the network routes from the same link in the same time bin together, see
+	 * {@link org.matsim.core.router.speedy.BatchedLeastCostPathCalculator}.  The routes are then computed for the
+	 * earliest departure of the time bin and without person, so they are an approximation of the individually
+	 * computed routes.  This only has an effect with a routing randomness of 0.
+	 */
+	@StringSetter(BATCHED_NETWORK_ROUTING)
+	public void setBatchedNetworkRouting(boolean batchedNetworkRouting) {
+		this.batchedNetworkRouting = batchedNetworkRouting;
+	}
+
 	@Override protected void checkConsistency(Config config) {
 		super.checkConsistency(config);
 		Set<String> modesRoutedAsTeleportation = this.getModeRoutingParams().keySet();
@@ -110,6 +110,14 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(PACKING_UNSELECTED_PLANS, "If true, the plan elements of unselected plans are stored in a more compact form when the plans were prepared for the mobsim, " +
+				"and recreated when they are accessed the next time. This saves memory with many plans per person, but references to " +
+				"plan elements of unselected plans must not be kept across iterations. default=false.");
+
+		comments.put(SKIPPING_VALIDATED_PLANS, "If true, plans which were already checked (and routed if necessary) before a mobsim are not checked " +
+				"again before the next mobsim, unless they were replaced by replanning. Code modifying plans in place must then call " +
+				"PlanRoutingMetadata.reset(plan). default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -247,6 +255,28 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 
+	private static final String PACKING_UNSELECTED_PLANS = "packingUnselectedPlans";
+	private boolean packingUnselectedPlans = false;
+	@StringGetter(PACKING_UNSELECTED_PLANS)
+	public boolean isPackingUnselectedPlans() {
+		return this.packingUnselectedPlans;
+	}
+	@StringSetter(PACKING_UNSELECTED_PLANS)
+	public void setPackingUnselectedPlans(final boolean packingUnselectedPlans) {
+		this.packingUnselectedPlans = packingUnselectedPlans;
+	}
+
+	private static final String SKIPPING_VALIDATED_PLANS = "skippingValidatedPlans";
+	private boolean skippingValidatedPlans = false;
+	@StringGetter(SKIPPING_VALIDATED_PLANS)
+	public boolean isSkippingValidatedPlans() {
+		return this.skippingValidatedPlans;
+	}
+	@StringSetter(SKIPPING_VALIDATED_PLANS)
+	public void setSkippingValidatedPlans(final boolean skippingValidatedPlans) {
+		this.skippingValidatedPlans = skippingValidatedPlans;
+	}
+
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
 		return inputCRS;
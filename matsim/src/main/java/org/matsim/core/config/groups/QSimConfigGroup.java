@@ -20,9 +20,11 @@
 
 package org.matsim.core.config.groups;
 
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.core.utils.collections.CollectionUtils;
 import org.matsim.core.utils.misc.OptionalTime;
@@ -151,6 +153,21 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private final static String FAST_CAPACITY_UPDATE = "usingFastCapacityUpdate";
 	private boolean usingFastCapacityUpdate = true;
 	// ---
+	private final static String POOLED_LINK_EVENTS = "usingPooledLinkEvents";
+	private boolean usingPooledLinkEvents = false;
+	// ---
+	private static final String NETSIM_ENGINE_SCHEDULING = "netsimEngineScheduling";
+
+	public enum NetsimEngineScheduling {staticPartitioning, workStealing}
+
+	private NetsimEngineScheduling netsimEngineScheduling = NetsimEngineScheduling.staticPartitioning;
+	// ---
+	private static final String PARALLEL_ACTIVITY_AND_TELEPORTATION_ENGINES = "usingParallelActivityAndTeleportationEngines";
+	private boolean usingParallelActivityAndTeleportationEngines = false;
+	// ---
+	private static final String BATCHED_EVENTS = "usingBatchedEvents";
+	private boolean usingBatchedEvents = false;
+	// ---
 	private static final String VEHICLES_SOURCE = "vehiclesSource";
 	private VehiclesSource vehiclesSource = VehiclesSource.defaultVehicle;
 	private Collection<String> seepModes = Collections.singletonList(TransportMode.bike);
@@ -213,6 +230,21 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.");
+		map.put(POOLED_LINK_EVENTS, "If true, the netsim engine re-uses the instances of link enter and link leave events from earlier time steps "
+				+ "instead of creating new ones for every vehicle moving over a node. This reduces garbage collection, but event handlers must "
+				+ "not keep references to these events after the time step. Requires events to be synchronized on sim steps. Default is false.");
+		map.put(NETSIM_ENGINE_SCHEDULING, "How the threads of the netsim engine share the work. " + NetsimEngineScheduling.staticPartitioning
+				+ ": every thread moves the vehicles of a fixed part of the network. " + NetsimEngineScheduling.workStealing
+				+ ": the active nodes and links are split into small tasks, and threads that are done take over tasks of the other threads. "
+				+ "Better if the traffic is concentrated in few parts of the network. Default is " + NetsimEngineScheduling.staticPartitioning + ".");
+		map.put(PARALLEL_ACTIVITY_AND_TELEPORTATION_ENGINES, "If true, the activity engine and the teleportation engine end the activities "
+				+ "and teleported legs that are due in a time step on " + NUMBER_OF_THREADS + " threads. Their events and the departures are "
+				+ "passed on one agent after the other on the main thread, in the same order as without threads. Requires agents whose activity and leg ends do not depend on "
+				+ "each other, i.e. typically not for within-day replanning. Default is false.");
+		map.put(BATCHED_EVENTS, "If true, the threads of the netsim engine and of the activity engine collect their events and pass them on "
+				+ "to the events manager at the end of each sub-step, in a fixed order of the threads. This avoids contention on the events "
+				+ "manager, but event handlers only see the events of a sub-step after it is done, i.e. typically not for within-day "
+				+ "replanning. Default is false.");
 		map.put(USE_LANES, "Set this parameter to true if lanes should be used, false if not.");
 		{
 			StringBuilder stb = new StringBuilder();
@@ -232,6 +264,18 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		return map;
 	}
 
+	@Override
+	protected void checkConsistency(Config config) {
+		super.checkConsistency(config);
+		ParallelEventHandlingConfigGroup eventHandling = config.parallelEventHandling();
+		boolean parallelEventHandling = eventHandling.getNumberOfThreads() != null
+				|| BooleanUtils.isTrue(eventHandling.getOneThreadPerHandler()) || BooleanUtils.isTrue(eventHandling.getUseRingBuffer());
+		if (this.usingPooledLinkEvents && parallelEventHandling && !BooleanUtils.isTrue(eventHandling.getSynchronizeOnSimSteps())) {
+			throw new RuntimeException("Pooled link events are re-used in the next time step, so parallel event handling needs to be "
+					+ "synchronized on sim steps. Set " + POOLED_LINK_EVENTS + " to false or synchronize the events.");
+		}
+	}
+
 	private boolean isSeepModeStorageFree = false;
 
 	private EndtimeInterpretation simEndtimeInterpretation;
@@ -411,6 +455,61 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingFastCapacityUpdate = val;
 	}
 
+	@StringGetter(NETSIM_ENGINE_SCHEDULING)
+	public final NetsimEngineScheduling getNetsimEngineScheduling() {
+		return this.netsimEngineScheduling;
+	}
+
+	@StringSetter(NETSIM_ENGINE_SCHEDULING)
+	public final void setNetsimEngineScheduling(NetsimEngineScheduling netsimEngineScheduling) {
+		this.netsimEngineScheduling = netsimEngineScheduling;
+	}
+
+	@StringGetter(PARALLEL_ACTIVITY_AND_TELEPORTATION_ENGINES)
+	public final boolean isUsingParallelActivityAndTeleportationEngines() {
+		return this.usingParallelActivityAndTeleportationEngines;
+	}
+
+	/**
+	 * If set to true, the agents whose activities or teleported legs end in a time step are split among
+	 * {@link #getNumberOfThreads()} threads.  Their events are collected per agent and passed on afterwards on the main
+	 * thread, together with the departures, in the same order as by the single-threaded engines.
+	 */
+	@StringSetter(PARALLEL_ACTIVITY_AND_TELEPORTATION_ENGINES)
+	public final void setUsingParallelActivityAndTeleportationEngines(boolean val) {
+		this.usingParallelActivityAndTeleportationEngines = val;
+	}
+
+	@StringGetter(BATCHED_EVENTS)
+	public final boolean isUsingBatchedEvents() {
+		return this.usingBatchedEvents;
+	}
+
+	/**
+	 * If set to true, the events that are thrown while the nodes, the links or the due activities are handled are
+	 * collected per thread and passed on to the events manager as one {@link org.matsim.core.events.EventArray} per
+	 * thread once the sub-step is done.
+	 */
+	@StringSetter(BATCHED_EVENTS)
+	public final void setUsingBatchedEvents(boolean val) {
+		this.usingBatchedEvents = val;
+	}
+
+	@StringGetter(POOLED_LINK_EVENTS)
+	public final boolean isUsingPooledLinkEvents() {
+		return this.usingPooledLinkEvents;
+	}
+
+	/**
+	 * If set to true, {@link org.matsim.api.core.v01.events.LinkEnterEvent}s and {@link org.matsim.api.core.v01.events.LinkLeaveEvent}s
+	 * created by the netsim engine are re-used in later time steps.  Event handlers must thus not keep references to them, and the events
+	 * need to be processed by the end of every time step, i.e. parallel event handling must synchronize on sim steps.
+	 */
+	@StringSetter(POOLED_LINK_EVENTS)
+	public final void setUsingPooledLinkEvents(boolean val) {
+		this.usingPooledLinkEvents = val;
+	}
+
 	@StringGetter(SNAPSHOT_STYLE)
 	public SnapshotStyle getSnapshotStyle() {
 		return this.snapshotStyle;
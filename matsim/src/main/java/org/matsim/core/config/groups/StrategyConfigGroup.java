@@ -106,6 +106,8 @@ public final class StrategyConfigGroup extends ConfigGroup {
 			StringBuilder strats = new StringBuilder() ;
 			strats.append( DefaultStrategy.ReRoute ) ;
 			sels.append( ' ' );
+			strats.append( DefaultStrategy.ReRouteIfTravelTimesChanged ) ;
+			sels.append( ' ' );
 			strats.append( DefaultStrategy.TimeAllocationMutator ) ;
 			sels.append( ' ' );
 			strats.append( DefaultStrategy.TimeAllocationMutator_ReRoute ) ;
@@ -292,6 +294,8 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TMP_FILE_ROOT_DIR, "root directory for temporary files generated by the external executable. Provided as a service; "
 				+ "I don't think this is used by MATSim.") ;
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TIME_OUT, "time out value (in seconds) after which matsim will consider the external strategy as failed") ;
+		map.put(ReflectiveDelegate.TRAVEL_TIME_CHANGE_THRESHOLD_FOR_RE_ROUTE, "used by the ReRouteIfTravelTimesChanged strategy: a plan is only re-routed if the travel time "
+				+ "of one of its network routes under the current travel times differs by more than this fraction from the travel time when it was routed.") ;
 		return map ;
 	}
 
@@ -404,6 +408,14 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		delegate.setFractionOfIterationsToDisableInnovation(fraction);
 	}
 
+	public double getTravelTimeChangeThresholdForReRoute() {
+		return delegate.getTravelTimeChangeThresholdForReRoute();
+	}
+
+	public void setTravelTimeChangeThresholdForReRoute(double threshold) {
+		delegate.setTravelTimeChangeThresholdForReRoute(threshold);
+	}
+
 	@Override
 	public final Map<String, String> getParams() {
 		return delegate.getParams();
@@ -416,6 +428,7 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		 static final String EXTERNAL_EXE_TIME_OUT = "ExternalExeTimeOut";
 		 static final String ITERATION_FRACTION_TO_DISABLE_INNOVATION = "fractionOfIterationsToDisableInnovation" ;
 		 static final String PLAN_SELECTOR_FOR_REMOVAL = "planSelectorForRemoval" ;
+		 static final String TRAVEL_TIME_CHANGE_THRESHOLD_FOR_RE_ROUTE = "travelTimeChangeThresholdForReRoute" ;
 
 		private int maxAgentPlanMemorySize = 5;
 		private String externalExeConfigTemplate = null;
@@ -427,6 +440,8 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		//---
 		private double fraction = Double.POSITIVE_INFINITY ;
 		//---
+		private double travelTimeChangeThresholdForReRoute = 0.1 ;
+		//---
 
 		public ReflectiveDelegate() {
 			super( StrategyConfigGroup.GROUP_NAME );
@@ -492,6 +507,16 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		public void setFractionOfIterationsToDisableInnovation(double fraction) {
 			this.fraction = fraction;
 		}
+
+		@StringGetter( TRAVEL_TIME_CHANGE_THRESHOLD_FOR_RE_ROUTE )
+		public double getTravelTimeChangeThresholdForReRoute() {
+			return travelTimeChangeThresholdForReRoute;
+		}
+
+		@StringSetter( TRAVEL_TIME_CHANGE_THRESHOLD_FOR_RE_ROUTE )
+		public void setTravelTimeChangeThresholdForReRoute(double threshold) {
+			this.travelTimeChangeThresholdForReRoute = threshold;
+		}
 	}
 }
 
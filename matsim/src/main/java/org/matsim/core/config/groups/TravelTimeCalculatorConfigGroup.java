@@ -41,7 +41,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 
 	public static final String GROUPNAME = "travelTimeCalculator";
 
-	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap}
+	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap,TravelTimeCalculatorSlab,TravelTimeCalculatorSlabOffHeap}
 
 	private static final String TRAVEL_TIME_CALCULATOR = "travelTimeCalculator";
 	private static final String TRAVEL_TIME_BIN_SIZE = "travelTimeBinSize";
@@ -55,6 +55,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private static final String ANALYZEDMODES = "analyzedModes";
 	private static final String FILTERMODES = "filterModes";
 	private static final String SEPARATEMODES = "separateModes";
+	private static final String EVENT_HANDLER_SHARDS = "eventHandlerShards";
 
 	private TravelTimeCalculatorType travelTimeCalculator = TravelTimeCalculatorType.TravelTimeCalculatorArray;
 	private String travelTimeAggregator = "optimistic";
@@ -68,6 +69,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	private Set<String> analyzedModes = new LinkedHashSet<>(  ) ;
 	private boolean filterModes = false;
 	private boolean separateModes = true;
+	private int eventHandlerShards = 1;
 
 	public TravelTimeCalculatorConfigGroup() {
 		super(GROUPNAME);
@@ -89,7 +91,11 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 							 "respected by the travel time collector. 'car' is default which includes also buses from the pt simulation module.");
 		map.put(FILTERMODES, "(only for backwards compatiblity; only used if " + SEPARATEMODES + "==false)  Only modes included in analyzedModes are included." ) ;
 		map.put(SEPARATEMODES, "(only for backwards compatibility) If false, link travel times are measured and aggregated over all vehicles using the link." ) ;
-		map.put( TRAVEL_TIME_CALCULATOR, "possible values: " + Arrays.stream( TravelTimeCalculatorType.values() ).map( type -> type.toString() + ' ' ).collect( Collectors.joining() ) );
+		map.put( TRAVEL_TIME_CALCULATOR, "possible values: " + Arrays.stream( TravelTimeCalculatorType.values() ).map( type -> type.toString() + ' ' ).collect( Collectors.joining() )
+				+ ". " + TravelTimeCalculatorType.TravelTimeCalculatorSlab + " stores the travel times of all links in one large array, which is easier on the " +
+				"garbage collector for large networks, " + TravelTimeCalculatorType.TravelTimeCalculatorSlabOffHeap + " stores them outside of the java heap." );
+		map.put(EVENT_HANDLER_SHARDS, "The number of event handlers among which the link events are split by link. With a parallel events manager, " +
+				"each of them runs in its own thread. Not supported together with " + CALCULATE_LINKTOLINK_TRAVELTIMES + ".");
 		return map;
 	}
 
@@ -212,5 +218,15 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 	public void setSeparateModes(boolean separateModes) {
 		this.separateModes = separateModes;
 	}
+	// ---
+	@StringGetter(EVENT_HANDLER_SHARDS)
+	public int getEventHandlerShards() {
+		return this.eventHandlerShards;
+	}
+
+	@StringSetter(EVENT_HANDLER_SHARDS)
+	public void setEventHandlerShards(int eventHandlerShards) {
+		this.eventHandlerShards = eventHandlerShards;
+	}
 
 }
@@ -80,12 +80,14 @@ public final class Controler implements ControlerI, MatsimServices, AllowsConfig
 		changeEvents("change_events.xml"),
 		counts("counts.xml"),
 		population("plans.xml"),
+		populationBin("plans.bin"),
 		experiencedPlans("experienced_plans.xml"),
 		households("households.xml"),
 		facilities("facilities.xml"),
 		events("events.xml"),
 		eventsPb("events.pb"),
 		eventsJson("events.ndjson"),
+		eventsBin("events.bin"),
 		transitSchedule("transitSchedule.xml"),
 		transitVehicles("transitVehicles.xml"),
 		vehicles("vehicles.xml"),
@@ -277,8 +279,8 @@ public final class Controler implements ControlerI, MatsimServices, AllowsConfig
 	 * to calculate routes, e.g. from your own replanning code or your own within-day replanning
 	 * agent code.
 	 * You get a Provider (and not an instance directly) because your code may want to later
-	 * create more than one instance. A TripRouter is not guaranteed to be thread-safe, so
-	 * you must get() an instance for each thread if you plan to write multi-threaded code.
+	 * create more than one instance. A TripRouter creates its routing modules per thread, so
+	 * one instance can be shared by multiple threads.
 	 *
 	 * See {@link org.matsim.core.router.TripRouter} for more information and pointers to examples.
 	 */
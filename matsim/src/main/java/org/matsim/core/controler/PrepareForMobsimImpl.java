@@ -26,10 +26,14 @@ import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.AbstractPersonAlgorithm;
 import org.matsim.core.population.algorithms.ParallelPersonAlgorithmUtils;
 import org.matsim.core.population.algorithms.PersonPrepareForSim;
@@ -59,10 +63,13 @@ public final class PrepareForMobsimImpl implements PrepareForMobsim {
 	private final ActivityFacilities activityFacilities;
 	private final Provider<TripRouter> tripRouterProvider;
 	private final TimeInterpretation timeInterpretation;
+	private final PlansConfigGroup plansConfigGroup;
+	private final IterationCounter iterationCounter;
 
 	@Inject
 	PrepareForMobsimImpl(GlobalConfigGroup globalConfigGroup, Scenario scenario, Network network,
-				Population population, ActivityFacilities activityFacilities, Provider<TripRouter> tripRouterProvider, TimeInterpretation timeInterpretation) {
+				Population population, ActivityFacilities activityFacilities, Provider<TripRouter> tripRouterProvider, TimeInterpretation timeInterpretation,
+				PlansConfigGroup plansConfigGroup, IterationCounter iterationCounter) {
 		this.globalConfigGroup = globalConfigGroup;
 		this.scenario = scenario;
 		this.network = network;
@@ -70,6 +77,8 @@ public final class PrepareForMobsimImpl implements PrepareForMobsim {
 		this.activityFacilities = activityFacilities;
 		this.tripRouterProvider = tripRouterProvider;
 		this.timeInterpretation = timeInterpretation;
+		this.plansConfigGroup = plansConfigGroup;
+		this.iterationCounter = iterationCounter;
 	}
 
 
@@ -95,12 +104,35 @@ public final class PrepareForMobsimImpl implements PrepareForMobsim {
 		}
 
 		// make sure all routes are calculated.
+		// the trip router creates the routing modules per thread, so all threads can share it
+		TripRouter tripRouter = tripRouterProvider.get();
+		// plans which were checked before a previous mobsim and not replaced since are skipped if configured. This is
+		// most of the population in later iterations, as only the plans of re-planned persons are new.
+		final boolean skippingValidatedPlans = plansConfigGroup.isSkippingValidatedPlans();
+		final Integer iteration = iterationCounter.getIterationNumber();
+		// packed after the plans were checked, as checking a plan unpacks it. Plans which are still packed were checked
+		// before they were packed and not changed since, so they stay packed
+		final boolean packingUnselectedPlans = plansConfigGroup.isPackingUnselectedPlans();
 		ParallelPersonAlgorithmUtils.run(population, globalConfigGroup.getNumberOfThreads(),
 				new ParallelPersonAlgorithmUtils.PersonAlgorithmProvider() {
 					@Override
 					public AbstractPersonAlgorithm getPersonAlgorithm() {
-						return new PersonPrepareForSim(new PlanRouter(tripRouterProvider.get(), activityFacilities, timeInterpretation), scenario,
+						PersonPrepareForSim algorithm = new PersonPrepareForSim(new PlanRouter(tripRouter, activityFacilities, timeInterpretation), scenario,
 								carOnlyNetwork );
+						if (skippingValidatedPlans && iteration != null) {
+							algorithm.setSkippingValidatedPlans(iteration);
+						}
+						if (!packingUnselectedPlans) {
+							return algorithm;
+						}
+						algorithm.setSkippingPackedPlans();
+						return new AbstractPersonAlgorithm() {
+							@Override
+							public void run(Person person) {
+								algorithm.run(person);
+								packUnselectedPlans(person);
+							}
+						};
 					}
 					// yyyyyy This prepared network is only used for computing the distance.  So the full network would
 					// actually be better than the car-only network, without doing damage elsewhere.  No?  kai, jul'18
@@ -111,4 +143,17 @@ public final class PrepareForMobsimImpl implements PrepareForMobsim {
 
 	}
 
+	/**
+	 * Packs the plan elements of the unselected plans, see {@link PopulationUtils#packPlanElements(Plan)}.  Most of them
+	 * are only looked at for their score until they are selected again, so they stay packed for many iterations.
+	 */
+	private static void packUnselectedPlans(Person person) {
+		Plan selectedPlan = person.getSelectedPlan();
+		for (Plan plan : person.getPlans()) {
+			if (plan != selectedPlan) {
+				PopulationUtils.packPlanElements(plan);
+			}
+		}
+	}
+
 }
@@ -196,9 +196,19 @@ public final class PrepareForSimImpl implements PrepareForSim, PrepareForMobsim
 		// the above creation of vehicles per agent has to be run before executing the initial routing here. janek, aug'19
 		// At least xy2links is needed here, i.e. earlier than PrepareForMobsimImpl.  It could, however, presumably be separated out
 		// (i.e. we introduce a separate PersonPrepareForMobsim).  kai, jul'18
+		// the trip router creates the routing modules per thread, so all threads can share it
+		TripRouter tripRouter = tripRouterProvider.get();
+		// plans checked here are marked as checked before the first iteration, so that PrepareForMobsim can skip them if configured
+		final int firstIteration = scenario.getConfig().controler().getFirstIteration();
 		ParallelPersonAlgorithmUtils.run(population, globalConfigGroup.getNumberOfThreads(),
-				() -> new PersonPrepareForSim(new PlanRouter(tripRouterProvider.get(), activityFacilities, timeInterpretation), scenario,
-						carOnlyNetwork)
+				() -> {
+					PersonPrepareForSim algorithm = new PersonPrepareForSim(new PlanRouter(tripRouter, activityFacilities, timeInterpretation), scenario,
+							carOnlyNetwork);
+					if (plansConfigGroup.isSkippingValidatedPlans()) {
+						algorithm.setSkippingValidatedPlans(firstIteration);
+					}
+					return algorithm;
+				}
 		);
 
 		if (scenario instanceof Lockable) {
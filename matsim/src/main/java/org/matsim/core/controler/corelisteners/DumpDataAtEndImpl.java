@@ -156,6 +156,10 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 					case json:
 						file = Controler.DefaultFiles.eventsJson;
 						break;
+					case bin:
+						IOUtils.copyFile(this.controlerIO.getIterationFilename(iteration, Controler.DefaultFiles.eventsBin, null),
+								this.controlerIO.getOutputFilename(Controler.DefaultFiles.eventsBin, null));
+						continue;
 					default:
 						continue;
 				}
@@ -58,6 +58,7 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	@Inject private IterationStopWatch stopwatch;
 	@Inject private OutputDirectoryHierarchy controlerIO;
 	private int writePlansInterval ;
+	private final ControlerConfigGroup.PlansFileFormat plansFileFormat;
 
 	private int writeMoreUntilIteration;
 
@@ -65,6 +66,7 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	PlansDumpingImpl(ControlerConfigGroup config) {
 		this.writePlansInterval = config.getWritePlansInterval();
 		this.writeMoreUntilIteration = config.getWritePlansUntilIteration() ;
+		this.plansFileFormat = config.getPlansFileFormat();
 	}
 
 	@Override
@@ -77,9 +79,13 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 			log.info("dumping plans...");
 			final String inputCRS = config.plans().getInputCRS();
 			final String internalCRS = config.global().getCoordinateSystem();
+			// the PopulationWriter picks the format by the file ending
+			final String filename = this.plansFileFormat == ControlerConfigGroup.PlansFileFormat.bin ?
+					controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.populationBin, null) :
+					controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population);
 
 			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
+				new PopulationWriter(population, network).write(filename);
 			}
 			else {
 				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
@@ -89,7 +95,7 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 								internalCRS,
 								inputCRS );
 
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.DefaultFiles.population));
+				new PopulationWriter(transformation, population, network).write(filename);
 			}
 			log.info("finished plans dump.");
 			stopwatch.endOperation("dump all plans");
@@ -0,0 +1,113 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchingEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Decorates an {@link EventsManager} so that the events thrown by a thread can be collected in an {@link EventArray}
+ * instead of being passed on one by one.  While a thread is between {@link #startBatching(EventArray)} and
+ * {@link #stopBatching()}, all events it throws through <i>any</i> instance of this class are appended to the array
+ * of the thread.  Outside of these calls, events are passed on to the delegate immediately.
+ * <p>
+ * The collected events are not passed on by this class.  Whoever started the batching is responsible for passing the
+ * array to an events manager, usually once per time step and in a fixed order of the batches, see
+ * {@link EventsManager#processEvents(EventArray)}.  Note that some events managers keep the array they are given, so
+ * the array must not be re-used afterwards.
+ */
+public final class BatchingEventsManager implements EventsManager {
+
+	private static final ThreadLocal<EventArray> batch = new ThreadLocal<>();
+
+	private final EventsManager delegate;
+
+	public BatchingEventsManager(EventsManager delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Collects the events that the current thread throws from now on in the given array.
+	 */
+	public static void startBatching(EventArray events) {
+		batch.set(events);
+	}
+
+	/**
+	 * Stops collecting the events of the current thread, so that they are passed on immediately again.
+	 */
+	public static void stopBatching() {
+		batch.remove();
+	}
+
+	@Override
+	public void processEvent(Event event) {
+		EventArray events = batch.get();
+		if (events != null) {
+			events.add(event);
+		} else {
+			this.delegate.processEvent(event);
+		}
+	}
+
+	@Override
+	public void processEvents(EventArray events) {
+		EventArray currentBatch = batch.get();
+		if (currentBatch != null) {
+			for (int i = 0; i < events.size(); i++) {
+				currentBatch.add(events.get(i));
+			}
+		} else {
+			this.delegate.processEvents(events);
+		}
+	}
+
+	@Override
+	public void addHandler(EventHandler handler) {
+		this.delegate.addHandler(handler);
+	}
+
+	@Override
+	public void removeHandler(EventHandler handler) {
+		this.delegate.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		this.delegate.afterSimStep(time);
+	}
+
+	@Override
+	public void finishProcessing() {
+		this.delegate.finishProcessing();
+	}
+}
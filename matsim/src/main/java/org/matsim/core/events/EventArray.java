@@ -24,6 +24,11 @@ public class EventArray {
 		size++;
 	}
 
+	public void set(int index, Event element) {
+		assert index < size;
+		array[index] = element;
+	}
+
 	public void removeLast() {
 		array[size - 1] = null;
 		size--;
@@ -0,0 +1,321 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}.
+ * <p>
+ * The block index at the end of the file allows to only read the events of a given time window, see
+ * {@link #readFile(String, double, double)}. If more than one thread is configured, the blocks are decoded
+ * in parallel, but the events are still passed to the events manager in the order they were written.
+ *
+ * @see EventWriterBinary for a description of the file format
+ */
+public final class EventsReaderBinary {
+
+	private final static Logger log = LogManager.getLogger(EventsReaderBinary.class);
+
+	private final EventsManager events;
+	private final Map<String, MatsimEventsReader.CustomEventMapper> customEventMappers = new HashMap<>();
+	private int numberOfThreads = 1;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+	}
+
+	public void addCustomEventMapper(String eventType, MatsimEventsReader.CustomEventMapper cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	/**
+	 * Sets the number of threads used to decode blocks. The events are always handed to the events manager
+	 * from the calling thread.
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1, but was " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * @return <code>true</code> if the file starts with the magic bytes of the binary events format.
+	 */
+	public static boolean isBinaryEventsFile(final String filename) {
+		try (InputStream in = Files.newInputStream(Path.of(filename))) {
+			byte[] magic = in.readNBytes(EventWriterBinary.MAGIC.length);
+			return Arrays.equals(magic, EventWriterBinary.MAGIC);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	public void readFile(final String filename) {
+		readFile(filename, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Reads only the events with <code>fromTime &lt;= time &lt; toTime</code>. Blocks outside the time window are
+	 * not read at all.
+	 */
+	public void readFile(final String filename, final double fromTime, final double toTime) {
+		log.info("reading binary events from " + filename);
+		try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+			ByteBuffer trailer = read(channel, channel.size() - EventWriterBinary.TRAILER_SIZE, EventWriterBinary.TRAILER_SIZE);
+			trailer.getDouble(); // time slice, only informative
+			long dictionaryOffset = trailer.getLong();
+			long indexOffset = trailer.getLong();
+			byte[] magic = new byte[EventWriterBinary.MAGIC.length];
+			trailer.get(magic);
+			ByteBuffer header = read(channel, 0, EventWriterBinary.MAGIC.length + 4);
+			byte[] headerMagic = new byte[EventWriterBinary.MAGIC.length];
+			header.get(headerMagic);
+			if (!Arrays.equals(magic, EventWriterBinary.MAGIC) || !Arrays.equals(headerMagic, EventWriterBinary.MAGIC)) {
+				throw new IllegalArgumentException(filename + " is not a binary events file or is incomplete.");
+			}
+			int version = header.getInt();
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary events file " + filename);
+			}
+
+			String[] dictionary = readDictionary(read(channel, dictionaryOffset, (int) (indexOffset - dictionaryOffset)));
+			List<Block> blocks = new ArrayList<>();
+			ByteBuffer index = read(channel, indexOffset, (int) (channel.size() - EventWriterBinary.TRAILER_SIZE - indexOffset));
+			int blockCount = index.getInt();
+			for (int i = 0; i < blockCount; i++) {
+				Block block = new Block(index.getLong(), index.getInt(), index.getInt(), index.getInt(), index.getDouble(), index.getDouble());
+				if (block.maxTime >= fromTime && block.minTime < toTime) {
+					blocks.add(block);
+				}
+			}
+			log.info("reading " + blocks.size() + " of " + blockCount + " blocks using " + this.numberOfThreads + " thread(s).");
+
+			BlockDecoder decoder = new BlockDecoder(channel, dictionary, fromTime, toTime);
+			if (this.numberOfThreads == 1) {
+				for (Block block : blocks) {
+					process(decoder.decode(block));
+				}
+			} else {
+				readParallel(decoder, blocks);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readParallel(BlockDecoder decoder, List<Block> blocks) {
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "EventsReaderBinary");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			// limit the number of decoded, but not yet processed blocks to keep the memory bounded
+			int window = 2 * this.numberOfThreads;
+			Deque<Future<EventArray>> pending = new ArrayDeque<>();
+			int next = 0;
+			while (next < blocks.size() || !pending.isEmpty()) {
+				while (next < blocks.size() && pending.size() < window) {
+					Block block = blocks.get(next++);
+					pending.add(executor.submit(() -> decoder.decode(block)));
+				}
+				process(pending.poll().get());
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Exception while decoding binary events.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void process(EventArray array) {
+		for (int i = 0; i < array.size(); i++) {
+			this.events.processEvent(array.get(i));
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of file.");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static String[] readDictionary(ByteBuffer buffer) {
+		String[] dictionary = new String[(int) readVarLong(buffer)];
+		for (int i = 0; i < dictionary.length; i++) {
+			int length = (int) readVarLong(buffer);
+			dictionary[i] = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		}
+		return dictionary;
+	}
+
+	private static long readVarLong(ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private record Block(long offset, int compressedSize, int size, int eventCount, double minTime, double maxTime) {
+	}
+
+	/**
+	 * Decodes single blocks. Can be used concurrently from several threads.
+	 */
+	private final class BlockDecoder {
+		private final FileChannel channel;
+		private final String[] dictionary;
+		private final double fromTime;
+		private final double toTime;
+		private final EventsReaderXMLv1 eventFactory;
+
+		BlockDecoder(FileChannel channel, String[] dictionary, double fromTime, double toTime) {
+			this.channel = channel;
+			this.dictionary = dictionary;
+			this.fromTime = fromTime;
+			this.toTime = toTime;
+			// re-use the event construction of the xml reader, so both formats result in exactly the same events
+			this.eventFactory = new EventsReaderXMLv1(events);
+			customEventMappers.forEach(this.eventFactory::addCustomEventMapper);
+		}
+
+		EventArray decode(Block block) throws IOException {
+			ByteBuffer compressed = read(this.channel, block.offset, block.compressedSize);
+			byte[] data = new byte[block.size];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(compressed.array(), 0, block.compressedSize);
+				int length = 0;
+				while (length < data.length) {
+					int n = inflater.inflate(data, length, data.length - length);
+					if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+						throw new IOException("Block at offset " + block.offset + " is truncated.");
+					}
+					length += n;
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Block at offset " + block.offset + " is corrupt.", e);
+			} finally {
+				inflater.end();
+			}
+
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			int eventCount = (int) readVarLong(buffer);
+			ByteBuffer types = column(buffer);
+			ByteBuffer times = column(buffer);
+			ByteBuffer attributeCounts = column(buffer);
+			ByteBuffer keys = column(buffer);
+			ByteBuffer values = column(buffer);
+
+			EventArray result = new EventArray(eventCount);
+			AttributesImpl atts = new AttributesImpl();
+			long lastSecond = 0;
+			for (int i = 0; i < eventCount; i++) {
+				String type = this.dictionary[(int) readVarLong(types)];
+				double time;
+				long t = readVarLong(times);
+				if ((t & 1) == EventWriterBinary.TIME_INTEGRAL) {
+					lastSecond += unZigZag(t >>> 1);
+					time = lastSecond;
+				} else {
+					time = times.getDouble();
+				}
+
+				int attributeCount = (int) readVarLong(attributeCounts);
+				atts.clear();
+				atts.addAttribute(null, Event.ATTRIBUTE_TIME, Event.ATTRIBUTE_TIME, null, Double.toString(time));
+				atts.addAttribute(null, Event.ATTRIBUTE_TYPE, Event.ATTRIBUTE_TYPE, null, type);
+				for (int a = 0; a < attributeCount; a++) {
+					String key = this.dictionary[(int) readVarLong(keys)];
+					long v = readVarLong(values);
+					String value;
+					int kind = (int) (v & 3);
+					if (kind == EventWriterBinary.VALUE_DICTIONARY) {
+						value = this.dictionary[(int) (v >>> 2)];
+					} else if (kind == EventWriterBinary.VALUE_DOUBLE) {
+						value = Double.toString(values.getDouble());
+					} else {
+						value = null;
+					}
+					atts.addAttribute(null, key, key, null, value);
+				}
+				if (time >= this.fromTime && time < this.toTime) {
+					result.add(this.eventFactory.createEvent(atts));
+				}
+			}
+			return result;
+		}
+
+		private ByteBuffer column(ByteBuffer buffer) {
+			int length = (int) readVarLong(buffer);
+			ByteBuffer column = buffer.slice(buffer.position(), length);
+			buffer.position(buffer.position() + length);
+			return column;
+		}
+	}
+}
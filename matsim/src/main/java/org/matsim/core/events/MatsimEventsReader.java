@@ -50,6 +50,7 @@ public final class MatsimEventsReader implements MatsimReader {
 	private final EventsManager events;
 
 	private final Map<String, CustomEventMapper> customEventMappers = new LinkedHashMap<>();
+	private int numberOfThreads = 1;
 
 	public interface CustomEventMapper {
 		Event apply(GenericEvent event);
@@ -68,6 +69,18 @@ public final class MatsimEventsReader implements MatsimReader {
 		this.events = events;
 	}
 
+	/**
+	 * Sets the number of threads used to create event objects when reading xml or binary events files.
+	 * With more than one thread, reading, parsing and creating the events happen in parallel, but the
+	 * events are still passed to the events manager in the order of the file, and from the calling thread.
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1, but was " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
 	/**
 	 * Parses the specified events file.
 	 *
@@ -77,11 +90,20 @@ public final class MatsimEventsReader implements MatsimReader {
 	public void readFile(final String filename) {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz") || lcFilename.endsWith(".xml.zst") || lcFilename.endsWith(".xml.lz4")) {
-			new XmlEventsReader(this.events, this.customEventMappers).readFile(filename );
+			if (this.numberOfThreads > 1) {
+				new ParallelEventsReaderXMLv1(this.events, this.customEventMappers, this.numberOfThreads).readFile(filename);
+			} else {
+				new XmlEventsReader(this.events, this.customEventMappers).readFile(filename );
+			}
 		} else if (lcFilename.endsWith(".ndjson") || lcFilename.endsWith(".ndjson.gz") || lcFilename.endsWith(".ndjson.zst")) {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
 			reader.parse(filename);
+		} else if (lcFilename.endsWith(".bin")) {
+			EventsReaderBinary reader = new EventsReaderBinary(this.events);
+			customEventMappers.forEach(reader::addCustomEventMapper);
+			reader.setNumberOfThreads(this.numberOfThreads);
+			reader.readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -102,6 +124,9 @@ public final class MatsimEventsReader implements MatsimReader {
 			case pb:
 				throw new UnsupportedOperationException(
 						"PB (Protobuf) is currently not supported to read from a stream");
+			case bin:
+				throw new UnsupportedOperationException(
+						"Binary events need random access and cannot be read from a stream, use readFile() instead");
 			case json:
 				EventsReaderJson reader = new EventsReaderJson(this.events);
 				customEventMappers.forEach(reader::addCustomEventMapper);
@@ -113,7 +138,11 @@ public final class MatsimEventsReader implements MatsimReader {
 	@Override
 	public void readURL( final URL url ) {
 		if (url.getFile().contains(".xml")) {
-			new XmlEventsReader( this.events, this.customEventMappers).readURL( url );
+			if (this.numberOfThreads > 1) {
+				new ParallelEventsReaderXMLv1(this.events, this.customEventMappers, this.numberOfThreads).readURL(url);
+			} else {
+				new XmlEventsReader( this.events, this.customEventMappers).readURL( url );
+			}
 		} else if (url.getFile().contains(".ndjson")) {
 			EventsReaderJson reader = new EventsReaderJson(this.events);
 			customEventMappers.forEach(reader::addCustomEventMapper);
@@ -0,0 +1,293 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelEventsReaderXMLv1.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events_v1 xml files using a pipeline of threads:
+ * <ol>
+ * <li>one thread reads and decompresses the file into chunks of bytes,</li>
+ * <li>one thread parses the xml and collects the attributes of the events in batches,</li>
+ * <li>several threads create the event objects from these batches,</li>
+ * <li>the calling thread passes the events to the events manager, in the original order of the file.</li>
+ * </ol>
+ * The event objects are created by {@link EventsReaderXMLv1#createEvent(Attributes)}, so the resulting
+ * events are the same as with the single-threaded reader, including custom event mappers.
+ *
+ * @see org.matsim.core.population.io.ParallelPopulationReaderMatsimV6
+ */
+/* deliberately package */ final class ParallelEventsReaderXMLv1 {
+
+	private static final Logger log = LogManager.getLogger(ParallelEventsReaderXMLv1.class);
+
+	private static final int CHUNK_SIZE = 1 << 20;
+	private static final int BATCH_SIZE = 4096;
+
+	private final EventsManager events;
+	private final EventsReaderXMLv1 eventFactory;
+	private final int numberOfThreads;
+
+	ParallelEventsReaderXMLv1(final EventsManager events, final Map<String, MatsimEventsReader.CustomEventMapper> customEventMappers, final int numberOfThreads) {
+		this.events = events;
+		this.numberOfThreads = numberOfThreads;
+		// only used to create events, which does not change the state of the reader and is thus thread-safe
+		this.eventFactory = new EventsReaderXMLv1(events);
+		customEventMappers.forEach(this.eventFactory::addCustomEventMapper);
+	}
+
+	void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	void readURL(final URL url) {
+		log.info("starting to parse events from " + url + " using " + this.numberOfThreads + " threads ...");
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "ParallelEventsReaderXMLv1");
+			thread.setDaemon(true);
+			return thread;
+		});
+		BlockingQueue<CompletableFuture<EventArray>> batches = new ArrayBlockingQueue<>(4 * this.numberOfThreads);
+		ChunkedInputStream stream = new ChunkedInputStream(url);
+		Tokenizer tokenizer = new Tokenizer(stream, batches, executor);
+
+		Thread decompressor = new Thread(stream, "ParallelEventsReaderXMLv1-decompressor");
+		decompressor.setDaemon(true);
+		Thread tokenizerThread = new Thread(tokenizer, "ParallelEventsReaderXMLv1-tokenizer");
+		tokenizerThread.setDaemon(true);
+		decompressor.start();
+		tokenizerThread.start();
+
+		try {
+			while (true) {
+				EventArray array = batches.take().get();
+				if (array == null) {
+					break;
+				}
+				for (int i = 0; i < array.size(); i++) {
+					this.events.processEvent(array.get(i));
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new RuntimeException("Exception while reading events.", e.getCause());
+		} finally {
+			stream.abort();
+			tokenizerThread.interrupt();
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Parses the xml and hands batches of event attributes to the executor. Futures of the batches are
+	 * added to the queue in file order, a future completed with <code>null</code> marks the end.
+	 */
+	private final class Tokenizer extends MatsimXmlParser implements Runnable {
+
+		private final InputStream stream;
+		private final BlockingQueue<CompletableFuture<EventArray>> batches;
+		private final ExecutorService executor;
+		private List<Attributes> batch = new ArrayList<>(BATCH_SIZE);
+
+		Tokenizer(InputStream stream, BlockingQueue<CompletableFuture<EventArray>> batches, ExecutorService executor) {
+			super(ValidationType.NO_VALIDATION);
+			this.setValidating(false); // events-files have no DTD, thus they cannot validate
+			this.stream = stream;
+			this.batches = batches;
+			this.executor = executor;
+		}
+
+		@Override
+		public void run() {
+			try {
+				try {
+					parse(this.stream);
+					submit();
+					this.batches.put(CompletableFuture.completedFuture(null));
+				} catch (RuntimeException e) {
+					this.batches.put(CompletableFuture.failedFuture(e));
+				}
+			} catch (InterruptedException e) {
+				// the reader was aborted, nobody is waiting for more batches
+			}
+		}
+
+		@Override
+		public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+			if (EventsReaderXMLv1.EVENT.equals(name)) {
+				// the parser re-uses the attributes object, so it has to be copied
+				this.batch.add(new AttributesImpl(atts));
+				if (this.batch.size() == BATCH_SIZE) {
+					submit();
+				}
+			}
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			// ignore characters to prevent OutOfMemoryExceptions, see EventsReaderXMLv1
+		}
+
+		@Override
+		public void endTag(final String name, final String content, final Stack<String> context) {
+		}
+
+		private void submit() {
+			if (this.batch.isEmpty()) {
+				return;
+			}
+			List<Attributes> current = this.batch;
+			this.batch = new ArrayList<>(BATCH_SIZE);
+			CompletableFuture<EventArray> future = CompletableFuture.supplyAsync(() -> {
+				EventArray array = new EventArray(current.size());
+				for (Attributes atts : current) {
+					array.add(eventFactory.createEvent(atts));
+				}
+				return array;
+			}, this.executor);
+			try {
+				this.batches.put(future);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * An input stream whose data is read and decompressed by another thread ({@link #run()}) in chunks.
+	 */
+	private static final class ChunkedInputStream extends InputStream implements Runnable {
+
+		private static final byte[] END = new byte[0];
+
+		private final URL url;
+		private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(8);
+		private volatile IOException exception = null;
+		private volatile boolean aborted = false;
+		private byte[] current = null;
+		private int currentLength = 0;
+		private int position = 0;
+
+		ChunkedInputStream(URL url) {
+			this.url = url;
+		}
+
+		@Override
+		public void run() {
+			try (InputStream in = IOUtils.getInputStream(this.url)) {
+				while (!this.aborted) {
+					byte[] chunk = in.readNBytes(CHUNK_SIZE);
+					if (chunk.length == 0) {
+						break;
+					}
+					this.chunks.put(chunk);
+				}
+			} catch (IOException e) {
+				this.exception = e;
+			} catch (UncheckedIOException e) {
+				this.exception = new IOException(e);
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				this.chunks.put(END);
+			} catch (InterruptedException e) {
+				// aborted
+			}
+		}
+
+		void abort() {
+			this.aborted = true;
+			this.chunks.clear();
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!ensureData()) {
+				return -1;
+			}
+			return this.current[this.position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!ensureData()) {
+				return -1;
+			}
+			int n = Math.min(len, this.currentLength - this.position);
+			System.arraycopy(this.current, this.position, b, off, n);
+			this.position += n;
+			return n;
+		}
+
+		private boolean ensureData() throws IOException {
+			if (this.current == END) {
+				return false;
+			}
+			if (this.current != null && this.position < this.currentLength) {
+				return true;
+			}
+			try {
+				this.current = this.chunks.take();
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted while waiting for data.", e);
+			}
+			this.currentLength = this.current.length;
+			this.position = 0;
+			if (this.current == END) {
+				if (this.exception != null) {
+					throw this.exception;
+				}
+				return false;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,387 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import jakarta.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * An EventsManager that hands events to its handlers through a pre-allocated ring buffer instead of
+ * the blocking queues used by {@link ParallelEventsManager}.
+ * <p>
+ * Every event is written exactly once into a slot of the ring. The handlers are split into groups
+ * (either one group per handler, or a fixed number of groups), and each group is served by its own
+ * thread that keeps its own sequence cursor into the ring. Producers only have to wait if the slowest
+ * group is a full ring behind. Neither producers nor consumers take locks or signal each other; idle
+ * threads spin shortly and then park for a few microseconds.
+ * <p>
+ * Events published from a single thread are seen by every handler in publication order. If
+ * <code>syncOnTimeSteps</code> is enabled, {@link #afterSimStep(double)} blocks until all handlers
+ * have processed all events published so far, as in the other parallel events managers.
+ */
+public final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = LogManager.getLogger(RingBufferEventsManager.class);
+
+	private static final int SPIN_TRIES = 1000;
+	private static final int YIELD_TRIES = 100;
+	private static final long PARK_NANOS = 50_000;
+	/** maximum number of events a consumer processes before it publishes its progress to the producers */
+	private static final int MAX_BATCH_SIZE = 1024;
+
+	private final boolean syncOnTimeSteps;
+	private final boolean oneThreadPerHandler;
+	private final int numOfThreads;
+	private final List<EventHandler> eventsHandlers = new ArrayList<>();
+	private List<EventsManager> eventsManagers = new ArrayList<>();
+	private final ExceptionHandler uncaughtExceptionHandler = new ExceptionHandler();
+
+	private final Event[] ring;
+	private final int mask;
+	/** the sequence number last published into each slot, used by the consumers to detect available events */
+	private final AtomicLongArray published;
+	/** the highest sequence number claimed by a producer so far */
+	private final AtomicLong claimed = new AtomicLong(-1);
+	/** cached minimum of all consumer cursors, only a hint for the producers */
+	private volatile long gatingSequence = -1;
+
+	private ConsumerThread[] consumers = new ConsumerThread[0];
+	private int iteration = 0;
+	private volatile boolean init = false;
+
+	@Inject
+	RingBufferEventsManager(Config config) {
+		this(config.parallelEventHandling().getSynchronizeOnSimSteps() != null ? config.parallelEventHandling().getSynchronizeOnSimSteps() : true,
+				config.parallelEventHandling().getNumberOfThreads() == null || Boolean.TRUE.equals(config.parallelEventHandling().getOneThreadPerHandler()),
+				config.parallelEventHandling().getNumberOfThreads() == null ? -1 : config.parallelEventHandling().getNumberOfThreads(),
+				config.parallelEventHandling().getEventsQueueSize());
+	}
+
+	/**
+	 * Creates an events manager with one consumer thread per handler.
+	 */
+	public RingBufferEventsManager(final boolean syncOnTimeSteps, final int ringSize) {
+		this(syncOnTimeSteps, true, -1, ringSize);
+	}
+
+	/**
+	 * Creates an events manager that distributes the handlers round-robin over <code>numOfThreads</code> consumer threads.
+	 */
+	public RingBufferEventsManager(final boolean syncOnTimeSteps, final int numOfThreads, final int ringSize) {
+		this(syncOnTimeSteps, false, numOfThreads, ringSize);
+	}
+
+	/*package*/ RingBufferEventsManager(final boolean syncOnTimeSteps, final boolean oneThreadPerHandler, final int numOfThreads, final int ringSize) {
+		if (!oneThreadPerHandler && numOfThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1, but was " + numOfThreads);
+		}
+		if (ringSize < 2) {
+			throw new IllegalArgumentException("Ring size must be at least 2, but was " + ringSize);
+		}
+		this.syncOnTimeSteps = syncOnTimeSteps;
+		this.oneThreadPerHandler = oneThreadPerHandler;
+		this.numOfThreads = numOfThreads;
+
+		// round up to a power of two so that slot indices can be computed with a bit mask
+		int capacity = Integer.highestOneBit(ringSize - 1) << 1;
+		this.ring = new Event[capacity];
+		this.mask = capacity - 1;
+		this.published = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			this.published.set(i, -1);
+		}
+	}
+
+	private void initialize() {
+		this.eventsManagers = new ArrayList<>();
+		if (this.oneThreadPerHandler) {
+			for (EventHandler handler : this.eventsHandlers) {
+				this.eventsManagers.add(new SingleHandlerEventsManager(handler));
+			}
+		} else {
+			int numGroups = Math.min(this.numOfThreads, this.eventsHandlers.size());
+			for (int i = 0; i < numGroups; i++) {
+				this.eventsManagers.add(new EventsManagerImpl());
+			}
+			for (int i = 0; i < this.eventsHandlers.size(); i++) {
+				this.eventsManagers.get(i % numGroups).addHandler(this.eventsHandlers.get(i));
+			}
+		}
+
+		// all consumers start right after the last event published in the previous iteration
+		long start = this.claimed.get();
+		this.gatingSequence = start;
+		this.consumers = new ConsumerThread[this.eventsManagers.size()];
+		for (int i = 0; i < this.consumers.length; i++) {
+			EventsManager eventsManager = this.eventsManagers.get(i);
+			ConsumerThread consumer = new ConsumerThread(eventsManager, start);
+			consumer.setDaemon(true);
+			consumer.setUncaughtExceptionHandler(this.uncaughtExceptionHandler);
+			if (this.oneThreadPerHandler) {
+				consumer.setName("RingBufferEventsManager: " + ((SingleHandlerEventsManager) eventsManager).getEventHandlerClassName());
+			} else {
+				consumer.setName("RingBufferEventsManager-" + i);
+			}
+			this.consumers[i] = consumer;
+		}
+		for (ConsumerThread consumer : this.consumers) {
+			consumer.start();
+		}
+		this.init = true;
+	}
+
+	private void teardown() {
+		try {
+			for (ConsumerThread consumer : this.consumers) {
+				consumer.running = false;
+				LockSupport.unpark(consumer);
+			}
+			for (ConsumerThread consumer : this.consumers) {
+				consumer.join();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Exception while waiting on join...", e);
+		}
+		// do not keep the events of the last iteration alive
+		Arrays.fill(this.ring, null);
+		this.init = false;
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (!this.init) throw new IllegalStateException(".initProcessing() has to be called before processing events!");
+
+		long sequence = this.claimed.incrementAndGet();
+		waitForCapacity(sequence);
+		publish(sequence, event);
+	}
+
+	@Override
+	public void processEvents(final EventArray events) {
+		if (!this.init) throw new IllegalStateException(".initProcessing() has to be called before processing events!");
+
+		Event[] array = events.array();
+		int size = events.size();
+		int offset = 0;
+		while (offset < size) {
+			// claim a batch of slots at once, but never more than fit into the ring
+			int batch = Math.min(size - offset, this.ring.length);
+			long last = this.claimed.addAndGet(batch);
+			long first = last - batch + 1;
+			waitForCapacity(last);
+			for (int i = 0; i < batch; i++) {
+				publish(first + i, array[offset + i]);
+			}
+			offset += batch;
+		}
+	}
+
+	private void publish(long sequence, Event event) {
+		int index = (int) sequence & this.mask;
+		this.ring[index] = event;
+		// the volatile write makes the event visible to the consumers
+		this.published.set(index, sequence);
+	}
+
+	/**
+	 * Waits until the slot for <code>sequence</code> is no longer needed by any consumer.
+	 */
+	private void waitForCapacity(long sequence) {
+		long wrapPoint = sequence - this.ring.length;
+		if (wrapPoint <= this.gatingSequence) {
+			return;
+		}
+		int counter = 0;
+		long minSequence;
+		while (wrapPoint > (minSequence = minimumConsumerSequence())) {
+			checkForException();
+			counter = idle(counter);
+		}
+		this.gatingSequence = minSequence;
+	}
+
+	private long minimumConsumerSequence() {
+		long min = Long.MAX_VALUE;
+		for (ConsumerThread consumer : this.consumers) {
+			min = Math.min(min, consumer.cursor.get());
+		}
+		return min == Long.MAX_VALUE ? this.claimed.get() : min;
+	}
+
+	private static int idle(int counter) {
+		if (counter < SPIN_TRIES) {
+			Thread.onSpinWait();
+		} else if (counter < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		return counter + 1;
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		if (this.init)
+			throw new IllegalStateException("Handlers can not be added after .initProcessing() was called!");
+
+		// this will be used the next time we start an iteration
+		this.eventsHandlers.add(handler);
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		// this will be used the next time we start an iteration
+		this.eventsHandlers.remove(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.resetHandlers(iteration);
+		}
+	}
+
+	@Override
+	public void initProcessing() {
+		initialize();
+
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.initProcessing();
+		}
+
+		resetHandlers(this.iteration);
+	}
+
+	@Override
+	public synchronized void finishProcessing() {
+		flush();
+
+		for (EventsManager eventsManager : this.eventsManagers) {
+			eventsManager.finishProcessing();
+		}
+
+		teardown();
+		checkForException();
+
+		this.iteration += 1;
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		if (this.syncOnTimeSteps) {
+			flush();
+		}
+		checkForException();
+	}
+
+	/**
+	 * Blocks until all events published so far have been processed by all handlers.
+	 */
+	public void flush() {
+		long target = this.claimed.get();
+		for (ConsumerThread consumer : this.consumers) {
+			int counter = 0;
+			while (consumer.cursor.get() < target) {
+				checkForException();
+				counter = idle(counter);
+			}
+		}
+		this.gatingSequence = target;
+	}
+
+	private void checkForException() {
+		if (this.uncaughtExceptionHandler.hadException()) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", this.uncaughtExceptionHandler.exception());
+		}
+	}
+
+	private class ConsumerThread extends Thread {
+
+		private final EventsManager eventsManager;
+		/** the sequence number of the last event processed by this consumer */
+		private final AtomicLong cursor;
+		private volatile boolean running = true;
+
+		ConsumerThread(EventsManager eventsManager, long start) {
+			this.eventsManager = eventsManager;
+			this.cursor = new AtomicLong(start);
+		}
+
+		@Override
+		public void run() {
+			long next = this.cursor.get() + 1;
+			int counter = 0;
+			while (true) {
+				int index = (int) next & mask;
+				if (published.get(index) == next) {
+					// process what is available before updating the cursor
+					int batch = 0;
+					do {
+						this.eventsManager.processEvent(ring[index]);
+						next++;
+						batch++;
+						index = (int) next & mask;
+					} while (batch < MAX_BATCH_SIZE && published.get(index) == next);
+					this.cursor.lazySet(next - 1);
+					counter = 0;
+				} else if (this.running) {
+					counter = idle(counter);
+				} else {
+					return;
+				}
+			}
+		}
+	}
+
+	private static class ExceptionHandler implements UncaughtExceptionHandler {
+
+		private volatile boolean hadException = false;
+		private volatile Throwable exception;
+
+		@Override
+		public void uncaughtException(Thread t, Throwable e) {
+			this.hadException = true;
+			this.exception = e;
+			log.error("Thread " + t.getName() + " died with exception while handling events.", e);
+		}
+
+		public boolean hadException() {
+			return this.hadException;
+		}
+
+		public Throwable exception() {
+			return this.exception;
+		}
+	}
+}
@@ -54,6 +54,14 @@ class SynchronizedEventsManagerImpl implements EventsManager {
 	public synchronized void processEvent(Event event) {
 		this.delegate.processEvent(event);
 	}
+
+	/**
+	 * Passes on all events of the array while holding the lock only once.
+	 */
+	@Override
+	public synchronized void processEvents(EventArray events) {
+		this.delegate.processEvents(events);
+	}
 	
 	@Override
 	public void removeHandler(EventHandler handler) {
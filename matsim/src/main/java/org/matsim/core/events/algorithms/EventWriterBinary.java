@@ -0,0 +1,341 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events into a compact, block-structured binary file that can be read with
+ * {@link org.matsim.core.events.EventsReaderBinary}.
+ * <p>
+ * Events are grouped into blocks, a new block is started whenever the events cross a time slice
+ * boundary (15 minutes by default). Each block is deflated on its own and stores its events column by
+ * column: event types, times, attribute counts, attribute keys and attribute values. Event types,
+ * attribute keys and most attribute values (Ids, modes, ...) are stored as codes into a dictionary
+ * that is shared by all blocks; times are delta-encoded. The dictionary and an index with the time
+ * range and file position of every block are written at the end of the file, so a reader can jump
+ * directly to the blocks of a given time window and decode several blocks in parallel.
+ * <p>
+ * File layout:
+ * <pre>
+ * MAGIC, VERSION
+ * block*                       (deflated)
+ * dictionary                   (count, then length-prefixed UTF-8 strings)
+ * index                        (count, then per block: offset, compressed size, size, #events, min time, max time)
+ * time slice, dictionary offset, index offset, MAGIC
+ * </pre>
+ * All variable length integers are unsigned LEB128, signed ones are zig-zag encoded first.
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final byte[] MAGIC = "MATSIMEB".getBytes(StandardCharsets.US_ASCII);
+	public static final int VERSION = 1;
+	public static final int TRAILER_SIZE = 8 + 8 + 8 + 8;
+	public static final double DEFAULT_TIME_SLICE = 15 * 60;
+
+	public static final int TIME_INTEGRAL = 0;
+	public static final int TIME_RAW = 1;
+	public static final int VALUE_DICTIONARY = 0;
+	public static final int VALUE_DOUBLE = 1;
+	public static final int VALUE_NULL = 2;
+
+	private static final int MAX_EVENTS_PER_BLOCK = 1 << 16;
+
+	private final DataOutputStream out;
+	private final double timeSlice;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] deflateBuffer = new byte[1 << 16];
+
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final List<String> dictionaryEntries = new ArrayList<>();
+	private final List<BlockInfo> blocks = new ArrayList<>();
+
+	private final ByteColumn types = new ByteColumn();
+	private final ByteColumn times = new ByteColumn();
+	private final ByteColumn attributeCounts = new ByteColumn();
+	private final ByteColumn keys = new ByteColumn();
+	private final ByteColumn values = new ByteColumn();
+	private final ByteColumn block = new ByteColumn();
+
+	/** number of bytes written so far, DataOutputStream.size() would overflow for files larger than 2GB */
+	private long position = 0;
+	private int blockEvents = 0;
+	private long blockSlice = Long.MIN_VALUE;
+	private double blockMinTime;
+	private double blockMaxTime;
+	private long lastSecond;
+
+	public EventWriterBinary(final String filename) {
+		this(filename, DEFAULT_TIME_SLICE);
+	}
+
+	/**
+	 * @param timeSlice duration in seconds after which a new block is started. Smaller values allow more
+	 *                  precise seeking, larger ones result in slightly smaller files.
+	 */
+	public EventWriterBinary(final String filename, final double timeSlice) {
+		this(openFile(filename), timeSlice);
+	}
+
+	public EventWriterBinary(final OutputStream stream, final double timeSlice) {
+		if (timeSlice <= 0) {
+			throw new IllegalArgumentException("time slice must be positive, but is " + timeSlice);
+		}
+		this.out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+		this.timeSlice = timeSlice;
+		try {
+			this.out.write(MAGIC);
+			this.out.writeInt(VERSION);
+			this.position = MAGIC.length + 4;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static OutputStream openFile(final String filename) {
+		try {
+			// no IOUtils here, the file must not be compressed as a whole, otherwise the index would be useless
+			return new FileOutputStream(filename);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		double time = event.getTime();
+		long slice = (long) Math.floor(time / this.timeSlice);
+		if (this.blockEvents > 0 && (slice != this.blockSlice || this.blockEvents >= MAX_EVENTS_PER_BLOCK)) {
+			writeBlock();
+		}
+		if (this.blockEvents == 0) {
+			this.blockSlice = slice;
+			this.blockMinTime = time;
+			this.blockMaxTime = time;
+			this.lastSecond = 0;
+		}
+		this.blockMinTime = Math.min(this.blockMinTime, time);
+		this.blockMaxTime = Math.max(this.blockMaxTime, time);
+		this.blockEvents++;
+
+		Map<String, String> attributes = event.getAttributes();
+		this.types.writeVarLong(code(event.getEventType()));
+		writeTime(time);
+		// time and type are stored in their own columns
+		this.attributeCounts.writeVarLong(attributes.size() - (attributes.containsKey(Event.ATTRIBUTE_TIME) ? 1 : 0) - (attributes.containsKey(Event.ATTRIBUTE_TYPE) ? 1 : 0));
+		for (Map.Entry<String, String> e : attributes.entrySet()) {
+			String key = e.getKey();
+			if (key.equals(Event.ATTRIBUTE_TIME) || key.equals(Event.ATTRIBUTE_TYPE)) {
+				continue;
+			}
+			this.keys.writeVarLong(code(key));
+			writeValue(e.getValue());
+		}
+	}
+
+	private void writeTime(double time) {
+		long second = (long) time;
+		if (second == time && Math.abs(second) < (1L << 50)) {
+			this.times.writeVarLong((zigZag(second - this.lastSecond) << 1) | TIME_INTEGRAL);
+			this.lastSecond = second;
+		} else {
+			this.times.writeVarLong(TIME_RAW);
+			this.times.writeDouble(time);
+		}
+	}
+
+	private void writeValue(String value) {
+		if (value == null) {
+			this.values.writeVarLong(VALUE_NULL);
+		} else if (isExactDouble(value)) {
+			this.values.writeVarLong(VALUE_DOUBLE);
+			this.values.writeDouble(Double.parseDouble(value));
+		} else {
+			this.values.writeVarLong(((long) code(value) << 2) | VALUE_DICTIONARY);
+		}
+	}
+
+	/**
+	 * Numbers are only stored as doubles if they can be restored to exactly the same string,
+	 * everything else (e.g. numerical Ids like "123") goes into the dictionary.
+	 */
+	private static boolean isExactDouble(String value) {
+		int length = value.length();
+		if (length < 3 || value.indexOf('.') < 0) {
+			return false;
+		}
+		char first = value.charAt(0);
+		if (first != '-' && (first < '0' || first > '9')) {
+			return false;
+		}
+		try {
+			return Double.toString(Double.parseDouble(value)).equals(value);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	private int code(String s) {
+		Integer code = this.dictionary.get(s);
+		if (code == null) {
+			code = this.dictionaryEntries.size();
+			this.dictionary.put(s, code);
+			this.dictionaryEntries.add(s);
+		}
+		return code;
+	}
+
+	private void writeBlock() {
+		this.block.clear();
+		this.block.writeVarLong(this.blockEvents);
+		for (ByteColumn column : new ByteColumn[] {this.types, this.times, this.attributeCounts, this.keys, this.values}) {
+			this.block.writeVarLong(column.size);
+			this.block.write(column.bytes, 0, column.size);
+			column.clear();
+		}
+
+		this.deflater.reset();
+		this.deflater.setInput(this.block.bytes, 0, this.block.size);
+		this.deflater.finish();
+		int compressedSize = 0;
+		while (!this.deflater.finished()) {
+			if (compressedSize == this.deflateBuffer.length) {
+				this.deflateBuffer = Arrays.copyOf(this.deflateBuffer, this.deflateBuffer.length * 2);
+			}
+			compressedSize += this.deflater.deflate(this.deflateBuffer, compressedSize, this.deflateBuffer.length - compressedSize);
+		}
+
+		try {
+			this.blocks.add(new BlockInfo(this.position, compressedSize, this.block.size, this.blockEvents, this.blockMinTime, this.blockMaxTime));
+			this.out.write(this.deflateBuffer, 0, compressedSize);
+			this.position += compressedSize;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.blockEvents = 0;
+	}
+
+	@Override
+	public void closeFile() {
+		if (this.blockEvents > 0) {
+			writeBlock();
+		}
+		try {
+			long dictionaryOffset = this.position;
+			ByteColumn buffer = new ByteColumn();
+			buffer.writeVarLong(this.dictionaryEntries.size());
+			for (String s : this.dictionaryEntries) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				buffer.writeVarLong(bytes.length);
+				buffer.write(bytes, 0, bytes.length);
+			}
+			this.out.write(buffer.bytes, 0, buffer.size);
+			this.position += buffer.size;
+
+			long indexOffset = this.position;
+			this.out.writeInt(this.blocks.size());
+			for (BlockInfo info : this.blocks) {
+				this.out.writeLong(info.offset);
+				this.out.writeInt(info.compressedSize);
+				this.out.writeInt(info.size);
+				this.out.writeInt(info.eventCount);
+				this.out.writeDouble(info.minTime);
+				this.out.writeDouble(info.maxTime);
+			}
+
+			this.out.writeDouble(this.timeSlice);
+			this.out.writeLong(dictionaryOffset);
+			this.out.writeLong(indexOffset);
+			this.out.write(MAGIC);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.deflater.end();
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private record BlockInfo(long offset, int compressedSize, int size, int eventCount, double minTime, double maxTime) {
+	}
+
+	/**
+	 * A growable byte array with the few encoding methods needed for the columns.
+	 */
+	private static final class ByteColumn {
+		private byte[] bytes = new byte[1024];
+		private int size = 0;
+
+		void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.bytes[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.bytes[this.size++] = (byte) value;
+		}
+
+		void writeDouble(double value) {
+			ensureCapacity(8);
+			long bits = Double.doubleToRawLongBits(value);
+			for (int i = 56; i >= 0; i -= 8) {
+				this.bytes[this.size++] = (byte) (bits >>> i);
+			}
+		}
+
+		void write(byte[] b, int offset, int length) {
+			ensureCapacity(length);
+			System.arraycopy(b, offset, this.bytes, this.size, length);
+			this.size += length;
+		}
+
+		void clear() {
+			this.size = 0;
+		}
+
+		private void ensureCapacity(int additional) {
+			if (this.size + additional > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + additional));
+			}
+		}
+	}
+}
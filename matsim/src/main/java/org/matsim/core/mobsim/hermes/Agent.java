@@ -333,6 +333,14 @@ class Agent {
     public void reset() {
         plan.clear();
         events.clear();
+        rewind();
+    }
+
+    /**
+     * Prepares the agent to execute the same plan again. The plan entries and events are kept, the times of the
+     * events are set again during the simulation.
+     */
+    public void rewind() {
         planIndex = 0;
         eventsIndex = 0;
         linkFinishTime = 0;
@@ -22,6 +22,10 @@ import java.util.Iterator;
 
 class HLink {
 
+	public static final int REJECTED = 0;
+	public static final int RESERVED = 1;
+	public static final int RESERVED_FORCED = 2;
+
 	private float currentCapacity;
 	private final int initialCapacity;
 
@@ -182,28 +186,57 @@ class HLink {
 	}
 
 	public boolean push(Agent agent, int timestep, float storageCapacityPCU) {
+		int reservation = reserve(timestep, storageCapacityPCU);
+		if (reservation == REJECTED) {
+			return false;
+		}
+		return enqueue(agent, reservation == RESERVED_FORCED);
+	}
+
+	/**
+	 * Checks the storage capacity for an agent entering the link and, if it may enter, takes its storage capacity.
+	 * Together with {@link #enqueue(Agent, boolean)} this is the same as {@link #push(Agent, int, float)}, but allows
+	 * to enqueue the agent later on, which is needed when the link is simulated by another realm.
+	 *
+	 * @return {@link #REJECTED}, {@link #RESERVED} or {@link #RESERVED_FORCED} if the agent may only enter because
+	 * the link is stuck.
+	 */
+	public int reserve(int timestep, float storageCapacityPCU) {
 		//avoid long vehicles not being able to enter a short link
 		float effectiveStorageCapacity = Math.min(storageCapacityPCU, initialCapacity);
 		if (currentCapacity - effectiveStorageCapacity >= 0) {
-			if (queue.push(agent)) {
-				lastPush = timestep;
-				currentCapacity = currentCapacity - effectiveStorageCapacity;
-				return true;
-			} else {
-				throw new RuntimeException("should not happen?");
-			}
+			lastPush = timestep;
+			currentCapacity = currentCapacity - effectiveStorageCapacity;
+			return RESERVED;
 		} else if (stuckTimePeriod != Integer.MAX_VALUE && (lastPush + stuckTimePeriod) < timestep) {
-			boolean result = queue.forcePush(agent);
 			lastPush = timestep;
 			currentCapacity = currentCapacity - effectiveStorageCapacity;
-			return result;
+			return RESERVED_FORCED;
 		} else {
-			return false;
+			return REJECTED;
+		}
+	}
+
+	public boolean enqueue(Agent agent, boolean forced) {
+		if (forced) {
+			return queue.forcePush(agent);
+		}
+		if (queue.push(agent)) {
+			return true;
+		} else {
+			throw new RuntimeException("should not happen?");
 		}
 	}
 
 	public void pop(float storageCapacityPCE) {
 		queue.pop();
+		release(storageCapacityPCE);
+	}
+
+	/**
+	 * Gives back the storage capacity of an agent that left the link.
+	 */
+	public void release(float storageCapacityPCE) {
 		currentCapacity += storageCapacityPCE;
 	}
 
@@ -47,6 +47,9 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
     public static final int MAX_EVENTS_AGENT = 65536;
 
     private static final String DETPT = "useDeterministicPt";
+    private static final String NUMBER_OF_REALMS = "numberOfRealms";
+    private static final String NUMBER_OF_REALMS_DESC = "Number of spatial realms the network is split into, each realm is simulated by its own thread."
+            + " With 1, the whole network is simulated by a single thread.";
 
     // Number of simulation steps
     public static int SIM_STEPS = 30 * 60 * 60;
@@ -78,6 +81,9 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
     @Positive
     private int stuckTime = 10;
 
+    @Positive
+    private int numberOfRealms = 1;
+
     public Set<String> getMainModes() {
         return mainModes;
     }
@@ -124,6 +130,16 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         this.stuckTime = stuckTime;
     }
 
+    @StringGetter(NUMBER_OF_REALMS)
+    public int getNumberOfRealms() {
+        return numberOfRealms;
+    }
+
+    @StringSetter(NUMBER_OF_REALMS)
+    public void setNumberOfRealms(int numberOfRealms) {
+        this.numberOfRealms = numberOfRealms;
+    }
+
     @StringSetter(FLOW_CAPACITY_FACTOR)
     public void setFlowCapacityFactor(double flowCapacityFactor) {
         this.flowCapacityFactor = flowCapacityFactor;
@@ -160,6 +176,7 @@ public final class HermesConfigGroup extends ReflectiveConfigGroup {
         comments.put(END_TIME, "Simulation End Time");
         comments.put(STUCKTIMEPARAM, STUCKTIMEPARAMDESC);
         comments.put(DETPT, DETPTDESC);
+        comments.put(NUMBER_OF_REALMS, NUMBER_OF_REALMS_DESC);
         return comments;
     }
 
@@ -0,0 +1,47 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HermesUtils.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import org.matsim.api.core.v01.population.Person;
+
+/**
+ * Hermes keeps the encoded plans of the persons between iterations and only encodes persons again whose selected plan
+ * changed, i.e. who selected another plan or a modified copy in replanning. Code that modifies selected plans in place
+ * has to tell Hermes about it using these methods.
+ */
+public final class HermesUtils {
+
+	private HermesUtils() {
+	}
+
+	/**
+	 * Encodes the selected plan of the person again in the next iteration.
+	 */
+	public static void markSelectedPlanModified(Person person) {
+		ScenarioImporter.invalidate(person.getId());
+	}
+
+	/**
+	 * Encodes the selected plans of all persons again in the next iteration.
+	 */
+	public static void markAllSelectedPlansModified() {
+		ScenarioImporter.invalidateAll();
+	}
+}
@@ -40,6 +40,9 @@ import java.util.ArrayList;
 
 class Realm {
 	private final ScenarioImporter si;
+    // The realms simulating the network together, and the index of this realm in it.
+    private final RealmGroup group;
+    private final int index;
     // Global array of links.
     // Note: the id of the link is its index in the array.
     private final HLink[] links;
@@ -64,7 +67,13 @@ class Realm {
     Logger log = LogManager.getLogger(Realm.class);
 
     public Realm(ScenarioImporter scenario, EventsManager eventsManager) {
+        this(scenario, eventsManager, null, 0);
+    }
+
+    Realm(ScenarioImporter scenario, EventsManager eventsManager, RealmGroup group, int index) {
         this.si = scenario;
+        this.group = group;
+        this.index = index;
         this.links = scenario.hermesLinks;
         // The plus one is necessary because we peek into the next slot on each tick.
         this.delayedLinksByWakeupTime = new ArrayList<>();
@@ -76,9 +85,10 @@ class Realm {
         this.eventsManager = eventsManager;
 
         // the last position is to store events that will not happen...
+        // The queues are only created when needed, with several realms most of them would stay empty.
         for (int i = 0; i <= HermesConfigGroup.SIM_STEPS + 1; i++) {
-            delayedLinksByWakeupTime.add(new ArrayDeque<>());
-            delayedAgentsByWakeupTime.add(new ArrayDeque<>());
+            delayedLinksByWakeupTime.add(null);
+            delayedAgentsByWakeupTime.add(null);
         }
     }
 
@@ -88,15 +98,39 @@ class Realm {
         }
     }
 
-    private void addDelayedAgent(Agent agent, int until) {
+    /**
+     * Delays the agent until its next plan entry should be processed. If the next plan entry belongs to another
+     * realm, the agent is handed over to that realm at the end of the time step.
+     */
+    void addDelayedAgent(Agent agent, int until) {
         if (HermesConfigGroup.DEBUG_REALMS) log(secs, String.format("agent %d delayed until %d", agent.id, until));
-        delayedAgentsByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(agent);
+        until = Math.min(until, HermesConfigGroup.SIM_STEPS + 1);
+        int realm = group == null ? index : group.realmOfNextPlanEntry(agent, index);
+        if (realm == index) {
+            add(delayedAgentsByWakeupTime, until, agent);
+        } else {
+            group.mailbox(secs, index, realm).addHandover(agent, until);
+        }
     }
 
-    private void addDelayedLink(HLink link, int until) {
+    void addDelayedLink(HLink link, int until) {
         if (HermesConfigGroup.DEBUG_REALMS)
             log(secs, String.format("link %d delayed until %d size %d peek agent %d", link.id(), until, link.queue().size(), link.queue().peek().id));
-        delayedLinksByWakeupTime.get(Math.min(until, HermesConfigGroup.SIM_STEPS + 1)).add(link);
+        add(delayedLinksByWakeupTime, Math.min(until, HermesConfigGroup.SIM_STEPS + 1), link);
+    }
+
+    private static <T> void add(ArrayList<ArrayDeque<T>> byWakeupTime, int time, T element) {
+        ArrayDeque<T> queue = byWakeupTime.get(time);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            byWakeupTime.set(time, queue);
+        }
+        queue.add(element);
+    }
+
+    private static <T> T poll(ArrayList<ArrayDeque<T>> byWakeupTime, int time) {
+        ArrayDeque<T> queue = byWakeupTime.get(time);
+        return queue == null ? null : queue.poll();
     }
 
     private void advanceAgentandSetEventTime(Agent agent) {
@@ -122,12 +156,30 @@ class Realm {
         double velocity = Agent.getVelocityPlanEntry(planentry);
         HLink next = links[linkid];
         int prev_finishtime = agent.linkFinishTime;
+        if (group != null && group.upstreamRealmOfLink(linkid) != index) {
+            // The agent is not at the start of the link, e.g. because the route is not continuous. Let the realm
+            // of the link's from node handle the agent, so that only one realm enters agents into the link.
+            addDelayedAgent(agent, secs + 1);
+            return true;
+        }
         // this ensures that if no velocity is provided for the vehicle, we use the link
         velocity = velocity == 0 ? next.velocity() : velocity;
         // the max(1, ...) ensures that a link hop takes at least on step.
         int traveltime = (HermesConfigGroup.LINK_ADVANCE_DELAY + (int) Math.round(Math.max(1, next.length() / Math.min(velocity, next.velocity()))));
         agent.linkFinishTime = secs + traveltime;
         float storageCapacityPCU = agent.getStorageCapacityPCUE();
+        if (group != null && group.realmOfLink(linkid) != index) {
+            // The link is simulated by another realm. Take the storage capacity here and let the other realm
+            // enqueue the agent at the end of the time step. The agent cannot leave the link before that anyway.
+            int reservation = next.reserve(secs, storageCapacityPCU);
+            if (reservation == HLink.REJECTED) {
+                agent.linkFinishTime = prev_finishtime;
+                return false;
+            }
+            advanceAgentandSetEventTime(agent);
+            group.mailbox(secs, index, group.realmOfLink(linkid)).addTransfer(agent, linkid, reservation == HLink.RESERVED_FORCED);
+            return true;
+        }
         if (next.push(agent,secs,storageCapacityPCU)) {
             advanceAgentandSetEventTime(agent);
             // If the agent we just added is the head, add to delayed links
@@ -148,9 +200,10 @@ class Realm {
 
     protected boolean processAgentSleepUntil(Agent agent, long planentry) {
         int sleep = Agent.getSleepPlanEntry(planentry);
-        addDelayedAgent(agent, Math.max(sleep, secs + 1));
         updateCapacities(agent);
         advanceAgentandSetEventTime(agent);
+        // the agent is delayed after advancing, so it is handed over to the realm of its next plan entry
+        addDelayedAgent(agent, Math.max(sleep, secs + 1));
         return true;
     }
 
@@ -188,8 +241,8 @@ class Realm {
     }
 
     protected boolean processAgentStopArrive(Agent agent, long planentry) {
-        addDelayedAgent(agent, secs + 1);
         advanceAgentandSetEventTime(agent);
+        addDelayedAgent(agent, secs + 1);
         // Although we want the agent to be processed in the next tick, we
         // return true to remove the vehicle from the link that it is currently.
         return true;
@@ -200,16 +253,16 @@ class Realm {
         int departure = Agent.getDeparture(planentry);
 
         // consume stop delay
-        addDelayedAgent(agent, Math.max(secs + 1, departure));
         advanceAgent(agent);
+        addDelayedAgent(agent, Math.max(secs + 1, departure));
 
         // drop agents
         for (Agent out : agent.egress(stopid)) {
-            addDelayedAgent(out, secs + 1);
             // consume access, activate egress
             advanceAgentandSetEventTime(out);
             // set driver in agent's event
             setEventVehicle(out, Agent.getPlanEvent(out.currPlan()), agent.id);
+            addDelayedAgent(out, secs + 1);
         }
 
         // True is returned as the agent is already in the delayed list.
@@ -298,7 +351,13 @@ class Realm {
             }
             if (finished || processAgent(agent, link.id())) {
                 float storageCapacityPCE = agent.getStorageCapacityPCUE();
-                link.pop(storageCapacityPCE);
+                if (group != null && group.upstreamRealmOfLink(link.id()) != index) {
+                    // the storage capacity is managed by the realm entering agents into this link
+                    link.queue().pop();
+                    group.mailbox(secs, index, group.upstreamRealmOfLink(link.id())).addRelease(link.id(), storageCapacityPCE);
+                } else {
+                    link.pop(storageCapacityPCE);
+                }
                 routed += 1;
                 if ((agent = link.queue().peek()) == null) {
                     break;
@@ -316,46 +375,66 @@ class Realm {
     }
 
     public void run() throws Exception {
+        while (secs != HermesConfigGroup.SIM_STEPS) {
+            step(secs);
+            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sortedEvents.size() > 0) {
+                eventsManager.processEvents(sortedEvents);
+                sortedEvents = new EventArray();
+            }
+            secs += 1;
+        }
+    }
+
+    /**
+     * Simulates a single time step. With several realms, all realms must have finished the previous time step
+     * before, as the messages they sent to this realm are processed first.
+     */
+    void step(int time) {
         int routed = 0;
         Agent agent;
         HLink link;
 
-        while (secs != HermesConfigGroup.SIM_STEPS) {
-            if (secs % 3600 == 0) {
-                log.info("Hermes running at " + Time.writeTime(secs));
+        secs = time;
+        if (secs % 3600 == 0 && index == 0) {
+            log.info("Hermes running at " + Time.writeTime(secs));
+        }
+        if (group != null) {
+            group.deliverMessages(this, secs);
+        }
+        while ((agent = poll(delayedAgentsByWakeupTime, secs)) != null) {
+            if (HermesConfigGroup.DEBUG_REALMS) {
+                log(secs, String.format("Processing agent %d", agent.id));
             }
-            while ((agent = delayedAgentsByWakeupTime.get(secs).poll()) != null) {
-                if (HermesConfigGroup.DEBUG_REALMS) {
-                    log(secs, String.format("Processing agent %d", agent.id));
-                }
-                routed += processAgentActivities(agent);
+            routed += processAgentActivities(agent);
 
+        }
+        delayedAgentsByWakeupTime.set(secs, null);
+        if (si.isDeterministicPt() && index == 0) {
+            for (Event e : si.getDeterministicPtEvents().get(secs)) {
+                sortedEvents.add(e);
             }
-            delayedAgentsByWakeupTime.set(secs, null);
-            if (si.isDeterministicPt()) {
-                for (Event e : si.getDeterministicPtEvents().get(secs)) {
-                    sortedEvents.add(e);
-                }
-                si.getDeterministicPtEvents().get(secs).clear();
-            }
+            si.getDeterministicPtEvents().get(secs).clear();
+        }
 
-            while ((link = delayedLinksByWakeupTime.get(secs).poll()) != null) {
-                if (HermesConfigGroup.DEBUG_REALMS) {
-                    log(secs, String.format("Processing link %d", link.id()));
-                }
-                routed += processLinks(link);
-            }
-            delayedLinksByWakeupTime.set(secs, null);
-            if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
-                log(secs, String.format("Processed %d agents", routed));
-            }
-            if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && secs % 3600 == 0 && sortedEvents.size() > 0) {
-                eventsManager.processEvents(sortedEvents);
-                sortedEvents = new EventArray();
+        while ((link = poll(delayedLinksByWakeupTime, secs)) != null) {
+            if (HermesConfigGroup.DEBUG_REALMS) {
+                log(secs, String.format("Processing link %d", link.id()));
             }
+            routed += processLinks(link);
+        }
+        delayedLinksByWakeupTime.set(secs, null);
+        if (HermesConfigGroup.DEBUG_REALMS && routed > 0) {
+            log(secs, String.format("Processed %d agents", routed));
+        }
+    }
 
-            routed = 0;
-            secs += 1;
+    /**
+     * An agent entered a link of this realm from another realm in the previous time step.
+     */
+    void receiveAgent(HLink link, Agent agent, boolean forced) {
+        link.enqueue(agent, forced);
+        if (link.queue().peek() == agent) {
+            addDelayedLink(link, Math.max(agent.linkFinishTime, secs + 1));
         }
     }
 
@@ -400,13 +479,15 @@ class Realm {
         }
     }
 
-    ArrayList<ArrayDeque<HLink>> delayedLinks() { return this.delayedLinksByWakeupTime; }
+    EventArray getSortedEvents() {
+        return this.sortedEvents;
+    }
 
-    ArrayList<ArrayDeque<Agent>> delayedAgents() {
-        return this.delayedAgentsByWakeupTime;
+    void clearSortedEvents() {
+        this.sortedEvents = new EventArray();
     }
 
-    EventArray getSortedEvents() {
-        return this.sortedEvents;
+    int index() {
+        return this.index;
     }
 }
@@ -0,0 +1,376 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RealmGroup.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.hermes;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventArray;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Phaser;
+
+/**
+ * The realms simulating the network together. The nodes of the network are split into spatial regions by recursive
+ * coordinate bisection, every region is simulated by its own {@link Realm} and thread.
+ * <p>
+ * A link belongs to the realm of its to node, which moves the agents off the link. Agents are entered into the link by
+ * the realm of its from node. For links crossing a realm boundary, the realms exchange messages through mailboxes at
+ * the end of each time step: the upstream realm takes the storage capacity and sends the agent, the downstream realm
+ * enqueues the agent and later sends back the storage capacity released when the agent leaves the link. As an agent
+ * needs at least two time steps to traverse a link, this does not delay agents. Agents that are not on a link (e.g.
+ * performing an activity or waiting at a stop) are handed over to the realm of their next plan entry.
+ * <p>
+ * All realms simulate a time step, then wait for each other. The events of the realms are merged into time order
+ * before they are passed to the events manager. With a single realm, everything runs in the calling thread exactly as
+ * before.
+ */
+class RealmGroup {
+
+	private static final Logger log = LogManager.getLogger(RealmGroup.class);
+
+	private final Realm[] realms;
+	private final HLink[] links;
+	private final EventsManager eventsManager;
+	// realm moving agents off the link, i.e. the realm of the link's to node
+	private final int[] realmOfLink;
+	// realm entering agents into the link, i.e. the realm of the link's from node
+	private final int[] upstreamRealmOfLink;
+	// realm of the link a transit stop is located on
+	private final int[] realmOfStop;
+	// mailboxes[time step parity][from realm][to realm], written in one time step and delivered in the next one
+	private final Mailbox[][][] mailboxes;
+	private volatile Throwable exception = null;
+
+	RealmGroup(ScenarioImporter si, Scenario scenario, EventsManager eventsManager, int numberOfRealms) {
+		this.links = si.hermesLinks;
+		this.eventsManager = eventsManager;
+		this.realms = new Realm[numberOfRealms];
+		if (numberOfRealms == 1) {
+			this.realms[0] = new Realm(si, eventsManager);
+			this.realmOfLink = null;
+			this.upstreamRealmOfLink = null;
+			this.realmOfStop = null;
+			this.mailboxes = null;
+			return;
+		}
+
+		Network network = scenario.getNetwork();
+		int[] realmOfNode = partition(network, numberOfRealms);
+		this.realmOfLink = new int[Id.getNumberOfIds(Link.class)];
+		this.upstreamRealmOfLink = new int[Id.getNumberOfIds(Link.class)];
+		int boundaryLinks = 0;
+		for (Link link : network.getLinks().values()) {
+			int index = link.getId().index();
+			this.realmOfLink[index] = realmOfNode[link.getToNode().getId().index()];
+			this.upstreamRealmOfLink[index] = realmOfNode[link.getFromNode().getId().index()];
+			if (this.realmOfLink[index] != this.upstreamRealmOfLink[index]) {
+				boundaryLinks++;
+			}
+		}
+		this.realmOfStop = new int[Id.getNumberOfIds(TransitStopFacility.class)];
+		for (TransitStopFacility stop : scenario.getTransitSchedule().getFacilities().values()) {
+			if (stop.getLinkId() != null && network.getLinks().containsKey(stop.getLinkId())) {
+				this.realmOfStop[stop.getId().index()] = this.realmOfLink[stop.getLinkId().index()];
+			}
+		}
+		log.info(String.format("Hermes split the network into %d realms, %d of %d links cross a realm boundary",
+				numberOfRealms, boundaryLinks, network.getLinks().size()));
+
+		this.mailboxes = new Mailbox[2][numberOfRealms][numberOfRealms];
+		for (Mailbox[][] byParity : this.mailboxes) {
+			for (int from = 0; from < numberOfRealms; from++) {
+				for (int to = 0; to < numberOfRealms; to++) {
+					if (from != to) {
+						byParity[from][to] = new Mailbox();
+					}
+				}
+			}
+		}
+		for (int i = 0; i < numberOfRealms; i++) {
+			this.realms[i] = new Realm(si, eventsManager, this, i);
+		}
+	}
+
+	/**
+	 * Assigns the nodes to realms by recursively splitting them along the longer side of their bounding box, so that
+	 * every realm gets about the same number of nodes.
+	 */
+	static int[] partition(Network network, int numberOfRealms) {
+		int[] realmOfNode = new int[Id.getNumberOfIds(Node.class)];
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		nodes.sort(Comparator.comparingInt(n -> n.getId().index()));
+		bisect(nodes, 0, numberOfRealms, realmOfNode);
+		return realmOfNode;
+	}
+
+	private static void bisect(List<Node> nodes, int firstRealm, int numberOfRealms, int[] realmOfNode) {
+		if (numberOfRealms == 1) {
+			for (Node node : nodes) {
+				realmOfNode[node.getId().index()] = firstRealm;
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (Node node : nodes) {
+			minX = Math.min(minX, node.getCoord().getX());
+			maxX = Math.max(maxX, node.getCoord().getX());
+			minY = Math.min(minY, node.getCoord().getY());
+			maxY = Math.max(maxY, node.getCoord().getY());
+		}
+		Comparator<Node> byCoord = (maxX - minX >= maxY - minY) ?
+				Comparator.comparingDouble(n -> n.getCoord().getX()) :
+				Comparator.comparingDouble(n -> n.getCoord().getY());
+		// the index makes the split deterministic for nodes with the same coordinate
+		nodes.sort(byCoord.thenComparingInt(n -> n.getId().index()));
+
+		int lowerRealms = numberOfRealms / 2;
+		int split = (int) ((long) nodes.size() * lowerRealms / numberOfRealms);
+		bisect(nodes.subList(0, split), firstRealm, lowerRealms, realmOfNode);
+		bisect(nodes.subList(split, nodes.size()), firstRealm + lowerRealms, numberOfRealms - lowerRealms, realmOfNode);
+	}
+
+	int size() {
+		return this.realms.length;
+	}
+
+	int realmOfLink(int linkId) {
+		return this.realms.length == 1 ? 0 : this.realmOfLink[linkId];
+	}
+
+	int upstreamRealmOfLink(int linkId) {
+		return this.realms.length == 1 ? 0 : this.upstreamRealmOfLink[linkId];
+	}
+
+	/**
+	 * @return the realm that has to process the next plan entry of the agent, or <code>current</code> if any realm may
+	 * process it.
+	 */
+	int realmOfNextPlanEntry(Agent agent, int current) {
+		if (this.realms.length == 1 || agent.finished()) {
+			return current;
+		}
+		long planentry = agent.nextPlan();
+		switch (Agent.getPlanHeader(planentry)) {
+			case Agent.LinkType:
+				return this.upstreamRealmOfLink[Agent.getLinkPlanEntry(planentry)];
+			case Agent.WaitType:
+			case Agent.StopArriveType:
+			case Agent.StopDelayType:
+			case Agent.StopDepartType:
+				return this.realmOfStop[Agent.getStopPlanEntry(planentry)];
+			default:
+				return current;
+		}
+	}
+
+	/**
+	 * Puts an agent into its initial realm before the simulation starts.
+	 */
+	void addDelayedAgent(Agent agent, int until) {
+		this.realms[realmOfNextPlanEntry(agent, 0)].addDelayedAgent(agent, until);
+	}
+
+	/**
+	 * Schedules a link of which the first agent was placed before the simulation starts.
+	 */
+	void addDelayedLink(HLink link, int until) {
+		this.realms[realmOfLink(link.id())].addDelayedLink(link, until);
+	}
+
+	Mailbox mailbox(int time, int from, int to) {
+		return this.mailboxes[time & 1][from][to];
+	}
+
+	/**
+	 * Delivers the messages sent to the realm in the previous time step, in the order of the sending realms.
+	 */
+	void deliverMessages(Realm realm, int time) {
+		Mailbox[][] previous = this.mailboxes[(time + 1) & 1];
+		for (int from = 0; from < this.realms.length; from++) {
+			Mailbox mailbox = previous[from][realm.index()];
+			if (mailbox != null) {
+				mailbox.deliver(realm, this.links);
+			}
+		}
+	}
+
+	void run() throws Exception {
+		if (this.realms.length == 1) {
+			this.realms[0].run();
+			return;
+		}
+
+		Phaser phaser = new Phaser(this.realms.length) {
+			@Override
+			protected boolean onAdvance(int phase, int registeredParties) {
+				// all realms have finished time step 'phase'
+				try {
+					if (HermesConfigGroup.CONCURRENT_EVENT_PROCESSING && phase % 3600 == 0) {
+						EventArray events = getSortedEvents();
+						if (events.size() > 0) {
+							eventsManager.processEvents(events);
+						}
+					}
+				} catch (Throwable t) {
+					exception = t;
+					return true;
+				}
+				return phase + 1 >= HermesConfigGroup.SIM_STEPS;
+			}
+		};
+
+		Thread[] threads = new Thread[this.realms.length];
+		for (int i = 0; i < this.realms.length; i++) {
+			Realm realm = this.realms[i];
+			threads[i] = new Thread(() -> {
+				try {
+					for (int time = 0; time < HermesConfigGroup.SIM_STEPS; time++) {
+						realm.step(time);
+						if (phaser.arriveAndAwaitAdvance() < 0) {
+							break;
+						}
+					}
+				} catch (Throwable t) {
+					this.exception = t;
+					phaser.forceTermination();
+				}
+			}, "Hermes-realm-" + i);
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Throwable t = this.exception;
+		if (t instanceof Exception e) {
+			throw e;
+		} else if (t != null) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	/**
+	 * Merges the events of all realms into time order. Events with the same time are ordered by realm. The events are
+	 * removed from the realms.
+	 */
+	EventArray getSortedEvents() {
+		if (this.realms.length == 1) {
+			return this.realms[0].getSortedEvents();
+		}
+		int total = 0;
+		EventArray[] events = new EventArray[this.realms.length];
+		for (int i = 0; i < this.realms.length; i++) {
+			events[i] = this.realms[i].getSortedEvents();
+			total += events[i].size();
+			this.realms[i].clearSortedEvents();
+		}
+		EventArray merged = new EventArray(Math.max(total, 1));
+		int[] positions = new int[events.length];
+		while (merged.size() < total) {
+			double time = Double.POSITIVE_INFINITY;
+			for (int i = 0; i < events.length; i++) {
+				if (positions[i] < events[i].size()) {
+					time = Math.min(time, events[i].get(positions[i]).getTime());
+				}
+			}
+			for (int i = 0; i < events.length; i++) {
+				while (positions[i] < events[i].size() && events[i].get(positions[i]).getTime() <= time) {
+					merged.add(events[i].get(positions[i]++));
+				}
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * Messages from one realm to another one, sent during one time step. The arrays are re-used in every other time
+	 * step, so they only grow to the largest number of messages in a single time step.
+	 */
+	static final class Mailbox {
+		private static final byte TRANSFER = 0;
+		private static final byte TRANSFER_FORCED = 1;
+		private static final byte HANDOVER = 2;
+		private static final byte RELEASE = 3;
+
+		private byte[] kinds = new byte[16];
+		private Agent[] agents = new Agent[16];
+		// the link id, or the time until which a handed over agent is delayed
+		private int[] values = new int[16];
+		private float[] capacities = new float[16];
+		private int size = 0;
+
+		/** the agent entered a link of the receiving realm */
+		void addTransfer(Agent agent, int linkId, boolean forced) {
+			add(forced ? TRANSFER_FORCED : TRANSFER, agent, linkId, 0);
+		}
+
+		/** the next plan entry of the agent has to be processed by the receiving realm */
+		void addHandover(Agent agent, int until) {
+			add(HANDOVER, agent, until, 0);
+		}
+
+		/** an agent left a link the receiving realm enters agents into */
+		void addRelease(int linkId, float storageCapacityPCE) {
+			add(RELEASE, null, linkId, storageCapacityPCE);
+		}
+
+		private void add(byte kind, Agent agent, int value, float capacity) {
+			if (this.size == this.kinds.length) {
+				int length = this.size * 2;
+				this.kinds = Arrays.copyOf(this.kinds, length);
+				this.agents = Arrays.copyOf(this.agents, length);
+				this.values = Arrays.copyOf(this.values, length);
+				this.capacities = Arrays.copyOf(this.capacities, length);
+			}
+			this.kinds[this.size] = kind;
+			this.agents[this.size] = agent;
+			this.values[this.size] = value;
+			this.capacities[this.size] = capacity;
+			this.size++;
+		}
+
+		void deliver(Realm realm, HLink[] links) {
+			for (int i = 0; i < this.size; i++) {
+				switch (this.kinds[i]) {
+					case TRANSFER -> realm.receiveAgent(links[this.values[i]], this.agents[i], false);
+					case TRANSFER_FORCED -> realm.receiveAgent(links[this.values[i]], this.agents[i], true);
+					case HANDOVER -> realm.addDelayedAgent(this.agents[i], this.values[i]);
+					case RELEASE -> links[this.values[i]].release(this.capacities[i]);
+					default -> throw new IllegalStateException("unknown message kind " + this.kinds[i]);
+				}
+				this.agents[i] = null;
+			}
+			this.size = 0;
+		}
+	}
+}
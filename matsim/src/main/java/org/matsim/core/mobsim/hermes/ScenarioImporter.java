@@ -47,6 +47,7 @@ import org.matsim.vehicles.VehicleType;
 import org.matsim.vehicles.VehicleUtils;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class ScenarioImporter {
 
@@ -77,7 +78,7 @@ class ScenarioImporter {
 	// Array of links that define the network.
 	protected HLink[] hermesLinks;
 
-	protected Realm realm;
+	protected RealmGroup realms;
 	private final boolean deterministicPt;
 	// Agents waiting in pt stations. Should be used as follows:
 	// agent_stops.get(curr station id).get(line id) -> queue of agents
@@ -88,6 +89,9 @@ class ScenarioImporter {
 	// Array of agents that participate in the simulation.
 	// Note: in order to make MATSim Agent ids, some positions in the array might be null.
 	protected Agent[] hermesAgents;
+	// Selected plan of each person the agent's plan and events were generated from, null if they have to be generated.
+	// Plans are only generated again for persons with a different selected plan, see generatePersonPlans.
+	private Plan[] encodedPlans;
 	protected final EventsManager eventsManager;
 	private final int numberOfThreads;
 	private final List<List<Event>> deterministicPtEvents;
@@ -135,6 +139,26 @@ class ScenarioImporter {
 		instance = null;
 	}
 
+	/**
+	 * Generates the plan of the person again in the next iteration, even if the selected plan did not change.
+	 */
+	static void invalidate(Id<Person> personId) {
+		ScenarioImporter importer = instance;
+		if (importer != null && personId.index() < importer.encodedPlans.length) {
+			importer.encodedPlans[personId.index()] = null;
+		}
+	}
+
+	/**
+	 * Generates the plans of all persons again in the next iteration.
+	 */
+	static void invalidateAll() {
+		ScenarioImporter importer = instance;
+		if (importer != null) {
+			Arrays.fill(importer.encodedPlans, null);
+		}
+	}
+
 	public static ScenarioImporter instance(Scenario scenario, EventsManager eventsManager) {
 		// if instance is null or the scenario changed or events manager changed, re-do everything.
 		if (instance == null || !scenario.equals(instance.scenario) || !eventsManager.equals(instance.eventsManager)) {
@@ -172,10 +196,15 @@ class ScenarioImporter {
 						link.reset();
 					}
 				}
-				// reset agent plans and events
+				// reset agent plans and events. Plans of persons are kept, as most of them can be re-used in the next
+				// iteration. Transit vehicles are always generated again, their events are modified in the simulation.
 				for (Agent hermes_agent : hermesAgents) {
 					if (hermes_agent != null) {
-						hermes_agent.reset();
+						if (hermes_agent.id() < agentPersons) {
+							hermes_agent.rewind();
+						} else {
+							hermes_agent.reset();
+						}
 					}
 				}
 				// reset agent_stops
@@ -272,7 +301,7 @@ class ScenarioImporter {
 	}
 
 	private void generateRealms() {
-		realm = new Realm(this, eventsManager);
+		realms = new RealmGroup(this, scenario, eventsManager, scenario.getConfig().hermes().getNumberOfRealms());
 
 		// Put agents in their initial location (link or activity center)
 		for (Agent agent : hermesAgents) {
@@ -294,7 +323,7 @@ class ScenarioImporter {
 				case Agent.SleepForType:
 				case Agent.SleepUntilType:
 					int sleep = Agent.getSleepPlanEntry(planentry);
-					realm.delayedAgents().get(Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1)).add(agent);
+					realms.addDelayedAgent(agent, Math.min(sleep, scenario.getConfig().hermes().getEndTime() + 1));
 					break;
 				default:
 					LogManager.getLogger(getClass()).error(String.format("ERROR -> unknown plan element type %d", type));
@@ -305,7 +334,7 @@ class ScenarioImporter {
 			if (link != null) {
 				int nextwakeup = link.nexttime();
 				if (nextwakeup > 0) {
-					realm.delayedLinks().get(nextwakeup).add(link);
+					realms.addDelayedLink(link, nextwakeup);
 				}
 			}
 		}
@@ -848,16 +877,71 @@ class ScenarioImporter {
 
 	}
 
+	/**
+	 * Generates the plans of the persons whose selected plan changed since the last iteration. Replanning never
+	 * modifies a selected plan, but selects another one or a modified copy, so the plan and events of the other persons
+	 * can be re-used. Persons whose selected plan is modified in place have to be marked with
+	 * {@link HermesUtils#markSelectedPlanModified(Person)}. The events of re-used plans are copied, see {@link #copyEvent(Event)}.
+	 */
 	private void generatePersonPlans() {
 		Population population = scenario.getPopulation();
+		AtomicInteger generated = new AtomicInteger();
 		population.getPersons().values().parallelStream().forEach((person) -> {
 			int hermes_id = hermes_id(person.getId().index(), false);
-			PlanArray plan = hermesAgents[hermes_id].plan();
-			EventArray events = hermesAgents[hermes_id].events();
-			for (PlanElement element : person.getSelectedPlan().getPlanElements()) {
-				processPlanElement(person, plan, events, element, hermesAgents[hermes_id]);
+			Plan selectedPlan = person.getSelectedPlan();
+			if (encodedPlans[hermes_id] == selectedPlan) {
+				EventArray events = hermesAgents[hermes_id].events();
+				for (int i = 0; i < events.size(); i++) {
+					events.set(i, copyEvent(events.get(i)));
+				}
+				return;
+			}
+			Agent agent = hermesAgents[hermes_id];
+			agent.reset();
+			PlanArray plan = agent.plan();
+			EventArray events = agent.events();
+			for (PlanElement element : selectedPlan.getPlanElements()) {
+				processPlanElement(person, plan, events, element, agent);
 			}
+			encodedPlans[hermes_id] = selectedPlan;
+			generated.incrementAndGet();
 		});
+		log.info(String.format("Hermes generated the plans of %d persons, %d unchanged plans were re-used",
+				generated.get(), population.getPersons().size() - generated.get()));
+	}
+
+	/**
+	 * The events of an agent are modified while they are passed to the events manager, e.g. their time is set. The
+	 * events of the last iteration might still be kept by event handlers, so the events of a re-used plan are
+	 * replaced by new ones before they are modified again.
+	 */
+	private static Event copyEvent(Event event) {
+		if (event instanceof ActivityStartEvent e) {
+			return new ActivityStartEvent(0, e.getPersonId(), e.getLinkId(), e.getFacilityId(), e.getActType(), e.getCoord());
+		} else if (event instanceof ActivityEndEvent e) {
+			return new ActivityEndEvent(0, e.getPersonId(), e.getLinkId(), e.getFacilityId(), e.getActType(), e.getCoord());
+		} else if (event instanceof PersonDepartureEvent e) {
+			return new PersonDepartureEvent(0, e.getPersonId(), e.getLinkId(), e.getLegMode(), e.getRoutingMode());
+		} else if (event instanceof PersonArrivalEvent e) {
+			return new PersonArrivalEvent(0, e.getPersonId(), e.getLinkId(), e.getLegMode());
+		} else if (event instanceof PersonEntersVehicleEvent e) {
+			return new PersonEntersVehicleEvent(0, e.getPersonId(), e.getVehicleId());
+		} else if (event instanceof PersonLeavesVehicleEvent e) {
+			return new PersonLeavesVehicleEvent(0, e.getPersonId(), e.getVehicleId());
+		} else if (event instanceof VehicleEntersTrafficEvent e) {
+			return new VehicleEntersTrafficEvent(0, e.getPersonId(), e.getLinkId(), e.getVehicleId(), e.getNetworkMode(), e.getRelativePositionOnLink());
+		} else if (event instanceof VehicleLeavesTrafficEvent e) {
+			return new VehicleLeavesTrafficEvent(0, e.getPersonId(), e.getLinkId(), e.getVehicleId(), e.getNetworkMode(), e.getRelativePositionOnLink());
+		} else if (event instanceof LinkEnterEvent e) {
+			return new LinkEnterEvent(0, e.getVehicleId(), e.getLinkId());
+		} else if (event instanceof LinkLeaveEvent e) {
+			return new LinkLeaveEvent(0, e.getVehicleId(), e.getLinkId());
+		} else if (event instanceof AgentWaitingForPtEvent e) {
+			return new AgentWaitingForPtEvent(0, e.getPersonId(), e.getWaitingAtStopId(), e.getDestinationStopId());
+		} else if (event instanceof TeleportationArrivalEvent e) {
+			return new TeleportationArrivalEvent(0, e.getPersonId(), e.getDistance(), e.getMode());
+		}
+		throw new RuntimeException("Unexpected event in the plan of a person: " + event);
 	}
 
 	private void generateAgents() {
@@ -866,6 +950,7 @@ class ScenarioImporter {
 		agentPersons = Id.getNumberOfIds(Person.class);
 		int nagents = agentPersons + Id.getNumberOfIds(Vehicle.class);
 		hermesAgents = new Agent[nagents];
+		encodedPlans = new Plan[agentPersons];
 
 		// Generate persons
 		for (Person person : population.getPersons().values()) {
@@ -19,7 +19,9 @@
 
 package org.matsim.core.mobsim.qsim;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.PriorityBlockingQueue;
 
@@ -32,6 +34,9 @@ import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.events.BatchingEventsManager;
+import org.matsim.core.events.EventArray;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 
@@ -40,9 +45,31 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 
 	private final EventsManager eventsManager;
 
-	@Inject
+	/**
+	 * Ends the activities of the agents that are due in a time step on several threads, or is <code>null</code>
+	 * if all activities are ended on the main thread.
+	 */
+	private final ParallelAgentStepExecutor executor;
+	private final List<MobsimAgent> dueAgents = new ArrayList<>();
+
+	/**
+	 * Whether the events thrown while the due activities are ended are collected and passed on once per time step,
+	 * see {@link org.matsim.core.config.groups.QSimConfigGroup#isUsingBatchedEvents()}.
+	 */
+	private final boolean batchingEvents;
+
 	ActivityEngineDefaultImpl( EventsManager eventsManager ) {
 		this.eventsManager = eventsManager;
+		this.executor = null;
+		this.batchingEvents = false;
+	}
+
+	@Inject
+	ActivityEngineDefaultImpl( EventsManager eventsManager, Config config ) {
+		this.eventsManager = eventsManager;
+		this.executor = config.qsim().isUsingParallelActivityAndTeleportationEngines() && config.qsim().getNumberOfThreads() > 1 ?
+				new ParallelAgentStepExecutor(config.qsim().getNumberOfThreads(), "ActivityEngineThread") : null;
+		this.batchingEvents = config.qsim().isUsingBatchedEvents();
 	}
 
 //	public ActivityEngineDefaultImpl( EventsManager eventsManager, AgentCounter agentCounter ) {
@@ -95,12 +122,22 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 
 	@Override
 	public void onPrepareSim() {
-		// Nothing to do here
+		if (executor != null) {
+			executor.start();
+		}
 	}
 
 	@Override
 	public void doSimStep(double time) {
 		beforeFirstSimStep = false;
+		if (executor != null) {
+			doSimStepInParallel(time);
+			return;
+		}
+		if (batchingEvents) {
+			doSimStepBatchingEvents(time);
+			return;
+		}
 		while (activityEndsList.peek() != null) {
 			if (activityEndsList.peek().activityEndTime <= time) {
 				MobsimAgent agent = activityEndsList.poll().agent;
@@ -113,8 +150,61 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 		}
 	}
 
+	/**
+	 * Ends the activities on several threads, but passes on their events and arranges the next states one agent after
+	 * the other in the order of the activityEndsList, so the events come out and the agents depart in the same order as
+	 * in {@link #doSimStep(double)} without threads.  Agents whose next activity ends right away are handled by
+	 * handleActivity(...) on the main thread, too.
+	 */
+	private void doSimStepInParallel(double time) {
+		AgentEntry entry;
+		while ((entry = activityEndsList.peek()) != null && entry.activityEndTime <= time) {
+			dueAgents.add(activityEndsList.poll().agent);
+		}
+		if (dueAgents.isEmpty()) {
+			return;
+		}
+		try {
+			executor.run(dueAgents, agent -> {
+				unregisterAgentAtActivityLocation(agent);
+				agent.endActivityAndComputeNextState(time);
+			}, internalInterface::arrangeNextAgentState, internalInterface.getMobsim().getEventsManager(), batchingEvents);
+		} finally {
+			dueAgents.clear();
+		}
+	}
+
+	/**
+	 * Like {@link #doSimStep(double)} without threads, but the events of the time step are passed on as one batch.
+	 */
+	private void doSimStepBatchingEvents(double time) {
+		AgentEntry entry;
+		while ((entry = activityEndsList.peek()) != null && entry.activityEndTime <= time) {
+			dueAgents.add(activityEndsList.poll().agent);
+		}
+		if (dueAgents.isEmpty()) {
+			return;
+		}
+		EventArray events = new EventArray();
+		BatchingEventsManager.startBatching(events);
+		try {
+			for (MobsimAgent agent : dueAgents) {
+				unregisterAgentAtActivityLocation(agent);
+				agent.endActivityAndComputeNextState(time);
+				internalInterface.arrangeNextAgentState(agent);
+			}
+		} finally {
+			BatchingEventsManager.stopBatching();
+			dueAgents.clear();
+		}
+		internalInterface.getMobsim().getEventsManager().processEvents(events);
+	}
+
 	@Override
 	public void afterSim() {
+		if (executor != null) {
+			executor.shutdown();
+		}
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
 		for (AgentEntry entry : activityEndsList) {
 			if (entry.activityEndTime != Double.POSITIVE_INFINITY) {
@@ -21,9 +21,11 @@
 
  package org.matsim.core.mobsim.qsim;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 
@@ -75,15 +77,30 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 
 	private final boolean withTravelTimeCheck;
 
+	/**
+	 * Ends the teleported legs of the agents that arrive in a time step on several threads, or is <code>null</code>
+	 * if all legs are ended on the main thread.
+	 */
+	private final ParallelAgentStepExecutor executor;
+	private final List<MobsimAgent> arrivingAgents = new ArrayList<>();
+	private final boolean batchingEvents;
+
 	@Inject
 	public DefaultTeleportationEngine(Scenario scenario, EventsManager eventsManager) {
-		this(scenario, eventsManager, scenario.getConfig().qsim().isUsingTravelTimeCheckInTeleportation());
+		this(scenario, eventsManager, scenario.getConfig().qsim().isUsingTravelTimeCheckInTeleportation(),
+				scenario.getConfig().qsim().isUsingParallelActivityAndTeleportationEngines() ? scenario.getConfig().qsim().getNumberOfThreads() : 1);
 	}
 
 	public DefaultTeleportationEngine(Scenario scenario, EventsManager eventsManager, boolean withTravelTimeCheck) {
+		this(scenario, eventsManager, withTravelTimeCheck, 1);
+	}
+
+	DefaultTeleportationEngine(Scenario scenario, EventsManager eventsManager, boolean withTravelTimeCheck, int numberOfThreads) {
 		this.scenario = scenario;
 		this.eventsManager = eventsManager;
 		this.withTravelTimeCheck = withTravelTimeCheck;
+		this.executor = numberOfThreads > 1 ? new ParallelAgentStepExecutor(numberOfThreads, "TeleportationEngineThread") : null;
+		this.batchingEvents = scenario.getConfig().qsim().isUsingBatchedEvents();
 	}
 
 	@Override
@@ -129,7 +146,11 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 
 	@Override
 	public void doSimStep(double time) {
-		handleTeleportationArrivals(time);
+		if (executor != null) {
+			handleTeleportationArrivalsInParallel(time);
+		} else {
+			handleTeleportationArrivals(time);
+		}
 	}
 
 	private void handleTeleportationArrivals(double now) {
@@ -151,12 +172,48 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 		}
 	}
 
+	/**
+	 * Ends the legs on several threads, but passes on their events and arranges the next states one agent after the
+	 * other in the order of the teleportationList, so the events come out and the agents depart in the same order as in
+	 * {@link #handleTeleportationArrivals(double)}.  The events are thrown through the events manager of the mobsim,
+	 * which collects them per thread.
+	 */
+	private void handleTeleportationArrivalsInParallel(double now) {
+		EventsManager events = internalInterface.getMobsim().getEventsManager();
+		Tuple<Double, MobsimAgent> entry;
+		// agents that depart again on a leg with zero travel time arrive in the same time step
+		while ((entry = teleportationList.peek()) != null && entry.getFirst() <= now) {
+			while ((entry = teleportationList.peek()) != null && entry.getFirst() <= now) {
+				arrivingAgents.add(teleportationList.poll().getSecond());
+			}
+			try {
+				executor.run(arrivingAgents, personAgent -> {
+					personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent.getDestinationLinkId());
+					double distance = personAgent.getExpectedTravelDistance();
+					events.processEvent(new TeleportationArrivalEvent(now, personAgent.getId(), distance, personAgent.getMode()));
+					personAgent.endLegAndComputeNextState(now);
+				}, personAgent -> {
+					this.teleportationData.remove(personAgent.getId());
+					internalInterface.arrangeNextAgentState(personAgent);
+				}, events, batchingEvents);
+			} finally {
+				arrivingAgents.clear();
+			}
+		}
+	}
+
 	@Override
 	public void onPrepareSim() {
+		if (executor != null) {
+			executor.start();
+		}
 	}
 
 	@Override
 	public void afterSim() {
+		if (executor != null) {
+			executor.shutdown();
+		}
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
 		for (Tuple<Double, MobsimAgent> entry : teleportationList) {
 			MobsimAgent agent = entry.getSecond();
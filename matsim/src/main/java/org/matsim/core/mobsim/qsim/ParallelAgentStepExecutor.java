@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelAgentStepExecutor.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.BatchingEventsManager;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * Applies a step to a list of agents on several threads, used by the activity engine and the teleportation engine
+ * for the agents that are due in a time step.  Every thread gets a contiguous part of the list.
+ * <p>
+ * The events which the step throws through a {@link BatchingEventsManager} are collected per agent.  Afterwards, the
+ * calling thread goes through the list in its original order, passes on the events of each agent and then applies
+ * the second, sequential step to it, e.g. to let it depart.  The events thus come out in the same order as if all
+ * agents had been handled on one thread, and no event handler is called from more than one thread.
+ */
+final class ParallelAgentStepExecutor {
+
+	/**
+	 * Below this number of agents per thread, the agents are processed on the calling thread.
+	 */
+	static final int MIN_AGENTS_PER_THREAD = 64;
+
+	private final int numberOfThreads;
+	private final String threadName;
+	private ExecutorService executor;
+
+	ParallelAgentStepExecutor(int numberOfThreads, String threadName) {
+		this.numberOfThreads = numberOfThreads;
+		this.threadName = threadName;
+	}
+
+	void start() {
+		if (this.numberOfThreads > 1 && this.executor == null) {
+			int[] counter = { 0 };
+			this.executor = Executors.newFixedThreadPool(this.numberOfThreads - 1, runnable -> {
+				Thread thread = new Thread(runnable, this.threadName + "_" + counter[0]++);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	void shutdown() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * Applies the step to all agents on several threads, and then, one agent after the other on the calling thread,
+	 * passes the events of the agent on to the events manager and applies the sequential step.  Returns when all of
+	 * them are done.
+	 *
+	 * @param events the events manager through which the steps throw their events, i.e. the one of the mobsim
+	 * @param batchingEvents if true, the events of all agents, including those of the sequential step, are passed on
+	 * to the events manager as one batch
+	 */
+	void run(List<MobsimAgent> agents, Consumer<MobsimAgent> parallelStep, Consumer<MobsimAgent> sequentialStep,
+			EventsManager events, boolean batchingEvents) {
+		int parts = this.executor == null ? 1 : Math.max(1, Math.min(this.numberOfThreads, agents.size() / MIN_AGENTS_PER_THREAD));
+		EventArray[] partEvents = new EventArray[parts];
+		// the number of events of the part after each agent of the part
+		int[] eventEnds = new int[agents.size()];
+
+		List<Future<?>> futures = new ArrayList<>(parts - 1);
+		for (int i = 0; i < parts - 1; i++) {
+			int index = i;
+			futures.add(this.executor.submit((Callable<Void>) () -> {
+				runPart(agents, parts, index, parallelStep, partEvents, eventEnds);
+				return null;
+			}));
+		}
+		runPart(agents, parts, parts - 1, parallelStep, partEvents, eventEnds);
+
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+
+		EventArray batch = batchingEvents ? new EventArray() : null;
+		if (batch != null) {
+			BatchingEventsManager.startBatching(batch);
+		}
+		try {
+			for (int part = 0; part < parts; part++) {
+				int from = firstAgent(agents, parts, part);
+				int to = firstAgent(agents, parts, part + 1);
+				int event = 0;
+				for (int agent = from; agent < to; agent++) {
+					for (; event < eventEnds[agent]; event++) {
+						events.processEvent(partEvents[part].get(event));
+					}
+					sequentialStep.accept(agents.get(agent));
+				}
+			}
+		} finally {
+			if (batch != null) {
+				BatchingEventsManager.stopBatching();
+			}
+		}
+		if (batch != null && batch.size() > 0) {
+			events.processEvents(batch);
+		}
+	}
+
+	private static int firstAgent(List<MobsimAgent> agents, int parts, int part) {
+		return part * agents.size() / parts;
+	}
+
+	private static void runPart(List<MobsimAgent> agents, int parts, int part, Consumer<MobsimAgent> step,
+			EventArray[] partEvents, int[] eventEnds) {
+		EventArray events = new EventArray();
+		partEvents[part] = events;
+		BatchingEventsManager.startBatching(events);
+		try {
+			for (int agent = firstAgent(agents, parts, part); agent < firstAgent(agents, parts, part + 1); agent++) {
+				step.accept(agents.get(agent));
+				eventEnds[agent] = events.size();
+			}
+		} finally {
+			BatchingEventsManager.stopBatching();
+		}
+	}
+}
@@ -35,6 +35,7 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.EndtimeInterpretation;
+import org.matsim.core.events.BatchingEventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.AgentSource;
@@ -213,11 +214,15 @@ public final class QSim implements VisMobsim, Netsim, ActivityEndRescheduler {
 	@Inject
 	private QSim( final Scenario sc, EventsManager events, Injector childInjector ) {
 		this.scenario = sc;
+		EventsManager theEvents = events;
 		if ( sc.getConfig().qsim().getNumberOfThreads() > 1) {
-			this.events = EventsUtils.getParallelFeedableInstance( events );
-		} else {
-			this.events = events;
+			theEvents = EventsUtils.getParallelFeedableInstance( theEvents );
+		}
+		if ( sc.getConfig().qsim().isUsingBatchedEvents() || sc.getConfig().qsim().isUsingParallelActivityAndTeleportationEngines() ) {
+			// the engines decide when the events of their threads are collected:
+			theEvents = new BatchingEventsManager( theEvents );
 		}
+		this.events = theEvents;
 		this.listenerManager = new MobsimListenerManager( this );
 		this.agentCounter = new org.matsim.core.mobsim.qsim.AgentCounter();
 		this.simTimer = new MobsimTimer( sc.getConfig().qsim().getTimeStepSize());
@@ -51,6 +51,9 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 
 	private Id<Link> cachedNextLinkId = null;
 
+	private NetworkRoute cachedRoute = null;
+	private List<Id<Link>> cachedRouteLinkIds = null;
+
 	@Override
 	public final void notifyMoveOverNode(Id<Link> newLinkId) {
 		if (expectedLinkWarnCount < 10 && !newLinkId.equals(this.cachedNextLinkId)) {
@@ -95,7 +98,7 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 			return null ;
 		}
 
-		List<Id<Link>> routeLinkIds = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getLinkIds();
+		List<Id<Link>> routeLinkIds = getRouteLinkIds((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute());
 
 		// (3) if route has run dry, we return the destination link (except for one special case, which however may not be necessary any more):
 		if (this.basicPlanAgentDelegate.getCurrentLinkIndex() >= routeLinkIds.size() ) {
@@ -131,7 +134,7 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 			return true ;
 		}
 
-		final List<Id<Link>> routeLinkIds = ((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute()).getLinkIds();
+		final List<Id<Link>> routeLinkIds = getRouteLinkIds((NetworkRoute) this.basicPlanAgentDelegate.getCurrentLeg().getRoute());
 		final int routeLinkIdsSize = routeLinkIds.size();
 
 		// the standard condition used to be "route has run dry AND destination link not attached to current link":
@@ -170,6 +173,18 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 	// ============================================================================================================================
 	// below there only (package-)private methods or setters/getters
 
+	/**
+	 * The link ids of a route are asked for on every link the vehicle drives along.  Some routes (e.g. the compressed ones) create
+	 * a new list or view for this every time, so the list is kept as long as the agent is on the same route.
+	 */
+	private List<Id<Link>> getRouteLinkIds(NetworkRoute route) {
+		if (route != this.cachedRoute) {
+			this.cachedRoute = route;
+			this.cachedRouteLinkIds = route.getLinkIds();
+		}
+		return this.cachedRouteLinkIds;
+	}
+
 	/**
 	 * Some data of the currently simulated Leg is cached to speed up
 	 * the simulation. If the Leg changes (for example the Route or
@@ -185,6 +200,8 @@ public final class PlanBasedDriverAgentImpl implements DriverAgent {
 		// Compromise: package-private here; making it public in the Withinday class.  kai, nov'10
 
 		this.cachedNextLinkId = null;
+		this.cachedRoute = null;
+		this.cachedRouteLinkIds = null;
 
 		if( this.basicPlanAgentDelegate.getCurrentPlanElement()==null ) {
 			throw new RuntimeException("encountered unexpected null pointer" ) ;
@@ -87,6 +87,10 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 //	private final Set<QLinkI> linksToActivateInitially = new HashSet<>();
 	protected final int numOfThreads;
 	protected final QNetwork qNetwork;
+	/**
+	 * Whether the runners collect their events per sub-step, see {@link QSimConfigGroup#isUsingBatchedEvents()}.
+	 */
+	protected final boolean batchingEvents;
 
 	private double infoTime = 0;
 	private List<A> engines;
@@ -132,6 +136,7 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		qNetwork.initialize(this, sim.getAgentCounter(), sim.getSimTimer() );
 
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
+		this.batchingEvents = qSimConfigGroup.isUsingBatchedEvents();
 	}
 	
 	static AbstractAgentSnapshotInfoBuilder createAgentSnapshotInfoBuilder(Scenario scenario, SnapshotLinkWidthCalculator linkWidthCalculator) {
@@ -436,6 +441,13 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		internalInterface.arrangeNextAgentState(pp);
 	}
 	
+	/**
+	 * @return the events manager of the qsim, to which the batched events of the runners are passed on
+	 */
+	protected final EventsManager getMobsimEventsManager() {
+		return this.qsim.getEventsManager();
+	}
+
 	/**
 	 * @return the {@link AbstractQNetsimEngineRunner} created by {@link #initQSimEngineRunners()}
 	 */
@@ -20,17 +20,21 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.BatchingEventsManager;
+import org.matsim.core.events.EventArray;
 import org.matsim.core.mobsim.qsim.QSim;
 
 /**
  * These are the "threads" of the {@link QNetsimEngineWithThreadpool}. The "run()" method is implicitly called by starting the thread.
+ * <p>
+ * The nodes and links can also be moved in ranges by several threads, see {@link QNetsimEngineWithWorkStealing}.
  * 
  * @author droeder after
  * @author (of this documentation) nagel
@@ -47,8 +51,11 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 * Now, the implementation of the QNode was adapted in a way that this is not
 	 * possible anymore.
 	 * cdobler, sep'14
+	 * Activated nodes are appended to the nodesList before the nodes are moved, so
+	 * that the active nodes can be split into ranges.
 	 */
 	private final Queue<QNodeI> nodesQueue = new ConcurrentLinkedQueue<>();
+	private final List<QNodeI> nodesList = new ArrayList<>();
 
 	/*
 	 * Needs not to be thread-safe since links are only activated from nodes which
@@ -56,7 +63,17 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 * no concurrent add operation can occur.
 	 * cdobler, sep'14
 	 */
-	private final List<QLinkI> linksList = new LinkedList<>();
+	private final List<QLinkI> linksList = new ArrayList<>();
+
+	/*
+	 * If the nodes of this runner are moved by several threads, links are activated
+	 * concurrently. They are then collected here and appended to the linksList
+	 * before the links are moved.  Null otherwise.
+	 */
+	private final Queue<QLinkI> linksQueue;
+
+	private boolean[] nodesRemainingActive = new boolean[0];
+	private boolean[] linksRemainingActive = new boolean[0];
 
 	/*
 	 * Ensure that nodes and links are only activate during times where we expect it.
@@ -70,6 +87,23 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	private boolean lockNodes = false;
 	private boolean lockLinks = false;
 
+	/*
+	 * If events are batched, the events thrown by the thread of this runner while it moves the nodes or the links are
+	 * collected here, and passed on by the engine once all runners are done.  Null otherwise.
+	 */
+	private EventArray batchedEvents = null;
+
+	/*
+	 * Nodes, and with concurrent link activation also links, are activated by several threads, so they are queued in an
+	 * order which depends on the timing of the threads.  If set, the newly activated ones are sorted by their id before
+	 * they are moved, so that their events are thrown in a reproducible order.  Set if events are batched and there is
+	 * more than one thread.
+	 */
+	private boolean orderingActivations = false;
+
+	private static final Comparator<QNodeI> NODE_ORDER = Comparator.comparingInt(node -> node.getNode().getId().index());
+	private static final Comparator<QLinkI> LINK_ORDER = Comparator.comparingInt(link -> link.getLink().getId().index());
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -77,38 +111,157 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		else runTimes = null;
 	}
 
+	AbstractQNetsimEngineRunner() {
+		this(false);
+	}
+
+	/**
+	 * @param concurrentLinkActivation whether the nodes of this runner are moved by several threads at the same time
+	 */
+	AbstractQNetsimEngineRunner(boolean concurrentLinkActivation) {
+		this.linksQueue = concurrentLinkActivation ? new ConcurrentLinkedQueue<>() : null;
+	}
+
 	/*package*/ final void setTime(final double t) {
 		time = t;
 	}
 
 	public abstract void afterSim() ;
 
+	/*package*/ final void setBatchingEvents(boolean batchingEvents) {
+		this.batchedEvents = batchingEvents ? new EventArray() : null;
+	}
+
+	/*package*/ final void setOrderingActivations(boolean orderingActivations) {
+		this.orderingActivations = orderingActivations;
+	}
+
+	/**
+	 * Collects the events that the current thread throws in the batch of this runner, if events are batched.
+	 */
+	protected final void startBatchingEvents() {
+		if (this.batchedEvents != null) BatchingEventsManager.startBatching(this.batchedEvents);
+	}
+
+	protected final void stopBatchingEvents() {
+		if (this.batchedEvents != null) BatchingEventsManager.stopBatching();
+	}
+
+	/**
+	 * Passes the events collected since the last call on to the given events manager.  Needs to be called by the thread
+	 * of the engine after the runners are done.
+	 */
+	/*package*/ final void flushEvents(EventsManager events) {
+		if (this.batchedEvents != null && this.batchedEvents.size() > 0) {
+			events.processEvents(this.batchedEvents);
+			// some events managers keep the array, so it cannot be re-used:
+			this.batchedEvents = new EventArray();
+		}
+	}
+
 	protected void moveNodes() {
-		boolean remainsActive;
+		int numberOfNodes = startMovingNodes();
+		moveNodes(0, numberOfNodes);
+		finishMovingNodes();
+	}
+	
+	protected final void moveLinks() {
+		int numberOfLinks = startMovingLinks();
+		moveLinks(0, numberOfLinks);
+		finishMovingLinks();
+	}
+
+	/**
+	 * Locks the activation of nodes.  Needs to be called before {@link #moveNodes(int, int)}.
+	 *
+	 * @return the number of active nodes
+	 */
+	/*package*/ final int startMovingNodes() {
 		this.lockNodes = true;
+		int numberOfActive = this.nodesList.size();
 		QNodeI node;
-		Iterator<QNodeI> simNodes = this.nodesQueue.iterator();
-		while (simNodes.hasNext()) {
-			node = simNodes.next();
-			remainsActive = node.doSimStep(time);
-			if (!remainsActive) simNodes.remove();
+		while ((node = this.nodesQueue.poll()) != null) {
+			this.nodesList.add(node);
+		}
+		if (this.orderingActivations) {
+			this.nodesList.subList(numberOfActive, this.nodesList.size()).sort(NODE_ORDER);
 		}
+		if (this.nodesRemainingActive.length < this.nodesList.size()) {
+			this.nodesRemainingActive = new boolean[this.nodesList.size() * 2];
+		}
+		return this.nodesList.size();
+	}
+
+	/**
+	 * Moves the active nodes from index <code>from</code> (inclusive) to <code>to</code> (exclusive).  Different ranges
+	 * may be moved by different threads at the same time.
+	 */
+	/*package*/ final void moveNodes(int from, int to) {
+		for (int i = from; i < to; i++) {
+			this.nodesRemainingActive[i] = this.nodesList.get(i).doSimStep(time);
+		}
+	}
+
+	/**
+	 * Removes the nodes that are no longer active and unlocks the activation of nodes.
+	 */
+	/*package*/ final void finishMovingNodes() {
+		removeInactive(this.nodesList, this.nodesRemainingActive);
 		this.lockNodes = false;
 	}
-	
-	protected final void moveLinks() {
-		boolean remainsActive;
-		lockLinks = true;
-		QLinkI link;
-		ListIterator<QLinkI> simLinks = this.linksList.listIterator();
-		while (simLinks.hasNext()) {
-			link = simLinks.next();
 
-			remainsActive = link.doSimStep();
+	/**
+	 * Locks the activation of links.  Needs to be called before {@link #moveLinks(int, int)}.
+	 *
+	 * @return the number of active links
+	 */
+	/*package*/ final int startMovingLinks() {
+		this.lockLinks = true;
+		if (this.linksQueue != null) {
+			int numberOfActive = this.linksList.size();
+			QLinkI link;
+			while ((link = this.linksQueue.poll()) != null) {
+				this.linksList.add(link);
+			}
+			if (this.orderingActivations) {
+				this.linksList.subList(numberOfActive, this.linksList.size()).sort(LINK_ORDER);
+			}
+		}
+		if (this.linksRemainingActive.length < this.linksList.size()) {
+			this.linksRemainingActive = new boolean[this.linksList.size() * 2];
+		}
+		return this.linksList.size();
+	}
+
+	/**
+	 * Moves the active links from index <code>from</code> (inclusive) to <code>to</code> (exclusive).  Different ranges
+	 * may be moved by different threads at the same time.
+	 */
+	/*package*/ final void moveLinks(int from, int to) {
+		for (int i = from; i < to; i++) {
+			this.linksRemainingActive[i] = this.linksList.get(i).doSimStep();
+		}
+	}
+
+	/**
+	 * Removes the links that are no longer active and unlocks the activation of links.
+	 */
+	/*package*/ final void finishMovingLinks() {
+		removeInactive(this.linksList, this.linksRemainingActive);
+		this.lockLinks = false;
+	}
 
-			if (!remainsActive) simLinks.remove();
+	/*
+	 * Elements that remain active are moved to the front of the list, which keeps their order without creating any objects.
+	 */
+	private static <T> void removeInactive(List<T> list, boolean[] remainsActive) {
+		int numberOfActive = 0;
+		for (int i = 0; i < list.size(); i++) {
+			if (remainsActive[i]) list.set(numberOfActive++, list.get(i));
+		}
+		for (int i = list.size() - 1; i >= numberOfActive; i--) {
+			list.remove(i);
 		}
-		lockLinks = false;
 	}
 
 	/*
@@ -118,13 +271,19 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 */
 	@Override
 	protected final void registerLinkAsActive(QLinkI link) {
-		if (!lockLinks) linksList.add(link);
-		else throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		if (lockLinks) throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		if (this.linksQueue != null) this.linksQueue.add(link);
+		else linksList.add(link);
 	}
 
+	/*
+	 * Note that the size() method is O(n) for a ConcurrentLinkedQueue as used
+	 * for the linksQueue. However, this method is only called once every simulated
+	 * hour for the log message. Therefore, it should be okay.
+	 */
 	@Override
 	public final int getNumberOfSimulatedLinks() {
-		return this.linksList.size();
+		return this.linksList.size() + (this.linksQueue == null ? 0 : this.linksQueue.size());
 	}
 
 	/*
@@ -146,7 +305,7 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 */
 	@Override
 	public final int getNumberOfSimulatedNodes() {
-		return this.nodesQueue.size();
+		return this.nodesList.size() + this.nodesQueue.size();
 	}
 
 	protected final void startMeasure() {
@@ -160,4 +319,4 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 			if (bin < this.runTimes.length) this.runTimes[bin] = end - this.startTime;
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LinkEventsPool.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Re-uses link enter and link leave events of one thread. All events handed out in a time step are re-used once the
+ * thread asks for an event of a later time step. This is only safe as long as the events manager has processed all
+ * events at the end of a time step and no event handler keeps references to the events.
+ * <p>
+ * The re-used events are instances of private subclasses, so the event types themselves stay immutable.
+ * <p>
+ * Not thread-safe, every thread needs its own pool.
+ */
+final class LinkEventsPool {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private PooledLinkEnterEvent[] enterEvents = new PooledLinkEnterEvent[INITIAL_CAPACITY];
+	private PooledLinkLeaveEvent[] leaveEvents = new PooledLinkLeaveEvent[INITIAL_CAPACITY];
+	private int enterCount = 0;
+	private int leaveCount = 0;
+	private double time = Double.NEGATIVE_INFINITY;
+
+	LinkEnterEvent linkEnterEvent(double now, Id<Vehicle> vehicleId, Id<Link> linkId) {
+		recycle(now);
+		if (this.enterCount == this.enterEvents.length) {
+			this.enterEvents = Arrays.copyOf(this.enterEvents, this.enterEvents.length * 2);
+		}
+		PooledLinkEnterEvent event = this.enterEvents[this.enterCount];
+		if (event == null) {
+			event = new PooledLinkEnterEvent(now, vehicleId, linkId);
+			this.enterEvents[this.enterCount] = event;
+		} else {
+			event.set(now, vehicleId, linkId);
+		}
+		this.enterCount++;
+		return event;
+	}
+
+	LinkLeaveEvent linkLeaveEvent(double now, Id<Vehicle> vehicleId, Id<Link> linkId) {
+		recycle(now);
+		if (this.leaveCount == this.leaveEvents.length) {
+			this.leaveEvents = Arrays.copyOf(this.leaveEvents, this.leaveEvents.length * 2);
+		}
+		PooledLinkLeaveEvent event = this.leaveEvents[this.leaveCount];
+		if (event == null) {
+			event = new PooledLinkLeaveEvent(now, vehicleId, linkId);
+			this.leaveEvents[this.leaveCount] = event;
+		} else {
+			event.set(now, vehicleId, linkId);
+		}
+		this.leaveCount++;
+		return event;
+	}
+
+	private void recycle(double now) {
+		if (now != this.time) {
+			// the events of the previous time step have been processed at the end of that time step
+			this.time = now;
+			this.enterCount = 0;
+			this.leaveCount = 0;
+		}
+	}
+
+	private static final class PooledLinkEnterEvent extends LinkEnterEvent {
+
+		private Id<Vehicle> vehicleId;
+		private Id<Link> linkId;
+
+		PooledLinkEnterEvent(double time, Id<Vehicle> vehicleId, Id<Link> linkId) {
+			super(time, vehicleId, linkId);
+			set(time, vehicleId, linkId);
+		}
+
+		void set(double time, Id<Vehicle> vehicleId, Id<Link> linkId) {
+			setTime(time);
+			this.vehicleId = vehicleId;
+			this.linkId = linkId;
+		}
+
+		@Override
+		public Id<Vehicle> getVehicleId() {
+			return this.vehicleId;
+		}
+
+		@Override
+		public Id<Link> getLinkId() {
+			return this.linkId;
+		}
+	}
+
+	private static final class PooledLinkLeaveEvent extends LinkLeaveEvent {
+
+		private Id<Vehicle> vehicleId;
+		private Id<Link> linkId;
+
+		PooledLinkLeaveEvent(double time, Id<Vehicle> vehicleId, Id<Link> linkId) {
+			super(time, vehicleId, linkId);
+			set(time, vehicleId, linkId);
+		}
+
+		void set(double time, Id<Vehicle> vehicleId, Id<Link> linkId) {
+			setTime(time);
+			this.vehicleId = vehicleId;
+			this.linkId = linkId;
+		}
+
+		@Override
+		public Id<Vehicle> getVehicleId() {
+			return this.vehicleId;
+		}
+
+		@Override
+		public Id<Link> getLinkId() {
+			return this.linkId;
+		}
+	}
+}
@@ -21,10 +21,16 @@
 
  package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.events.BatchingEventsManager;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
+import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
 
 public class NetsimEngineContext {
@@ -35,17 +41,20 @@ public class NetsimEngineContext {
 	final QSimConfigGroup qsimConfig;
 	private final MobsimTimer mobsimTimer;
 	final SnapshotLinkWidthCalculator linkWidthCalculator;
+	private final ThreadLocal<LinkEventsPool> linkEventsPool;
 
 	public NetsimEngineContext(EventsManager events, double effectiveCellSize, AgentCounter agentCounter,
 			AbstractAgentSnapshotInfoBuilder snapshotInfoBuilder, QSimConfigGroup qsimConfig, MobsimTimer mobsimTimer, 
 			SnapshotLinkWidthCalculator linkWidthCalculator) {
-		this.events = events;
+		// with batched events, the netsim engine collects the events of every thread and passes them on after each sub-step:
+		this.events = qsimConfig.isUsingBatchedEvents() ? new BatchingEventsManager(events) : events;
 		this.effectiveCellSize = effectiveCellSize;
 		this.agentCounter = agentCounter;
 		this.snapshotInfoBuilder = snapshotInfoBuilder;
 		this.qsimConfig = qsimConfig;
 		this.mobsimTimer = mobsimTimer ;
 		this.linkWidthCalculator = linkWidthCalculator;
+		this.linkEventsPool = qsimConfig.isUsingPooledLinkEvents() ? ThreadLocal.withInitial(LinkEventsPool::new) : null;
 	}
 
 	MobsimTimer getSimTimer() {
@@ -60,4 +69,24 @@ public class NetsimEngineContext {
 		return agentCounter;
 	}
 
+	/**
+	 * @return a new event, or a re-used one of an earlier time step if pooled link events are switched on
+	 */
+	LinkEnterEvent createLinkEnterEvent(double now, Id<Vehicle> vehicleId, Id<Link> linkId) {
+		if (this.linkEventsPool == null) {
+			return new LinkEnterEvent(now, vehicleId, linkId);
+		}
+		return this.linkEventsPool.get().linkEnterEvent(now, vehicleId, linkId);
+	}
+
+	/**
+	 * @return a new event, or a re-used one of an earlier time step if pooled link events are switched on
+	 */
+	LinkLeaveEvent createLinkLeaveEvent(double now, Id<Vehicle> vehicleId, Id<Link> linkId) {
+		if (this.linkEventsPool == null) {
+			return new LinkLeaveEvent(now, vehicleId, linkId);
+		}
+		return this.linkEventsPool.get().linkLeaveEvent(now, vehicleId, linkId);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,237 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedLaneStore.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+
+/**
+ * The state of all {@link PackedQueueLane}s of a network, stored as one array per attribute and indexed by the index
+ * of the lane.  The vehicle queue and the buffer of every lane are ring buffers whose capacity is a power of two;
+ * they are only allocated when the first vehicle enters the lane.
+ * <p>
+ * Lanes are only added while the network is built.  During the simulation, every lane is only modified by the
+ * thread that moves it or its to-node, so the arrays do not need any synchronization.
+ */
+final class PackedLaneStore {
+
+	private static final QVehicle[] NO_VEHICLES = new QVehicle[0];
+	private static final double[] NO_CONSUMPTIONS = new double[0];
+	private static final int INITIAL_RING_CAPACITY = 4;
+
+	private int numberOfLanes = 0;
+
+	double[] length;
+	double[] unscaledFlowCapacity_s;
+	double[] effectiveNumberOfLanes;
+	double[] flowCapacityPerTimeStep;
+	double[] inverseFlowCapacityPerTimeStep;
+	double[] storageCapacity;
+	double[] usedStorageCapacity;
+	double[] flowcapAccumulateValue;
+	double[] flowcapAccumulateTimeStep;
+	double[] bufferLastMovedTime;
+	double[] lastBufferEntryTime;
+	QVehicle[] lastBufferEntryVehicle;
+	boolean[] thisTimeStepGreen;
+
+	QVehicle[][] queueVehicles;
+	int[] queueHead;
+	int[] queueSize;
+
+	QVehicle[][] bufferVehicles;
+	double[][] bufferFlowConsumptions;
+	int[] bufferHead;
+	int[] bufferSize;
+
+	PackedLaneStore(int expectedNumberOfLanes) {
+		allocate(Math.max(expectedNumberOfLanes, 16));
+	}
+
+	int getNumberOfLanes() {
+		return this.numberOfLanes;
+	}
+
+	/**
+	 * Adds a lane with the given geometry and returns its index.  The capacities still need to be computed by the lane.
+	 */
+	int addLane(double length, double unscaledFlowCapacity_s, double effectiveNumberOfLanes) {
+		if (this.numberOfLanes == this.length.length) {
+			allocate(this.numberOfLanes * 2);
+		}
+		int lane = this.numberOfLanes++;
+		this.length[lane] = length;
+		this.unscaledFlowCapacity_s[lane] = unscaledFlowCapacity_s;
+		this.effectiveNumberOfLanes[lane] = effectiveNumberOfLanes;
+		this.flowcapAccumulateTimeStep[lane] = 0.;
+		this.bufferLastMovedTime[lane] = Double.NEGATIVE_INFINITY;
+		this.lastBufferEntryTime[lane] = Double.NaN;
+		this.thisTimeStepGreen[lane] = true;
+		this.queueVehicles[lane] = NO_VEHICLES;
+		this.bufferVehicles[lane] = NO_VEHICLES;
+		this.bufferFlowConsumptions[lane] = NO_CONSUMPTIONS;
+		return lane;
+	}
+
+	// === vehicle queue ===
+
+	void addLastToQueue(int lane, QVehicle vehicle) {
+		if (this.queueSize[lane] == this.queueVehicles[lane].length) {
+			growQueue(lane);
+		}
+		QVehicle[] ring = this.queueVehicles[lane];
+		ring[(this.queueHead[lane] + this.queueSize[lane]) & (ring.length - 1)] = vehicle;
+		this.queueSize[lane]++;
+	}
+
+	void addFirstToQueue(int lane, QVehicle vehicle) {
+		if (this.queueSize[lane] == this.queueVehicles[lane].length) {
+			growQueue(lane);
+		}
+		QVehicle[] ring = this.queueVehicles[lane];
+		this.queueHead[lane] = (this.queueHead[lane] - 1) & (ring.length - 1);
+		ring[this.queueHead[lane]] = vehicle;
+		this.queueSize[lane]++;
+	}
+
+	QVehicle peekQueue(int lane) {
+		return this.queueSize[lane] == 0 ? null : this.queueVehicles[lane][this.queueHead[lane]];
+	}
+
+	QVehicle pollQueue(int lane) {
+		if (this.queueSize[lane] == 0) {
+			return null;
+		}
+		QVehicle[] ring = this.queueVehicles[lane];
+		QVehicle vehicle = ring[this.queueHead[lane]];
+		ring[this.queueHead[lane]] = null;
+		this.queueHead[lane] = (this.queueHead[lane] + 1) & (ring.length - 1);
+		this.queueSize[lane]--;
+		return vehicle;
+	}
+
+	QVehicle getFromQueue(int lane, int i) {
+		QVehicle[] ring = this.queueVehicles[lane];
+		return ring[(this.queueHead[lane] + i) & (ring.length - 1)];
+	}
+
+	void clearQueue(int lane) {
+		Arrays.fill(this.queueVehicles[lane], null);
+		this.queueHead[lane] = 0;
+		this.queueSize[lane] = 0;
+	}
+
+	private void growQueue(int lane) {
+		QVehicle[] newRing = new QVehicle[Math.max(INITIAL_RING_CAPACITY, this.queueVehicles[lane].length * 2)];
+		for (int i = 0; i < this.queueSize[lane]; i++) {
+			newRing[i] = getFromQueue(lane, i);
+		}
+		this.queueVehicles[lane] = newRing;
+		this.queueHead[lane] = 0;
+	}
+
+	// === buffer ===
+
+	void addToBuffer(int lane, QVehicle vehicle, double flowConsumption) {
+		if (this.bufferSize[lane] == this.bufferVehicles[lane].length) {
+			growBuffer(lane);
+		}
+		int index = (this.bufferHead[lane] + this.bufferSize[lane]) & (this.bufferVehicles[lane].length - 1);
+		this.bufferVehicles[lane][index] = vehicle;
+		this.bufferFlowConsumptions[lane][index] = flowConsumption;
+		this.bufferSize[lane]++;
+	}
+
+	QVehicle peekBuffer(int lane) {
+		return this.bufferSize[lane] == 0 ? null : this.bufferVehicles[lane][this.bufferHead[lane]];
+	}
+
+	QVehicle pollBuffer(int lane) {
+		if (this.bufferSize[lane] == 0) {
+			return null;
+		}
+		QVehicle[] ring = this.bufferVehicles[lane];
+		QVehicle vehicle = ring[this.bufferHead[lane]];
+		ring[this.bufferHead[lane]] = null;
+		this.bufferHead[lane] = (this.bufferHead[lane] + 1) & (ring.length - 1);
+		this.bufferSize[lane]--;
+		return vehicle;
+	}
+
+	QVehicle getFromBuffer(int lane, int i) {
+		QVehicle[] ring = this.bufferVehicles[lane];
+		return ring[(this.bufferHead[lane] + i) & (ring.length - 1)];
+	}
+
+	double getFlowConsumptionFromBuffer(int lane, int i) {
+		double[] ring = this.bufferFlowConsumptions[lane];
+		return ring[(this.bufferHead[lane] + i) & (ring.length - 1)];
+	}
+
+	void clearBuffer(int lane) {
+		Arrays.fill(this.bufferVehicles[lane], null);
+		this.bufferHead[lane] = 0;
+		this.bufferSize[lane] = 0;
+	}
+
+	private void growBuffer(int lane) {
+		int capacity = Math.max(INITIAL_RING_CAPACITY, this.bufferVehicles[lane].length * 2);
+		QVehicle[] newVehicles = new QVehicle[capacity];
+		double[] newFlowConsumptions = new double[capacity];
+		for (int i = 0; i < this.bufferSize[lane]; i++) {
+			newVehicles[i] = getFromBuffer(lane, i);
+			newFlowConsumptions[i] = getFlowConsumptionFromBuffer(lane, i);
+		}
+		this.bufferVehicles[lane] = newVehicles;
+		this.bufferFlowConsumptions[lane] = newFlowConsumptions;
+		this.bufferHead[lane] = 0;
+	}
+
+	private void allocate(int capacity) {
+		this.length = copyOf(this.length, capacity);
+		this.unscaledFlowCapacity_s = copyOf(this.unscaledFlowCapacity_s, capacity);
+		this.effectiveNumberOfLanes = copyOf(this.effectiveNumberOfLanes, capacity);
+		this.flowCapacityPerTimeStep = copyOf(this.flowCapacityPerTimeStep, capacity);
+		this.inverseFlowCapacityPerTimeStep = copyOf(this.inverseFlowCapacityPerTimeStep, capacity);
+		this.storageCapacity = copyOf(this.storageCapacity, capacity);
+		this.usedStorageCapacity = copyOf(this.usedStorageCapacity, capacity);
+		this.flowcapAccumulateValue = copyOf(this.flowcapAccumulateValue, capacity);
+		this.flowcapAccumulateTimeStep = copyOf(this.flowcapAccumulateTimeStep, capacity);
+		this.bufferLastMovedTime = copyOf(this.bufferLastMovedTime, capacity);
+		this.lastBufferEntryTime = copyOf(this.lastBufferEntryTime, capacity);
+		this.lastBufferEntryVehicle = this.lastBufferEntryVehicle == null ? new QVehicle[capacity] : Arrays.copyOf(this.lastBufferEntryVehicle, capacity);
+		this.thisTimeStepGreen = this.thisTimeStepGreen == null ? new boolean[capacity] : Arrays.copyOf(this.thisTimeStepGreen, capacity);
+		this.queueVehicles = this.queueVehicles == null ? new QVehicle[capacity][] : Arrays.copyOf(this.queueVehicles, capacity);
+		this.queueHead = copyOf(this.queueHead, capacity);
+		this.queueSize = copyOf(this.queueSize, capacity);
+		this.bufferVehicles = this.bufferVehicles == null ? new QVehicle[capacity][] : Arrays.copyOf(this.bufferVehicles, capacity);
+		this.bufferFlowConsumptions = this.bufferFlowConsumptions == null ? new double[capacity][] : Arrays.copyOf(this.bufferFlowConsumptions, capacity);
+		this.bufferHead = copyOf(this.bufferHead, capacity);
+		this.bufferSize = copyOf(this.bufferSize, capacity);
+	}
+
+	private static double[] copyOf(double[] array, int capacity) {
+		return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+	}
+
+	private static int[] copyOf(int[] array, int capacity) {
+		return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+	}
+}
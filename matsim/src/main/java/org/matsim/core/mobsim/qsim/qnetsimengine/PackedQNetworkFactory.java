@@ -0,0 +1,113 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedQNetworkFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Collections;
+import java.util.Set;
+
+import jakarta.inject.Inject;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineI.NetsimInternalInterface;
+import org.matsim.core.mobsim.qsim.qnetsimengine.linkspeedcalculator.LinkSpeedCalculator;
+import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
+
+/**
+ * Like {@link DefaultQNetworkFactory}, but the links keep the state of their queues and buffers in a
+ * {@link PackedLaneStore}, i.e. in primitive arrays that are indexed by the link and shared by the whole network.
+ * This keeps the state that is read for every active link in every time step close together, which matters for
+ * networks with millions of links.
+ * <p>
+ * Only the standard queue model is supported: traffic dynamics <code>queue</code>, link dynamics <code>FIFO</code>,
+ * no lanes and no storage-free seep modes.  For these settings, the results are the same as with
+ * {@link DefaultQNetworkFactory}.  Use it by binding it in a QSim module:
+ * <pre>
+ * bind( QNetworkFactory.class ).to( PackedQNetworkFactory.class ).in( Singleton.class );
+ * </pre>
+ */
+public final class PackedQNetworkFactory implements QNetworkFactory {
+	private final EventsManager events;
+	private final Scenario scenario;
+	@Inject private Set<LinkSpeedCalculator> calculators = Collections.emptySet();
+	private NetsimEngineContext context;
+	private NetsimInternalInterface netsimEngine;
+	private PackedLaneStore store;
+
+	@Inject
+	public PackedQNetworkFactory(EventsManager events, Scenario scenario) {
+		this.events = events;
+		this.scenario = scenario;
+		checkConfig(scenario.getConfig().qsim());
+	}
+
+	private static void checkConfig(QSimConfigGroup qsimConfig) {
+		if (qsimConfig.getTrafficDynamics() != TrafficDynamics.queue || qsimConfig.getLinkDynamics() != LinkDynamics.FIFO) {
+			throw new RuntimeException(PackedQNetworkFactory.class.getSimpleName() + " only supports traffic dynamics " + TrafficDynamics.queue
+					+ " and link dynamics " + LinkDynamics.FIFO + ", but got " + qsimConfig.getTrafficDynamics() + " and " + qsimConfig.getLinkDynamics());
+		}
+		if (qsimConfig.isUseLanes() || qsimConfig.isSeepModeStorageFree()) {
+			throw new RuntimeException(PackedQNetworkFactory.class.getSimpleName() + " supports neither lanes nor storage-free seep modes.");
+		}
+	}
+
+	@Override
+	public void initializeFactory(AgentCounter agentCounter, MobsimTimer mobsimTimer, NetsimInternalInterface netsimEngine1) {
+		double effectiveCellSize = scenario.getNetwork().getEffectiveCellSize();
+
+		SnapshotLinkWidthCalculator linkWidthCalculator = new SnapshotLinkWidthCalculator();
+		linkWidthCalculator.setLinkWidthForVis(scenario.getConfig().qsim().getLinkWidthForVis());
+		linkWidthCalculator.setLaneWidth(scenario.getNetwork().getEffectiveLaneWidth());
+
+		AbstractAgentSnapshotInfoBuilder agentSnapshotInfoBuilder = QNetsimEngineWithThreadpool.createAgentSnapshotInfoBuilder(scenario, linkWidthCalculator);
+
+		this.context = new NetsimEngineContext(events, effectiveCellSize, agentCounter, agentSnapshotInfoBuilder, scenario.getConfig().qsim(),
+				mobsimTimer, linkWidthCalculator);
+		this.netsimEngine = netsimEngine1;
+		// the qsim is re-created in every iteration, and so are its links:
+		this.store = new PackedLaneStore(scenario.getNetwork().getLinks().size());
+	}
+
+	@Override
+	public QLinkI createNetsimLink(final Link link, final QNodeI toQueueNode) {
+		QLinkImpl.Builder linkBuilder = new QLinkImpl.Builder(context, netsimEngine);
+		linkBuilder.setLaneFactory(new PackedQueueLane.Builder(context, store));
+
+		DefaultLinkSpeedCalculator theCalculator = new DefaultLinkSpeedCalculator();
+		for (LinkSpeedCalculator calculator : calculators) {
+			theCalculator.addLinkSpeedCalculator(calculator);
+		}
+		linkBuilder.setLinkSpeedCalculator(theCalculator);
+		return linkBuilder.build(link, toQueueNode);
+	}
+
+	@Override
+	public QNodeI createNetsimNode(final Node node) {
+		return new QNodeImpl.Builder(netsimEngine, context, scenario.getConfig().qsim()).build(node);
+	}
+}
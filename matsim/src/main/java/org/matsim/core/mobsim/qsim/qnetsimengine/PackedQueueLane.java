@@ -0,0 +1,534 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedQueueLane.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.gbl.Gbl;
+import org.matsim.core.mobsim.framework.MobsimDriverAgent;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+import org.matsim.core.mobsim.qsim.interfaces.SignalGroupState;
+import org.matsim.core.mobsim.qsim.interfaces.SignalizeableItem;
+import org.matsim.core.mobsim.qsim.pt.TransitDriverAgent;
+import org.matsim.core.mobsim.qsim.qnetsimengine.AbstractQLink.HandleTransitStopResult;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QLinkImpl.LaneFactory;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QueueWithBuffer.Hole;
+import org.matsim.core.mobsim.qsim.qnetsimengine.flow_efficiency.DefaultFlowEfficiencyCalculator;
+import org.matsim.core.mobsim.qsim.qnetsimengine.flow_efficiency.FlowEfficiencyCalculator;
+import org.matsim.lanes.Lane;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
+
+/**
+ * The standard queue model of {@link QueueWithBuffer}, i.e. a FIFO queue without holes, seepage or lanes, but with
+ * its state kept in a {@link PackedLaneStore} that is shared by all links of the network.  This object only holds
+ * what does not change during the simulation.
+ * <p>
+ * The behaviour is the same as that of {@link QueueWithBuffer} with traffic dynamics <code>queue</code> and link
+ * dynamics <code>FIFO</code>; {@link PackedQNetworkFactory} refuses all other settings.
+ */
+final class PackedQueueLane implements QLaneI, SignalizeableItem {
+	private static final Logger log = LogManager.getLogger( PackedQueueLane.class ) ;
+
+	private static final Queue<Hole> NO_HOLES = new LinkedList<>();
+	private static int spaceCapWarningCount = 0;
+
+	private final PackedLaneStore store;
+	private final int lane;
+	private final AbstractQLink.QLinkInternalInterface qLink;
+	private final Id<Lane> id;
+	private final NetsimEngineContext context;
+	private final FlowEfficiencyCalculator flowEfficiencyCalculator;
+	private final VisDataImpl visData = new VisDataImpl();
+	/**
+	 * null if the link is not signalized
+	 */
+	private DefaultSignalizeableItem qSignalizedItem = null;
+
+	private PackedQueueLane(PackedLaneStore store, AbstractQLink.QLinkInternalInterface qLink, Id<Lane> id, double length,
+							double effectiveNumberOfLanes, double flowCapacity_s, NetsimEngineContext context,
+							FlowEfficiencyCalculator flowEfficiencyCalculator) {
+		this.store = store;
+		this.qLink = qLink;
+		this.id = id;
+		this.context = context;
+		this.flowEfficiencyCalculator = flowEfficiencyCalculator;
+		this.lane = store.addLane(length, flowCapacity_s, effectiveNumberOfLanes);
+		this.recalcTimeVariantAttributes();
+	}
+
+	@Override
+	public void addFromWait(final QVehicle veh) {
+		//To protect against calling addToBuffer() without calling hasFlowCapacityLeft() first.
+		if (store.flowcapAccumulateValue[lane] <= 0.0 && veh.getVehicle().getType().getPcuEquivalents() > context.qsimConfig
+				.getPcuThresholdForFlowCapacityEasing()) {
+			throw new IllegalStateException("Buffer of link " + this.id + " has no space left!");
+		}
+		addToBuffer(veh);
+	}
+
+	private void addToBuffer(final QVehicle veh) {
+		double now = context.getSimTimer().getTimeOfDay();
+
+		QVehicle lastBufferEntryVehicle = store.lastBufferEntryVehicle[lane];
+		double flowConsumption = (lastBufferEntryVehicle == null) ?
+				getFlowCapacityConsumptionInEquivalents(veh, null, null) :
+				getFlowCapacityConsumptionInEquivalents(veh, lastBufferEntryVehicle, now - store.lastBufferEntryTime[lane]);
+		store.flowcapAccumulateValue[lane] -= flowConsumption;
+		store.flowcapAccumulateTimeStep[lane] = now;
+
+		store.addToBuffer(lane, veh, flowConsumption);
+		store.lastBufferEntryVehicle[lane] = veh;
+		store.lastBufferEntryTime[lane] = now;
+
+		if (store.bufferSize[lane] == 1) {
+			store.bufferLastMovedTime[lane] = now;
+		}
+		final QNodeI toNode = qLink.getToNodeQ();
+		if (toNode instanceof AbstractQNode) {
+			((AbstractQNode) toNode).activateNode();
+		}
+	}
+
+	/**
+	 * Moves vehicles from the queue to the buffer, like {@link QueueWithBuffer}.
+	 */
+	private void moveQueueToBuffer() {
+		double now = context.getSimTimer().getTimeOfDay();
+
+		QVehicle veh;
+		while ((veh = store.peekQueue(lane)) != null) {
+			if (veh.getEarliestLinkExitTime() > now) {
+				return;
+			}
+
+			MobsimDriverAgent driver = veh.getDriver();
+
+			if (driver instanceof TransitDriverAgent) {
+				HandleTransitStopResult handleTransitStop = qLink.handleTransitStop(now, veh, (TransitDriverAgent) driver, this.qLink.getId());
+				if (handleTransitStop == HandleTransitStopResult.accepted) {
+					// vehicle has been accepted into the transit vehicle queue of the link.
+					removeVehicleFromQueue(veh);
+					continue;
+				} else if (handleTransitStop == HandleTransitStopResult.rehandle) {
+					continue; // see QueueWithBuffer
+				}
+			}
+
+			// Check if veh has reached destination:
+			if (driver.isWantingToArriveOnCurrentLink()) {
+				if (qLink.letVehicleArrive(veh)) {
+					// remove _after_ processing the arrival to keep link active:
+					removeVehicleFromQueue(veh);
+					continue;
+				} else { // The current vehicle is not allowed to arrive, so it will block the link
+					return;
+				}
+			}
+
+			/* is there still any flow capacity left? */
+			if (!hasFlowCapacityLeft(veh)) {
+				return;
+			}
+
+			removeVehicleFromQueue(veh);
+			addToBuffer(veh);
+		}
+	}
+
+	private void removeVehicleFromQueue(final QVehicle veh2Remove) {
+		if (store.peekQueue(lane) != veh2Remove) {
+			throw new RuntimeException("Desired vehicle is not removed from vehQueue. Aborting...");
+		}
+		store.pollQueue(lane);
+		store.usedStorageCapacity[lane] -= veh2Remove.getSizeInEquivalents();
+	}
+
+	@Override
+	public boolean isAcceptingFromWait(QVehicle veh) {
+		return this.hasFlowCapacityLeft(veh);
+	}
+
+	private boolean hasFlowCapacityLeft(QVehicle veh) {
+		if (context.qsimConfig.isUsingFastCapacityUpdate()) {
+			updateFastFlowAccumulation();
+		}
+		return store.flowcapAccumulateValue[lane] > 0.0 || veh.getVehicle().getType()
+				.getPcuEquivalents() <= context.qsimConfig.getPcuThresholdForFlowCapacityEasing();
+	}
+
+	private void updateFastFlowAccumulation() {
+		double now = context.getSimTimer().getTimeOfDay();
+
+		double remainingFlowCapThisTimeStep = subtractConsumptionOfVehiclesThatAreAlreadyInTheBuffer();
+
+		if (store.flowcapAccumulateTimeStep[lane] < now && store.flowcapAccumulateValue[lane] < remainingFlowCapThisTimeStep) {
+			double timeSteps = (now - store.flowcapAccumulateTimeStep[lane]) / context.qsimConfig.getTimeStepSize();
+			double accumulateFlowCap = timeSteps * store.flowCapacityPerTimeStep[lane];
+			store.flowcapAccumulateValue[lane] = Math.min(store.flowcapAccumulateValue[lane] + accumulateFlowCap, remainingFlowCapThisTimeStep);
+			store.flowcapAccumulateTimeStep[lane] = now;
+		}
+	}
+
+	private void updateSlowFlowAccumulation() {
+		double remainingFlowCapThisTimeStep = subtractConsumptionOfVehiclesThatAreAlreadyInTheBuffer();
+
+		if (store.thisTimeStepGreen[lane] && store.flowcapAccumulateValue[lane] < remainingFlowCapThisTimeStep) {
+			store.flowcapAccumulateValue[lane] = Math.min(store.flowcapAccumulateValue[lane] + store.flowCapacityPerTimeStep[lane],
+					remainingFlowCapThisTimeStep);
+		}
+	}
+
+	private double subtractConsumptionOfVehiclesThatAreAlreadyInTheBuffer() {
+		double remainingFlowCapThisTimeStep = store.flowCapacityPerTimeStep[lane];
+		for (int i = 0; i < store.bufferSize[lane]; i++) {
+			remainingFlowCapThisTimeStep -= store.getFlowConsumptionFromBuffer(lane, i);
+		}
+		return remainingFlowCapThisTimeStep;
+	}
+
+	@Override
+	public void initBeforeSimStep() {
+		if (!context.qsimConfig.isUsingFastCapacityUpdate()) {
+			updateSlowFlowAccumulation();
+		}
+	}
+
+	private void calculateFlowCapacity() {
+		store.flowCapacityPerTimeStep[lane] = store.unscaledFlowCapacity_s[lane] * context.qsimConfig.getTimeStepSize()
+				* context.qsimConfig.getFlowCapFactor();
+		store.inverseFlowCapacityPerTimeStep[lane] = 1.0 / store.flowCapacityPerTimeStep[lane];
+	}
+
+	private void calculateStorageCapacity() {
+		double length = store.length[lane];
+		double storageCapacity = length * store.effectiveNumberOfLanes[lane] / context.effectiveCellSize * context.qsimConfig.getStorageCapFactor();
+
+		// storage capacity needs to be at least enough to handle the cap_per_time_step:
+		storageCapacity = Math.max(storageCapacity, getBufferStorageCapacity());
+
+		double freespeedTravelTime = length / qLink.getFreespeed();
+		if (Double.isNaN(freespeedTravelTime)) {
+			throw new IllegalStateException("Double.NaN is not a valid freespeed travel time for a link. Please check the attributes length and freespeed!");
+		}
+
+		double tempStorageCapacity = freespeedTravelTime * store.unscaledFlowCapacity_s[lane] * context.qsimConfig.getFlowCapFactor();
+		if (storageCapacity < tempStorageCapacity) {
+			if (PackedQueueLane.spaceCapWarningCount <= 10) {
+				log.warn("Link " + this.id + " too small: enlarge storage capacity from: " + storageCapacity
+						+ " Vehicles to: " + tempStorageCapacity + " Vehicles.  This is not fatal, but modifies the traffic flow dynamics.");
+				if (PackedQueueLane.spaceCapWarningCount == 10) {
+					log.warn("Additional warnings of this type are suppressed.");
+				}
+				PackedQueueLane.spaceCapWarningCount++;
+			}
+			storageCapacity = tempStorageCapacity;
+
+			// write out the modified qsim behavior as link attribute
+			qLink.getLink().getAttributes().putAttribute("storageCapacityUsedInQsim", storageCapacity);
+		}
+		store.storageCapacity[lane] = storageCapacity;
+	}
+
+	private double getBufferStorageCapacity() {
+		return store.flowCapacityPerTimeStep[lane];
+	}
+
+	@Override
+	public boolean doSimStep() {
+		this.moveQueueToBuffer();
+		return true;
+	}
+
+	@Override
+	public void addFromUpstream(final QVehicle veh) {
+		double now = context.getSimTimer().getTimeOfDay();
+
+		// activate link since there is now action on it:
+		qLink.activateLink();
+
+		store.usedStorageCapacity[lane] += veh.getSizeInEquivalents();
+
+		double linkTravelTime = store.length[lane] / this.qLink.getMaximumVelocityFromLinkSpeedCalculator(veh, now);
+		linkTravelTime = context.qsimConfig.getTimeStepSize() * Math.floor(linkTravelTime / context.qsimConfig.getTimeStepSize());
+		veh.setEarliestLinkExitTime(now + linkTravelTime);
+
+		this.qLink.setCurrentLinkToVehicle(veh);
+		store.addLastToQueue(lane, veh);
+	}
+
+	@Override
+	public boolean isActive() {
+		if (context.qsimConfig.isUsingFastCapacityUpdate()) {
+			return store.queueSize[lane] > 0;
+		} else {
+			return (store.flowcapAccumulateValue[lane] < store.flowCapacityPerTimeStep[lane]) // still accumulating, thus active
+					|| store.queueSize[lane] > 0; // vehicles are on link, thus active
+		}
+	}
+
+	@Override
+	public double getSimulatedFlowCapacityPerTimeStep() {
+		return store.flowCapacityPerTimeStep[lane];
+	}
+
+	@Override
+	public boolean isAcceptingFromUpstream() {
+		return store.usedStorageCapacity[lane] < store.storageCapacity[lane];
+	}
+
+	@Override
+	public void recalcTimeVariantAttributes() {
+		calculateFlowCapacity();
+		calculateStorageCapacity();
+		store.flowcapAccumulateValue[lane] = store.flowCapacityPerTimeStep[lane];
+	}
+
+	@Override
+	public QVehicle getVehicle(final Id<Vehicle> vehicleId) {
+		for (int i = 0; i < store.queueSize[lane]; i++) {
+			if (store.getFromQueue(lane, i).getId().equals(vehicleId)) {
+				return store.getFromQueue(lane, i);
+			}
+		}
+		for (int i = 0; i < store.bufferSize[lane]; i++) {
+			if (store.getFromBuffer(lane, i).getId().equals(vehicleId)) {
+				return store.getFromBuffer(lane, i);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Collection<MobsimVehicle> getAllVehicles() {
+		Collection<MobsimVehicle> vehicles = new ArrayList<>(store.bufferSize[lane] + store.queueSize[lane]);
+		for (int i = 0; i < store.bufferSize[lane]; i++) {
+			vehicles.add(store.getFromBuffer(lane, i));
+		}
+		for (int i = 0; i < store.queueSize[lane]; i++) {
+			vehicles.add(store.getFromQueue(lane, i));
+		}
+		return vehicles;
+	}
+
+	@Override
+	public QVehicle popFirstVehicle() {
+		double now = context.getSimTimer().getTimeOfDay();
+		QVehicle veh = store.pollBuffer(lane);
+		store.bufferLastMovedTime[lane] = now; // just in case there is another vehicle in the buffer that is now the new front-most
+		if (context.qsimConfig.isUsingFastCapacityUpdate()) {
+			store.flowcapAccumulateTimeStep[lane] = now - context.qsimConfig.getTimeStepSize();
+		}
+		return veh;
+	}
+
+	@Override
+	public void setSignalStateAllTurningMoves(final SignalGroupState state) {
+		qSignalizedItem.setSignalStateAllTurningMoves(state);
+		store.thisTimeStepGreen[lane] = qSignalizedItem.hasGreenForAllToLinks();
+	}
+
+	@Override
+	public void setSignalStateForTurningMove(final SignalGroupState state, final Id<Link> toLinkId) {
+		if (!qLink.getToNode().getOutLinks().containsKey(toLinkId)) {
+			throw new IllegalArgumentException("ToLink " + toLinkId + " is not reachable from QLink Id " + this.id);
+		}
+		qSignalizedItem.setSignalStateForTurningMove(state, toLinkId);
+		store.thisTimeStepGreen[lane] = qSignalizedItem.hasGreenForAllToLinks();
+	}
+
+	@Override
+	public boolean hasGreenForToLink(final Id<Link> toLinkId) {
+		if (qSignalizedItem != null) {
+			return qSignalizedItem.hasGreenForToLink(toLinkId);
+		}
+		return true; //the lane is not signalized and thus always green
+	}
+
+	@Override
+	public boolean hasGreenForAllToLinks() {
+		if (qSignalizedItem != null) {
+			return qSignalizedItem.hasGreenForAllToLinks();
+		}
+		return true; //the lane is not signalized and thus always green
+	}
+
+	@Override
+	public void setSignalized(final boolean isSignalized) {
+		qSignalizedItem = new DefaultSignalizeableItem(qLink.getToNode().getOutLinks().keySet());
+	}
+
+	@Override
+	public double getStorageCapacity() {
+		return store.storageCapacity[lane];
+	}
+
+	@Override
+	public boolean isNotOfferingVehicle() {
+		return store.bufferSize[lane] == 0;
+	}
+
+	@Override
+	public void clearVehicles() {
+		double now = context.getSimTimer().getTimeOfDay();
+
+		for (int i = 0; i < store.queueSize[lane]; i++) {
+			abort(store.getFromQueue(lane, i), now);
+		}
+		store.clearQueue(lane);
+
+		for (int i = 0; i < store.bufferSize[lane]; i++) {
+			abort(store.getFromBuffer(lane, i), now);
+		}
+		store.clearBuffer(lane);
+	}
+
+	private void abort(QVehicle veh, double now) {
+		context.getEventsManager().processEvent(new VehicleAbortsEvent(now, veh.getId(), veh.getCurrentLink().getId()));
+		context.getEventsManager().processEvent(new PersonStuckEvent(now, veh.getDriver().getId(), veh.getCurrentLink().getId(), veh.getDriver().getMode()));
+
+		context.getAgentCounter().incLost();
+		context.getAgentCounter().decLiving();
+	}
+
+	private double getFlowCapacityConsumptionInEquivalents(QVehicle vehicle, QVehicle prevVehicle, Double timeDiff) {
+		double flowEfficiency = flowEfficiencyCalculator.calculateFlowEfficiency(vehicle, prevVehicle, timeDiff, qLink.getLink(), id);
+		return vehicle.getSizeInEquivalents() / flowEfficiency;
+	}
+
+	@Override
+	public QLaneI.VisData getVisData() {
+		return this.visData;
+	}
+
+	@Override
+	public QVehicle getFirstVehicle() {
+		if (store.bufferSize[lane] == 0) {
+			return store.peekQueue(lane);
+		}
+		return store.peekBuffer(lane);
+	}
+
+	@Override
+	public double getLastMovementTimeOfFirstVehicle() {
+		return store.bufferLastMovedTime[lane];
+	}
+
+	/**
+	 * Needs to be added _upstream_ of the regular stop location so that a possible second stop on the link can also be served.
+	 */
+	@Override
+	public void addTransitSlightlyUpstreamOfStop(final QVehicle veh) {
+		store.addFirstToQueue(lane, veh);
+	}
+
+	@Override
+	public void changeUnscaledFlowCapacityPerSecond(final double val) {
+		store.unscaledFlowCapacity_s[lane] = val;
+		this.recalcTimeVariantAttributes();
+	}
+
+	@Override
+	public void changeEffectiveNumberOfLanes(final double val) {
+		store.effectiveNumberOfLanes[lane] = val;
+		this.recalcTimeVariantAttributes();
+	}
+
+	@Override
+	public double getLoadIndicator() {
+		return store.usedStorageCapacity[lane];
+	}
+
+	@Override
+	public Id<Lane> getId() {
+		return this.id;
+	}
+
+	class VisDataImpl implements QLaneI.VisData {
+		private Coord upstreamCoord;
+		private Coord downstreamCoord;
+
+		@Override
+		public Collection<AgentSnapshotInfo> addAgentSnapshotInfo(Collection<AgentSnapshotInfo> positions, double now) {
+			if (store.bufferSize[lane] > 0 || store.queueSize[lane] > 0) {
+				Gbl.assertNotNull(positions);
+				Gbl.assertNotNull(context.snapshotInfoBuilder);
+				if (this.upstreamCoord == null) {
+					this.upstreamCoord = qLink.getFromNode().getCoord();
+				}
+				if (this.downstreamCoord == null) {
+					this.downstreamCoord = qLink.getToNode().getCoord();
+				}
+				positions = context.snapshotInfoBuilder.positionVehiclesAlongLine(
+						positions,
+						now,
+						getAllVehicles(),
+						store.length[lane],
+						store.storageCapacity[lane] + getBufferStorageCapacity(),
+						this.upstreamCoord,
+						this.downstreamCoord,
+						store.inverseFlowCapacityPerTimeStep[lane],
+						qLink.getFreespeed(now),
+						qLink.getNumberOfLanesAsInt(now),
+						NO_HOLES
+						);
+			}
+			return positions;
+		}
+
+		void setVisInfo(Coord upstreamCoord, Coord downstreamCoord) {
+			this.upstreamCoord = upstreamCoord;
+			this.downstreamCoord = downstreamCoord;
+		}
+	}
+
+	static final class Builder implements LaneFactory {
+		private final NetsimEngineContext context;
+		private final PackedLaneStore store;
+		private FlowEfficiencyCalculator flowEfficiencyCalculator = new DefaultFlowEfficiencyCalculator();
+
+		Builder(final NetsimEngineContext context, final PackedLaneStore store) {
+			this.context = context;
+			this.store = store;
+		}
+
+		void setFlowEfficiencyCalculator(FlowEfficiencyCalculator flowEfficiencyCalculator) {
+			this.flowEfficiencyCalculator = flowEfficiencyCalculator;
+		}
+
+		@Override
+		public PackedQueueLane createLane(AbstractQLink qLink) {
+			Link link = qLink.getLink();
+			return new PackedQueueLane(store, qLink.getInternalInterface(), Id.create(link.getId(), Lane.class), link.getLength(),
+					link.getNumberOfLanes(), link.getFlowCapacityPerSec(), context, flowEfficiencyCalculator);
+		}
+	}
+}
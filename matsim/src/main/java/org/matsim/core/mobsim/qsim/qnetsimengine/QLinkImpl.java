@@ -22,6 +22,7 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -103,6 +104,7 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 	private final VisData visdata;
 
 	private final QLaneI qlane;
+	private final List<QLaneI> offeringQLanes;
 	
 	private NetsimEngineContext context;
 	
@@ -114,6 +116,7 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 		// so that the caller can use references to the created roads to wire them together,
 		// if it must.
 		this.qlane = roadFactory.createLane(this);
+		this.offeringQLanes = Collections.singletonList(this.qlane);
 		this.visdata = this.new VisDataImpl() ; // instantiating this here and not earlier so we can cache some things
 		super.setTransitQLink( new TransitQLink(this.qlane) ) ;
 	}
@@ -296,7 +299,9 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 //			AbstractAgentSnapshotInfoBuilder snapshotInfoBuilder = qnetwork.simEngine.getAgentSnapshotInfoBuilder();
 
 			QLaneI.VisData roadVisData = getAcceptingQLane().getVisData() ;
-			if (visLink != null) {
+			if (visLink != null && roadVisData instanceof PackedQueueLane.VisDataImpl) {
+				((PackedQueueLane.VisDataImpl)roadVisData).setVisInfo(visLink.getLinkStartCoord(), visLink.getLinkEndCoord()) ;
+			} else if (visLink != null) {
 				((QueueWithBuffer.VisDataImpl)roadVisData).setVisInfo(visLink.getLinkStartCoord(), visLink.getLinkEndCoord()) ;
 				// yyyy not so great but an elegant solution needs more thinking about visualizer structure. kai, jun'13
 			}
@@ -324,9 +329,7 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 
 	@Override
 	public List<QLaneI> getOfferingQLanes() {
-		List<QLaneI> list = new ArrayList<>() ;
-		list.add( this.qlane ) ;
-		return list ;
+		return this.offeringQLanes ;
 	}
 	@Override
 	public QLaneI getAcceptingQLane() {
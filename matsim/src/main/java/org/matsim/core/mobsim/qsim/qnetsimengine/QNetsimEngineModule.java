@@ -31,7 +31,16 @@ public final class QNetsimEngineModule extends AbstractQSimModule {
 	
 	@Override
 	protected void configureQSim() {
-		bind(QNetsimEngineI.class).to(QNetsimEngineWithThreadpool.class).in( Singleton.class );
+		switch ( this.getConfig().qsim().getNetsimEngineScheduling() ) {
+			case staticPartitioning:
+				bind(QNetsimEngineI.class).to(QNetsimEngineWithThreadpool.class).in( Singleton.class );
+				break;
+			case workStealing:
+				bind(QNetsimEngineI.class).to(QNetsimEngineWithWorkStealing.class).in( Singleton.class );
+				break;
+			default:
+				throw new RuntimeException( "netsim engine scheduling " + this.getConfig().qsim().getNetsimEngineScheduling() + " is not implemented." );
+		}
 		bind(VehicularDepartureHandler.class).toProvider(QNetsimEngineDepartureHandlerProvider.class).in( Singleton.class );
 		// in the two lines above, I changed "asEagerSingleton" to "in( Singleton.class )", since forcing construction early often leads to problems.  kai, jun'23
 
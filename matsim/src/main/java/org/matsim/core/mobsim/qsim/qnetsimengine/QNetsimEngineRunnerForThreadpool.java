@@ -45,10 +45,15 @@ final class QNetsimEngineRunnerForThreadpool extends AbstractQNetsimEngineRunner
 			return false;
 		}
 
-		if (this.movingNodes) {
-			moveNodes();
-		} else {
-			moveLinks();
+		startBatchingEvents();
+		try {
+			if (this.movingNodes) {
+				moveNodes();
+			} else {
+				moveLinks();
+			}
+		} finally {
+			stopBatchingEvents();
 		}
 		return true ;
 	}
@@ -98,12 +98,14 @@ final class QNetsimEngineWithThreadpool extends AbstractQNetsimEngine<QNetsimEng
 			for (Future<Boolean> future : pool.invokeAll(this.getQnetsimEngineRunner())) {
 				future.get();
 			}
+			flushEvents();
 			for (AbstractQNetsimEngineRunner engine : this.getQnetsimEngineRunner()) {
 				((QNetsimEngineRunnerForThreadpool) engine).setMovingNodes(false);
 			}
 			for (Future<Boolean> future : pool.invokeAll(this.getQnetsimEngineRunner())) {
 				future.get();
 			}
+			flushEvents();
 		} catch (InterruptedException e) {
 			throw new RuntimeException(e) ;
 		} catch (ExecutionException e) {
@@ -120,11 +122,25 @@ final class QNetsimEngineWithThreadpool extends AbstractQNetsimEngine<QNetsimEng
 		}
 	}
 
+	/*
+	 * Passes the events of the runners on in the order of the runners, so that it does not depend on which runner
+	 * finished first.
+	 */
+	private void flushEvents() {
+		if (this.batchingEvents) {
+			for (AbstractQNetsimEngineRunner engine : this.getQnetsimEngineRunner()) {
+				engine.flushEvents(this.getMobsimEventsManager());
+			}
+		}
+	}
+
 	@Override
 	protected List<QNetsimEngineRunnerForThreadpool> initQSimEngineRunners() {
 		List<QNetsimEngineRunnerForThreadpool> engines = new ArrayList<>();
 		for (int i = 0; i < numOfRunners; i++) {
 			QNetsimEngineRunnerForThreadpool engine = new QNetsimEngineRunnerForThreadpool();
+			engine.setBatchingEvents(this.batchingEvents);
+			engine.setOrderingActivations(this.batchingEvents && numOfRunners > 1);
 			engines.add(engine);
 		}
 		return engines;
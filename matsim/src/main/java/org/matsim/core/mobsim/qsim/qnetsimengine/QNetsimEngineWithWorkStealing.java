@@ -0,0 +1,222 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithWorkStealing.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import jakarta.inject.Inject;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.BatchingEventsManager;
+import org.matsim.core.events.EventArray;
+import org.matsim.core.mobsim.qsim.QSim;
+
+/**
+ * Coordinates the movement of vehicles on the links and the nodes, like {@link QNetsimEngineWithThreadpool}, but
+ * does not let every thread move a fixed share of the network.  Instead, the active nodes and links are split into
+ * small ranges that are moved by the threads of a {@link ForkJoinPool}.  Threads that are done with their ranges
+ * steal ranges from the other threads, so a congested part of the network does not keep the other threads waiting.
+ * <p>
+ * The nodes and links are still registered in one {@link Partition} per thread, which only serves to spread the
+ * concurrent activation of nodes and links.
+ * <p>
+ * If events are batched, every range collects its own events.  They are passed on in the order of the ranges, i.e.
+ * independently of which thread moved which range.
+ */
+final class QNetsimEngineWithWorkStealing extends AbstractQNetsimEngine<QNetsimEngineWithWorkStealing.Partition> {
+
+	/**
+	 * The number of nodes or links that are moved by one task without splitting it further.
+	 */
+	static final int MIN_TASK_SIZE = 64;
+
+	private final int numOfPartitions;
+	private ForkJoinPool pool;
+	private int[] numberOfActiveElements;
+
+	@Inject QNetsimEngineWithWorkStealing(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+		super(sim, netsimNetworkFactory);
+		this.numOfPartitions = this.numOfThreads;
+	}
+
+	@Override
+	protected void run(double time) {
+		List<Partition> partitions = this.getQnetsimEngineRunner();
+		for (Partition partition : partitions) {
+			partition.setTime(time);
+		}
+
+		for (int i = 0; i < partitions.size(); i++) {
+			this.numberOfActiveElements[i] = partitions.get(i).startMovingNodes();
+		}
+		MoveAll moveNodes = new MoveAll(partitions, this.numberOfActiveElements, true, this.batchingEvents);
+		this.pool.invoke(moveNodes);
+		for (Partition partition : partitions) {
+			partition.finishMovingNodes();
+		}
+		moveNodes.flushEvents(this.getMobsimEventsManager());
+
+		for (int i = 0; i < partitions.size(); i++) {
+			this.numberOfActiveElements[i] = partitions.get(i).startMovingLinks();
+		}
+		MoveAll moveLinks = new MoveAll(partitions, this.numberOfActiveElements, false, this.batchingEvents);
+		this.pool.invoke(moveLinks);
+		for (Partition partition : partitions) {
+			partition.finishMovingLinks();
+		}
+		moveLinks.flushEvents(this.getMobsimEventsManager());
+	}
+
+	@Override
+	protected List<Partition> initQSimEngineRunners() {
+		List<Partition> partitions = new ArrayList<>();
+		for (int i = 0; i < this.numOfPartitions; i++) {
+			Partition partition = new Partition();
+			partition.setOrderingActivations(this.batchingEvents && this.numOfThreads > 1);
+			partitions.add(partition);
+		}
+		this.numberOfActiveElements = new int[this.numOfPartitions];
+		return partitions;
+	}
+
+	@Override
+	protected void initMultiThreading() {
+		this.pool = new ForkJoinPool(this.numOfThreads, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("QNetsimEngine_WorkStealingThread_" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+	}
+
+	@Override
+	public void finishMultiThreading() {
+		this.pool.shutdown();
+	}
+
+	/**
+	 * Registers the active nodes and links of a part of the network.  Its nodes are moved by several threads at the
+	 * same time, so links are activated concurrently.
+	 */
+	static final class Partition extends AbstractQNetsimEngineRunner {
+
+		Partition() {
+			super(true);
+		}
+
+		@Override
+		public void afterSim() {
+		}
+	}
+
+	private static final class MoveAll extends RecursiveAction {
+		private final List<Partition> partitions;
+		private final int[] numberOfActiveElements;
+		private final boolean movingNodes;
+		private final boolean batchingEvents;
+		private final List<MoveRange> tasks;
+
+		MoveAll(List<Partition> partitions, int[] numberOfActiveElements, boolean movingNodes, boolean batchingEvents) {
+			this.partitions = partitions;
+			this.numberOfActiveElements = numberOfActiveElements;
+			this.movingNodes = movingNodes;
+			this.batchingEvents = batchingEvents;
+			this.tasks = new ArrayList<>(partitions.size());
+		}
+
+		@Override
+		protected void compute() {
+			for (int i = 0; i < this.partitions.size(); i++) {
+				if (this.numberOfActiveElements[i] > 0) {
+					this.tasks.add(new MoveRange(this.partitions.get(i), 0, this.numberOfActiveElements[i], this.movingNodes, this.batchingEvents));
+				}
+			}
+			invokeAll(this.tasks);
+		}
+
+		void flushEvents(EventsManager events) {
+			for (MoveRange task : this.tasks) {
+				task.flushEvents(events);
+			}
+		}
+	}
+
+	/**
+	 * Moves a range of the active nodes or links of a partition, splitting it in halves until it is small enough.
+	 */
+	private static final class MoveRange extends RecursiveAction {
+		private final Partition partition;
+		private final int from;
+		private final int to;
+		private final boolean movingNodes;
+		private final boolean batchingEvents;
+		private MoveRange firstHalf = null;
+		private MoveRange secondHalf = null;
+		private EventArray events = null;
+
+		MoveRange(Partition partition, int from, int to, boolean movingNodes, boolean batchingEvents) {
+			this.partition = partition;
+			this.from = from;
+			this.to = to;
+			this.movingNodes = movingNodes;
+			this.batchingEvents = batchingEvents;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= MIN_TASK_SIZE) {
+				if (this.batchingEvents) {
+					this.events = new EventArray();
+					BatchingEventsManager.startBatching(this.events);
+				}
+				try {
+					if (this.movingNodes) {
+						this.partition.moveNodes(this.from, this.to);
+					} else {
+						this.partition.moveLinks(this.from, this.to);
+					}
+				} finally {
+					if (this.batchingEvents) BatchingEventsManager.stopBatching();
+				}
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			this.firstHalf = new MoveRange(this.partition, this.from, middle, this.movingNodes, this.batchingEvents);
+			this.secondHalf = new MoveRange(this.partition, middle, this.to, this.movingNodes, this.batchingEvents);
+			invokeAll(this.firstHalf, this.secondHalf);
+		}
+
+		/**
+		 * Passes on the events of the range in the order of its nodes or links.
+		 */
+		void flushEvents(EventsManager eventsManager) {
+			if (this.firstHalf != null) {
+				this.firstHalf.flushEvents(eventsManager);
+				this.secondHalf.flushEvents(eventsManager);
+			} else if (this.events != null && this.events.size() > 0) {
+				eventsManager.processEvents(this.events);
+			}
+		}
+	}
+}
@@ -23,8 +23,6 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.events.LinkEnterEvent;
-import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.config.groups.QSimConfigGroup;
@@ -39,6 +37,7 @@ import org.matsim.core.mobsim.qsim.qnetsimengine.TurnAcceptanceLogic.AcceptTurn;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -337,7 +336,9 @@ final class QNodeImpl extends AbstractQNode {
 										+ " or " + NodeTransition.emptyBufferAfterBufferRandomDistribution_nodeBlockedWhenSingleOutlinkFull 
 											+ " or adapt the implementation such that it also works for lanes.");
 		}
-		for (QLaneI lane : link.getOfferingQLanes()) {
+		List<QLaneI> lanes = link.getOfferingQLanes();
+		for (int i = 0; i < lanes.size(); i++) {
+			QLaneI lane = lanes.get(i);
 			if (! lane.isNotOfferingVehicle()) {
 				QVehicle veh = lane.getFirstVehicle();
 				if (moveVehicleOverNode(veh, link, lane, now)) {
@@ -359,7 +360,10 @@ final class QNodeImpl extends AbstractQNode {
 	}
 	
 	private void moveLink(final QLinkI link, final double now){
-		for (QLaneI lane : link.getOfferingQLanes()) {
+		// (indexed loop to avoid creating an iterator for every link in every time step)
+		List<QLaneI> lanes = link.getOfferingQLanes();
+		for (int i = 0; i < lanes.size(); i++) {
+			QLaneI lane = lanes.get(i);
 			while (! lane.isNotOfferingVehicle()) {
 				QVehicle veh = lane.getFirstVehicle();
 				if (! moveVehicleOverNode(veh, link, lane, now )) {
@@ -430,7 +434,7 @@ final class QNodeImpl extends AbstractQNode {
 	private void moveVehicleFromInlinkToAbort(final QVehicle veh, final QLaneI fromLane, final double now, Id<Link> currentLinkId) {
 		fromLane.popFirstVehicle();
 		// -->
-		this.context.getEventsManager().processEvent(new LinkLeaveEvent(now, veh.getId(), currentLinkId));
+		this.context.getEventsManager().processEvent(this.context.createLinkLeaveEvent(now, veh.getId(), currentLinkId));
 		// <--
 		
 		// first treat the passengers:
@@ -457,13 +461,13 @@ final class QNodeImpl extends AbstractQNode {
 		fromLane.popFirstVehicle();
 		// -->
 		//		network.simEngine.getMobsim().getEventsManager().processEvent(new LaneLeaveEvent(now, veh.getId(), currentLinkId, fromLane.getId()));
-		this.context.getEventsManager().processEvent(new LinkLeaveEvent(now, veh.getId(), currentLinkId));
+		this.context.getEventsManager().processEvent(this.context.createLinkLeaveEvent(now, veh.getId(), currentLinkId));
 		// <--
 		
 		veh.getDriver().notifyMoveOverNode( nextLinkId );
 		
 		// -->
-		this.context.getEventsManager().processEvent(new LinkEnterEvent(now, veh.getId(), nextLinkId));
+		this.context.getEventsManager().processEvent(this.context.createLinkEnterEvent(now, veh.getId(), nextLinkId));
 		// <--
 		nextQueueLane.addFromUpstream(veh);
 	}
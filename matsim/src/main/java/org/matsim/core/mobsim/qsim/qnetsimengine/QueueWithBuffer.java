@@ -22,11 +22,10 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
 
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -152,7 +151,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	 * (1) entry to the buffer (this is where it is computed and then stored) <br>
 	 * (2) update of the remaining flow capacity (where we account for all vehicles that are still in the buffer since previous time steps) - see {@link #subtractConsumptionOfVehiclesThatAreAlreadyInTheBuffer()} <br>
 	 */
-	private final Queue<Pair<QVehicle,Double>> buffer = new LinkedList<>() ;
+	private final VehicleBuffer buffer = new VehicleBuffer() ;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -174,12 +173,14 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	/**
 	 * Points to the latest vehicle that entered the buffer and the entry time.
 	 */
-	private Pair<QVehicle,Double> lastBufferEntry = null;
+	private QVehicle lastBufferEntryVehicle = null;
+	private double lastBufferEntryTime = Double.NaN;
 
 	/**
 	 * Points to the latest vehicle that entered the queue and the entry time.
 	 */
-	private Pair<QVehicle,Double> lastQueueEntry = null;
+	private QVehicle lastQueueEntryVehicle = null;
+	private double lastQueueEntryTime = Double.NaN;
 
 
 	private final VisData visData = new VisDataImpl() ;
@@ -226,12 +227,13 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 		double now = context.getSimTimer().getTimeOfDay() ;
 
-		double flowConsumption = (lastBufferEntry == null) ?
-				getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastBufferEntry.getKey(), now - lastBufferEntry.getValue());
+		double flowConsumption = (lastBufferEntryVehicle == null) ?
+				getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastBufferEntryVehicle, now - lastBufferEntryTime);
         this.flowcap_accumulate.addValue(-flowConsumption, now);
 
-		buffer.add(new ImmutablePair<>(veh,flowConsumption));
-		lastBufferEntry = new ImmutablePair<>(veh,now);
+		buffer.add(veh, flowConsumption);
+		lastBufferEntryVehicle = veh;
+		lastBufferEntryTime = now;
 
 		if (buffer.size() == 1) {
 			bufferLastMovedTime = now;
@@ -355,9 +357,9 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 	private double subtractConsumptionOfVehiclesThatAreAlreadyInTheBuffer() {
 		double remainingFlowCapThisTimeStep = flowCapacityPerTimeStep;
-		for (Pair<QVehicle,Double> vehEfficiencyPair : buffer) {
+		for (int i = 0; i < buffer.size(); i++) {
 			// Subtract size of vehicles that are already in the buffer (from previous time steps)
-			remainingFlowCapThisTimeStep -= vehEfficiencyPair.getValue();
+			remainingFlowCapThisTimeStep -= buffer.flowConsumption(i);
 		}
 		return remainingFlowCapThisTimeStep;
 	}
@@ -630,15 +632,16 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
                 break;
             case kinematicWaves:
                 this.remainingHolesStorageCapacity -= veh.getSizeInEquivalents();
-				double flowConsumption = (lastQueueEntry == null) ?
-						getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastQueueEntry.getKey(), now - lastQueueEntry.getValue());
+				double flowConsumption = (lastQueueEntryVehicle == null) ?
+						getFlowCapacityConsumptionInEquivalents(veh, null, null) : getFlowCapacityConsumptionInEquivalents(veh, lastQueueEntryVehicle, now - lastQueueEntryTime);
                 this.accumulatedInflowCap -= flowConsumption;
                 break;
             default:
                 throw new RuntimeException("The traffic dynamics " + context.qsimConfig.getTrafficDynamics() + " is not implemented yet.");
 		}
 
-		lastQueueEntry = new ImmutablePair<>(veh, now);
+		lastQueueEntryVehicle = veh;
+		lastQueueEntryTime = now;
 	}
 
 	private void removeVehicleFromQueue(final QVehicle veh2Remove) {
@@ -769,9 +772,9 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 			if (veh.getId().equals(vehicleId))
 				return veh;
 		}
-		for (Pair<QVehicle,Double> vehEfficiencyPair : this.buffer) {
-			if (vehEfficiencyPair.getKey().getId().equals(vehicleId))
-				return vehEfficiencyPair.getKey();
+		for (int i = 0; i < this.buffer.size(); i++) {
+			if (this.buffer.vehicle(i).getId().equals(vehicleId))
+				return this.buffer.vehicle(i);
 		}
 		return null;
 	}
@@ -782,8 +785,8 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		 * It will be more complicated for passingQueue. amit feb'16
 		 */
 		Collection<MobsimVehicle> vehicles = new ArrayList<>();
-		for (Pair<QVehicle, Double> pair : buffer) {
-			vehicles.add(pair.getKey());
+		for (int i = 0; i < buffer.size(); i++) {
+			vehicles.add(buffer.vehicle(i));
 		}
 		vehicles.addAll(vehQueue);
 		return vehicles ;
@@ -803,7 +806,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 	private final QVehicle removeFirstVehicle(){
 		double now = context.getSimTimer().getTimeOfDay() ;
-		QVehicle veh = buffer.poll().getKey();
+		QVehicle veh = buffer.poll();
 		bufferLastMovedTime = now; // just in case there is another vehicle in the buffer that is now the new front-most
 		if( context.qsimConfig.isUsingFastCapacityUpdate() ) {
 			flowcap_accumulate.setTimeStep(now - context.qsimConfig.getTimeStepSize());
@@ -864,8 +867,8 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		}
 		vehQueue.clear();
 
-		for (Pair<QVehicle,Double> bufferEntry : buffer) {
-			QVehicle veh = bufferEntry.getKey();
+		for (int i = 0; i < buffer.size(); i++) {
+			QVehicle veh = buffer.vehicle(i);
 			context.getEventsManager().processEvent( new VehicleAbortsEvent(now, veh.getId(), veh.getCurrentLink().getId()));
 			context.getEventsManager().processEvent( new PersonStuckEvent(now, veh.getDriver().getId(), veh.getCurrentLink().getId(), veh.getDriver().getMode()));
 
@@ -901,7 +904,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		if (this.buffer.isEmpty()) {
 			return this.vehQueue.peek();
 		}
-		return this.buffer.peek().getKey() ;
+		return this.buffer.peek() ;
 	}
 
 	@Override
@@ -1127,4 +1130,73 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		}
 	}
 
+	/**
+	 * The vehicles in the buffer together with their flow capacity consumption, stored in a ring buffer so that moving
+	 * vehicles through the buffer does not create any objects.
+	 */
+	private static final class VehicleBuffer {
+		private QVehicle[] vehicles = new QVehicle[4];
+		private double[] flowConsumptions = new double[4];
+		private int head = 0;
+		private int size = 0;
+
+		void add(QVehicle vehicle, double flowConsumption) {
+			if (this.size == this.vehicles.length) {
+				grow();
+			}
+			int index = (this.head + this.size) % this.vehicles.length;
+			this.vehicles[index] = vehicle;
+			this.flowConsumptions[index] = flowConsumption;
+			this.size++;
+		}
+
+		QVehicle peek() {
+			return this.size == 0 ? null : this.vehicles[this.head];
+		}
+
+		QVehicle poll() {
+			if (this.size == 0) {
+				return null;
+			}
+			QVehicle vehicle = this.vehicles[this.head];
+			this.vehicles[this.head] = null;
+			this.head = (this.head + 1) % this.vehicles.length;
+			this.size--;
+			return vehicle;
+		}
+
+		QVehicle vehicle(int i) {
+			return this.vehicles[(this.head + i) % this.vehicles.length];
+		}
+
+		double flowConsumption(int i) {
+			return this.flowConsumptions[(this.head + i) % this.vehicles.length];
+		}
+
+		int size() {
+			return this.size;
+		}
+
+		boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		void clear() {
+			Arrays.fill(this.vehicles, null);
+			this.head = 0;
+			this.size = 0;
+		}
+
+		private void grow() {
+			QVehicle[] newVehicles = new QVehicle[this.vehicles.length * 2];
+			double[] newFlowConsumptions = new double[this.vehicles.length * 2];
+			for (int i = 0; i < this.size; i++) {
+				newVehicles[i] = vehicle(i);
+				newFlowConsumptions[i] = flowConsumption(i);
+			}
+			this.vehicles = newVehicles;
+			this.flowConsumptions = newFlowConsumptions;
+			this.head = 0;
+		}
+	}
 }
@@ -0,0 +1,296 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedPlanElements.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesUtils;
+
+/**
+ * The plan elements of a plan, stored in three arrays instead of one object per activity, leg and coordinate.
+ *
+ * Every element starts with a header in the int-array, containing its kind and some flags.  Times are stored as
+ * int-values if they are whole seconds, which they usually are, and in the double-array otherwise.  Coordinates are
+ * stored in the double-array.  Activity types, modes, ids, routes and non-empty attributes are stored as references,
+ * as they are usually shared with other plans anyway.  Elements of other classes than {@link ActivityImpl},
+ * {@link InteractionActivity} and {@link LegImpl} are stored as they are.
+ *
+ * The elements are recreated by {@link #unpack()}, so they are equal, but not identical to the packed ones.
+ *
+ * @see PlanImpl#pack()
+ */
+/* deliberately package */ final class PackedPlanElements {
+
+	private static final double UNDEFINED_TIME = Double.NEGATIVE_INFINITY;
+
+	private static final int ACTIVITY = 0;
+	private static final int INTERACTION_ACTIVITY = 1;
+	private static final int LEG = 2;
+	private static final int OTHER = 3;
+	private static final int KIND_MASK = 3;
+
+	private static final int HAS_COORD = 1 << 2;
+	private static final int HAS_Z = 1 << 3;
+	private static final int HAS_ATTRIBUTES = 1 << 4;
+
+	private static final int UNDEFINED_TIME_VALUE = Integer.MIN_VALUE;
+	private static final int DOUBLE_TIME_VALUE = Integer.MIN_VALUE + 1;
+
+	private final int elementCount;
+	private final int[] ints;
+	private final double[] doubles;
+	private final Object[] refs;
+
+	private PackedPlanElements(int elementCount, int[] ints, double[] doubles, Object[] refs) {
+		this.elementCount = elementCount;
+		this.ints = ints;
+		this.doubles = doubles;
+		this.refs = refs;
+	}
+
+	static PackedPlanElements pack(List<PlanElement> planElements) {
+		Writer writer = new Writer(planElements.size());
+		for (PlanElement pe : planElements) {
+			if (pe instanceof ActivityImpl act) {
+				Attributes attributes = act.getAttributes();
+				boolean hasAttributes = !attributes.isEmpty();
+				writer.putInt(ACTIVITY | coordFlags(act.getCoord()) | (hasAttributes ? HAS_ATTRIBUTES : 0));
+				writer.putTime(act.getStartTime());
+				writer.putTime(act.getEndTime());
+				writer.putTime(act.getMaximumDuration());
+				writer.putCoord(act.getCoord());
+				writer.putRef(act.getType());
+				writer.putRef(act.getLinkId());
+				writer.putRef(act.getFacilityId());
+				if (hasAttributes) {
+					writer.putRef(attributes);
+				}
+			} else if (pe instanceof InteractionActivity act) {
+				writer.putInt(INTERACTION_ACTIVITY | coordFlags(act.getCoord()));
+				writer.putCoord(act.getCoord());
+				writer.putRef(act.getType());
+				writer.putRef(act.getLinkId());
+				writer.putRef(act.getFacilityId());
+			} else if (pe instanceof LegImpl leg) {
+				Attributes attributes = leg.getAttributes();
+				boolean hasAttributes = !attributes.isEmpty();
+				writer.putInt(LEG | (hasAttributes ? HAS_ATTRIBUTES : 0));
+				writer.putTime(leg.getDepartureTime());
+				writer.putTime(leg.getTravelTime());
+				writer.putRef(leg.getMode());
+				writer.putRef(leg.getRoutingMode());
+				writer.putRef(leg.getRoute());
+				if (hasAttributes) {
+					writer.putRef(attributes);
+				}
+			} else {
+				writer.putInt(OTHER);
+				writer.putRef(pe);
+			}
+		}
+		return writer.build();
+	}
+
+	private static int coordFlags(Coord coord) {
+		if (coord == null) {
+			return 0;
+		}
+		return coord.hasZ() ? HAS_COORD | HAS_Z : HAS_COORD;
+	}
+
+	ArrayList<PlanElement> unpack() {
+		ArrayList<PlanElement> planElements = new ArrayList<>(this.elementCount);
+		Reader reader = new Reader();
+		for (int i = 0; i < this.elementCount; i++) {
+			int header = reader.nextInt();
+			switch (header & KIND_MASK) {
+				case ACTIVITY -> {
+					double startTime = reader.nextTime();
+					double endTime = reader.nextTime();
+					double duration = reader.nextTime();
+					Coord coord = reader.nextCoord(header);
+					ActivityImpl act = new ActivityImpl((String) reader.nextRef());
+					act.setCoord(coord);
+					act.setLinkId((Id<Link>) reader.nextRef());
+					act.setFacilityId((Id<ActivityFacility>) reader.nextRef());
+					if (startTime != UNDEFINED_TIME) {
+						act.setStartTime(startTime);
+					}
+					if (endTime != UNDEFINED_TIME) {
+						act.setEndTime(endTime);
+					}
+					if (duration != UNDEFINED_TIME) {
+						act.setMaximumDuration(duration);
+					}
+					if ((header & HAS_ATTRIBUTES) != 0) {
+						AttributesUtils.copyTo((Attributes) reader.nextRef(), act.getAttributes());
+					}
+					planElements.add(act);
+				}
+				case INTERACTION_ACTIVITY -> {
+					Coord coord = reader.nextCoord(header);
+					Activity act = new InteractionActivity((String) reader.nextRef());
+					act.setCoord(coord);
+					act.setLinkId((Id<Link>) reader.nextRef());
+					act.setFacilityId((Id<ActivityFacility>) reader.nextRef());
+					planElements.add(act);
+				}
+				case LEG -> {
+					double departureTime = reader.nextTime();
+					double travelTime = reader.nextTime();
+					Leg leg = new LegImpl((String) reader.nextRef());
+					leg.setRoutingMode((String) reader.nextRef());
+					leg.setRoute((Route) reader.nextRef());
+					if (departureTime != UNDEFINED_TIME) {
+						leg.setDepartureTime(departureTime);
+					}
+					if (travelTime != UNDEFINED_TIME) {
+						leg.setTravelTime(travelTime);
+					}
+					if ((header & HAS_ATTRIBUTES) != 0) {
+						AttributesUtils.copyTo((Attributes) reader.nextRef(), leg.getAttributes());
+					}
+					planElements.add(leg);
+				}
+				default -> planElements.add((PlanElement) reader.nextRef());
+			}
+		}
+		return planElements;
+	}
+
+	private static final class Writer {
+		private int[] ints;
+		private double[] doubles = new double[0];
+		private Object[] refs;
+		private int intCount = 0;
+		private int doubleCount = 0;
+		private int refCount = 0;
+		private final int elementCount;
+
+		Writer(int elementCount) {
+			this.elementCount = elementCount;
+			this.ints = new int[elementCount * 4];
+			this.refs = new Object[elementCount * 4];
+		}
+
+		void putInt(int value) {
+			if (this.intCount == this.ints.length) {
+				this.ints = Arrays.copyOf(this.ints, this.ints.length * 2 + 4);
+			}
+			this.ints[this.intCount++] = value;
+		}
+
+		void putDouble(double value) {
+			if (this.doubleCount == this.doubles.length) {
+				this.doubles = Arrays.copyOf(this.doubles, this.doubles.length * 2 + 4);
+			}
+			this.doubles[this.doubleCount++] = value;
+		}
+
+		void putRef(Object value) {
+			if (this.refCount == this.refs.length) {
+				this.refs = Arrays.copyOf(this.refs, this.refs.length * 2 + 4);
+			}
+			this.refs[this.refCount++] = value;
+		}
+
+		void putTime(OptionalTime time) {
+			if (time.isUndefined()) {
+				putInt(UNDEFINED_TIME_VALUE);
+				return;
+			}
+			double seconds = time.seconds();
+			int intSeconds = (int) seconds;
+			if (Double.doubleToRawLongBits(intSeconds) == Double.doubleToRawLongBits(seconds)
+					&& intSeconds != UNDEFINED_TIME_VALUE && intSeconds != DOUBLE_TIME_VALUE) {
+				putInt(intSeconds);
+			} else {
+				putInt(DOUBLE_TIME_VALUE);
+				putDouble(seconds);
+			}
+		}
+
+		void putCoord(Coord coord) {
+			if (coord != null) {
+				putDouble(coord.getX());
+				putDouble(coord.getY());
+				if (coord.hasZ()) {
+					putDouble(coord.getZ());
+				}
+			}
+		}
+
+		PackedPlanElements build() {
+			return new PackedPlanElements(this.elementCount,
+					Arrays.copyOf(this.ints, this.intCount),
+					Arrays.copyOf(this.doubles, this.doubleCount),
+					Arrays.copyOf(this.refs, this.refCount));
+		}
+	}
+
+	private final class Reader {
+		private int intIndex = 0;
+		private int doubleIndex = 0;
+		private int refIndex = 0;
+
+		int nextInt() {
+			return PackedPlanElements.this.ints[this.intIndex++];
+		}
+
+		double nextDouble() {
+			return PackedPlanElements.this.doubles[this.doubleIndex++];
+		}
+
+		Object nextRef() {
+			return PackedPlanElements.this.refs[this.refIndex++];
+		}
+
+		double nextTime() {
+			int value = nextInt();
+			if (value == UNDEFINED_TIME_VALUE) {
+				return UNDEFINED_TIME;
+			}
+			return value == DOUBLE_TIME_VALUE ? nextDouble() : value;
+		}
+
+		Coord nextCoord(int header) {
+			if ((header & HAS_COORD) == 0) {
+				return null;
+			}
+			double x = nextDouble();
+			double y = nextDouble();
+			return (header & HAS_Z) != 0 ? new Coord(x, y, nextDouble()) : new Coord(x, y);
+		}
+	}
+
+}
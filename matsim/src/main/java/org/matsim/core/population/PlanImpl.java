@@ -38,7 +38,16 @@ import org.matsim.utils.objectattributes.attributable.AttributesImpl;
 
 /* deliberately package */  final class PlanImpl implements Plan {
 
-	private ArrayList<PlanElement> actsLegs = new ArrayList<>();
+	/**
+	 * The plan elements, or <code>null</code> while the plan is packed, see {@link #pack()}.  A reader which finds it
+	 * <code>null</code> unpacks the plan while holding its lock.
+	 */
+	private volatile ArrayList<PlanElement> actsLegs = new ArrayList<>();
+
+	/**
+	 * The plan elements while the plan is packed.  Only accessed while holding the lock of the plan.
+	 */
+	private PackedPlanElements packedActsLegs = null;
 
 	private Double score = null;
 	private Person person = null;
@@ -124,17 +133,43 @@ import org.matsim.utils.objectattributes.attributable.AttributesImpl;
 
 	@Override
 	public final List<PlanElement> getPlanElements() {
-		return this.actsLegs;
+		List<PlanElement> elements = this.actsLegs;
+		return elements != null ? elements : unpack();
 	}
 
 	@Override
 	public final void addLeg(final Leg leg) {
-		this.actsLegs.add(leg);
+		getPlanElements().add(leg);
 	}
 
 	@Override
 	public final void addActivity(final Activity act) {
-		this.actsLegs.add(act);
+		getPlanElements().add(act);
+	}
+
+	/**
+	 * Stores the plan elements in a more compact form, see {@link PackedPlanElements}, until they are accessed the
+	 * next time.  Then, they are recreated, so references to the plan elements from before the packing are no longer
+	 * part of the plan.  Thus, only plans that are not in use (e.g. not the selected plan during the mobsim) should be
+	 * packed.
+	 */
+	/* package */ final synchronized void pack() {
+		if (this.actsLegs != null && !this.actsLegs.isEmpty()) {
+			this.packedActsLegs = PackedPlanElements.pack(this.actsLegs);
+			this.actsLegs = null;
+		}
+	}
+
+	/* package */ final boolean isPacked() {
+		return this.actsLegs == null;
+	}
+
+	private synchronized List<PlanElement> unpack() {
+		if (this.actsLegs == null) {
+			this.actsLegs = this.packedActsLegs.unpack();
+			this.packedActsLegs = null;
+		}
+		return this.actsLegs;
 	}
 
 	@Override
@@ -66,6 +66,7 @@ import org.matsim.core.population.routes.RouteFactory;
 import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.population.routes.heavycompressed.HeavyCompressedNetworkRouteFactory;
 import org.matsim.core.population.routes.mediumcompressed.MediumCompressedNetworkRouteFactory;
+import org.matsim.core.router.PlanRoutingMetadata;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.router.TripStructureUtils.StageActivityHandling;
 import org.matsim.core.scenario.MutableScenario;
@@ -752,6 +753,29 @@ public final class PopulationUtils {
 		return getFactory().createPlan() ;
 	}
 
+	/**
+	 * Stores the plan elements of the plan in a more compact form until they are accessed the next time.  Then, they
+	 * are recreated, so references to the plan elements from before are no longer part of the plan.  Only pack plans
+	 * that are not in use, e.g. the unselected plans of a person before the mobsim.
+	 *
+	 * @return <code>false</code> if the plan is not of the default implementation and thus cannot be packed
+	 */
+	public static boolean packPlanElements(Plan plan) {
+		if (plan instanceof PlanImpl planImpl) {
+			planImpl.pack();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if the plan elements of the plan are packed, i.e. were not accessed since they were
+	 * packed by {@link #packPlanElements(Plan)}
+	 */
+	public static boolean isPacked(Plan plan) {
+		return plan instanceof PlanImpl planImpl && planImpl.isPacked();
+	}
+
 	public static Activity createActivityFromLinkId(String type, Id<Link> linkId) {
 		return getFactory().createActivityFromLinkId(type, linkId) ;
 	}
@@ -875,6 +899,7 @@ public final class PopulationUtils {
 			}
 		}
 		AttributesUtils.copyAttributesFromTo(in, out );
+		PlanRoutingMetadata.copyRoutedIteration(in, out);
 	}
 
 	public static void copyFromTo(Leg in, Leg out) {
@@ -1136,7 +1161,7 @@ public final class PopulationUtils {
 	public static void readPopulation( Population population, String filename ) {
 		MutableScenario scenario = ScenarioUtils.createMutableScenario( ConfigUtils.createConfig() ) ;
 		scenario.setPopulation( population );
-		new PopulationReader( scenario ).readFile( filename );
+		new PopulationReader( scenario ).readPopulationFile( filename );
 		// (yyyy population reader uses network to retrofit some missing geo information such as route lenth.
 		// In my opinion, that should be done in prepareForSim, not in the parser.  It is commented as such
 		// in the PopulationReader class.  kai, nov'18)
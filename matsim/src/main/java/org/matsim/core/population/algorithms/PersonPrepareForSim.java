@@ -32,8 +32,10 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.PlanRoutingMetadata;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.router.TripStructureUtils.Trip;
 import org.matsim.facilities.ActivityFacilities;
@@ -64,6 +66,10 @@ public final class PersonPrepareForSim extends AbstractPersonAlgorithm {
 
 	private static final Logger log = LogManager.getLogger(PersonPrepareForSim.class);
 	private final Scenario scenario;
+
+	private boolean skippingValidatedPlans = false;
+	private int iteration = PlanRoutingMetadata.UNDEFINED_ITERATION;
+	private boolean skippingPackedPlans = false;
 	
 	/*
 	 * To be used by the controller which creates multiple instances of this class which would
@@ -101,6 +107,27 @@ public final class PersonPrepareForSim extends AbstractPersonAlgorithm {
 		this.scenario = scenario ;
 	}
 
+	/**
+	 * Marks the checked plans with {@link PlanRoutingMetadata}, and skips plans which are marked already, i.e. which were
+	 * checked before and have not been replaced or reset since.
+	 *
+	 * @param iteration the iteration to record in the metadata
+	 */
+	public void setSkippingValidatedPlans(final int iteration) {
+		this.skippingValidatedPlans = true;
+		this.iteration = iteration;
+	}
+
+	/**
+	 * Skips plans whose plan elements are packed, see {@link PopulationUtils#packPlanElements(Plan)}.  Only to be used
+	 * if plans are packed after they were checked, as by the {@link org.matsim.core.controler.PrepareForMobsim}.  Then,
+	 * a packed plan was not changed since, as accessing its elements unpacks it, and checking it again would only unpack
+	 * it for nothing.
+	 */
+	public void setSkippingPackedPlans() {
+		this.skippingPackedPlans = true;
+	}
+
 	@Override
 	public void run(final Person person) {
 		// first make sure we have a selected plan
@@ -116,6 +143,12 @@ public final class PersonPrepareForSim extends AbstractPersonAlgorithm {
 
 		// make sure all the plans have valid act-locations and valid routes
 		for (Plan plan : person.getPlans()) {
+			if (this.skippingValidatedPlans && PlanRoutingMetadata.isValidated(plan)) {
+				continue;
+			}
+			if (this.skippingPackedPlans && PopulationUtils.isPacked(plan)) {
+				continue;
+			}
 			boolean needsXY2Links = false;
 			boolean needsReRoute = false;
 			
@@ -233,6 +266,12 @@ public final class PersonPrepareForSim extends AbstractPersonAlgorithm {
 			if (needsReRoute) {
 				this.router.run(plan);
 			}
+			if (this.skippingValidatedPlans) {
+				if (needsReRoute) {
+					PlanRoutingMetadata.markRouted(plan, this.iteration);
+				}
+				PlanRoutingMetadata.markValidated(plan, this.iteration);
+			}
 		}
 
 	}
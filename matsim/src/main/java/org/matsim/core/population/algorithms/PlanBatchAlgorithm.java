@@ -0,0 +1,34 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanBatchAlgorithm.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.algorithms;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.population.Plan;
+
+/**
+ * A {@link PlanAlgorithm} that can handle many plans together more efficiently than one after the other, e.g. by
+ * sharing work between the plans.  The result is not necessarily the same as calling {@link #run(Plan)} for every
+ * plan:  implementations may approximate, but must document how, see e.g. {@link org.matsim.core.router.PlanRouter}.
+ */
+public interface PlanBatchAlgorithm extends PlanAlgorithm {
+	void run(List<Plan> plans);
+}
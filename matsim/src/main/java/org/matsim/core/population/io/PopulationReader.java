@@ -20,7 +20,9 @@
 
 package org.matsim.core.population.io;
 
+import java.net.URL;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Stack;
 
@@ -32,7 +34,9 @@ import org.matsim.core.scenario.ProjectionUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.utils.FeatureFlags;
 import org.matsim.utils.objectattributes.AttributeConverter;
 import org.xml.sax.Attributes;
@@ -40,7 +44,9 @@ import org.xml.sax.SAXException;
 
 /**
  * A population reader that reads the MATSim format. This reader recognizes the format of the plans-file and uses
- * the correct reader for the specific plans-version, without manual setting.
+ * the correct reader for the specific plans-version, without manual setting. Files in the binary format of
+ * {@link PopulationWriterBinary} are recognized as well when read with {@link #readPopulationFile(String)} or
+ * {@link #readPopulationURL(URL)}.
  *
  * @author mrieser
  */
@@ -52,6 +58,7 @@ public final class PopulationReader extends MatsimXmlParser {
 	private final static String PLANS_V4 = "plans_v4.dtd";
 	private final static String POPULATION_V5 = "population_v5.dtd";
 	private final static String POPULATION_V6 = "population_v6.dtd";
+	private final static String BINARY_ENDING = ".bin";
 
 	private final String inputCRS;
 	private final String targetCRS;
@@ -94,6 +101,43 @@ public final class PopulationReader extends MatsimXmlParser {
 		attributeConverters.putAll( converters );
 	}
 
+	/**
+	 * Reads the population from the file, in the binary format of {@link PopulationWriterBinary} if the name ends
+	 * with ".bin" and the file starts with its magic bytes, and as xml otherwise.  Only files ending with ".bin" are
+	 * opened an additional time to check the magic bytes.
+	 */
+	public void readPopulationFile(final String filename) throws UncheckedIOException {
+		if (filename.toLowerCase(Locale.ROOT).endsWith(BINARY_ENDING)) {
+			URL url = IOUtils.resolveFileOrResource(filename);
+			if (PopulationReaderBinary.isBinaryPopulationFile(url)) {
+				readBinary(url);
+				return;
+			}
+		}
+		readFile(filename);
+	}
+
+	/**
+	 * Reads the population from the URL, see {@link #readPopulationFile(String)}.
+	 */
+	public void readPopulationURL(final URL url) throws UncheckedIOException {
+		if (url.getPath().toLowerCase(Locale.ROOT).endsWith(BINARY_ENDING) && PopulationReaderBinary.isBinaryPopulationFile(url)) {
+			readBinary(url);
+		} else {
+			readURL(url);
+		}
+	}
+
+	private void readBinary(final URL url) {
+		PopulationReaderBinary reader = new PopulationReaderBinary(this.inputCRS, this.targetCRS, this.scenario);
+		reader.putAttributeConverters(this.attributeConverters);
+		if (FeatureFlags.useParallelIO()) {
+			reader.setNumberOfThreads(Math.max(1, this.scenario.getConfig().global().getNumberOfThreads()));
+		}
+		log.info("using binary population reader.");
+		reader.readURL(url);
+	}
+
 	@Override
 	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
 		this.delegate.startTag(name, atts, context);
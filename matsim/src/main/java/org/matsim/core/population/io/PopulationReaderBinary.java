@@ -0,0 +1,552 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.core.router.StageActivityTypeIdentifier;
+import org.matsim.core.scenario.ProjectionUtils;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.geometry.transformations.TransformationFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Reads population files written by {@link PopulationWriterBinary}.
+ * <p>
+ * The file is read sequentially. If more than one thread is configured, the blocks are decoded in parallel, but
+ * the persons are still added to the population in the order they were written, so this reader can also be used
+ * with a {@link StreamingPopulationReader.StreamingPopulation}. Like in {@link ParallelPopulationReaderMatsimV6},
+ * the person ids are created in the calling thread, so their indices do not depend on the number of threads.
+ * <p>
+ * Unlike the xml readers, this reader does not compute missing route distances, the population is restored
+ * as it was written.
+ *
+ * @see PopulationWriterBinary for a description of the file format
+ */
+public final class PopulationReaderBinary {
+
+	private final static Logger log = LogManager.getLogger(PopulationReaderBinary.class);
+
+	private final String inputCRS;
+	private final String targetCRS;
+	private final Scenario scenario;
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private int numberOfThreads = 1;
+	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
+
+	public PopulationReaderBinary(final Scenario scenario) {
+		this(null, null, scenario);
+	}
+
+	public PopulationReaderBinary(final String inputCRS, final String targetCRS, final Scenario scenario) {
+		this.inputCRS = inputCRS;
+		this.targetCRS = targetCRS;
+		this.scenario = scenario;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converters.putAll(converters);
+	}
+
+	/**
+	 * Sets the number of threads used to decode blocks. The persons are always added to the population from
+	 * the calling thread.
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1, but was " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * @return <code>true</code> if the file starts with the magic bytes of the binary population format.
+	 */
+	public static boolean isBinaryPopulationFile(final String filename) {
+		try {
+			return isBinaryPopulationFile(IOUtils.resolveFileOrResource(filename));
+		} catch (UncheckedIOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the content of the URL starts with the magic bytes of the binary population format.
+	 */
+	public static boolean isBinaryPopulationFile(final URL url) {
+		try (InputStream in = IOUtils.getInputStream(url)) {
+			byte[] magic = in.readNBytes(PopulationWriterBinary.MAGIC.length);
+			return Arrays.equals(magic, PopulationWriterBinary.MAGIC);
+		} catch (IOException | UncheckedIOException e) {
+			return false;
+		}
+	}
+
+	public void readFile(final String filename) {
+		readURL(IOUtils.resolveFileOrResource(filename));
+	}
+
+	public void readURL(final URL url) {
+		log.info("reading binary population from " + url);
+		readStream(IOUtils.getInputStream(url));
+	}
+
+	/**
+	 * Reads the population from the stream and closes it.
+	 */
+	public void readStream(final InputStream stream) {
+		Population population = this.scenario.getPopulation();
+		try (DataInputStream in = new DataInputStream(stream)) {
+			byte[] magic = new byte[PopulationWriterBinary.MAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, PopulationWriterBinary.MAGIC)) {
+				throw new IllegalArgumentException("The data is not in the binary population format.");
+			}
+			int version = in.readInt();
+			if (version != PopulationWriterBinary.VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary population format.");
+			}
+
+			int headerSize = in.readInt();
+			BlockDecoder headerDecoder = new BlockDecoder(null, headerSize, readBytes(in, in.readInt()));
+			headerDecoder.inflate();
+			population.setName(headerDecoder.readString());
+			headerDecoder.readAttributes(population.getAttributes());
+			initCoordinateTransformation(population);
+
+			int personCount;
+			if (this.numberOfThreads == 1) {
+				personCount = 0;
+				BlockDecoder decoder;
+				while ((decoder = readBlock(in)) != null) {
+					addPersons(population, decoder.decode());
+					personCount += decoder.personIds.size();
+				}
+			} else {
+				personCount = readParallel(in, population);
+			}
+			log.info("read " + personCount + " persons using " + this.numberOfThreads + " thread(s).");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (this.targetCRS != null) {
+			ProjectionUtils.putCRS(population, this.targetCRS);
+		}
+	}
+
+	/**
+	 * Like {@link PopulationReaderMatsimV6}, a CRS given in the file takes precedence over the input CRS given
+	 * to the reader.
+	 */
+	private void initCoordinateTransformation(Population population) {
+		String fileCRS = ProjectionUtils.getCRS(population);
+		if (fileCRS != null && this.targetCRS != null) {
+			if (this.inputCRS != null) {
+				log.warn("coordinate transformation defined both in config and in input file: setting from input file will be used");
+			}
+			this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(fileCRS, this.targetCRS);
+		} else if (this.inputCRS != null && this.targetCRS != null) {
+			this.coordinateTransformation = TransformationFactory.getCoordinateTransformation(this.inputCRS, this.targetCRS);
+		}
+	}
+
+	private int readParallel(DataInputStream in, Population population) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "PopulationReaderBinary");
+			thread.setDaemon(true);
+			return thread;
+		});
+		int personCount = 0;
+		try {
+			// limit the number of decoded, but not yet added blocks to keep the memory bounded
+			int window = 2 * this.numberOfThreads;
+			Deque<Future<List<Person>>> pending = new ArrayDeque<>();
+			BlockDecoder decoder;
+			while ((decoder = readBlock(in)) != null) {
+				pending.add(executor.submit(decoder::decode));
+				if (pending.size() >= window) {
+					personCount += addPersons(population, pending.poll().get());
+				}
+			}
+			while (!pending.isEmpty()) {
+				personCount += addPersons(population, pending.poll().get());
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Exception while decoding persons.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return personCount;
+	}
+
+	private static int addPersons(Population population, List<Person> persons) {
+		for (Person person : persons) {
+			population.addPerson(person);
+		}
+		return persons.size();
+	}
+
+	/**
+	 * Reads the next block and creates the ids of its persons.
+	 *
+	 * @return the decoder for the block, or <code>null</code> at the end of the file
+	 */
+	private BlockDecoder readBlock(DataInputStream in) throws IOException {
+		int personCount = in.readInt();
+		if (personCount == 0) {
+			return null;
+		}
+		ByteBuffer idBytes = ByteBuffer.wrap(readBytes(in, in.readInt()));
+		List<Id<Person>> personIds = new ArrayList<>(personCount);
+		for (int i = 0; i < personCount; i++) {
+			personIds.add(Id.create(readString(idBytes), Person.class));
+		}
+		int size = in.readInt();
+		return new BlockDecoder(personIds, size, readBytes(in, in.readInt()));
+	}
+
+	private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private static long readVarLong(ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/**
+	 * Reads a string written with its length + 1, or <code>null</code> if the length is 0.
+	 */
+	private static String readString(ByteBuffer buffer) {
+		int length = (int) readVarLong(buffer) - 1;
+		if (length < 0) {
+			return null;
+		}
+		String s = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return s;
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Decodes one block. Every block has its own decoder, so several blocks can be decoded concurrently.
+	 */
+	private final class BlockDecoder {
+		private final List<Id<Person>> personIds;
+		private final int size;
+		private final byte[] compressed;
+		private ByteBuffer buffer;
+		private String[] dictionary;
+		private String[] internedStrings;
+		private final Map<Class<?>, Id<?>[]> idCaches = new HashMap<>();
+		private ObjectAttributesConverter attributesConverter;
+
+		BlockDecoder(List<Id<Person>> personIds, int size, byte[] compressed) {
+			this.personIds = personIds;
+			this.size = size;
+			this.compressed = compressed;
+		}
+
+		void inflate() throws IOException {
+			byte[] data = new byte[this.size];
+			Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(this.compressed);
+				int length = 0;
+				while (length < data.length) {
+					int n = inflater.inflate(data, length, data.length - length);
+					if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+						throw new IOException("Block of binary population is truncated.");
+					}
+					length += n;
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Block of binary population is corrupt.", e);
+			} finally {
+				inflater.end();
+			}
+			this.buffer = ByteBuffer.wrap(data);
+			this.dictionary = new String[(int) readVarLong(this.buffer)];
+			for (int i = 0; i < this.dictionary.length; i++) {
+				this.dictionary[i] = PopulationReaderBinary.readString(this.buffer);
+			}
+			this.internedStrings = new String[this.dictionary.length];
+		}
+
+		List<Person> decode() throws IOException {
+			inflate();
+			RouteFactories routeFactories = scenario.getPopulation().getFactory().getRouteFactories();
+			List<Person> persons = new ArrayList<>(this.personIds.size());
+			for (Id<Person> personId : this.personIds) {
+				Person person = PopulationUtils.getFactory().createPerson(personId);
+				readAttributes(person.getAttributes());
+				int planCount = (int) readVarLong(this.buffer);
+				int selectedPlan = (int) readVarLong(this.buffer) - 1;
+				for (int p = 0; p < planCount; p++) {
+					readPlan(PersonUtils.createAndAddPlan(person, p == selectedPlan), routeFactories);
+				}
+				persons.add(person);
+			}
+			return persons;
+		}
+
+		private void readPlan(Plan plan, RouteFactories routeFactories) {
+			int flags = (int) readVarLong(this.buffer);
+			if ((flags & PopulationWriterBinary.PLAN_HAS_SCORE) != 0) {
+				plan.setScore(this.buffer.getDouble());
+			}
+			String type = readInternedString();
+			if (type != null) {
+				plan.setType(type);
+			}
+			readAttributes(plan.getAttributes());
+			int elementCount = (int) readVarLong(this.buffer);
+			for (int i = 0; i < elementCount; i++) {
+				int elementFlags = (int) readVarLong(this.buffer);
+				if ((elementFlags & PopulationWriterBinary.LEG) != 0) {
+					readLeg(plan, elementFlags, routeFactories);
+				} else {
+					plan.addActivity(readActivity(elementFlags));
+				}
+			}
+		}
+
+		private Activity readActivity(int flags) {
+			String type = readInternedString();
+			Id<Link> linkId = (flags & PopulationWriterBinary.ACT_HAS_LINK) != 0 ? readId(Link.class) : null;
+			Id<ActivityFacility> facilityId = (flags & PopulationWriterBinary.ACT_HAS_FACILITY) != 0 ? readId(ActivityFacility.class) : null;
+			Coord coord = null;
+			if ((flags & PopulationWriterBinary.ACT_HAS_COORD) != 0) {
+				double x = this.buffer.getDouble();
+				double y = this.buffer.getDouble();
+				coord = (flags & PopulationWriterBinary.ACT_HAS_Z) != 0 ? new Coord(x, y, this.buffer.getDouble()) : new Coord(x, y);
+				coord = coordinateTransformation.transform(coord);
+			}
+			OptionalTime startTime = readTime();
+			OptionalTime endTime = readTime();
+			OptionalTime duration = readTime();
+
+			// the same rules for interaction activities as in PopulationReaderMatsimV6
+			boolean isInteraction = StageActivityTypeIdentifier.isStageActivity(type) && startTime.isUndefined() && endTime.isUndefined()
+					&& duration.isDefined() && duration.seconds() <= 0.0;
+			Activity act;
+			if (facilityId != null) {
+				act = isInteraction ? PopulationUtils.createInteractionActivityFromFacilityId(type, facilityId) : PopulationUtils.createActivityFromFacilityId(type, facilityId);
+				if (linkId != null) {
+					act.setLinkId(linkId);
+				}
+				if (coord != null) {
+					act.setCoord(coord);
+				}
+			} else if (coord != null) {
+				act = isInteraction ? PopulationUtils.createInteractionActivityFromCoord(type, coord) : PopulationUtils.createActivityFromCoord(type, coord);
+				if (linkId != null) {
+					act.setLinkId(linkId);
+				}
+			} else {
+				act = isInteraction ? PopulationUtils.createInteractionActivityFromLinkId(type, linkId) : PopulationUtils.createActivityFromLinkId(type, linkId);
+			}
+			if (!isInteraction) {
+				startTime.ifDefinedOrElse(act::setStartTime, act::setStartTimeUndefined);
+				duration.ifDefinedOrElse(act::setMaximumDuration, act::setMaximumDurationUndefined);
+				endTime.ifDefinedOrElse(act::setEndTime, act::setEndTimeUndefined);
+			}
+			readAttributes(act.getAttributes());
+			return act;
+		}
+
+		private void readLeg(Plan plan, int flags, RouteFactories routeFactories) {
+			Leg leg = PopulationUtils.createAndAddLeg(plan, readInternedString());
+			String routingMode = readInternedString();
+			if (routingMode != null) {
+				leg.setRoutingMode(routingMode);
+			}
+			readTime().ifDefinedOrElse(leg::setDepartureTime, leg::setDepartureTimeUndefined);
+			readTime().ifDefinedOrElse(leg::setTravelTime, leg::setTravelTimeUndefined);
+			readAttributes(leg.getAttributes());
+			if ((flags & PopulationWriterBinary.LEG_HAS_ROUTE) == 0) {
+				return;
+			}
+
+			String routeType = readString();
+			Id<Link> startLinkId = readId(Link.class);
+			Id<Link> endLinkId = readId(Link.class);
+			Class<? extends Route> routeClass = routeFactories.getRouteClassForType(routeType == null ? "generic" : routeType);
+			Route route = routeFactories.createRoute(routeClass, startLinkId, endLinkId);
+			readTime().ifDefinedOrElse(route::setTravelTime, route::setTravelTimeUndefined);
+			route.setDistance(this.buffer.getDouble());
+			if ((flags & PopulationWriterBinary.LEG_HAS_NETWORK_ROUTE) != 0) {
+				Id<Vehicle> vehicleId = readId(Vehicle.class);
+				int linkCount = (int) readVarLong(this.buffer);
+				List<Id<Link>> linkIds = new ArrayList<>(linkCount);
+				for (int i = 0; i < linkCount; i++) {
+					linkIds.add(readId(Link.class));
+				}
+				if (route instanceof NetworkRoute networkRoute) {
+					networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+					networkRoute.setVehicleId(vehicleId);
+				} else {
+					// the route type is configured differently than when the file was written
+					StringBuilder description = new StringBuilder(startLinkId.toString());
+					linkIds.forEach(linkId -> description.append(' ').append(linkId));
+					description.append(' ').append(endLinkId);
+					route.setRouteDescription(description.toString());
+				}
+			} else {
+				String description = PopulationReaderBinary.readString(this.buffer);
+				if (description != null) {
+					route.setRouteDescription(description);
+				}
+			}
+			leg.setRoute(route);
+		}
+
+		void readAttributes(Attributes attributes) {
+			String key;
+			while ((key = readInternedString()) != null) {
+				int type = (int) readVarLong(this.buffer);
+				Object value = switch (type) {
+					case PopulationWriterBinary.ATTRIBUTE_STRING -> readString();
+					case PopulationWriterBinary.ATTRIBUTE_DOUBLE -> this.buffer.getDouble();
+					case PopulationWriterBinary.ATTRIBUTE_INTEGER -> (int) unZigZag(readVarLong(this.buffer));
+					case PopulationWriterBinary.ATTRIBUTE_LONG -> unZigZag(readVarLong(this.buffer));
+					case PopulationWriterBinary.ATTRIBUTE_BOOLEAN -> readVarLong(this.buffer) != 0;
+					case PopulationWriterBinary.ATTRIBUTE_CONVERTED -> {
+						String className = readString();
+						String converted = PopulationReaderBinary.readString(this.buffer);
+						if (this.attributesConverter == null) {
+							this.attributesConverter = new ObjectAttributesConverter(converters);
+						}
+						yield this.attributesConverter.convert(className, converted);
+					}
+					default -> throw new IllegalArgumentException("Unknown attribute type " + type + " in binary population.");
+				};
+				if (value != null) {
+					attributes.putAttribute(key, value);
+				}
+			}
+		}
+
+		private OptionalTime readTime() {
+			long value = readVarLong(this.buffer);
+			if ((value & 1) != 0) {
+				return OptionalTime.defined(unZigZag(value >>> 1));
+			}
+			if (value == PopulationWriterBinary.TIME_UNDEFINED) {
+				return OptionalTime.undefined();
+			}
+			return OptionalTime.defined(this.buffer.getDouble());
+		}
+
+		String readString() {
+			int code = (int) readVarLong(this.buffer) - 1;
+			return code < 0 ? null : this.dictionary[code];
+		}
+
+		/**
+		 * For activity types, modes and the like, which are repeated in every block and should only be kept once in memory.
+		 */
+		private String readInternedString() {
+			int code = (int) readVarLong(this.buffer) - 1;
+			if (code < 0) {
+				return null;
+			}
+			String s = this.internedStrings[code];
+			if (s == null) {
+				s = this.dictionary[code].intern();
+				this.internedStrings[code] = s;
+			}
+			return s;
+		}
+
+		@SuppressWarnings("unchecked")
+		private <T> Id<T> readId(Class<T> type) {
+			int code = (int) readVarLong(this.buffer) - 1;
+			if (code < 0) {
+				return null;
+			}
+			// link ids in particular are repeated a lot within a block, looking them up here is faster than Id.create()
+			Id<?>[] cache = this.idCaches.computeIfAbsent(type, t -> new Id<?>[this.dictionary.length]);
+			Id<?> id = cache[code];
+			if (id == null) {
+				id = Id.create(this.dictionary[code], type);
+				cache[code] = id;
+			}
+			return (Id<T>) id;
+		}
+	}
+}
@@ -22,7 +22,10 @@ package org.matsim.core.population.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
@@ -36,6 +39,7 @@ import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.core.utils.io.AbstractMatsimWriter;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.io.UncheckedIOException;
 import org.matsim.core.utils.misc.Counter;
 import org.matsim.utils.FeatureFlags;
@@ -135,10 +139,19 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 	}
 
 	/**
-	 * Writes all plans to the file.
+	 * Writes all plans to the file. Files ending with <code>.bin</code> are written in the binary format of
+	 * {@link PopulationWriterBinary}, all others as xml.
 	 */
 	@Override
 	public void write(final String filename) {
+		if (filename.toLowerCase(Locale.ROOT).endsWith(".bin")) {
+			writeBinary(filename);
+		} else {
+			writeXml(filename);
+		}
+	}
+
+	private void writeXml(final String filename) {
 		try {
 			this.handler.putAttributeConverters(converters);
 			this.openFile(filename);
@@ -198,28 +211,50 @@ public final class PopulationWriter extends AbstractMatsimWriter implements Mats
 		}
 	}
 
+	/**
+	 * Writes the plans in the binary format of {@link PopulationWriterBinary}, which can be written and read a lot
+	 * faster than xml.  {@link PopulationReader} recognizes the format automatically.
+	 */
+	public void writeBinary(final String filename) {
+		PopulationWriterBinary binaryWriter = new PopulationWriterBinary(this.coordinateTransformation);
+		binaryWriter.putAttributeConverters(this.converters);
+		if (FeatureFlags.useParallelIO()) {
+			binaryWriter.setNumberOfThreads(Runtime.getRuntime().availableProcessors());
+		}
+		List<Person> persons = new ArrayList<>();
+		for (Person p : PopulationUtils.getSortedPersons(this.population).values()) {
+			// draw the same random numbers as when writing xml
+			if ((this.write_person_fraction >= 1.0) || (MatsimRandom.getRandom().nextDouble() < this.write_person_fraction)) {
+				persons.add(p);
+			}
+		}
+		// the blocks are compressed already, so a file ending like .gz would only cost time
+		binaryWriter.write(this.population, persons, IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false));
+		log.info("Population written to: " + filename);
+	}
+
 	public void writeV0(final String filename) {
 		this.handler = new PopulationWriterHandlerImplV0( coordinateTransformation , this.network);
-		write(filename);
+		writeXml(filename);
 	}
 
 	public void writeV4(final String filename) {
 		this.handler = new PopulationWriterHandlerImplV4( coordinateTransformation , this.network );
-		write(filename);
+		writeXml(filename);
 	}
 
 	public void writeV5(final String filename) {
 		this.handler = new PopulationWriterHandlerImplV5(coordinateTransformation);
-		write(filename);
+		writeXml(filename);
 	}
 
 	public void writeV6(final String filename) {
 		if (FeatureFlags.useParallelIO()) {
 			this.handler = new ParallelPopulationWriterHandlerV6(coordinateTransformation);
-			write(filename);
+			writeXml(filename);
 		} else {
 			this.handler = new PopulationWriterHandlerImplV6(coordinateTransformation);
-			write(filename);
+			writeXml(filename);
 		}
 	}
 
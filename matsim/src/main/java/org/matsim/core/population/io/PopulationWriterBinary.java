@@ -0,0 +1,529 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.core.utils.misc.OptionalTime;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * Writes a population into a compact, block-structured binary file that can be read with
+ * {@link PopulationReaderBinary}, much faster than the xml format can be written and read.
+ * <p>
+ * The persons are grouped into blocks of {@value #PERSONS_PER_BLOCK} persons. Each block is deflated on its own
+ * and has its own dictionary for all strings like Ids, activity types and modes, so the blocks can be encoded
+ * and decoded in parallel. Times are stored as integers if they are whole seconds, link ids of network routes
+ * as codes into the dictionary. Attribute values of the common types (String, Double, Integer, Long, Boolean)
+ * are stored directly, all others as strings using the attribute converters, like in the xml format. The ids
+ * of the persons of a block are stored uncompressed in front of the block, so a reader can create them in the
+ * order of the file while it decodes the rest of the block in parallel.
+ * <p>
+ * File layout:
+ * <pre>
+ * MAGIC, VERSION
+ * header                       (size, compressed size, deflated: dictionary, population name and attributes)
+ * block*                       (#persons, size of person ids, person ids, size, compressed size,
+ *                               deflated: dictionary, persons)
+ * 0                            (end marker)
+ * </pre>
+ * The file has no index and can be read sequentially, e.g. from a URL. All variable length integers are
+ * unsigned LEB128, signed ones are zig-zag encoded first.
+ */
+public final class PopulationWriterBinary {
+
+	private final static Logger log = LogManager.getLogger(PopulationWriterBinary.class);
+
+	public static final byte[] MAGIC = "MATSIMPB".getBytes(StandardCharsets.US_ASCII);
+	public static final int VERSION = 1;
+
+	static final int PERSONS_PER_BLOCK = 1024;
+
+	static final int TIME_UNDEFINED = 0;
+	static final int TIME_RAW = 2;
+
+	static final int LEG = 1;
+	static final int ACT_HAS_LINK = 2;
+	static final int ACT_HAS_FACILITY = 4;
+	static final int ACT_HAS_COORD = 8;
+	static final int ACT_HAS_Z = 16;
+	static final int LEG_HAS_ROUTE = 2;
+	static final int LEG_HAS_NETWORK_ROUTE = 4;
+	static final int PLAN_HAS_SCORE = 1;
+
+	static final int ATTRIBUTE_STRING = 0;
+	static final int ATTRIBUTE_DOUBLE = 1;
+	static final int ATTRIBUTE_INTEGER = 2;
+	static final int ATTRIBUTE_LONG = 3;
+	static final int ATTRIBUTE_BOOLEAN = 4;
+	static final int ATTRIBUTE_CONVERTED = 5;
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final Map<Class<?>, AttributeConverter<?>> converters = new HashMap<>();
+	private int numberOfThreads = 1;
+
+	public PopulationWriterBinary() {
+		this(new IdentityTransformation());
+	}
+
+	/**
+	 * @param coordinateTransformation transformation from the internal CRS to the CRS in which the file should be written
+	 */
+	public PopulationWriterBinary(final CoordinateTransformation coordinateTransformation) {
+		this.coordinateTransformation = coordinateTransformation == null ? new IdentityTransformation() : coordinateTransformation;
+	}
+
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		this.converters.putAll(converters);
+	}
+
+	/**
+	 * Sets the number of threads used to encode blocks. The file is always written from the calling thread.
+	 */
+	public void setNumberOfThreads(int numberOfThreads) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("Number of threads must be at least 1, but was " + numberOfThreads);
+		}
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	public void write(final Population population, final String filename) {
+		// the blocks are compressed already, so a file ending like .gz would only cost time
+		write(population, IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false));
+	}
+
+	/**
+	 * Writes all persons of the population, sorted by their id, to the output stream and closes it.
+	 */
+	public void write(final Population population, final OutputStream stream) {
+		write(population, PopulationUtils.getSortedPersons(population).values(), stream);
+	}
+
+	/**
+	 * Writes the given persons of the population to the output stream and closes it.
+	 */
+	void write(final Population population, final Collection<? extends Person> persons, final OutputStream stream) {
+		try (DataOutputStream out = new DataOutputStream(stream)) {
+			out.write(MAGIC);
+			out.writeInt(VERSION);
+			BlockEncoder encoder = new BlockEncoder();
+			try {
+				encoder.writeString(population.getName());
+				encoder.writeAttributes(population.getAttributes());
+				EncodedBlock header = encoder.finish(null, 0);
+				out.writeInt(header.size);
+				out.writeInt(header.data.length);
+				out.write(header.data);
+
+				if (this.numberOfThreads == 1) {
+					List<Person> block = new ArrayList<>(PERSONS_PER_BLOCK);
+					for (Person person : persons) {
+						block.add(person);
+						if (block.size() == PERSONS_PER_BLOCK) {
+							write(out, encoder.encode(block));
+							block.clear();
+						}
+					}
+					if (!block.isEmpty()) {
+						write(out, encoder.encode(block));
+					}
+				}
+			} finally {
+				encoder.end();
+			}
+			if (this.numberOfThreads > 1) {
+				writeParallel(out, persons);
+			}
+			out.writeInt(0);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		log.info("wrote " + persons.size() + " persons using " + this.numberOfThreads + " thread(s).");
+	}
+
+	private void writeParallel(DataOutputStream out, Collection<? extends Person> persons) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, r -> {
+			Thread thread = new Thread(r, "PopulationWriterBinary");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// one encoder per thread, as the attribute converters are not thread-safe
+		List<BlockEncoder> allEncoders = Collections.synchronizedList(new ArrayList<>());
+		ThreadLocal<BlockEncoder> encoders = ThreadLocal.withInitial(() -> {
+			BlockEncoder encoder = new BlockEncoder();
+			allEncoders.add(encoder);
+			return encoder;
+		});
+		try {
+			// limit the number of encoded, but not yet written blocks to keep the memory bounded
+			int window = 2 * this.numberOfThreads;
+			Deque<Future<EncodedBlock>> pending = new ArrayDeque<>();
+			List<Person> block = new ArrayList<>(PERSONS_PER_BLOCK);
+			for (Person person : persons) {
+				block.add(person);
+				if (block.size() == PERSONS_PER_BLOCK) {
+					List<Person> blockPersons = block;
+					pending.add(executor.submit(() -> encoders.get().encode(blockPersons)));
+					block = new ArrayList<>(PERSONS_PER_BLOCK);
+					if (pending.size() >= window) {
+						write(out, pending.poll().get());
+					}
+				}
+			}
+			if (!block.isEmpty()) {
+				List<Person> blockPersons = block;
+				pending.add(executor.submit(() -> encoders.get().encode(blockPersons)));
+			}
+			while (!pending.isEmpty()) {
+				write(out, pending.poll().get());
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Exception while encoding persons.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+			allEncoders.forEach(BlockEncoder::end);
+		}
+	}
+
+	private static void write(DataOutputStream out, EncodedBlock block) throws IOException {
+		out.writeInt(block.personCount);
+		out.writeInt(block.personIds.length);
+		out.write(block.personIds);
+		out.writeInt(block.size);
+		out.writeInt(block.data.length);
+		out.write(block.data);
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private record EncodedBlock(int personCount, byte[] personIds, int size, byte[] data) {
+	}
+
+	/**
+	 * Encodes blocks of persons. Must only be used by one thread at a time.
+	 */
+	private final class BlockEncoder {
+		private final ObjectAttributesConverter attributesConverter = new ObjectAttributesConverter(converters);
+		private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		private byte[] deflateBuffer = new byte[1 << 16];
+
+		private final Map<String, Integer> dictionary = new HashMap<>();
+		private final List<String> dictionaryEntries = new ArrayList<>();
+		private final ByteColumn data = new ByteColumn();
+		private final ByteColumn ids = new ByteColumn();
+		private final ByteColumn block = new ByteColumn();
+
+		EncodedBlock encode(List<Person> persons) {
+			this.ids.clear();
+			for (Person person : persons) {
+				this.ids.writeString(person.getId().toString());
+				writePerson(person);
+			}
+			return finish(Arrays.copyOf(this.ids.bytes, this.ids.size), persons.size());
+		}
+
+		private void writePerson(Person person) {
+			writeAttributes(person.getAttributes());
+			List<? extends Plan> plans = person.getPlans();
+			this.data.writeVarLong(plans.size());
+			this.data.writeVarLong(plans.indexOf(person.getSelectedPlan()) + 1);
+			for (Plan plan : plans) {
+				writePlan(plan);
+			}
+		}
+
+		private void writePlan(Plan plan) {
+			this.data.writeVarLong(plan.getScore() == null ? 0 : PLAN_HAS_SCORE);
+			if (plan.getScore() != null) {
+				this.data.writeDouble(plan.getScore());
+			}
+			writeString(plan.getType());
+			writeAttributes(plan.getAttributes());
+
+			List<PlanElement> planElements = plan.getPlanElements();
+			int count = 0;
+			for (PlanElement pe : planElements) {
+				if (pe instanceof Activity || pe instanceof Leg) {
+					count++;
+				}
+			}
+			this.data.writeVarLong(count);
+			for (PlanElement pe : planElements) {
+				if (pe instanceof Activity act) {
+					writeActivity(act);
+				} else if (pe instanceof Leg leg) {
+					writeLeg(leg);
+				}
+			}
+		}
+
+		private void writeActivity(Activity act) {
+			Coord coord = act.getCoord() == null ? null : coordinateTransformation.transform(act.getCoord());
+			int flags = 0;
+			if (act.getLinkId() != null) flags |= ACT_HAS_LINK;
+			if (act.getFacilityId() != null) flags |= ACT_HAS_FACILITY;
+			if (coord != null) flags |= ACT_HAS_COORD;
+			if (coord != null && act.getCoord().hasZ()) flags |= ACT_HAS_Z;
+			this.data.writeVarLong(flags);
+			writeString(act.getType());
+			if (act.getLinkId() != null) writeId(act.getLinkId());
+			if (act.getFacilityId() != null) writeId(act.getFacilityId());
+			if (coord != null) {
+				this.data.writeDouble(coord.getX());
+				this.data.writeDouble(coord.getY());
+				if (act.getCoord().hasZ()) {
+					this.data.writeDouble(coord.getZ());
+				}
+			}
+			writeTime(act.getStartTime());
+			writeTime(act.getEndTime());
+			writeTime(act.getMaximumDuration());
+			writeAttributes(act.getAttributes());
+		}
+
+		private void writeLeg(Leg leg) {
+			Route route = leg.getRoute();
+			int flags = LEG;
+			if (route != null) flags |= LEG_HAS_ROUTE;
+			if (route instanceof NetworkRoute) flags |= LEG_HAS_NETWORK_ROUTE;
+			this.data.writeVarLong(flags);
+			writeString(leg.getMode());
+			writeString(leg.getRoutingMode());
+			writeTime(leg.getDepartureTime());
+			writeTime(leg.getTravelTime());
+			writeAttributes(leg.getAttributes());
+			if (route != null) {
+				writeString(route.getRouteType());
+				writeId(route.getStartLinkId());
+				writeId(route.getEndLinkId());
+				writeTime(route.getTravelTime());
+				this.data.writeDouble(route.getDistance());
+				if (route instanceof NetworkRoute networkRoute) {
+					writeId(networkRoute.getVehicleId());
+					List<? extends Id<?>> linkIds = networkRoute.getLinkIds();
+					this.data.writeVarLong(linkIds.size());
+					for (Id<?> linkId : linkIds) {
+						writeId(linkId);
+					}
+				} else {
+					this.data.writeString(route.getRouteDescription());
+				}
+			}
+		}
+
+		void writeAttributes(Attributes attributes) {
+			for (Map.Entry<String, Object> e : attributes.getAsMap().entrySet()) {
+				Object value = e.getValue();
+				if (value instanceof String s) {
+					writeAttributeKey(e.getKey(), ATTRIBUTE_STRING);
+					writeString(s);
+				} else if (value instanceof Double d) {
+					writeAttributeKey(e.getKey(), ATTRIBUTE_DOUBLE);
+					this.data.writeDouble(d);
+				} else if (value instanceof Integer i) {
+					writeAttributeKey(e.getKey(), ATTRIBUTE_INTEGER);
+					this.data.writeVarLong(zigZag(i));
+				} else if (value instanceof Long l) {
+					writeAttributeKey(e.getKey(), ATTRIBUTE_LONG);
+					this.data.writeVarLong(zigZag(l));
+				} else if (value instanceof Boolean b) {
+					writeAttributeKey(e.getKey(), ATTRIBUTE_BOOLEAN);
+					this.data.writeVarLong(b ? 1 : 0);
+				} else if (value != null) {
+					// like in the xml format, attributes without a converter are not written
+					String converted = this.attributesConverter.convertToString(value);
+					if (converted != null) {
+						writeAttributeKey(e.getKey(), ATTRIBUTE_CONVERTED);
+						writeString(value.getClass().getName());
+						this.data.writeString(converted);
+					}
+				}
+			}
+			this.data.writeVarLong(0);
+		}
+
+		private void writeAttributeKey(String key, int type) {
+			writeString(key);
+			this.data.writeVarLong(type);
+		}
+
+		private void writeTime(OptionalTime time) {
+			if (time.isUndefined()) {
+				this.data.writeVarLong(TIME_UNDEFINED);
+				return;
+			}
+			double seconds = time.seconds();
+			long second = (long) seconds;
+			if (second == seconds && Math.abs(second) < (1L << 50)) {
+				this.data.writeVarLong((zigZag(second) << 1) | 1);
+			} else {
+				this.data.writeVarLong(TIME_RAW);
+				this.data.writeDouble(seconds);
+			}
+		}
+
+		private void writeId(Id<?> id) {
+			writeString(id == null ? null : id.toString());
+		}
+
+		/**
+		 * Writes the code of the string in the dictionary, or 0 for <code>null</code>.
+		 */
+		void writeString(String s) {
+			if (s == null) {
+				this.data.writeVarLong(0);
+				return;
+			}
+			Integer code = this.dictionary.get(s);
+			if (code == null) {
+				code = this.dictionaryEntries.size();
+				this.dictionary.put(s, code);
+				this.dictionaryEntries.add(s);
+			}
+			this.data.writeVarLong(code + 1);
+		}
+
+		/**
+		 * Prepends the dictionary to the encoded data, deflates both and resets the encoder for the next block.
+		 */
+		EncodedBlock finish(byte[] personIds, int personCount) {
+			this.block.clear();
+			this.block.writeVarLong(this.dictionaryEntries.size());
+			for (String s : this.dictionaryEntries) {
+				this.block.writeString(s);
+			}
+			this.block.write(this.data.bytes, 0, this.data.size);
+			this.dictionary.clear();
+			this.dictionaryEntries.clear();
+			this.data.clear();
+
+			this.deflater.reset();
+			this.deflater.setInput(this.block.bytes, 0, this.block.size);
+			this.deflater.finish();
+			int compressedSize = 0;
+			while (!this.deflater.finished()) {
+				if (compressedSize == this.deflateBuffer.length) {
+					this.deflateBuffer = Arrays.copyOf(this.deflateBuffer, this.deflateBuffer.length * 2);
+				}
+				compressedSize += this.deflater.deflate(this.deflateBuffer, compressedSize, this.deflateBuffer.length - compressedSize);
+			}
+			return new EncodedBlock(personCount, personIds, this.block.size, Arrays.copyOf(this.deflateBuffer, compressedSize));
+		}
+
+		void end() {
+			this.deflater.end();
+		}
+	}
+
+	/**
+	 * A growable byte array with the few encoding methods needed for the blocks.
+	 */
+	private static final class ByteColumn {
+		private byte[] bytes = new byte[1024];
+		private int size = 0;
+
+		void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.bytes[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.bytes[this.size++] = (byte) value;
+		}
+
+		void writeDouble(double value) {
+			ensureCapacity(8);
+			long bits = Double.doubleToRawLongBits(value);
+			for (int i = 56; i >= 0; i -= 8) {
+				this.bytes[this.size++] = (byte) (bits >>> i);
+			}
+		}
+
+		/**
+		 * Writes the length + 1 and the UTF-8 bytes of the string, or 0 for <code>null</code>.
+		 */
+		void writeString(String s) {
+			if (s == null) {
+				writeVarLong(0);
+				return;
+			}
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			writeVarLong(b.length + 1);
+			write(b, 0, b.length);
+		}
+
+		void write(byte[] b, int offset, int length) {
+			ensureCapacity(length);
+			System.arraycopy(b, offset, this.bytes, this.size, length);
+			this.size += length;
+		}
+
+		void clear() {
+			this.size = 0;
+		}
+
+		private void ensureCapacity(int additional) {
+			if (this.size + additional > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.size + additional));
+			}
+		}
+	}
+}
@@ -80,13 +80,13 @@ public final class StreamingPopulationReader implements MatsimReader {
 	}
 	@Override public void readFile(String filename) {
 		reader.putAttributeConverters(this.attributeConverters);
-		reader.readFile(filename);
+		reader.readPopulationFile(filename);
 	}
 
 	@Override
 	public void readURL( URL url ) {
 		reader.putAttributeConverters(this.attributeConverters);
-		reader.parse( url ) ;
+		reader.readPopulationURL( url ) ;
 	}
 
 	public void parse(InputStream is) {
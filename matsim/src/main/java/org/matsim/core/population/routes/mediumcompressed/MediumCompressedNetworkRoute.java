@@ -6,9 +6,11 @@ import org.matsim.core.population.routes.AbstractNetworkRoute;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.heavycompressed.VarIntUtils;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * <p>Implementation of {@link NetworkRoute} that stores the links of the route
@@ -17,7 +19,16 @@ import java.util.List;
  * <p>Each link-id of type Id uses 4 or 8 bytes, whereas the VarInt encoding
  * will likely only take at most 3 (for small to medium-sized scenarios)
  * or 4 bytes (for very large scenarios). So especially for large scenarios, where
- * object pointers use 8 bytes, this saves at least half the memory.</p>
+ * object pointers use 8 bytes, this saves at least half the memory.
+ * Instead of the link indices themselves, only the difference to the index of the
+ * previous link in the route is stored (zigzag-encoded, so negative differences stay small).
+ * In networks where links close to each other have similar indices (e.g. as written by
+ * most network converters), this often needs only 1 or 2 bytes per link.</p>
+ *
+ * <p>{@link #getLinkIds()} does not decode the whole route, but returns a view that decodes the links
+ * while they are accessed. Accessing the links in order (as the mobsim does) is thus cheap and does
+ * not allocate any memory, while accessing them in random order is slow. The view always reflects the
+ * current links of the route, also if they are set again.</p>
  *
  * <p>There is a small performance overhead, but it is rather small compared
  * to {@link org.matsim.core.population.routes.heavycompressed.HeavyCompressedNetworkRoute}.
@@ -40,28 +51,24 @@ public class MediumCompressedNetworkRoute extends AbstractNetworkRoute {
 		this.setStartLinkId(startLinkId);
 		this.setEndLinkId(endLinkId);
 		int linkCount = linkIds == null ? 0 : linkIds.size();
-		int[] route = new int[linkCount];
-		int i = 0;
-		if (linkIds != null) {
-			for (Id<Link> linkId : linkIds) {
-				route[i] = linkId.index();
-				i++;
-			}
+		if (linkCount == 0) {
+			this.route = EMPTY_ROUTE;
+			return;
+		}
+		ByteBuffer bb = ByteBuffer.allocate(5 * linkCount + 5);
+		VarIntUtils.encode(bb, linkCount);
+		long previousIndex = 0;
+		for (Id<Link> linkId : linkIds) {
+			long delta = linkId.index() - previousIndex;
+			VarIntUtils.encode(bb, (delta << 1) ^ (delta >> 63)); // zigzag-encoding
+			previousIndex = linkId.index();
 		}
-		this.route = VarIntUtils.encode(route, 0, route.length);
+		this.route = Arrays.copyOf(bb.array(), bb.position());
 	}
 
 	@Override
 	public List<Id<Link>> getLinkIds() {
-		if (this.route == null || this.route == EMPTY_ROUTE) {
-			return Collections.emptyList();
-		}
-		int[] idxRoute = VarIntUtils.decode(this.route);
-		List<Id<Link>> linkIds = new ArrayList<>(idxRoute.length);
-		for (int linkIndex : idxRoute) {
-			linkIds.add(Id.get(linkIndex, Link.class));
-		}
-		return linkIds;
+		return new LinkIds();
 	}
 
 	@Override
@@ -69,4 +76,69 @@ public class MediumCompressedNetworkRoute extends AbstractNetworkRoute {
 		return (MediumCompressedNetworkRoute) super.clone();
 	}
 
+	/**
+	 * An unmodifiable view on the links of the route that decodes them while they are accessed.
+	 */
+	private final class LinkIds extends AbstractList<Id<Link>> {
+
+		private byte[] bytes = null;
+		private int size;
+		private int position;
+		private int nextIndex;
+		private int linkIndex;
+
+		private void update() {
+			byte[] current = MediumCompressedNetworkRoute.this.route;
+			if (current != this.bytes) {
+				this.bytes = current;
+				this.position = 0;
+				this.size = current.length == 0 ? 0 : (int) readVarInt();
+				rewind();
+			}
+		}
+
+		private void rewind() {
+			// the position right after the size
+			this.position = 0;
+			if (this.bytes.length > 0) {
+				readVarInt();
+			}
+			this.nextIndex = 0;
+			this.linkIndex = 0;
+		}
+
+		private long readVarInt() {
+			long x = 0;
+			int shift = 0;
+			long b;
+			do {
+				b = this.bytes[this.position++] & 0xff;
+				x |= (b & 127) << shift;
+				shift += 7;
+			} while ((b & 128) != 0);
+			return x;
+		}
+
+		@Override
+		public int size() {
+			update();
+			return this.size;
+		}
+
+		@Override
+		public Id<Link> get(int index) {
+			update();
+			Objects.checkIndex(index, this.size);
+			if (index < this.nextIndex - 1) {
+				rewind();
+			}
+			while (this.nextIndex <= index) {
+				long zigzag = readVarInt();
+				this.linkIndex += (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+				this.nextIndex++;
+			}
+			return Id.get(this.linkIndex, Link.class);
+		}
+	}
+
 }
@@ -26,6 +26,7 @@ import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.population.algorithms.PlanBatchAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
@@ -46,6 +47,7 @@ import java.util.concurrent.atomic.AtomicReference;
  * <code>handlePlan(Plan)</code> distributes the plans equally to all threads.
  * <p></p>
  * <code>finishReplanning()</code> finally starts the threads and waits for all threads to be finished.
+ * If the plan algorithm is a {@link PlanBatchAlgorithm}, each thread passes all its plans to it at once.
  * <p></p>
  * While this approach does not lead to optimal performance gains ("slow threads" vs.
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
@@ -231,6 +233,13 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 		@Override
 		public void run() {
+			if (this.planAlgo instanceof PlanBatchAlgorithm batchAlgo) {
+				batchAlgo.run(this.plans);
+				for (int i = 0; i < this.plans.size(); i++) {
+					this.counter.incCounter();
+				}
+				return;
+			}
 			for (Plan plan : this.plans) {
 				this.planAlgo.run(plan);
 				this.counter.incCounter();
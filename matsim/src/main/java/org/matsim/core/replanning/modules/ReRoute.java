@@ -24,6 +24,7 @@ import org.matsim.api.core.v01.Scenario;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.controler.Controler;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.router.PlanRouter;
 import org.matsim.core.router.TripRouter;
 import org.matsim.core.utils.timing.TimeInterpretation;
@@ -43,6 +44,7 @@ public class ReRoute extends AbstractMultithreadedModule {
 	private final TimeInterpretation timeInterpretation;
 
 	private final Provider<TripRouter> tripRouterProvider;
+	private TripRouter tripRouter = null;
 
 	public ReRoute(ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup, TimeInterpretation timeInterpretation) {
 		super(globalConfigGroup);
@@ -55,10 +57,21 @@ public class ReRoute extends AbstractMultithreadedModule {
 		this(scenario.getActivityFacilities(), tripRouterProvider, scenario.getConfig().global(), timeInterpretation);
 	}
 
+	@Override
+	protected void beforePrepareReplanningHook(ReplanningContext replanningContextTmp) {
+		// the trip router creates the routing modules per thread, so all threads can share it
+		this.tripRouter = tripRouterProvider.get();
+	}
+
+	@Override
+	protected void afterFinishReplanningHook() {
+		this.tripRouter = null;
+	}
+
 	@Override
 	public final PlanAlgorithm getPlanAlgoInstance() {
 			return new PlanRouter(
-					tripRouterProvider.get(),
+					tripRouter == null ? tripRouterProvider.get() : tripRouter,
 					facilities,
 					timeInterpretation
 					);
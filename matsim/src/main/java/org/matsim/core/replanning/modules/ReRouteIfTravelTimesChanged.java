@@ -0,0 +1,159 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ReRouteIfTravelTimesChanged.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.router.PlanRouter;
+import org.matsim.core.router.PlanRoutingMetadata;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.timing.TimeInterpretation;
+import org.matsim.vehicles.Vehicle;
+
+import jakarta.inject.Provider;
+
+/**
+ * Like {@link ReRoute}, but only re-routes a plan if the travel time of one of its network routes under the current
+ * travel times differs by more than a given fraction from the travel time stored in the route when it was computed.
+ * Plans whose routes are still good enough are left as they are, which saves most of the routing effort once the
+ * travel times have settled.
+ * <br>
+ * Plans with legs without route, or with network routes without departure or travel time, are always re-routed.  Routes
+ * which are not network routes are not looked at.  Plans whose {@link PlanRoutingMetadata} says that they were routed with
+ * the travel times of the last mobsim, i.e. in the current iteration, are not compared at all, as their routes cannot be
+ * outdated.
+ *
+ * @see PlanRoutingMetadata
+ */
+public class ReRouteIfTravelTimesChanged extends AbstractMultithreadedModule {
+
+	private final Scenario scenario;
+	private final Network network;
+	private final Provider<TripRouter> tripRouterProvider;
+	private final Map<String, TravelTime> travelTimes;
+	private final TimeInterpretation timeInterpretation;
+	private final double threshold;
+
+	private TripRouter tripRouter = null;
+	private int iteration = PlanRoutingMetadata.UNDEFINED_ITERATION;
+
+	public ReRouteIfTravelTimesChanged(Scenario scenario, Provider<TripRouter> tripRouterProvider, Map<String, TravelTime> travelTimes,
+			TimeInterpretation timeInterpretation, double threshold) {
+		super(scenario.getConfig().global());
+		this.scenario = scenario;
+		this.network = scenario.getNetwork();
+		this.tripRouterProvider = tripRouterProvider;
+		this.travelTimes = travelTimes;
+		this.timeInterpretation = timeInterpretation;
+		this.threshold = threshold;
+	}
+
+	@Override
+	protected void beforePrepareReplanningHook(ReplanningContext replanningContext) {
+		// the trip router creates the routing modules per thread, so all threads can share it
+		this.tripRouter = this.tripRouterProvider.get();
+		this.iteration = replanningContext.getIteration();
+	}
+
+	@Override
+	protected void afterFinishReplanningHook() {
+		this.tripRouter = null;
+	}
+
+	@Override
+	public PlanAlgorithm getPlanAlgoInstance() {
+		final PlanRouter router = new PlanRouter(
+				this.tripRouter == null ? this.tripRouterProvider.get() : this.tripRouter,
+				this.scenario.getActivityFacilities(),
+				this.timeInterpretation);
+		final int iteration = this.iteration;
+		return plan -> {
+			if (haveTravelTimesChanged(plan)) {
+				router.run(plan);
+				PlanRoutingMetadata.markRouted(plan, iteration);
+			}
+		};
+	}
+
+	/*package*/ boolean haveTravelTimesChanged(Plan plan) {
+		boolean routedWithCurrentTravelTimes = isRoutedWithCurrentTravelTimes(plan);
+		for (PlanElement pe : plan.getPlanElements()) {
+			if (!(pe instanceof Leg leg)) {
+				continue;
+			}
+			Route route = leg.getRoute();
+			if (route == null) {
+				return true;
+			}
+			if (routedWithCurrentTravelTimes || !(route instanceof NetworkRoute networkRoute)) {
+				continue;
+			}
+			TravelTime travelTime = this.travelTimes.get(leg.getMode());
+			if (travelTime == null) {
+				continue;
+			}
+			if (leg.getDepartureTime().isUndefined() || route.getTravelTime().isUndefined()) {
+				return true;
+			}
+			double routedTravelTime = route.getTravelTime().seconds();
+			double currentTravelTime = calcTravelTime(networkRoute, leg.getDepartureTime().seconds(), plan, travelTime);
+			if (Math.abs(currentTravelTime - routedTravelTime) > this.threshold * Math.max(routedTravelTime, 1.0)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The travel times used now are those of the mobsim of the previous iteration.
+	 */
+	private boolean isRoutedWithCurrentTravelTimes(Plan plan) {
+		PlanRoutingMetadata metadata = PlanRoutingMetadata.get(plan);
+		return metadata != null && this.iteration != PlanRoutingMetadata.UNDEFINED_ITERATION
+				&& metadata.getRoutedIteration() != PlanRoutingMetadata.UNDEFINED_ITERATION
+				&& metadata.getTravelTimesIteration() == this.iteration - 1;
+	}
+
+	/**
+	 * Sums up the link travel times like the least cost path calculators do, i.e. without start and end link.
+	 */
+	private double calcTravelTime(NetworkRoute route, double departureTime, Plan plan, TravelTime travelTime) {
+		Vehicle vehicle = route.getVehicleId() == null ? null : this.scenario.getVehicles().getVehicles().get(route.getVehicleId());
+		double time = departureTime;
+		for (Id<Link> linkId : route.getLinkIds()) {
+			time += travelTime.getLinkTravelTime(this.network.getLinks().get(linkId), time, plan.getPerson(), vehicle);
+		}
+		return time - departureTime;
+	}
+
+}
@@ -103,6 +103,9 @@ public class DefaultPlanStrategiesModule extends AbstractModule {
         if (usedStrategyNames.contains(DefaultStrategy.ReRoute)) {
             addPlanStrategyBinding(DefaultStrategy.ReRoute).toProvider(ReRoute.class);
         }
+        if (usedStrategyNames.contains(DefaultStrategy.ReRouteIfTravelTimesChanged)) {
+            addPlanStrategyBinding(DefaultStrategy.ReRouteIfTravelTimesChanged).toProvider(ReRouteIfTravelTimesChanged.class);
+        }
         if (usedStrategyNames.contains(DefaultStrategy.TimeAllocationMutator)) {
             addPlanStrategyBinding(DefaultStrategy.TimeAllocationMutator).toProvider(TimeAllocationMutator.class);
         }
@@ -145,6 +148,7 @@ public class DefaultPlanStrategiesModule extends AbstractModule {
 
     public interface DefaultStrategy {
         String ReRoute="ReRoute";
+        String ReRouteIfTravelTimesChanged="ReRouteIfTravelTimesChanged";
         String TimeAllocationMutator="TimeAllocationMutator";
         @Deprecated String ChangeLegMode="ChangeLegMode";
         String TimeAllocationMutator_ReRoute="TimeAllocationMutator_ReRoute" ;
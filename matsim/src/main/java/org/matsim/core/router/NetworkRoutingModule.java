@@ -33,6 +33,7 @@ import org.matsim.core.gbl.Gbl;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.speedy.BatchedLeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculator.Path;
 import org.matsim.facilities.Facility;
@@ -82,18 +83,8 @@ public final class NetworkRoutingModule implements RoutingModule {
 		Gbl.assertNotNull(fromFacility);
 		Gbl.assertNotNull(toFacility);
 
-		Link fromLink = this.network.getLinks().get(fromFacility.getLinkId());
-		if ( fromLink==null ) {
-			Gbl.assertNotNull( fromFacility.getCoord() ) ;
-			fromLink = NetworkUtils.getNearestLink( network, fromFacility.getCoord()) ;
-		}
-		Link toLink = this.network.getLinks().get(toFacility.getLinkId());
-		if ( toLink==null ) {
-			Gbl.assertNotNull( toFacility.getCoord() ) ;
-			toLink = NetworkUtils.getNearestLink(network, toFacility.getCoord());
-		}
-		Gbl.assertNotNull(fromLink);
-		Gbl.assertNotNull(toLink);
+		Link fromLink = getLink(fromFacility);
+		Link toLink = getLink(toFacility);
 		
 		if (toLink != fromLink) {
 			// (a "true" route)
@@ -129,6 +120,54 @@ public final class NetworkRoutingModule implements RoutingModule {
 		return Arrays.asList( newLeg );
 	}
 
+	/**
+	 * Announces that the given request will probably be routed later, so that the route can be computed together with
+	 * the routes of other requests from the same link, see {@link BatchedLeastCostPathCalculator}.  Does nothing if
+	 * this module does not route in batches.
+	 */
+	public void prepareRoute(RoutingRequest request) {
+		if (this.routeAlgo instanceof BatchedLeastCostPathCalculator batch) {
+			Link fromLink = getLink(request.getFromFacility());
+			Link toLink = getLink(request.getToFacility());
+			if (toLink != fromLink) {
+				batch.addRequest(fromLink.getToNode(), toLink.getFromNode(), request.getDepartureTime());
+			}
+		}
+	}
+
+	/**
+	 * Computes the routes of all requests passed to {@link #prepareRoute(RoutingRequest)} so far.
+	 */
+	public void calculatePreparedRoutes() {
+		if (this.routeAlgo instanceof BatchedLeastCostPathCalculator batch) {
+			batch.calculateRequests();
+		}
+	}
+
+	/**
+	 * Forgets the routes of all prepared requests.
+	 */
+	public void clearPreparedRoutes() {
+		if (this.routeAlgo instanceof BatchedLeastCostPathCalculator batch) {
+			batch.clearRequests();
+		}
+	}
+
+	public boolean isRoutingInBatches() {
+		return this.routeAlgo instanceof BatchedLeastCostPathCalculator;
+	}
+
+	private Link getLink(Facility facility) {
+		Gbl.assertNotNull(facility);
+		Link link = this.network.getLinks().get(facility.getLinkId());
+		if ( link==null ) {
+			Gbl.assertNotNull( facility.getCoord() ) ;
+			link = NetworkUtils.getNearestLink( network, facility.getCoord()) ;
+		}
+		Gbl.assertNotNull(link);
+		return link;
+	}
+
 	@Override
 	public String toString() {
 		return "[NetworkRoutingModule: mode="+this.mode+"]";
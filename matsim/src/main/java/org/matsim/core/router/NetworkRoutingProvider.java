@@ -34,8 +34,11 @@ import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.speedy.BatchedLeastCostPathCalculator;
+import org.matsim.core.router.speedy.SpeedyGraph;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.timing.TimeInterpretation;
 
@@ -44,6 +47,7 @@ import com.google.inject.name.Named;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class NetworkRoutingProvider implements Provider<RoutingModule>{
 	private static final Logger log = LogManager.getLogger( NetworkRoutingProvider.class ) ;
@@ -91,6 +95,7 @@ public class NetworkRoutingProvider implements Provider<RoutingModule>{
 	}
 
 	private final String mode;
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
 
 	@Override
 	public RoutingModule get() {
@@ -122,10 +127,11 @@ public class NetworkRoutingProvider implements Provider<RoutingModule>{
 		if (travelTime == null) {
 			throw new RuntimeException("No TravelTime bound for mode "+routingMode+".");
 		}
+		TravelDisutility travelDisutility = travelDisutilityFactory.createTravelDisutility(travelTime);
 		LeastCostPathCalculator routeAlgo =
 				leastCostPathCalculatorFactory.createPathCalculator(
 						filteredNetwork,
-						travelDisutilityFactory.createTravelDisutility(travelTime),
+						travelDisutility,
 						travelTime);
 
 		// the following again refers to the (transport)mode, since it will determine the mode of the leg on the network:
@@ -147,6 +153,11 @@ public class NetworkRoutingProvider implements Provider<RoutingModule>{
 			}
 
 		} else {
+			if ( plansCalcRouteConfigGroup.isBatchedNetworkRouting() && plansCalcRouteConfigGroup.getRoutingRandomness() == 0. ) {
+				// (the routes of a batch are computed without person, see ConfigConsistencyCheckerImpl)
+				SpeedyGraph graph = this.graphs.computeIfAbsent(filteredNetwork, SpeedyGraph::new);
+				routeAlgo = new BatchedLeastCostPathCalculator(graph, travelTime, travelDisutility, routeAlgo);
+			}
 			return DefaultRoutingModules.createPureNetworkRouter(mode, populationFactory, filteredNetwork, routeAlgo);
 		}
 	}
@@ -30,6 +30,7 @@ import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.Config;
 import org.matsim.core.population.algorithms.PersonAlgorithm;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.population.algorithms.PlanBatchAlgorithm;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.TripStructureUtils.Trip;
 import org.matsim.core.utils.timing.TimeInterpretation;
@@ -38,16 +39,23 @@ import org.matsim.facilities.ActivityFacilities;
 import org.matsim.facilities.FacilitiesUtils;
 import org.matsim.vehicles.Vehicle;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * {@link PlanAlgorithm} responsible for routing all trips of a plan.
  * Activity times are not updated, even if the previous trip arrival time
  * is after the activity end time.
+ * <p></p>
+ * When several plans are routed together, and some of the {@link NetworkRoutingModule}s route in batches,
+ * the network trips of all plans are announced to these modules first, with the departure times
+ * estimated from the old trips.  So the routes from the same link in the same time bin can be computed
+ * together.
  *
  * @author thibautd
  */
-public final class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
+public final class PlanRouter implements PlanBatchAlgorithm, PersonAlgorithm {
 	private static final Logger log = LogManager.getLogger( PlanRouter.class ) ;
 	private final TripRouter tripRouter;
 	private final ActivityFacilities facilities;
@@ -111,6 +119,66 @@ public final class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
 		}
 	}
 
+	/**
+	 * Routes the plans like {@link #run(Plan)}, but lets the {@link NetworkRoutingModule}s which route in batches
+	 * compute the network routes of the plans together first.  These routes are an approximation:  the routes of trips
+	 * from the same link in the same time bin are computed for the earliest departure of the bin and without person,
+	 * see {@link org.matsim.core.router.speedy.BatchedLeastCostPathCalculator}.  They are the same as the routes computed
+	 * by {@link #run(Plan)} only if the travel disutilities do not change within a time bin and do not depend on the
+	 * person.
+	 */
+	@Override
+	public void run(final List<Plan> plans) {
+		Set<NetworkRoutingModule> batchingModules = new LinkedHashSet<>();
+		for (String mode : tripRouter.getRegisteredModes()) {
+			if (tripRouter.getRoutingModule(mode) instanceof NetworkRoutingModule module && module.isRoutingInBatches()) {
+				batchingModules.add(module);
+			}
+		}
+		if (!batchingModules.isEmpty()) {
+			for (Plan plan : plans) {
+				prepareRoutes(plan, batchingModules);
+			}
+			for (NetworkRoutingModule module : batchingModules) {
+				module.calculatePreparedRoutes();
+			}
+		}
+		for (Plan plan : plans) {
+			run(plan);
+		}
+		for (NetworkRoutingModule module : batchingModules) {
+			module.clearPreparedRoutes();
+		}
+		// the plans of a worker are usually routed in one batch, so the worker is done with routing
+		tripRouter.releaseRoutingModules();
+	}
+
+	private void prepareRoutes(final Plan plan, final Set<NetworkRoutingModule> batchingModules) {
+		TimeTracker timeTracker = new TimeTracker(timeInterpretation);
+
+		for (Trip oldTrip : TripStructureUtils.getTrips( plan )) {
+			if (timeTracker.getTime().isUndefined() || timeTracker.addActivity(oldTrip.getOriginActivity()).isUndefined()) {
+				return;
+			}
+			RoutingModule module = tripRouter.getRoutingModule( TripStructureUtils.identifyMainMode( oldTrip.getTripElements() ) );
+			if (batchingModules.contains(module)) {
+				((NetworkRoutingModule) module).prepareRoute(DefaultRoutingRequest.of(
+						FacilitiesUtils.toFacility(oldTrip.getOriginActivity(), facilities),
+						FacilitiesUtils.toFacility(oldTrip.getDestinationActivity(), facilities),
+						timeTracker.getTime().seconds(),
+						plan.getPerson(),
+						oldTrip.getTripAttributes()));
+			}
+			// the old trip is only an estimate of the new one, and it might not even have travel times
+			for (PlanElement pe : oldTrip.getTripElements()) {
+				if (timeTracker.getTime().isUndefined()) {
+					return;
+				}
+				timeTracker.addElement(pe);
+			}
+		}
+	}
+
 	/**
 	 * If the old trip had vehicles set in its network routes, and it used a single vehicle,
 	 * and if the new trip does not come with vehicles set in its network routes,
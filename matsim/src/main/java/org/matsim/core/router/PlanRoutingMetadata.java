@@ -0,0 +1,118 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PlanRoutingMetadata.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.api.core.v01.population.Plan;
+
+/**
+ * Records in which iteration a plan was last routed and last validated (i.e. checked by
+ * {@link org.matsim.core.population.algorithms.PersonPrepareForSim}), so that unchanged plans do not need to be
+ * looked at again.
+ * <br>
+ * The metadata is stored in the custom attributes of the plan, so it is not written to files.  When a plan is copied
+ * with {@link org.matsim.core.population.PopulationUtils#copyFromTo(Plan, Plan)}, e.g. by a replanning strategy, only the
+ * iteration in which it was routed is copied, as the routes are copied as they are.  The copy is validated again.  Code
+ * which modifies a plan in place must call {@link #reset(Plan)}.
+ */
+public final class PlanRoutingMetadata {
+
+	private static final String KEY = PlanRoutingMetadata.class.getName();
+
+	public static final int UNDEFINED_ITERATION = Integer.MIN_VALUE;
+
+	private int routedIteration = UNDEFINED_ITERATION;
+	private int validatedIteration = UNDEFINED_ITERATION;
+
+	private PlanRoutingMetadata() {
+	}
+
+	/**
+	 * @return the metadata of the plan, or <code>null</code> if the plan was neither routed nor validated since it was
+	 * created or last reset.
+	 */
+	public static PlanRoutingMetadata get(Plan plan) {
+		return (PlanRoutingMetadata) plan.getCustomAttributes().get(KEY);
+	}
+
+	private static PlanRoutingMetadata getOrCreate(Plan plan) {
+		PlanRoutingMetadata metadata = get(plan);
+		if (metadata == null) {
+			metadata = new PlanRoutingMetadata();
+			plan.getCustomAttributes().put(KEY, metadata);
+		}
+		return metadata;
+	}
+
+	public static void markRouted(Plan plan, int iteration) {
+		getOrCreate(plan).routedIteration = iteration;
+	}
+
+	public static void markValidated(Plan plan, int iteration) {
+		getOrCreate(plan).validatedIteration = iteration;
+	}
+
+	public static boolean isValidated(Plan plan) {
+		PlanRoutingMetadata metadata = get(plan);
+		return metadata != null && metadata.validatedIteration != UNDEFINED_ITERATION;
+	}
+
+	/**
+	 * Sets the metadata of a copy of a plan:  the copy has the same routes, but was not validated yet.
+	 */
+	public static void copyRoutedIteration(Plan from, Plan to) {
+		reset(to);
+		PlanRoutingMetadata metadata = get(from);
+		if (metadata != null && metadata.routedIteration != UNDEFINED_ITERATION) {
+			markRouted(to, metadata.routedIteration);
+		}
+	}
+
+	/**
+	 * Removes the metadata, so that the plan is validated again before the next mobsim.
+	 */
+	public static void reset(Plan plan) {
+		plan.getCustomAttributes().remove(KEY);
+	}
+
+	/**
+	 * @return the iteration in which the routes of the plan were last computed, or {@link #UNDEFINED_ITERATION}.
+	 */
+	public int getRoutedIteration() {
+		return this.routedIteration;
+	}
+
+	/**
+	 * @return the iteration whose mobsim provided the travel times the routes are based on, i.e. the iteration before
+	 * {@link #getRoutedIteration()}.  If this is before the first iteration, the routes are based on free speed travel
+	 * times.
+	 */
+	public int getTravelTimesIteration() {
+		return this.routedIteration == UNDEFINED_ITERATION ? UNDEFINED_ITERATION : this.routedIteration - 1;
+	}
+
+	/**
+	 * @return the iteration in which the plan was last validated, or {@link #UNDEFINED_ITERATION}.
+	 */
+	public int getValidatedIteration() {
+		return this.validatedIteration;
+	}
+
+}
@@ -22,10 +22,14 @@ package org.matsim.core.router;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
@@ -63,7 +67,11 @@ import com.google.common.base.Preconditions;
 public final class TripRouter implements MatsimExtensionPoint {
 	private static final Logger log = LogManager.getLogger(TripRouter.class );
 
-	private final Map<String, RoutingModule> routingModules = new HashMap<>();
+	private final Map<String, Provider<RoutingModule>> routingModuleProviders = new LinkedHashMap<>();
+	private final Set<String> sharedModes = new HashSet<>();
+	// not a ThreadLocal, so the modules are gone together with the router even if the threads live on
+	private final Map<Thread, Map<String, RoutingModule>> routingModulesPerThread = new ConcurrentHashMap<>();
+	private final Queue<Map<String, RoutingModule>> releasedRoutingModules = new ConcurrentLinkedQueue<>();
 	private final FallbackRoutingModule fallbackRoutingModule;
 
 	private Config config;
@@ -80,11 +88,7 @@ public final class TripRouter implements MatsimExtensionPoint {
 		public Builder setRoutingModule(String mainMode, RoutingModule routingModule ) {
 			// the initial API accepted routing modules.  injection, however, takes routing module providers.  (why?)
 			// trying to bring these two into line here.  maybe some other approach would be preferred, don't know.  kai, jun'18
-			this.routingModuleProviders.put( mainMode, new Provider<RoutingModule>(){
-				@Override public RoutingModule get() {
-					return routingModule ;
-				}
-			} ) ;
+			this.routingModuleProviders.put( mainMode, new InstanceProvider( routingModule ) ) ;
 			return this ;
 		}
 		public TripRouter build() {
@@ -92,6 +96,22 @@ public final class TripRouter implements MatsimExtensionPoint {
 		}
 	}
 
+	/**
+	 * Provides the same routing module to all threads.  As the module is not known to be thread-safe, the calls to it
+	 * are synchronized.
+	 */
+	private static final class InstanceProvider implements Provider<RoutingModule> {
+		private final RoutingModule routingModule;
+
+		private InstanceProvider(RoutingModule routingModule) {
+			this.routingModule = routingModule;
+		}
+
+		@Override public RoutingModule get() {
+			return this.routingModule;
+		}
+	}
+
 //	@Deprecated // use the Builder instead.  kai, oct'17
 //	public TripRouter() {}
 //	// yyyyyy I guess this is meant as a way to create the trip router without injection, and to set its internals afterwards.  But
@@ -100,17 +120,55 @@ public final class TripRouter implements MatsimExtensionPoint {
 //	// I would expect a Builder instead.
 //	// kai, sep'16
 
+	/**
+	 * Every thread routes with its own routing modules, which are created with the given providers the first time a
+	 * thread needs them.  The data the modules are based on (e.g. networks, landmarks or transit schedules) is shared by
+	 * the providers, so a thread only adds the working memory of its routing algorithms.  Thus, a single instance can be
+	 * used by multiple threads concurrently without locking.  Only modules that were set directly with
+	 * {@link Builder#setRoutingModule(String, RoutingModule)} are shared by all threads, calls to them are
+	 * synchronized.
+	 * <br>
+	 * The modules are kept until the thread calls {@link #releaseRoutingModules()}, or until the router is not used
+	 * anymore.
+	 */
 	@Inject
 	TripRouter( Map<String, Provider<RoutingModule>> routingModuleProviders, Config config,
 			FallbackRoutingModule fallbackRoutingModule ) {
 		this.fallbackRoutingModule = fallbackRoutingModule;
 
 		for (Map.Entry<String, Provider<RoutingModule>> entry : routingModuleProviders.entrySet()) {
-			setRoutingModule(entry.getKey(), entry.getValue().get());
+			this.routingModuleProviders.put(entry.getKey(), entry.getValue());
+			if (entry.getValue() instanceof InstanceProvider) {
+				this.sharedModes.add(entry.getKey());
+			}
 		}
 		this.config = config ;
 	}
 
+	private Map<String, RoutingModule> getRoutingModules() {
+		// only the thread itself adds or removes its entry, so there is no race here
+		Map<String, RoutingModule> modules = this.routingModulesPerThread.get(Thread.currentThread());
+		if (modules == null) {
+			modules = this.releasedRoutingModules.poll();
+			if (modules == null) {
+				modules = createRoutingModules();
+			}
+			this.routingModulesPerThread.put(Thread.currentThread(), modules);
+		}
+		return modules;
+	}
+
+	private Map<String, RoutingModule> createRoutingModules() {
+		Map<String, RoutingModule> modules = new HashMap<>();
+		// the providers were written for single-threaded use
+		synchronized (this.routingModuleProviders) {
+			for (Map.Entry<String, Provider<RoutingModule>> entry : this.routingModuleProviders.entrySet()) {
+				modules.put(entry.getKey(), entry.getValue().get());
+			}
+		}
+		return modules;
+	}
+
 	// /////////////////////////////////////////////////////////////////////////
 	// constructors
 	// /////////////////////////////////////////////////////////////////////////
@@ -118,27 +176,28 @@ public final class TripRouter implements MatsimExtensionPoint {
 	// /////////////////////////////////////////////////////////////////////////
 	// setters / getters
 	// /////////////////////////////////////////////////////////////////////////
+
 	/**
-	 * Sets the {@link RoutingModule} to use for the given (main) mode.
-	 * @param mainMode the mode
-	 * @param module the module to use with this mode
-	 * @return the previously registered {@link RoutingModule} for this mode if any, null otherwise.
+	 * @return the routing module of the calling thread for the given mode
 	 */
-	@Deprecated // use the Builder instead.  kai, oct'17
-	/* package-private */ RoutingModule setRoutingModule(
-			final String mainMode,
-			final RoutingModule module) {
-		RoutingModule old = routingModules.put( mainMode , module );
-
-		return old;
+	public RoutingModule getRoutingModule(final String mainMode) {
+		return getRoutingModules().get( mainMode );
 	}
 
-	public RoutingModule getRoutingModule(final String mainMode) {
-		return routingModules.get( mainMode );
+	/**
+	 * Hands the routing modules of the calling thread over to the next thread which needs modules.  To be called by a
+	 * worker thread once it is done with routing, so the router does not keep modules for threads which do not use it
+	 * anymore.  Routes prepared in modules which route in batches must have been used before.
+	 */
+	public void releaseRoutingModules() {
+		Map<String, RoutingModule> modules = this.routingModulesPerThread.remove(Thread.currentThread());
+		if (modules != null) {
+			this.releasedRoutingModules.add(modules);
+		}
 	}
 
 	public Set<String> getRegisteredModes() {
-		return Collections.unmodifiableSet( routingModules.keySet() );
+		return Collections.unmodifiableSet( routingModuleProviders.keySet() );
 	}
 
 	// /////////////////////////////////////////////////////////////////////////
@@ -157,20 +216,21 @@ public final class TripRouter implements MatsimExtensionPoint {
 	 * @throws UnknownModeException if no RoutingModule is registered for the
 	 * given mode.
 	 */
-	public synchronized List<? extends PlanElement> calcRoute(
+	public List<? extends PlanElement> calcRoute(
 			final String mainMode,
 			final Facility fromFacility,
 			final Facility toFacility,
 			final double departureTime,
 			final Person person,
 			final Attributes routingAttributes) {
-		// I need this "synchronized" since I want mobsim agents to be able to call this during the mobsim.  So when the
-		// mobsim is multi-threaded, multiple agents might call this here at the same time.  kai, nov'17
+		// This used to be "synchronized" since mobsim agents call this during the mobsim, and when the mobsim is
+		// multi-threaded, multiple agents might call this here at the same time.  Now every thread has its own routing
+		// modules instead, see getRoutingModules().
 
 		Gbl.assertNotNull( fromFacility );
 		Gbl.assertNotNull( toFacility );
 
-		RoutingModule module = routingModules.get( mainMode );
+		RoutingModule module = getRoutingModule( mainMode );
 
 		if (module != null) {
 			RoutingRequest request = DefaultRoutingRequest.of(
@@ -180,7 +240,14 @@ public final class TripRouter implements MatsimExtensionPoint {
 					person,
 					routingAttributes);
 
-			List<? extends PlanElement> trip = module.calcRoute(request);
+			List<? extends PlanElement> trip;
+			if (this.sharedModes.contains(mainMode)) {
+				synchronized (module) {
+					trip = module.calcRoute(request);
+				}
+			} else {
+				trip = module.calcRoute(request);
+			}
 
 			if ( trip == null ) {
 				trip = fallbackRoutingModule.calcRoute(request) ;
@@ -191,7 +258,7 @@ public final class TripRouter implements MatsimExtensionPoint {
 			return trip;
 		}
 
-		throw new UnknownModeException( "unregistered main mode |"+mainMode+"|: does not pertain to "+routingModules.keySet() );
+		throw new UnknownModeException( "unregistered main mode |"+mainMode+"|: does not pertain to "+routingModuleProviders.keySet() );
 	}
 
 	public static class UnknownModeException extends RuntimeException {
@@ -0,0 +1,187 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A least cost path calculator that answers many requests from the same start node with a single one-to-many search.
+ *
+ * The expected requests are first registered with {@link #addRequest(Node, Node, double)}.  They are grouped by start
+ * node and departure time bin.  {@link #calculateRequests()} then runs one {@link LeastCostPathTree} search per group
+ * with enough different end nodes, which stops as soon as all end nodes of the group are reached.  As such a search
+ * is not goal-directed, it is only worth it for large groups:  on a grid with 10'000 nodes and random end nodes, it
+ * needed about 40 end nodes to be faster than a {@link SpeedyALT} query per request.  Afterwards,
+ * {@link #calcLeastCostPath(Node, Node, double, Person, Vehicle)} returns the path from the search if there is one for
+ * the start node, end node and time bin of the request, and asks the delegate otherwise.  So the requests do not have
+ * to be known exactly in advance:  a wrong guess only means that the delegate has to compute the path.
+ *
+ * The search of a group starts at the earliest departure time of the group and computes the travel costs without
+ * person and vehicle, as it is shared by all requests of the group.  The paths are thus an approximation:  they are
+ * the least cost paths of the requests only if the travel disutilities do not change within a time bin and do not
+ * depend on the person (e.g. by a randomized travel disutility, or by person-specific marginal utilities).  The travel
+ * time and the travel cost of the returned path are computed along the route with the actual departure time, person
+ * and vehicle.
+ *
+ * This implementation is not thread-safe.
+ */
+public class BatchedLeastCostPathCalculator implements LeastCostPathCalculator {
+
+	/**
+	 * The default size of the departure time bins in seconds.
+	 */
+	public static final double DEFAULT_TIME_BIN_SIZE = 900;
+
+	/**
+	 * The default minimum number of different end nodes for which a group is computed with one search.
+	 */
+	public static final int DEFAULT_MIN_GROUP_SIZE = 40;
+
+	private final SpeedyGraph graph;
+	private final TravelTime tt;
+	private final TravelDisutility td;
+	private final LeastCostPathCalculator delegate;
+	private final double timeBinSize;
+	private final int minGroupSize;
+	private final LeastCostPathTree tree;
+	private final Map<Long, Group> groups = new HashMap<>();
+
+	public BatchedLeastCostPathCalculator(SpeedyGraph graph, TravelTime tt, TravelDisutility td, LeastCostPathCalculator delegate) {
+		this(graph, tt, td, delegate, DEFAULT_TIME_BIN_SIZE, DEFAULT_MIN_GROUP_SIZE);
+	}
+
+	/**
+	 * @param delegate computes the paths that are not computed in a group
+	 * @param timeBinSize the size of the departure time bins in seconds
+	 * @param minGroupSize the minimum number of different end nodes for which a group is computed with one search
+	 */
+	public BatchedLeastCostPathCalculator(SpeedyGraph graph, TravelTime tt, TravelDisutility td, LeastCostPathCalculator delegate,
+			double timeBinSize, int minGroupSize) {
+		this.graph = graph;
+		this.tt = tt;
+		this.td = td;
+		this.delegate = delegate;
+		this.timeBinSize = timeBinSize;
+		this.minGroupSize = Math.max(1, minGroupSize);
+		this.tree = new LeastCostPathTree(graph, tt, td);
+	}
+
+	/**
+	 * Registers a request that is expected to be asked for later.
+	 */
+	public void addRequest(Node startNode, Node endNode, double departureTime) {
+		int startNodeIndex = startNode.getId().index();
+		Group group = this.groups.computeIfAbsent(getKey(startNodeIndex, departureTime), k -> new Group(startNodeIndex, departureTime));
+		group.addEndNode(endNode.getId().index(), departureTime);
+	}
+
+	/**
+	 * Computes the paths of all registered requests that have not been computed yet.
+	 */
+	public void calculateRequests() {
+		for (Group group : this.groups.values()) {
+			if (group.links == null) {
+				group.calculate();
+			}
+		}
+	}
+
+	/**
+	 * Forgets all registered requests and their paths.
+	 */
+	public void clearRequests() {
+		this.groups.clear();
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		Group group = this.groups.get(getKey(startNode.getId().index(), startTime));
+		if (group != null && group.links != null) {
+			int pos = Arrays.binarySearch(group.endNodes, endNode.getId().index());
+			if (pos >= 0 && group.links[pos] != null) {
+				return constructPath(startNode, group.links[pos], startTime, person, vehicle);
+			}
+		}
+		return this.delegate.calcLeastCostPath(startNode, endNode, startTime, person, vehicle);
+	}
+
+	private long getKey(int startNodeIndex, double time) {
+		long timeBin = (long) Math.floor(time / this.timeBinSize);
+		return (timeBin << 32) | startNodeIndex;
+	}
+
+	private Path constructPath(Node startNode, int[] linkIndices, double startTime, Person person, Vehicle vehicle) {
+		List<Node> nodes = new ArrayList<>(linkIndices.length + 1);
+		List<Link> links = new ArrayList<>(linkIndices.length);
+		nodes.add(startNode);
+		double time = startTime;
+		double travelCost = 0;
+		for (int linkIdx : linkIndices) {
+			Link link = this.graph.getLink(linkIdx);
+			links.add(link);
+			nodes.add(link.getToNode());
+			travelCost += this.td.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.tt.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, travelCost);
+	}
+
+	private final class Group {
+		private final int startNodeIndex;
+		private double departureTime;
+		private int[] endNodes = new int[4];
+		private int endNodeCount = 0;
+		private int[][] links = null;
+
+		Group(int startNodeIndex, double departureTime) {
+			this.startNodeIndex = startNodeIndex;
+			this.departureTime = departureTime;
+		}
+
+		void addEndNode(int endNodeIndex, double departureTime) {
+			if (this.endNodeCount == this.endNodes.length) {
+				this.endNodes = Arrays.copyOf(this.endNodes, this.endNodes.length * 2);
+			}
+			this.endNodes[this.endNodeCount++] = endNodeIndex;
+			this.departureTime = Math.min(this.departureTime, departureTime);
+			this.links = null;
+		}
+
+		void calculate() {
+			this.endNodes = Arrays.stream(this.endNodes, 0, this.endNodeCount).distinct().sorted().toArray();
+			this.endNodeCount = this.endNodes.length;
+			this.links = new int[this.endNodes.length][];
+			if (this.endNodes.length < BatchedLeastCostPathCalculator.this.minGroupSize) {
+				// a few searches are better done by the (usually goal-directed) delegate
+				return;
+			}
+			LeastCostPathTree tree = BatchedLeastCostPathCalculator.this.tree;
+			tree.calculate(this.startNodeIndex, this.departureTime, null, null, new LeastCostPathTree.ToNodesStopCriterion(this.endNodes));
+			for (int i = 0; i < this.endNodes.length; i++) {
+				int nodeIdx = this.endNodes[i];
+				if (nodeIdx != this.startNodeIndex && tree.getComingFromLink(nodeIdx) < 0) {
+					continue; // not reachable
+				}
+				int length = 0;
+				for (int n = nodeIdx; n != this.startNodeIndex; n = tree.getComingFrom(n)) {
+					length++;
+				}
+				int[] path = new int[length];
+				for (int n = nodeIdx; n != this.startNodeIndex; n = tree.getComingFrom(n)) {
+					path[--length] = tree.getComingFromLink(n);
+				}
+				this.links[i] = path;
+			}
+		}
+	}
+}
@@ -28,6 +28,10 @@ import java.util.List;
  * so when accessing the travelcosts to/from one landmark basically already loads the values of all landmarks in
  * the CPU cache, making the calculation for the remaining landmarks very fast.
  *
+ * With {@link SpeedyTDALTData}, the landmarks depend on the departure time, giving better estimations in the
+ * congested peak.  Routes for which the time-dependent landmarks are not a valid lower bound are computed again with
+ * the static landmarks.
+ *
  * This implementation is not thread-safe. In the case of multi-threading, every thread should use
  * a separate instance. (But the used {@link SpeedyALTData} is thread-safe and can be shared by multiple
  * instances).
@@ -39,7 +43,10 @@ public class SpeedyALT implements LeastCostPathCalculator {
 	private final static Logger LOG = LogManager.getLogger(SpeedyALT.class);
 
 	private final SpeedyGraph graph;
-	private final SpeedyALTData astarData;
+	private final SpeedyALTData staticData;
+	private final SpeedyTDALTData timeDependentData;
+	private SpeedyALTData astarData;
+	private boolean exceededMaxCost = false;
 	private final TravelTime tt;
 	private final TravelDisutility td;
 	private final double[] data; // 3 entries per node: cost to node, time, distance
@@ -51,7 +58,17 @@ public class SpeedyALT implements LeastCostPathCalculator {
 	private final DAryMinHeap pq;
 
 	public SpeedyALT(SpeedyALTData astarData, TravelTime tt, TravelDisutility td) {
+		this(astarData, null, tt, td);
+	}
+
+	SpeedyALT(SpeedyTDALTData timeDependentData, TravelTime tt, TravelDisutility td) {
+		this(timeDependentData.staticData, timeDependentData, tt, td);
+	}
+
+	private SpeedyALT(SpeedyALTData astarData, SpeedyTDALTData timeDependentData, TravelTime tt, TravelDisutility td) {
 		this.graph = astarData.graph;
+		this.staticData = astarData;
+		this.timeDependentData = timeDependentData;
 		this.astarData = astarData;
 		this.tt = tt;
 		this.td = td;
@@ -86,6 +103,26 @@ public class SpeedyALT implements LeastCostPathCalculator {
 
 	@Override
 	public Path calcLeastCostPath(Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		if (this.timeDependentData != null) {
+			SpeedyALTData landmarks = this.timeDependentData.getLandmarks(startTime);
+			if (landmarks != this.staticData) {
+				// the time-dependent landmarks are only a valid lower bound for routes that end within their time window
+				double maxCost = this.timeDependentData.getMaxTravelCost(startTime);
+				Path path = calcLeastCostPath(landmarks, maxCost, startNode, endNode, startTime, person, vehicle);
+				if (path != null ? path.travelCost <= maxCost : !this.exceededMaxCost) {
+					return path;
+				}
+			}
+		}
+		return calcLeastCostPath(this.staticData, Double.POSITIVE_INFINITY, startNode, endNode, startTime, person, vehicle);
+	}
+
+	/**
+	 * @param maxCost the search is stopped and <code>null</code> is returned as soon as a node with higher costs is reached
+	 */
+	private Path calcLeastCostPath(SpeedyALTData landmarks, double maxCost, Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		this.astarData = landmarks;
+		this.exceededMaxCost = false;
 		this.currentIteration++;
 		if (this.currentIteration == Integer.MAX_VALUE) {
 			// reset iteration as we overflow
@@ -121,6 +158,10 @@ public class SpeedyALT implements LeastCostPathCalculator {
 
 			double currTime = getTimeRaw(nodeIdx);
 			double currCost = getCost(nodeIdx);
+			if (currCost > maxCost) {
+				this.exceededMaxCost = true;
+				return null;
+			}
 			double currDistance = getDistance(nodeIdx);
 
 			this.outLI.reset(nodeIdx);
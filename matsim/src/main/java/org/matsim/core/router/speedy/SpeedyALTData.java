@@ -7,6 +7,14 @@ import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.router.speedy.SpeedyGraph.LinkIterator;
 import org.matsim.core.router.util.TravelDisutility;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,6 +26,11 @@ import java.util.concurrent.Future;
 /**
  * Preprocessed data for the ALT algorithm, see {@link SpeedyALT}.
  *
+ * With {@link #load(SpeedyGraph, int, double[], Path)}, the landmarks are additionally stored in a cache file, named
+ * after a hash of the graph and the minimal travel costs of its links.  Later runs with the same network and travel
+ * costs read this file (memory-mapped) instead of computing the landmarks again.  The data is still copied to the
+ * heap, as queries on a memory-mapped buffer were about 10% slower than on an array.
+ *
  * This class is thread-safe and can safely be used by multiple threads.
  *
  * @author mrieser / Simunto, sponsored by SBB Swiss Federal Railways
@@ -26,18 +39,26 @@ class SpeedyALTData {
 
 	private final static Logger LOG = LogManager.getLogger(SpeedyALTData.class);
 
+	private final static int CACHE_FILE_MAGIC = 0x53414c54; // "SALT"
+	private final static int CACHE_FILE_VERSION = 1;
+	private final static int CACHE_FILE_HEADER_SIZE = 4 + 4 + 4 + 4 + 8 + 8;
+
 	final SpeedyGraph graph;
 	private final int landmarksCount;
-	private final TravelDisutility travelCosts;
+	private final double[] minLinkCosts;
 	private final int[] landmarksNodeIndices;
 	private final double[] nodesData; // for each node: 2 values per landmark
 	private final int[] deadendData;
 	private final double minTravelCostPerLength;
 
 	public SpeedyALTData(SpeedyGraph graph, int landmarksCount, TravelDisutility travelCosts) {
+		this(graph, landmarksCount, getMinLinkCosts(graph, travelCosts));
+	}
+
+	private SpeedyALTData(SpeedyGraph graph, int landmarksCount, double[] minLinkCosts) {
 		this.graph = graph;
 		this.landmarksCount = landmarksCount;
-		this.travelCosts = travelCosts;
+		this.minLinkCosts = minLinkCosts;
 		this.landmarksNodeIndices = new int[landmarksCount];
 		this.nodesData = new double[graph.nodeCount * (landmarksCount * 2)];
 		this.deadendData = new int[graph.nodeCount];
@@ -47,6 +68,163 @@ class SpeedyALTData {
 		this.minTravelCostPerLength = this.calcMinTravelCostPerLength();
 	}
 
+	/**
+	 * Creates landmarks data for other minimal travel costs, using the same landmarks and dead ends as the given data.
+	 * Only the travel costs from and to the landmarks are computed again.
+	 */
+	SpeedyALTData(SpeedyALTData data, double[] minLinkCosts) {
+		this.graph = data.graph;
+		this.landmarksCount = data.landmarksCount;
+		this.minLinkCosts = minLinkCosts;
+		this.landmarksNodeIndices = data.landmarksNodeIndices;
+		this.nodesData = new double[this.graph.nodeCount * (this.landmarksCount * 2)];
+		this.deadendData = data.deadendData;
+
+		this.calcTrees();
+		this.minTravelCostPerLength = this.calcMinTravelCostPerLength();
+	}
+
+	private SpeedyALTData(SpeedyGraph graph, int landmarksCount, int[] landmarksNodeIndices, double[] nodesData, int[] deadendData, double minTravelCostPerLength) {
+		this.graph = graph;
+		this.landmarksCount = landmarksCount;
+		this.minLinkCosts = null;
+		this.landmarksNodeIndices = landmarksNodeIndices;
+		this.nodesData = nodesData;
+		this.deadendData = deadendData;
+		this.minTravelCostPerLength = minTravelCostPerLength;
+	}
+
+	/**
+	 * Returns the landmarks data from the cache file in the given directory if there is one for the given graph and
+	 * travel costs, or computes it and writes the cache file otherwise.  Without a directory, the data is just computed.
+	 *
+	 * @param minLinkCosts the minimal travel cost for every link index, see {@link #getMinLinkCosts(SpeedyGraph, TravelDisutility)}
+	 */
+	static SpeedyALTData load(SpeedyGraph graph, int landmarksCount, double[] minLinkCosts, Path cacheDirectory) {
+		if (cacheDirectory == null || !fitsIntoBuffer(graph, landmarksCount)) {
+			// a single buffer, and thus the cache file, is limited to 2 GB
+			return new SpeedyALTData(graph, landmarksCount, minLinkCosts);
+		}
+		long hash = calcHash(graph, landmarksCount, minLinkCosts);
+		Path file = cacheDirectory.resolve("landmarks-" + Long.toHexString(hash) + ".bin");
+		if (Files.exists(file)) {
+			try {
+				SpeedyALTData data = readCacheFile(graph, landmarksCount, hash, file);
+				if (data != null) {
+					LOG.info("read landmarks from " + file);
+					return data;
+				}
+				LOG.warn("landmarks in " + file + " do not match the network, they are calculated again.");
+			} catch (IOException e) {
+				LOG.warn("could not read landmarks from " + file + ", they are calculated again.", e);
+			}
+		}
+		SpeedyALTData data = new SpeedyALTData(graph, landmarksCount, minLinkCosts);
+		try {
+			data.writeCacheFile(hash, file);
+		} catch (IOException e) {
+			LOG.warn("could not write landmarks to " + file, e);
+		}
+		return data;
+	}
+
+	/**
+	 * @return the minimal travel cost for every link index.  Two travel disutilities with the same minimal costs result in
+	 * the same landmarks data.
+	 */
+	static double[] getMinLinkCosts(SpeedyGraph graph, TravelDisutility travelCosts) {
+		double[] minLinkCosts = new double[graph.linkCount];
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			Link link = graph.getLink(linkIdx);
+			if (link != null) {
+				minLinkCosts[linkIdx] = travelCosts.getLinkMinimumTravelDisutility(link);
+			}
+		}
+		return minLinkCosts;
+	}
+
+	private static boolean fitsIntoBuffer(SpeedyGraph graph, int landmarksCount) {
+		return (long) graph.nodeCount * (landmarksCount * 2) * Double.BYTES + CACHE_FILE_HEADER_SIZE
+				+ (long) (landmarksCount + graph.nodeCount) * Integer.BYTES <= Integer.MAX_VALUE;
+	}
+
+	private static long calcHash(SpeedyGraph graph, int landmarksCount, double[] minLinkCosts) {
+		long hash = 31L * graph.nodeCount + graph.linkCount;
+		hash = 31 * hash + landmarksCount;
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			Link link = graph.getLink(linkIdx);
+			if (link != null) {
+				hash = 31 * hash + link.getId().toString().hashCode();
+				hash = 31 * hash + link.getFromNode().getId().index();
+				hash = 31 * hash + link.getToNode().getId().index();
+				hash = 31 * hash + Double.doubleToLongBits(link.getLength());
+				hash = 31 * hash + Double.doubleToLongBits(minLinkCosts[linkIdx]);
+			}
+		}
+		return hash;
+	}
+
+	private static SpeedyALTData readCacheFile(SpeedyGraph graph, int landmarksCount, long hash, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.nativeOrder());
+			if (buffer.remaining() < CACHE_FILE_HEADER_SIZE
+					|| buffer.getInt() != CACHE_FILE_MAGIC
+					|| buffer.getInt() != CACHE_FILE_VERSION
+					|| buffer.getInt() != graph.nodeCount
+					|| buffer.getInt() != landmarksCount
+					|| buffer.getLong() != hash) {
+				return null;
+			}
+			double minTravelCostPerLength = buffer.getDouble();
+			int nodesDataSize = graph.nodeCount * (landmarksCount * 2);
+			if (buffer.remaining() != (landmarksCount + graph.nodeCount) * Integer.BYTES + nodesDataSize * Double.BYTES) {
+				return null;
+			}
+			int[] landmarksNodeIndices = new int[landmarksCount];
+			buffer.asIntBuffer().get(landmarksNodeIndices);
+			buffer.position(buffer.position() + landmarksCount * Integer.BYTES);
+			int[] deadendData = new int[graph.nodeCount];
+			buffer.asIntBuffer().get(deadendData);
+			buffer.position(buffer.position() + graph.nodeCount * Integer.BYTES);
+			double[] nodesData = new double[nodesDataSize];
+			buffer.asDoubleBuffer().get(nodesData);
+			return new SpeedyALTData(graph, landmarksCount, landmarksNodeIndices, nodesData, deadendData, minTravelCostPerLength);
+		}
+	}
+
+	private void writeCacheFile(long hash, Path file) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(CACHE_FILE_HEADER_SIZE + (this.landmarksCount + this.graph.nodeCount) * Integer.BYTES).order(ByteOrder.nativeOrder());
+		header.putInt(CACHE_FILE_MAGIC);
+		header.putInt(CACHE_FILE_VERSION);
+		header.putInt(this.graph.nodeCount);
+		header.putInt(this.landmarksCount);
+		header.putLong(hash);
+		header.putDouble(this.minTravelCostPerLength);
+		for (int nodeIdx : this.landmarksNodeIndices) {
+			header.putInt(nodeIdx);
+		}
+		for (int deadend : this.deadendData) {
+			header.putInt(deadend);
+		}
+		header.flip();
+		ByteBuffer nodesBytes = ByteBuffer.allocateDirect(this.nodesData.length * Double.BYTES).order(ByteOrder.nativeOrder());
+		nodesBytes.asDoubleBuffer().put(this.nodesData);
+
+		// write to a temporary file first, so concurrent runs never see an incomplete file
+		Files.createDirectories(file.getParent());
+		Path tmpFile = Files.createTempFile(file.getParent(), "landmarks", ".tmp");
+		try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			while (nodesBytes.hasRemaining()) {
+				channel.write(nodesBytes);
+			}
+		}
+		Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		LOG.info("wrote landmarks to " + file);
+	}
+
 	private void findDeadEnds() {
 		LOG.info("find dead ends...");
 
@@ -158,6 +336,25 @@ class SpeedyALTData {
 			trees[i * 2 + 1] = executor.submit(() -> calculateTreeBackward(nextLandmark));
 		}
 
+		setNodeData(trees, executor);
+	}
+
+	private void calcTrees() {
+		LOG.info("calculate travel costs from and to landmarks...");
+		if (this.landmarksCount == 0) {
+			return;
+		}
+		Future<double[]>[] trees = new Future[this.landmarksCount * 2];
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int i = 0; i < this.landmarksCount; i++) {
+			int landmark = this.landmarksNodeIndices[i];
+			trees[i * 2] = executor.submit(() -> calculateTreeForward(landmark));
+			trees[i * 2 + 1] = executor.submit(() -> calculateTreeBackward(landmark));
+		}
+		setNodeData(trees, executor);
+	}
+
+	private void setNodeData(Future<double[]>[] trees, ExecutorService executor) {
 		for (int i = 0; i < trees.length; i++) {
 			try {
 				double[] data = trees[i].get();
@@ -175,7 +372,7 @@ class SpeedyALTData {
 		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
 			Link link = this.graph.getLink(linkIdx);
 			if (link != null) {
-				double cost = this.travelCosts.getLinkMinimumTravelDisutility(link) / link.getLength();
+				double cost = this.minLinkCosts[linkIdx] / link.getLength();
 				if (cost < minCost) {
 					minCost = cost;
 				}
@@ -249,7 +446,7 @@ class SpeedyALTData {
 			while (outLI.next()) {
 				int toNode = outLI.getToNodeIndex();
 
-				double newCost = currCost + this.travelCosts.getLinkMinimumTravelDisutility(this.graph.getLink(outLI.getLinkIndex()));
+				double newCost = currCost + this.minLinkCosts[outLI.getLinkIndex()];
 
 				double oldCost = data[toNode];
 				if (Double.isFinite(oldCost)) {
@@ -283,7 +480,7 @@ class SpeedyALTData {
 			while (inLI.next()) {
 				int fromNode = inLI.getFromNodeIndex();
 
-				double newCost = currCost + this.travelCosts.getLinkMinimumTravelDisutility(this.graph.getLink(inLI.getLinkIndex()));
+				double newCost = currCost + this.minLinkCosts[inLI.getLinkIndex()];
 
 				double oldCost = data[fromNode];
 				if (Double.isFinite(oldCost)) {
@@ -1,36 +1,236 @@
 package org.matsim.core.router.speedy;
 
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.controler.IterationCounter;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Creates {@link SpeedyALT} instances.  The landmarks are computed once per network and minimal travel costs of the
+ * links, and shared by all path calculators, threads and iterations.  If a cache directory is given, the landmarks
+ * are also stored there, so later runs can reuse them, see {@link SpeedyALTData}.
+ *
+ * If a marginal cost of time is given, the path calculators additionally use time-dependent landmarks, see
+ * {@link SpeedyTDALTData}.  They are shared by all path calculators of an iteration that use the same static landmarks
+ * and the same kind of travel time, i.e. by all threads, although the routing modules create new travel disutilities
+ * for every replanning.  Every time bin thus gets its landmarks once per iteration, with the travel times of the
+ * previous one.  The landmarks of network and travel cost combinations that were not used in the previous iteration
+ * are dropped.
+ *
+ * Without an {@link IterationCounter}, e.g. outside of the controler, the time-dependent landmarks are only shared by
+ * the path calculators that use the same travel disutility instance, and the static landmarks are kept as long as the
+ * factory.
+ *
  * @author mrieser / Simunto, sponsored by SBB Swiss Federal Railways
  */
+@Singleton
 public class SpeedyALTFactory implements LeastCostPathCalculatorFactory {
 
+	/**
+	 * The size of the time bins in seconds, for each of which time-dependent landmarks are computed separately.
+	 */
+	public static final double TIME_DEPENDENT_LANDMARKS_BIN_SIZE = 1800;
+
+	/**
+	 * The time in seconds after the end of a time bin during which most of its routes are expected to arrive.
+	 */
+	public static final double TIME_DEPENDENT_LANDMARKS_HORIZON = 3600;
+
+	private final Path landmarksCacheDirectory;
+	private final double marginalCostOfTime;
+	private final double travelTimeBinSize;
 	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
-	private final Map<SpeedyGraph, SpeedyALTData> landmarksData = new ConcurrentHashMap<>();
+	private final Map<LandmarksKey, Landmarks> landmarksData = new ConcurrentHashMap<>();
+	private final Map<TimeDependentKey, SpeedyTDALTData> timeDependentData = new ConcurrentHashMap<>();
+	private final Map<TravelDisutility, SpeedyTDALTData> timeDependentDataPerDisutility = Collections.synchronizedMap(new WeakHashMap<>());
+	private final Map<SpeedyALTData, SpeedyTDALTData> latestTimeDependentData = new ConcurrentHashMap<>();
+	private IterationCounter iterationCounter = null;
+	private Integer landmarksIteration = null;
+
+	public SpeedyALTFactory() {
+		this((Path) null);
+	}
+
+	@Inject
+	public SpeedyALTFactory(Config config) {
+		this(config.controler().getLandmarksCacheDirectory() == null ? null : Path.of(config.controler().getLandmarksCacheDirectory()),
+				config.controler().isTimeDependentLandmarks() ? getMinMarginalCostOfTime(config) : 0,
+				config.travelTimeCalculator().getTraveltimeBinSize());
+	}
+
+	/**
+	 * @param landmarksCacheDirectory the directory to store the landmarks in, or <code>null</code> to not store them
+	 */
+	public SpeedyALTFactory(Path landmarksCacheDirectory) {
+		this(landmarksCacheDirectory, 0, 900);
+	}
+
+	/**
+	 * @param landmarksCacheDirectory the directory to store the landmarks in, or <code>null</code> to not store them
+	 * @param marginalCostOfTime the minimal additional travel cost per second of travel time of all travel disutilities,
+	 *                           or 0 to only use the static landmarks
+	 * @param travelTimeBinSize the size of the time bins of the travel times in seconds
+	 */
+	public SpeedyALTFactory(Path landmarksCacheDirectory, double marginalCostOfTime, double travelTimeBinSize) {
+		this.landmarksCacheDirectory = landmarksCacheDirectory;
+		this.marginalCostOfTime = marginalCostOfTime;
+		this.travelTimeBinSize = travelTimeBinSize;
+	}
+
+	@com.google.inject.Inject(optional = true)
+	public void setIterationCounter(IterationCounter iterationCounter) {
+		this.iterationCounter = iterationCounter;
+	}
+
+	/**
+	 * @return the lowest marginal cost of time of all network modes and subpopulations, in the same way as it is used
+	 * by the {@link org.matsim.core.router.costcalculators.RandomizingTimeDistanceTravelDisutilityFactory}
+	 */
+	private static double getMinMarginalCostOfTime(Config config) {
+		double minCost = Double.POSITIVE_INFINITY;
+		for (PlanCalcScoreConfigGroup.ScoringParameterSet scoringParams : config.planCalcScore().getScoringParametersPerSubpopulation().values()) {
+			for (String mode : config.plansCalcRoute().getNetworkModes()) {
+				PlanCalcScoreConfigGroup.ModeParams modeParams = scoringParams.getModes().get(mode);
+				if (modeParams != null) {
+					double cost = (-modeParams.getMarginalUtilityOfTraveling() / 3600.0) + (scoringParams.getPerforming_utils_hr() / 3600.0);
+					minCost = Math.min(minCost, cost);
+				}
+			}
+		}
+		return Double.isFinite(minCost) ? Math.max(0, minCost) : 0;
+	}
 
 	@Override
 	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
-		SpeedyGraph graph = this.graphs.get(network);
-		if (graph == null) {
-			graph = new SpeedyGraph(network);
-			this.graphs.put(network, graph);
-		}
-		SpeedyALTData landmarks = this.landmarksData.get(graph);
-		if (landmarks == null) {
-			int landmarksCount = Math.min(16, graph.nodeCount);
-			landmarks = new SpeedyALTData(graph, landmarksCount, travelCosts);
-			this.landmarksData.put(graph, landmarks);
-		}
-		return new SpeedyALT(landmarks, travelTimes, travelCosts);
+		SpeedyGraph graph = this.graphs.computeIfAbsent(network, SpeedyGraph::new);
+		// before the first iteration, e.g. in PrepareForSim, the iteration number is not set yet
+		Integer iteration = this.iterationCounter == null ? null : this.iterationCounter.getIterationNumber();
+		// different travel disutilities with the same lower bounds (e.g. of different iterations) can use the same landmarks
+		LandmarksKey key = new LandmarksKey(graph, SpeedyALTData.getMinLinkCosts(graph, travelCosts));
+		SpeedyALTData landmarks = getLandmarks(key, iteration);
+		if (this.marginalCostOfTime <= 0) {
+			return new SpeedyALT(landmarks, travelTimes, travelCosts);
+		}
+		SpeedyTDALTData tdData;
+		if (this.iterationCounter == null) {
+			synchronized (this.timeDependentDataPerDisutility) {
+				tdData = this.timeDependentDataPerDisutility.get(travelCosts);
+				if (tdData == null || tdData.staticData != landmarks) {
+					tdData = createTimeDependentData(landmarks, key.minLinkCosts, travelTimes);
+					this.timeDependentDataPerDisutility.put(travelCosts, tdData);
+				}
+			}
+		} else {
+			TimeDependentKey tdKey = new TimeDependentKey(landmarks, travelTimes.getClass(), iteration);
+			tdData = this.timeDependentData.get(tdKey);
+			if (tdData == null) {
+				synchronized (this.timeDependentData) {
+					tdData = this.timeDependentData.get(tdKey);
+					if (tdData == null) {
+						// the landmarks of earlier iterations are only needed by the new ones, see SpeedyTDALTData
+						this.timeDependentData.keySet().removeIf(k -> !Objects.equals(k.iteration, iteration));
+						tdData = createTimeDependentData(landmarks, key.minLinkCosts, travelTimes);
+						this.timeDependentData.put(tdKey, tdData);
+					}
+				}
+			}
+		}
+		return new SpeedyALT(tdData, travelTimes, travelCosts);
+	}
+
+	private SpeedyALTData getLandmarks(LandmarksKey key, Integer iteration) {
+		if (this.iterationCounter != null) {
+			synchronized (this.landmarksData) {
+				if (!Objects.equals(this.landmarksIteration, iteration)) {
+					Integer previousIteration = this.landmarksIteration;
+					this.landmarksData.values().removeIf(l -> !Objects.equals(l.lastIteration, previousIteration));
+					this.latestTimeDependentData.keySet().retainAll(this.landmarksData.values().stream().map(l -> l.data).toList());
+					this.landmarksIteration = iteration;
+				}
+			}
+		}
+		Landmarks landmarks = this.landmarksData.computeIfAbsent(key,
+				k -> new Landmarks(SpeedyALTData.load(k.graph, Math.min(16, k.graph.nodeCount), k.minLinkCosts, this.landmarksCacheDirectory), iteration));
+		landmarks.lastIteration = iteration;
+		return landmarks.data;
+	}
+
+	private SpeedyTDALTData createTimeDependentData(SpeedyALTData landmarks, double[] minLinkCosts, TravelTime travelTimes) {
+		// the travel times are sampled twice per time bin, as interpolated travel times have their extremes in the middle of the bins
+		SpeedyTDALTData tdData = new SpeedyTDALTData(landmarks, minLinkCosts, travelTimes, this.marginalCostOfTime,
+				TIME_DEPENDENT_LANDMARKS_BIN_SIZE, TIME_DEPENDENT_LANDMARKS_HORIZON, this.travelTimeBinSize / 2,
+				this.latestTimeDependentData.get(landmarks));
+		this.latestTimeDependentData.put(landmarks, tdData);
+		return tdData;
+	}
+
+	private static final class Landmarks {
+		private final SpeedyALTData data;
+		private volatile Integer lastIteration;
+
+		Landmarks(SpeedyALTData data, Integer lastIteration) {
+			this.data = data;
+			this.lastIteration = lastIteration;
+		}
+	}
+
+	private static final class TimeDependentKey {
+		private final SpeedyALTData landmarks;
+		private final Class<?> travelTimeType;
+		private final Integer iteration;
+
+		TimeDependentKey(SpeedyALTData landmarks, Class<?> travelTimeType, Integer iteration) {
+			this.landmarks = landmarks;
+			this.travelTimeType = travelTimeType;
+			this.iteration = iteration;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof TimeDependentKey other && this.landmarks == other.landmarks && this.travelTimeType == other.travelTimeType
+					&& Objects.equals(this.iteration, other.iteration);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(this.landmarks), this.travelTimeType, this.iteration);
+		}
+	}
+
+	private static final class LandmarksKey {
+		private final SpeedyGraph graph;
+		private final double[] minLinkCosts;
+		private final int hashCode;
+
+		LandmarksKey(SpeedyGraph graph, double[] minLinkCosts) {
+			this.graph = graph;
+			this.minLinkCosts = minLinkCosts;
+			this.hashCode = 31 * System.identityHashCode(graph) + Arrays.hashCode(minLinkCosts);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof LandmarksKey other && this.graph == other.graph && Arrays.equals(this.minLinkCosts, other.minLinkCosts);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
 	}
 
 }
@@ -0,0 +1,189 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A least cost path calculator based on a Customizable Contraction Hierarchy, see {@link SpeedyCCHData} for the
+ * contraction and {@link SpeedyCCHMetric} for the customization with the travel costs.
+ *
+ * A query runs a search from the start node and one from the end node, both only following edges to nodes of a
+ * higher rank.  As all upper neighbours of a node are its ancestors in the elimination tree (see
+ * {@link SpeedyCCHData#getParent(int)}), the searches simply process the ancestors of the start resp. end node in
+ * order, without any priority queue.  The least cost path passes the common ancestor with the lowest sum of both
+ * costs.
+ *
+ * The route is computed with the travel costs at the start of the time bin of the departure, without person and
+ * vehicle.  The travel time and the travel cost of the returned path are then computed along the route with the
+ * actual times, person and vehicle.  Person-specific travel costs (e.g. a randomized travel disutility) are not
+ * supported, use {@link SpeedyALT} for them.
+ *
+ * This implementation is not thread-safe. In the case of multi-threading, every thread should use
+ * a separate instance. (But the used {@link SpeedyCCHMetric} is thread-safe and can be shared by multiple
+ * instances).
+ */
+public class SpeedyCCH implements LeastCostPathCalculator {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCCH.class);
+
+	private final SpeedyGraph graph;
+	private final SpeedyCCHData cch;
+	private final SpeedyCCHMetric metric;
+	private final TravelTime tt;
+	private final TravelDisutility td;
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardEdge;
+	private final int[] backwardEdge;
+	private int currentIteration = Integer.MIN_VALUE;
+	private final int[] forwardIterationIds;
+	private final int[] backwardIterationIds;
+
+	SpeedyCCH(SpeedyCCHMetric metric, TravelTime tt, TravelDisutility td) {
+		this.cch = metric.cch;
+		this.graph = this.cch.graph;
+		this.metric = metric;
+		this.tt = tt;
+		this.td = td;
+		this.forwardCost = new double[this.graph.nodeCount];
+		this.backwardCost = new double[this.graph.nodeCount];
+		this.forwardEdge = new int[this.graph.nodeCount];
+		this.backwardEdge = new int[this.graph.nodeCount];
+		this.forwardIterationIds = new int[this.graph.nodeCount];
+		this.backwardIterationIds = new int[this.graph.nodeCount];
+		Arrays.fill(this.forwardIterationIds, this.currentIteration);
+		Arrays.fill(this.backwardIterationIds, this.currentIteration);
+	}
+
+	@Override
+	public Path calcLeastCostPath(Node startNode, Node endNode, double startTime, Person person, Vehicle vehicle) {
+		this.currentIteration++;
+		if (this.currentIteration == Integer.MAX_VALUE) {
+			// reset iteration as we overflow
+			Arrays.fill(this.forwardIterationIds, this.currentIteration);
+			Arrays.fill(this.backwardIterationIds, this.currentIteration);
+			this.currentIteration = Integer.MIN_VALUE;
+		}
+		int startNodeIndex = startNode.getId().index();
+		int endNodeIndex = endNode.getId().index();
+		SpeedyCCHMetric.Customization c = this.metric.getCustomization(startTime, this.td);
+
+		// all upper neighbours of a node are its ancestors in the elimination tree, so the ancestors can be processed
+		// one after the other, without any priority queue
+		searchAncestors(c.upCost, this.forwardCost, this.forwardEdge, this.forwardIterationIds, startNodeIndex);
+		searchAncestors(c.downCost, this.backwardCost, this.backwardEdge, this.backwardIterationIds, endNodeIndex);
+
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNodeIndex = -1;
+		for (int nodeIdx = startNodeIndex; nodeIdx >= 0; nodeIdx = this.cch.getParent(nodeIdx)) {
+			if (this.backwardIterationIds[nodeIdx] == this.currentIteration) {
+				double cost = this.forwardCost[nodeIdx] + this.backwardCost[nodeIdx];
+				if (cost < bestCost) {
+					bestCost = cost;
+					meetingNodeIndex = nodeIdx;
+				}
+			}
+		}
+
+		if (meetingNodeIndex >= 0) {
+			return constructPath(c, startNodeIndex, endNodeIndex, meetingNodeIndex, startTime, person, vehicle);
+		}
+		LOG.warn("No route was found from node " + startNode.getId() + " to node " + endNode.getId() + ". Some possible reasons:");
+		LOG.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+		LOG.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+		LOG.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+		LOG.warn("This will now return null, but it may fail later with a NullPointerException.");
+		return null;
+	}
+
+	private void searchAncestors(double[] edgeCosts, double[] costs, int[] edges, int[] iterationIds, int startNodeIndex) {
+		costs[startNodeIndex] = 0;
+		edges[startNodeIndex] = -1;
+		iterationIds[startNodeIndex] = this.currentIteration;
+		for (int nodeIdx = startNodeIndex; nodeIdx >= 0; nodeIdx = this.cch.getParent(nodeIdx)) {
+			if (iterationIds[nodeIdx] != this.currentIteration) {
+				continue; // not reached
+			}
+			double currCost = costs[nodeIdx];
+			for (int edgeIdx = this.cch.getFirstEdge(nodeIdx), last = this.cch.getLastEdge(nodeIdx); edgeIdx < last; edgeIdx++) {
+				double newCost = currCost + edgeCosts[edgeIdx];
+				if (newCost == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				int toNode = this.cch.getUpperNode(edgeIdx);
+				if (iterationIds[toNode] != this.currentIteration || newCost < costs[toNode]) {
+					costs[toNode] = newCost;
+					edges[toNode] = edgeIdx;
+					iterationIds[toNode] = this.currentIteration;
+				}
+			}
+		}
+	}
+
+	private Path constructPath(SpeedyCCHMetric.Customization c, int startNodeIndex, int endNodeIndex, int meetingNodeIndex,
+			double startTime, Person person, Vehicle vehicle) {
+		List<Link> links = new ArrayList<>();
+
+		// from the meeting node down to the start node, i.e. backwards
+		List<Integer> upwardEdges = new ArrayList<>();
+		for (int nodeIdx = meetingNodeIndex; nodeIdx != startNodeIndex; nodeIdx = this.cch.getLowerNode(this.forwardEdge[nodeIdx])) {
+			upwardEdges.add(this.forwardEdge[nodeIdx]);
+		}
+		Collections.reverse(upwardEdges);
+		for (int edgeIdx : upwardEdges) {
+			unpackUp(c, edgeIdx, links);
+		}
+		for (int nodeIdx = meetingNodeIndex; nodeIdx != endNodeIndex; nodeIdx = this.cch.getLowerNode(this.backwardEdge[nodeIdx])) {
+			unpackDown(c, this.backwardEdge[nodeIdx], links);
+		}
+
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(this.graph.getNode(startNodeIndex));
+		double time = startTime;
+		double travelCost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			travelCost += this.td.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.tt.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, travelCost);
+	}
+
+	/**
+	 * Adds the links of the cheapest path from the lower to the upper node of the edge.
+	 */
+	private void unpackUp(SpeedyCCHMetric.Customization c, int edgeIdx, List<Link> links) {
+		int via = c.upVia[edgeIdx];
+		if (via < 0) {
+			links.add(this.graph.getLink(-via - 1));
+			return;
+		}
+		unpackDown(c, this.cch.findEdge(via, this.cch.getLowerNode(edgeIdx)), links);
+		unpackUp(c, this.cch.findEdge(via, this.cch.getUpperNode(edgeIdx)), links);
+	}
+
+	/**
+	 * Adds the links of the cheapest path from the upper to the lower node of the edge.
+	 */
+	private void unpackDown(SpeedyCCHMetric.Customization c, int edgeIdx, List<Link> links) {
+		int via = c.downVia[edgeIdx];
+		if (via < 0) {
+			links.add(this.graph.getLink(-via - 1));
+			return;
+		}
+		unpackDown(c, this.cch.findEdge(via, this.cch.getUpperNode(edgeIdx)), links);
+		unpackUp(c, this.cch.findEdge(via, this.cch.getLowerNode(edgeIdx)), links);
+	}
+}
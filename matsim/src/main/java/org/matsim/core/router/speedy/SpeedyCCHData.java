@@ -0,0 +1,316 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.router.speedy.SpeedyGraph.LinkIterator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The metric-independent part of a Customizable Contraction Hierarchy (CCH), see {@link SpeedyCCH}.
+ *
+ * Based on "Customizable Contraction Hierarchies" by Julian Dibbelt, Ben Strasser and Dorothea Wagner, 2016.
+ *
+ * The nodes are ordered by a nested dissection based on their coordinates and contracted one after the other in
+ * this order.  When a node is contracted, all its remaining neighbours are connected with each other, without any witness search.
+ * Thus, the resulting edges do not depend on the travel costs and only need to be computed once per network, while
+ * the weights of the edges are computed in a fast customization step, see {@link SpeedyCCHMetric}.
+ *
+ * Every edge connects a node with a neighbour of a higher rank and is stored with the lower node (the "upward" edges).
+ * The edges of a node are sorted by the rank of the upper node, so a specific edge can be found by binary search, and
+ * the edges of two nodes can be merged in a single pass.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+class SpeedyCCHData {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyCCHData.class);
+
+	/**
+	 * Cells with at most this number of nodes are not split further.
+	 */
+	private final static int MIN_CELL_SIZE = 8;
+
+	final SpeedyGraph graph;
+	private final int[] rank;
+	private final int[] order;
+	private final int[] firstEdge; // for each node: index of its first upward edge, plus one entry at the end
+	private final int[] upperNode; // for each edge: the node with the higher rank
+	private final int[] lowerNode; // for each edge: the node with the lower rank
+	private final int[] upperRank; // for each edge: the rank of the upper node
+
+	public SpeedyCCHData(SpeedyGraph graph) {
+		this.graph = graph;
+		this.rank = new int[graph.nodeCount];
+		Arrays.fill(this.rank, -1);
+
+		LOG.info("contract nodes...");
+		int[][] upwardNeighbours = contract();
+		int[] orderedNodes = new int[graph.nodeCount];
+		int nodesInOrder = 0;
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			if (this.rank[nodeIdx] >= 0) {
+				orderedNodes[this.rank[nodeIdx]] = nodeIdx;
+				nodesInOrder++;
+			}
+		}
+		this.order = Arrays.copyOf(orderedNodes, nodesInOrder);
+
+		this.firstEdge = new int[graph.nodeCount + 1];
+		int edgeCount = 0;
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			this.firstEdge[nodeIdx] = edgeCount;
+			edgeCount += upwardNeighbours[nodeIdx] == null ? 0 : upwardNeighbours[nodeIdx].length;
+		}
+		this.firstEdge[graph.nodeCount] = edgeCount;
+		this.upperNode = new int[edgeCount];
+		this.lowerNode = new int[edgeCount];
+		this.upperRank = new int[edgeCount];
+		for (int nodeIdx = 0; nodeIdx < graph.nodeCount; nodeIdx++) {
+			int[] neighbours = upwardNeighbours[nodeIdx];
+			if (neighbours != null) {
+				int first = this.firstEdge[nodeIdx];
+				for (int i = 0; i < neighbours.length; i++) {
+					this.upperRank[first + i] = this.rank[neighbours[i]];
+				}
+				Arrays.sort(this.upperRank, first, first + neighbours.length);
+				for (int i = 0; i < neighbours.length; i++) {
+					this.upperNode[first + i] = this.order[this.upperRank[first + i]];
+				}
+				Arrays.fill(this.lowerNode, first, first + neighbours.length, nodeIdx);
+			}
+		}
+		LOG.info("contracted " + nodesInOrder + " nodes, resulting in " + edgeCount + " edges.");
+	}
+
+	/**
+	 * Orders the nodes by nested dissection: the nodes are split at the median of their coordinates, and the nodes of
+	 * the first half that are connected to the second half (the separator) get the highest ranks.  Both halves are
+	 * then ordered the same way, each of them getting lower ranks than the separator.  Separators are small for road
+	 * networks, which keeps the number of added edges small.
+	 */
+	private void orderNodes(int[][] neighbours, int[] neighbourCount) {
+		int count = 0;
+		int[] nodes = new int[this.graph.nodeCount];
+		for (int nodeIdx = 0; nodeIdx < this.graph.nodeCount; nodeIdx++) {
+			if (this.graph.getNode(nodeIdx) != null) {
+				nodes[count++] = nodeIdx;
+			}
+		}
+		int[] cell = new int[this.graph.nodeCount];
+		Arrays.fill(cell, -1);
+		int[] nextRank = { 0 };
+		int[] nextCell = { 0 };
+		dissect(Arrays.copyOf(nodes, count), neighbours, neighbourCount, cell, nextCell, nextRank);
+	}
+
+	private void dissect(int[] nodes, int[][] neighbours, int[] neighbourCount, int[] cell, int[] nextCell, int[] nextRank) {
+		if (nodes.length <= MIN_CELL_SIZE) {
+			for (int nodeIdx : nodes) {
+				this.rank[nodeIdx] = nextRank[0]++;
+			}
+			return;
+		}
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY, minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int nodeIdx : nodes) {
+			Coord coord = this.graph.getNode(nodeIdx).getCoord();
+			minX = Math.min(minX, coord.getX());
+			maxX = Math.max(maxX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxY = Math.max(maxY, coord.getY());
+		}
+		boolean byX = maxX - minX >= maxY - minY;
+		Integer[] sorted = new Integer[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			sorted[i] = nodes[i];
+		}
+		Arrays.sort(sorted, Comparator.comparingDouble(nodeIdx -> byX ? this.graph.getNode(nodeIdx).getCoord().getX() : this.graph.getNode(nodeIdx).getCoord().getY()));
+
+		int middle = nodes.length / 2;
+		int secondCell = nextCell[0]++;
+		for (int i = middle; i < sorted.length; i++) {
+			cell[sorted[i]] = secondCell;
+		}
+		int[] first = new int[middle];
+		int[] separator = new int[middle];
+		int firstCount = 0;
+		int separatorCount = 0;
+		for (int i = 0; i < middle; i++) {
+			int nodeIdx = sorted[i];
+			boolean connected = false;
+			for (int n = 0; n < neighbourCount[nodeIdx] && !connected; n++) {
+				connected = cell[neighbours[nodeIdx][n]] == secondCell;
+			}
+			if (connected) {
+				separator[separatorCount++] = nodeIdx;
+			} else {
+				first[firstCount++] = nodeIdx;
+			}
+		}
+		int[] second = new int[sorted.length - middle];
+		for (int i = middle; i < sorted.length; i++) {
+			second[i - middle] = sorted[i];
+		}
+		// the cells are only needed to find the separator
+		dissect(Arrays.copyOf(first, firstCount), neighbours, neighbourCount, cell, nextCell, nextRank);
+		dissect(second, neighbours, neighbourCount, cell, nextCell, nextRank);
+		for (int i = 0; i < separatorCount; i++) {
+			this.rank[separator[i]] = nextRank[0]++;
+		}
+	}
+
+	/**
+	 * Contracts the nodes in the order of their rank.
+	 *
+	 * @return for each node, the neighbours that remained when it was contracted
+	 */
+	private int[][] contract() {
+		int nodeCount = this.graph.nodeCount;
+		int[][] neighbours = new int[nodeCount][];
+		int[] neighbourCount = new int[nodeCount];
+		int[] marker = new int[nodeCount];
+		Arrays.fill(marker, -1);
+		boolean[] contracted = new boolean[nodeCount];
+
+		LinkIterator outLI = this.graph.getOutLinkIterator();
+		LinkIterator inLI = this.graph.getInLinkIterator();
+		for (int nodeIdx = 0; nodeIdx < nodeCount; nodeIdx++) {
+			if (this.graph.getNode(nodeIdx) == null) {
+				continue; // not all indices might be in use
+			}
+			neighbours[nodeIdx] = new int[4];
+			marker[nodeIdx] = nodeIdx;
+			outLI.reset(nodeIdx);
+			while (outLI.next()) {
+				neighbourCount[nodeIdx] = addNeighbour(neighbours, neighbourCount, marker, nodeIdx, outLI.getToNodeIndex());
+			}
+			inLI.reset(nodeIdx);
+			while (inLI.next()) {
+				neighbourCount[nodeIdx] = addNeighbour(neighbours, neighbourCount, marker, nodeIdx, inLI.getFromNodeIndex());
+			}
+		}
+
+		orderNodes(neighbours, neighbourCount);
+		int[] nodesByRank = new int[nodeCount];
+		int rankedNodes = 0;
+		for (int nodeIdx = 0; nodeIdx < nodeCount; nodeIdx++) {
+			if (this.rank[nodeIdx] >= 0) {
+				nodesByRank[this.rank[nodeIdx]] = nodeIdx;
+				rankedNodes++;
+			}
+		}
+
+		int[][] upwardNeighbours = new int[nodeCount][];
+		for (int r = 0; r < rankedNodes; r++) {
+			int nodeIdx = nodesByRank[r];
+			contracted[nodeIdx] = true;
+
+			int[] remaining = removeContracted(neighbours[nodeIdx], neighbourCount[nodeIdx], contracted);
+			upwardNeighbours[nodeIdx] = remaining;
+			neighbours[nodeIdx] = null; // not needed anymore
+
+			// connect all remaining neighbours with each other
+			for (int a : remaining) {
+				int count = 0;
+				int[] aNeighbours = neighbours[a];
+				for (int i = 0; i < neighbourCount[a]; i++) {
+					int b = aNeighbours[i];
+					if (!contracted[b]) {
+						aNeighbours[count++] = b;
+						marker[b] = a;
+					}
+				}
+				neighbourCount[a] = count;
+				marker[a] = a;
+				for (int b : remaining) {
+					neighbourCount[a] = addNeighbour(neighbours, neighbourCount, marker, a, b);
+				}
+			}
+		}
+		return upwardNeighbours;
+	}
+
+	/**
+	 * Adds the neighbour unless it is marked as already known for the node.
+	 *
+	 * @return the new number of neighbours of the node
+	 */
+	private static int addNeighbour(int[][] neighbours, int[] neighbourCount, int[] marker, int nodeIdx, int neighbourIdx) {
+		int count = neighbourCount[nodeIdx];
+		if (marker[neighbourIdx] == nodeIdx) {
+			return count;
+		}
+		marker[neighbourIdx] = nodeIdx;
+		if (count == neighbours[nodeIdx].length) {
+			neighbours[nodeIdx] = Arrays.copyOf(neighbours[nodeIdx], count * 2);
+		}
+		neighbours[nodeIdx][count] = neighbourIdx;
+		return count + 1;
+	}
+
+	private static int[] removeContracted(int[] neighbours, int count, boolean[] contracted) {
+		int remainingCount = 0;
+		for (int i = 0; i < count; i++) {
+			if (!contracted[neighbours[i]]) {
+				remainingCount++;
+			}
+		}
+		int[] remaining = new int[remainingCount];
+		remainingCount = 0;
+		for (int i = 0; i < count; i++) {
+			if (!contracted[neighbours[i]]) {
+				remaining[remainingCount++] = neighbours[i];
+			}
+		}
+		return remaining;
+	}
+
+	int getEdgeCount() {
+		return this.upperNode.length;
+	}
+
+	int getRank(int nodeIdx) {
+		return this.rank[nodeIdx];
+	}
+
+	/**
+	 * @return the indices of the nodes in the order of their contraction
+	 */
+	int[] getOrder() {
+		return this.order;
+	}
+
+	int getFirstEdge(int nodeIdx) {
+		return this.firstEdge[nodeIdx];
+	}
+
+	/**
+	 * @return the upper neighbour with the lowest rank, i.e. the parent in the elimination tree, or -1 for a root
+	 */
+	int getParent(int nodeIdx) {
+		int first = this.firstEdge[nodeIdx];
+		return first < this.firstEdge[nodeIdx + 1] ? this.upperNode[first] : -1;
+	}
+
+	int getLastEdge(int nodeIdx) {
+		return this.firstEdge[nodeIdx + 1];
+	}
+
+	int getUpperNode(int edgeIdx) {
+		return this.upperNode[edgeIdx];
+	}
+
+	int getLowerNode(int edgeIdx) {
+		return this.lowerNode[edgeIdx];
+	}
+
+	/**
+	 * @return the index of the edge between the two nodes, or -1 if there is none
+	 */
+	int findEdge(int lowerNodeIdx, int upperNodeIdx) {
+		int index = Arrays.binarySearch(this.upperRank, this.firstEdge[lowerNodeIdx], this.firstEdge[lowerNodeIdx + 1], this.rank[upperNodeIdx]);
+		return index < 0 ? -1 : index;
+	}
+}
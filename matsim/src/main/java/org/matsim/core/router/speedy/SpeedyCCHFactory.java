@@ -0,0 +1,121 @@
+package org.matsim.core.router.speedy;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.controler.IterationCounter;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates {@link SpeedyCCH} instances.  The contraction of a network is computed once and kept for all iterations.
+ * The customization with the travel costs is shared by all path calculators of an iteration that use the same network
+ * and the same kinds of travel time and travel disutility, i.e. by all threads, although the routing modules create new
+ * travel disutilities for every replanning.  Every time bin is thus customized once per iteration, with the travel
+ * times of the previous one.
+ *
+ * Without an {@link IterationCounter}, e.g. outside of the controler, the customization is only shared by the path
+ * calculators that use the same travel disutility instance.
+ */
+@Singleton
+public class SpeedyCCHFactory implements LeastCostPathCalculatorFactory {
+
+	/**
+	 * The default size of the time bins in seconds, for each of which the travel costs are customized separately.
+	 */
+	public static final double DEFAULT_TIME_BIN_SIZE = 3600;
+
+	private final double timeBinSize;
+	private final Map<Network, SpeedyGraph> graphs = new ConcurrentHashMap<>();
+	private final Map<SpeedyGraph, SpeedyCCHData> cchData = new ConcurrentHashMap<>();
+	private final Map<MetricKey, SpeedyCCHMetric> metrics = new ConcurrentHashMap<>();
+	private final Map<TravelDisutility, SpeedyCCHMetric> metricsPerDisutility = Collections.synchronizedMap(new WeakHashMap<>());
+	private IterationCounter iterationCounter = null;
+
+	@Inject
+	public SpeedyCCHFactory() {
+		this(DEFAULT_TIME_BIN_SIZE);
+	}
+
+	/**
+	 * @param timeBinSize the size of the time bins in seconds, or {@link Double#POSITIVE_INFINITY} to customize the travel
+	 *                    costs only once, at midnight
+	 */
+	public SpeedyCCHFactory(double timeBinSize) {
+		this.timeBinSize = timeBinSize;
+	}
+
+	@com.google.inject.Inject(optional = true)
+	public void setIterationCounter(IterationCounter iterationCounter) {
+		this.iterationCounter = iterationCounter;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(Network network, TravelDisutility travelCosts, TravelTime travelTimes) {
+		SpeedyGraph graph = this.graphs.computeIfAbsent(network, SpeedyGraph::new);
+		SpeedyCCHData cch = this.cchData.computeIfAbsent(graph, SpeedyCCHData::new);
+		return new SpeedyCCH(getMetric(cch, travelCosts, travelTimes), travelTimes, travelCosts);
+	}
+
+	private SpeedyCCHMetric getMetric(SpeedyCCHData cch, TravelDisutility travelCosts, TravelTime travelTimes) {
+		if (this.iterationCounter == null) {
+			synchronized (this.metricsPerDisutility) {
+				SpeedyCCHMetric metric = this.metricsPerDisutility.get(travelCosts);
+				if (metric == null || metric.cch != cch) {
+					metric = new SpeedyCCHMetric(cch, this.timeBinSize);
+					this.metricsPerDisutility.put(travelCosts, metric);
+				}
+				return metric;
+			}
+		}
+		// before the first iteration, e.g. in PrepareForSim, the iteration number is not set yet
+		Integer iteration = this.iterationCounter.getIterationNumber();
+		MetricKey key = new MetricKey(cch, travelTimes.getClass(), travelCosts.getClass(), iteration);
+		SpeedyCCHMetric metric = this.metrics.get(key);
+		if (metric == null) {
+			synchronized (this.metrics) {
+				metric = this.metrics.get(key);
+				if (metric == null) {
+					// the customizations of earlier iterations are not needed anymore
+					this.metrics.keySet().removeIf(k -> !Objects.equals(k.iteration, iteration));
+					metric = new SpeedyCCHMetric(cch, this.timeBinSize);
+					this.metrics.put(key, metric);
+				}
+			}
+		}
+		return metric;
+	}
+
+	private static final class MetricKey {
+		private final SpeedyCCHData cch;
+		private final Class<?> travelTimeType;
+		private final Class<?> travelDisutilityType;
+		private final Integer iteration;
+
+		MetricKey(SpeedyCCHData cch, Class<?> travelTimeType, Class<?> travelDisutilityType, Integer iteration) {
+			this.cch = cch;
+			this.travelTimeType = travelTimeType;
+			this.travelDisutilityType = travelDisutilityType;
+			this.iteration = iteration;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof MetricKey other && this.cch == other.cch && this.travelTimeType == other.travelTimeType
+					&& this.travelDisutilityType == other.travelDisutilityType && Objects.equals(this.iteration, other.iteration);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(this.cch), this.travelTimeType, this.travelDisutilityType, this.iteration);
+		}
+	}
+}
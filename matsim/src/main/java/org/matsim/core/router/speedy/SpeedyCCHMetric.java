@@ -0,0 +1,150 @@
+package org.matsim.core.router.speedy;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.router.util.TravelDisutility;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The metric-dependent part of a Customizable Contraction Hierarchy, see {@link SpeedyCCH}.
+ *
+ * The day is split into time bins.  The weights of the edges are computed once per time bin when they are needed for
+ * the first time, using the travel costs at the start of the time bin.  This customization processes the nodes in
+ * the order of their contraction and improves the weights of the edges between the upper neighbours of every node
+ * with the paths through the node ("lower triangles").
+ *
+ * The travel costs are computed without person and vehicle, as they are shared by all queries.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+class SpeedyCCHMetric {
+
+	/**
+	 * Departures after this time use the weights of the last time bin.
+	 */
+	private final static double MAX_TIME = 30 * 3600;
+
+	final SpeedyCCHData cch;
+	private final double timeBinSize;
+	private final AtomicReferenceArray<Customization> customizations;
+
+	SpeedyCCHMetric(SpeedyCCHData cch, double timeBinSize) {
+		this.cch = cch;
+		this.timeBinSize = timeBinSize;
+		int binCount = Double.isInfinite(timeBinSize) ? 1 : Math.max(1, (int) Math.ceil(MAX_TIME / timeBinSize));
+		this.customizations = new AtomicReferenceArray<>(binCount);
+	}
+
+	/**
+	 * @return the weights of the time bin containing the given time, computed with the given travel costs if they are
+	 * needed for the first time
+	 */
+	Customization getCustomization(double time, TravelDisutility td) {
+		int bin = getTimeBin(time);
+		Customization customization = this.customizations.get(bin);
+		if (customization == null) {
+			synchronized (this) {
+				customization = this.customizations.get(bin);
+				if (customization == null) {
+					customization = customize(Double.isInfinite(this.timeBinSize) ? 0 : bin * this.timeBinSize, td);
+					this.customizations.set(bin, customization);
+				}
+			}
+		}
+		return customization;
+	}
+
+	private int getTimeBin(double time) {
+		if (Double.isInfinite(this.timeBinSize) || time <= 0) {
+			return 0;
+		}
+		return Math.min(this.customizations.length() - 1, (int) (time / this.timeBinSize));
+	}
+
+	private Customization customize(double time, TravelDisutility td) {
+		SpeedyGraph graph = this.cch.graph;
+		Customization c = new Customization(this.cch.getEdgeCount());
+
+		// the weights of the original links
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			Link link = graph.getLink(linkIdx);
+			if (link == null) continue; // not all indices might be in use
+			int fromNodeIdx = link.getFromNode().getId().index();
+			int toNodeIdx = link.getToNode().getId().index();
+			if (fromNodeIdx == toNodeIdx) continue; // loops are never part of a least cost path
+
+			double cost;
+			try {
+				cost = td.getLinkTravelDisutility(link, time, null, null);
+			} catch (RuntimeException e) {
+				throw new RuntimeException("SpeedyCCH computes the travel costs without person and vehicle, which is not supported by "
+						+ td.getClass().getName() + ". Use a travel disutility that does not depend on the person, e.g. by setting "
+						+ "the routing randomness to 0, or use SpeedyALT.", e);
+			}
+			if (this.cch.getRank(fromNodeIdx) < this.cch.getRank(toNodeIdx)) {
+				int edgeIdx = this.cch.findEdge(fromNodeIdx, toNodeIdx);
+				if (cost < c.upCost[edgeIdx]) {
+					c.upCost[edgeIdx] = cost;
+					c.upVia[edgeIdx] = -linkIdx - 1;
+				}
+			} else {
+				int edgeIdx = this.cch.findEdge(toNodeIdx, fromNodeIdx);
+				if (cost < c.downCost[edgeIdx]) {
+					c.downCost[edgeIdx] = cost;
+					c.downVia[edgeIdx] = -linkIdx - 1;
+				}
+			}
+		}
+
+		// the lower triangles, from the bottom to the top
+		for (int nodeIdx : this.cch.getOrder()) {
+			int first = this.cch.getFirstEdge(nodeIdx);
+			int last = this.cch.getLastEdge(nodeIdx);
+			for (int e1 = first; e1 < last; e1++) {
+				int node1 = this.cch.getUpperNode(e1);
+				// the upper neighbours of nodeIdx with a higher rank than node1 are all upper neighbours of node1, too,
+				// and both lists are sorted by rank:
+				int edgeIdx = this.cch.getFirstEdge(node1);
+				for (int e2 = e1 + 1; e2 < last; e2++) {
+					int node2 = this.cch.getUpperNode(e2);
+					while (this.cch.getUpperNode(edgeIdx) != node2) {
+						edgeIdx++;
+					}
+					double upCost = c.downCost[e1] + c.upCost[e2]; // node1 -> nodeIdx -> node2
+					if (upCost < c.upCost[edgeIdx]) {
+						c.upCost[edgeIdx] = upCost;
+						c.upVia[edgeIdx] = nodeIdx;
+					}
+					double downCost = c.downCost[e2] + c.upCost[e1]; // node2 -> nodeIdx -> node1
+					if (downCost < c.downCost[edgeIdx]) {
+						c.downCost[edgeIdx] = downCost;
+						c.downVia[edgeIdx] = nodeIdx;
+					}
+				}
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * The weights of the edges for one time bin.  For every edge, there is one weight for the direction from the lower
+	 * to the upper node ("up") and one for the other direction ("down").  The via entries contain either the node that
+	 * the cheapest path passes, or <code>-linkIndex - 1</code> if the cheapest path is an original link.
+	 */
+	static final class Customization {
+		final double[] upCost;
+		final double[] downCost;
+		final int[] upVia;
+		final int[] downVia;
+
+		Customization(int edgeCount) {
+			this.upCost = new double[edgeCount];
+			this.downCost = new double[edgeCount];
+			this.upVia = new int[edgeCount];
+			this.downVia = new int[edgeCount];
+			Arrays.fill(this.upCost, Double.POSITIVE_INFINITY);
+			Arrays.fill(this.downCost, Double.POSITIVE_INFINITY);
+		}
+	}
+}
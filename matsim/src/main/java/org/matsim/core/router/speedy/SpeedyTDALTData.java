@@ -0,0 +1,177 @@
+package org.matsim.core.router.speedy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.router.util.TravelTime;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Time-dependent landmarks for {@link SpeedyALT}.
+ *
+ * The static landmarks use the minimal travel costs of the links, i.e. the costs at free speed.  In the congested
+ * peak, these are far below the actual costs, so the estimation gets weak and the queries get almost as slow as plain
+ * Dijkstra.  Thus, the day is split into time bins, and for every time bin, the travel costs from and to the landmarks
+ * are computed again with better lower bounds of the link costs:  the minimal travel cost of a link, plus the marginal
+ * cost of time times the delay of the link over free speed.  The delay is the minimal travel time of the link during
+ * the time window of the time bin, i.e. from the start of the bin until the end of the bin plus a time horizon, as
+ * given by the travel times (usually the ones of the {@link org.matsim.core.trafficmonitoring.TravelTimeCalculator}).
+ *
+ * These bounds are only valid if the travel disutility grows by at least the marginal cost of time for every second
+ * of travel time, which is the case for the usual time and distance based travel disutilities.  As a consequence, no
+ * route can last longer than its travel cost divided by the marginal cost of time.  If a route found with the
+ * time-dependent landmarks could end after the time window, i.e. if it costs more than
+ * {@link #getMaxTravelCost(double)}, it has to be computed again with the static landmarks.
+ *
+ * The landmarks of a time bin are computed when they are needed for the first time.  They use the same landmark nodes
+ * as the static landmarks, so only the travel costs from and to the landmarks are computed again.  Time bins with
+ * (almost) no congestion just use the static landmarks, and the landmarks of the previous iteration are reused if
+ * their bounds are still valid and not much weaker than the new ones.  Each time bin with its own landmarks needs as
+ * much memory as the static landmarks.
+ *
+ * This class is thread-safe and can safely be used by multiple threads.
+ */
+class SpeedyTDALTData {
+
+	private final static Logger LOG = LogManager.getLogger(SpeedyTDALTData.class);
+
+	/**
+	 * Departures after this time use the static landmarks.
+	 */
+	private final static double MAX_TIME = 30 * 3600;
+
+	/**
+	 * Time bins whose lower bounds add up to less than this share over the minimal travel costs use the static landmarks.
+	 */
+	private final static double MIN_CONGESTION = 0.05;
+
+	/**
+	 * The landmarks of the previous iteration are reused if the new lower bounds add up to less than this share more.
+	 */
+	private final static double REUSE_TOLERANCE = 0.1;
+
+	final SpeedyALTData staticData;
+	private final double[] minLinkCosts;
+	private final TravelTime tt;
+	private final double marginalCostOfTime;
+	private final double timeBinSize;
+	private final double timeHorizon;
+	private final double sampleInterval;
+	private final AtomicReferenceArray<BinLandmarks> landmarks;
+	private final AtomicReferenceArray<BinLandmarks> previousLandmarks;
+
+	/**
+	 * @param staticData the landmarks for the minimal travel costs
+	 * @param minLinkCosts the minimal travel cost for every link index, as used for the static landmarks
+	 * @param tt the travel times to get the delays of the links from
+	 * @param marginalCostOfTime the minimal additional travel cost for every second of travel time, must be positive
+	 * @param timeBinSize the size of the time bins in seconds
+	 * @param timeHorizon the time in seconds after the end of a time bin during which its routes are expected to arrive
+	 * @param sampleInterval the interval in seconds in which the travel times are looked at to find their minimum
+	 * @param previous the time-dependent landmarks of the previous iteration, may be <code>null</code>
+	 */
+	SpeedyTDALTData(SpeedyALTData staticData, double[] minLinkCosts, TravelTime tt, double marginalCostOfTime,
+			double timeBinSize, double timeHorizon, double sampleInterval, SpeedyTDALTData previous) {
+		this.staticData = staticData;
+		this.minLinkCosts = minLinkCosts;
+		this.tt = tt;
+		this.marginalCostOfTime = marginalCostOfTime;
+		this.timeBinSize = timeBinSize;
+		this.timeHorizon = timeHorizon;
+		this.sampleInterval = sampleInterval;
+		this.landmarks = new AtomicReferenceArray<>(Math.max(1, (int) Math.ceil(MAX_TIME / timeBinSize)));
+		// only the landmarks of the previous iteration are kept, not the ones it could reuse itself
+		this.previousLandmarks = previous == null ? null : previous.landmarks;
+	}
+
+	/**
+	 * @return the landmarks for routes departing at the given time
+	 */
+	SpeedyALTData getLandmarks(double departureTime) {
+		if (departureTime < 0 || departureTime >= MAX_TIME) {
+			return this.staticData;
+		}
+		int bin = (int) (departureTime / this.timeBinSize);
+		BinLandmarks binLandmarks = this.landmarks.get(bin);
+		if (binLandmarks == null) {
+			synchronized (this) {
+				binLandmarks = this.landmarks.get(bin);
+				if (binLandmarks == null) {
+					binLandmarks = calcLandmarks(bin);
+					this.landmarks.set(bin, binLandmarks);
+				}
+			}
+		}
+		return binLandmarks.data;
+	}
+
+	/**
+	 * @return the highest travel cost of a route departing at the given time for which the time-dependent landmarks are
+	 * a valid lower bound, i.e. for which the route cannot end after the time window of the departure time bin.
+	 */
+	double getMaxTravelCost(double departureTime) {
+		double windowEnd = (Math.floor(departureTime / this.timeBinSize) + 1) * this.timeBinSize + this.timeHorizon;
+		return (windowEnd - departureTime) * this.marginalCostOfTime;
+	}
+
+	private BinLandmarks calcLandmarks(int bin) {
+		double[] bounds;
+		try {
+			bounds = calcLowerBounds(bin);
+		} catch (RuntimeException e) {
+			LOG.warn("Could not get the travel times without person and vehicle from " + this.tt.getClass().getName()
+					+ ", using the static landmarks.", e);
+			return new BinLandmarks(this.minLinkCosts, this.staticData);
+		}
+		double minSum = sum(this.minLinkCosts);
+		double boundsSum = sum(bounds);
+		if (boundsSum - minSum <= MIN_CONGESTION * minSum) {
+			return new BinLandmarks(this.minLinkCosts, this.staticData);
+		}
+		BinLandmarks previousLandmarks = this.previousLandmarks == null ? null : this.previousLandmarks.get(bin);
+		if (previousLandmarks != null && previousLandmarks.data != this.staticData
+				&& isLowerBound(previousLandmarks.bounds, bounds)
+				&& boundsSum - sum(previousLandmarks.bounds) <= REUSE_TOLERANCE * (boundsSum - minSum)) {
+			return previousLandmarks;
+		}
+		LOG.info("calculate time-dependent landmarks for time bin " + bin + "...");
+		return new BinLandmarks(bounds, new SpeedyALTData(this.staticData, bounds));
+	}
+
+	private double[] calcLowerBounds(int bin) {
+		SpeedyGraph graph = this.staticData.graph;
+		double fromTime = bin * this.timeBinSize;
+		double toTime = fromTime + this.timeBinSize + this.timeHorizon;
+		double[] bounds = new double[graph.linkCount];
+		for (int linkIdx = 0; linkIdx < graph.linkCount; linkIdx++) {
+			Link link = graph.getLink(linkIdx);
+			if (link == null) continue; // not all indices might be in use
+
+			double minTravelTime = this.tt.getLinkTravelTime(link, toTime, null, null);
+			for (double time = fromTime; time < toTime; time += this.sampleInterval) {
+				minTravelTime = Math.min(minTravelTime, this.tt.getLinkTravelTime(link, time, null, null));
+			}
+			double delay = Math.max(0, minTravelTime - link.getLength() / link.getFreespeed());
+			bounds[linkIdx] = this.minLinkCosts[linkIdx] + this.marginalCostOfTime * delay;
+		}
+		return bounds;
+	}
+
+	private static boolean isLowerBound(double[] bounds, double[] otherBounds) {
+		for (int i = 0; i < bounds.length; i++) {
+			if (bounds[i] > otherBounds[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static double sum(double[] values) {
+		return Arrays.stream(values).filter(Double::isFinite).sum();
+	}
+
+	private record BinLandmarks(double[] bounds, SpeedyALTData data) {
+	}
+}
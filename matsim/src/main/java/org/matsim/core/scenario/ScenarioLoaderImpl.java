@@ -200,7 +200,7 @@ class ScenarioLoaderImpl {
 
             final PopulationReader reader = new PopulationReader(targetCRS, internalCRS, this.scenario);
             reader.putAttributeConverters( attributeConverters );
-            reader.parse( populationFileName );
+            reader.readPopulationURL( populationFileName );
 
 			PopulationUtils.printPlansCount(this.scenario.getPopulation()) ;
 		}
@@ -55,14 +55,19 @@ public final class EventsToActivities implements ActivityStartEventHandler, Acti
 	}
 
     private final IdMap<Person, Activity> activities = new IdMap<>(Person.class);
-    private final List<ActivityHandler> activityHandlers = new ArrayList<>();
+    private final List<ActivityHandler> activityHandlers;
 
     public EventsToActivities() {
+        this.activityHandlers = new ArrayList<>();
+    }
 
+    private EventsToActivities(List<ActivityHandler> activityHandlers) {
+        this.activityHandlers = activityHandlers;
     }
 
     @Inject
     EventsToActivities(ControlerListenerManager controlerListenerManager) {
+        this();
         controlerListenerManager.addControlerListener(new AfterMobsimListener() {
             @Override
             public void notifyAfterMobsim(AfterMobsimEvent event) {
@@ -105,6 +110,21 @@ public final class EventsToActivities implements ActivityStartEventHandler, Acti
         this.activityHandlers.add(activityHandler);
     }
 
+    /**
+     * Creates an instance with its own state and its own activity handlers.  Used by {@link ScoringFunctionsForPopulation}
+     * to convert the events of different persons in different threads, which finishes its shards itself and passes their
+     * activities on to the activity handlers of this instance by {@link #passOn(PersonExperiencedActivity)} after the mobsim.
+     */
+    EventsToActivities createShard() {
+        return new EventsToActivities(new ArrayList<>());
+    }
+
+    void passOn(PersonExperiencedActivity activity) {
+        for (ActivityHandler activityHandler : this.activityHandlers) {
+            activityHandler.handleActivity(activity);
+        }
+    }
+
     public void finish() {
         this.activities.forEach((id, activity) -> {
             for (ActivityHandler activityHandler : this.activityHandlers) {
@@ -152,9 +152,10 @@ public final class EventsToLegs
 	private Map<Id<Vehicle>, LineAndRoute> transitVehicle2currentRoute = new HashMap<>();
 	private Map<Id<Vehicle>, VehicleRoute> vehicle2route = new HashMap<>();
 
-	private List<LegHandler> legHandlers = new ArrayList<>();
+	private final List<LegHandler> legHandlers;
 
 	public EventsToLegs(Scenario scenario) {
+		this.legHandlers = new ArrayList<>();
 		this.network = scenario.getNetwork();
 		if (scenario.getConfig().transit().isUseTransit()) {
 			this.transitSchedule = scenario.getTransitSchedule();
@@ -164,6 +165,28 @@ public final class EventsToLegs
 	@Inject
 	EventsToLegs(Network network) {
 		this.network = network;
+		this.legHandlers = new ArrayList<>();
+	}
+
+	private EventsToLegs(Network network, TransitSchedule transitSchedule, List<LegHandler> legHandlers) {
+		this.network = network;
+		this.transitSchedule = transitSchedule;
+		this.legHandlers = legHandlers;
+	}
+
+	/**
+	 * Creates an instance with its own state and its own leg handlers.  Used by {@link ScoringFunctionsForPopulation}
+	 * to convert the events of different persons in different threads, which pass their legs on to the leg handlers of
+	 * this instance by {@link #passOn(PersonExperiencedLeg)} after the mobsim.
+	 */
+	EventsToLegs createShard() {
+		return new EventsToLegs(this.network, this.transitSchedule, new ArrayList<>());
+	}
+
+	void passOn(PersonExperiencedLeg leg) {
+		for (LegHandler legHandler : this.legHandlers) {
+			legHandler.handleLeg(leg);
+		}
 	}
 
 	@Override
@@ -350,9 +373,7 @@ public final class EventsToLegs
 			leg.setRoute(genericRoute);
 		}
 
-		for (LegHandler legHandler : legHandlers) {
-			legHandler.handleLeg(new PersonExperiencedLeg(event.getPersonId(), leg));
-		}
+		passOn(new PersonExperiencedLeg(event.getPersonId(), leg));
 	}
 
 	@Override
@@ -51,6 +51,7 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.events.algorithms.Vehicle2DriverEventHandler;
@@ -63,6 +64,8 @@ import org.matsim.vehicles.Vehicle;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicReference;
@@ -82,15 +85,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	private final Population population;
 	private final ScoringFunctionFactory scoringFunctionFactory;
 	
-	private final EventsToLegs legsDelegate;
-	private final EventsToActivities actsDelegate;
+	private final EventsToActivities eventsToActivities;
+	private final EventsToLegs eventsToLegs;
+	private final ScoringShard[] shards;
 
 	private final IdMap<Person, ScoringFunction> agentScorers = new IdMap<>(Person.class);
 	private final IdMap<Person, TDoubleCollection> partialScores = new IdMap<>(Person.class);
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	private final IdMap<Person, Plan> tripRecords = new IdMap<>(Person.class);
-	
-	private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
 	@Inject
 	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
@@ -106,13 +108,24 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 
 		this.population = population;
-		this.legsDelegate = eventsToLegs;
-		this.actsDelegate = eventsToActivities;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		this.eventsToActivities = eventsToActivities;
+		this.eventsToLegs = eventsToLegs;
 
-		eventsManager.addHandler(this);
-		eventsToActivities.addActivityHandler(this::handleActivity);
-		eventsToLegs.addLegHandler(this::handleLeg);
+		int shardCount = Math.max(1, config.planCalcScore().getEventHandlerShards());
+		this.shards = new ScoringShard[shardCount];
+		if (shardCount == 1) {
+			this.shards[0] = new ScoringShard(0, shardCount, eventsToLegs, eventsToActivities);
+			eventsManager.addHandler(this);
+			eventsToActivities.addActivityHandler(this::handleActivity);
+			eventsToLegs.addLegHandler(this::handleLeg);
+		} else {
+			for (int i = 0; i < shardCount; i++) {
+				this.shards[i] = new ScoringShard(i, shardCount, eventsToLegs.createShard(), eventsToActivities.createShard());
+				eventsManager.addHandler(this.shards[i]);
+			}
+			controlerListenerManager.addControlerListener((AfterMobsimListener) event -> finishShards());
+		}
 	}
 
 	private void init() {
@@ -125,77 +138,9 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	public void handleEvent(Event o) {
-		// this is for the stuff that is directly based on events. note that this passes on _all_ person events, even those which are
-		// aggregated into legs and activities. for the time being, not all PersonEvents may "implement HasPersonId". link enter/leave events
-		// are NOT passed on, for performance reasons. kai/dominik, dec'12
-		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} else if (o instanceof PersonScoreEvent) {
-					scoringFunction.addScore(((PersonScoreEvent) o).getAmount());
-				}
-				scoringFunction.handleEvent(o);
-				// passing this on in any case, see comment above.  kai, mar'17
-			}
-		}
-
-		// Establish and end connection between driver and vehicle
-		if (o instanceof VehicleEntersTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
-		}
-		if (o instanceof VehicleLeavesTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
-		}
-
-		// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
-		/*
-		 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
-		 * for agentId, there we have a map lookup for linkId. Should be somewhat similar in terms of average
-		 * computational complexity. In BetaTravelTest, 194sec w/ "false", 193sec w/ "true". However, the experienced
-		 * plans service in fact does the same thing, so we should be able to get away without having to do this twice.
-		 * kai, mar'17)
-		 */
-		if (o instanceof LinkEnterEvent) {
-			Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
-			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
-			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
-			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-			if (scoringFunction != null) {
-				scoringFunction.handleEvent(o);
-			}
-		}
-
-		/* Now also handle events for eventsToLegs and eventsToActivities.
-		 * This class deliberately only implements BasicEventHandler and not the individual event handlers required
-		 * by EventsToLegs and EventsToActivities to better control the order in which events are passed to scoring
-		 * functions. By handling the delegation here *after* having the events passed to scoringFunction.handleEvent()
-		 * makes sure that the corresponding event was already seen by a scoring function when the call to handleActivity(),
-		 * handleLeg() or handleTrip() is done.
-		 */
-		if (o instanceof ActivityStartEvent) this.handleActivityStart((ActivityStartEvent) o);
-		if (o instanceof ActivityEndEvent) this.actsDelegate.handleEvent((ActivityEndEvent) o);
-
-		if (o instanceof PersonDepartureEvent) this.legsDelegate.handleEvent((PersonDepartureEvent) o);
-		if (o instanceof PersonArrivalEvent) this.legsDelegate.handleEvent((PersonArrivalEvent) o);
-		if (o instanceof LinkEnterEvent) this.legsDelegate.handleEvent((LinkEnterEvent) o);
-		if (o instanceof TeleportationArrivalEvent) this.legsDelegate.handleEvent((TeleportationArrivalEvent) o);
-		if (o instanceof TransitDriverStartsEvent) this.legsDelegate.handleEvent((TransitDriverStartsEvent) o);
-		if (o instanceof PersonEntersVehicleEvent) this.legsDelegate.handleEvent((PersonEntersVehicleEvent) o);
-		if (o instanceof VehicleArrivesAtFacilityEvent) this.legsDelegate.handleEvent((VehicleArrivesAtFacilityEvent) o);
-		if (o instanceof VehicleEntersTrafficEvent) this.legsDelegate.handleEvent((VehicleEntersTrafficEvent) o);
-		if (o instanceof VehicleLeavesTrafficEvent) this.legsDelegate.handleEvent((VehicleLeavesTrafficEvent) o);
-	}
-
-	private void handleActivityStart(ActivityStartEvent event) {
-		this.actsDelegate.handleEvent(event);
-		if (!StageActivityTypeIdentifier.isStageActivity( event.getActType() ) ) {
-			this.callTripScoring(event);
+		// with several shards, these are normally registered as event handlers themselves
+		for (ScoringShard shard : this.shards) {
+			shard.handleEvent(o);
 		}
 	}
 
@@ -255,6 +200,26 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 	}
 
+	/**
+	 * Finishes the activities of the shards, and passes the legs and activities which the shards have buffered on to the
+	 * other handlers of {@link EventsToLegs} and {@link EventsToActivities}, e.g. the {@link ExperiencedPlansService}.
+	 * The persons are thus in a different order than with a single shard, but the legs and activities of each person
+	 * are in the order in which they happened.
+	 */
+	private void finishShards() {
+		for (ScoringShard shard : this.shards) {
+			shard.actsDelegate.finish();
+			for (Object experienced : shard.experienced) {
+				if (experienced instanceof PersonExperiencedLeg leg) {
+					this.eventsToLegs.passOn(leg);
+				} else {
+					this.eventsToActivities.passOn((PersonExperiencedActivity) experienced);
+				}
+			}
+			shard.experienced.clear();
+		}
+	}
+
 	/**
 	 * Returns the scoring function for the specified agent. If the agent
 	 * already has a scoring function, that one is returned. If the agent does
@@ -305,8 +270,169 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 
 	@Override
 	public void reset(int iteration) {
-		this.legsDelegate.reset(iteration);
-		this.actsDelegate.reset(iteration);
+		for (ScoringShard shard : this.shards) {
+			shard.reset(iteration);
+		}
+	}
+
+	/**
+	 * Handles the events of the persons with <code>person index % shardCount == shard</code>.  With more than one shard,
+	 * each shard is added to the events manager as a handler of its own, so a parallel events manager runs them in
+	 * different threads.
+	 * <p></p>
+	 * Every shard sees all events in their original order, and has its own {@link EventsToLegs} and {@link EventsToActivities}.
+	 * The vehicle events are only passed on to them for vehicles which persons of the shard have entered, as only the legs
+	 * of these persons depend on them.  The legs and activities go to the scoring functions right away, but are buffered
+	 * for all other handlers until {@link #finishShards()}, as these are shared between the shards.  So no state is shared
+	 * between the shards, except for the per-person maps, which are filled before the mobsim and only read afterwards.
+	 */
+	private final class ScoringShard implements BasicEventHandler {
+
+		private final int shard;
+		private final int shardCount;
+		private final EventsToLegs legsDelegate;
+		private final EventsToActivities actsDelegate;
+		private final Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
+		private final BitSet usedVehicles;
+		private final List<Object> experienced = new ArrayList<>();
+
+		ScoringShard(int shard, int shardCount, EventsToLegs legsDelegate, EventsToActivities actsDelegate) {
+			this.shard = shard;
+			this.shardCount = shardCount;
+			this.legsDelegate = legsDelegate;
+			this.actsDelegate = actsDelegate;
+			this.usedVehicles = shardCount == 1 ? null : new BitSet();
+			if (shardCount > 1) {
+				legsDelegate.addLegHandler(leg -> {
+					handleLeg(leg);
+					this.experienced.add(leg);
+				});
+				actsDelegate.addActivityHandler(activity -> {
+					handleActivity(activity);
+					this.experienced.add(activity);
+				});
+			}
+		}
+
+		private boolean isResponsibleFor(Id<Person> personId) {
+			return this.shardCount == 1 || (personId == null ? 0 : personId.index() % this.shardCount) == this.shard;
+		}
+
+		private boolean isUsedVehicle(Id<Vehicle> vehicleId) {
+			return this.usedVehicles == null || this.usedVehicles.get(vehicleId.index());
+		}
+
+		private void markUsedVehicle(Id<Vehicle> vehicleId) {
+			if (this.usedVehicles != null) {
+				this.usedVehicles.set(vehicleId.index());
+			}
+		}
+
+		@Override
+		public void handleEvent(Event o) {
+			if (o instanceof HasPersonId && !isResponsibleFor(((HasPersonId) o).getPersonId())) {
+				// the driver belongs to another shard, but passengers of this shard might be on board
+				if (o instanceof VehicleEntersTrafficEvent && isUsedVehicle(((VehicleEntersTrafficEvent) o).getVehicleId())) {
+					this.legsDelegate.handleEvent((VehicleEntersTrafficEvent) o);
+				}
+				if (o instanceof VehicleLeavesTrafficEvent && isUsedVehicle(((VehicleLeavesTrafficEvent) o).getVehicleId())) {
+					this.legsDelegate.handleEvent((VehicleLeavesTrafficEvent) o);
+				}
+				return;
+			}
+
+			// this is for the stuff that is directly based on events. note that this passes on _all_ person events, even those which are
+			// aggregated into legs and activities. for the time being, not all PersonEvents may "implement HasPersonId". link enter/leave events
+			// are NOT passed on, for performance reasons. kai/dominik, dec'12
+			if (o instanceof HasPersonId) {
+				ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
+				if (scoringFunction != null) {
+					if (o instanceof PersonStuckEvent) {
+						scoringFunction.agentStuck(o.getTime());
+					} else if (o instanceof PersonMoneyEvent) {
+						scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+						// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+						// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+					} else if (o instanceof PersonScoreEvent) {
+						scoringFunction.addScore(((PersonScoreEvent) o).getAmount());
+					}
+					scoringFunction.handleEvent(o);
+					// passing this on in any case, see comment above.  kai, mar'17
+				}
+			}
+
+			// Establish and end connection between driver and vehicle
+			if (o instanceof VehicleEntersTrafficEvent) {
+				this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+				markUsedVehicle(((VehicleEntersTrafficEvent) o).getVehicleId());
+			}
+			if (o instanceof VehicleLeavesTrafficEvent) {
+				this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+			}
+
+			// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
+			/*
+			 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
+			 * for agentId, there we have a map lookup for linkId. Should be somewhat similar in terms of average
+			 * computational complexity. In BetaTravelTest, 194sec w/ "false", 193sec w/ "true". However, the experienced
+			 * plans service in fact does the same thing, so we should be able to get away without having to do this twice.
+			 * kai, mar'17)
+			 */
+			if (o instanceof LinkEnterEvent) {
+				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
+				if (!isUsedVehicle(vehicleId)) {
+					// neither driven nor entered by a person of this shard
+					return;
+				}
+				Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
+				// (with several shards, the driver might be known to another shard only)
+				ScoringFunction scoringFunction = driverId == null ? null : getScoringFunctionForAgent( driverId );
+				// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
+				if (scoringFunction != null) {
+					scoringFunction.handleEvent(o);
+				}
+			}
+
+			/* Now also handle events for eventsToLegs and eventsToActivities.
+			 * This class deliberately only implements BasicEventHandler and not the individual event handlers required
+			 * by EventsToLegs and EventsToActivities to better control the order in which events are passed to scoring
+			 * functions. By handling the delegation here *after* having the events passed to scoringFunction.handleEvent()
+			 * makes sure that the corresponding event was already seen by a scoring function when the call to handleActivity(),
+			 * handleLeg() or handleTrip() is done.
+			 */
+			if (o instanceof ActivityStartEvent) this.handleActivityStart((ActivityStartEvent) o);
+			if (o instanceof ActivityEndEvent) this.actsDelegate.handleEvent((ActivityEndEvent) o);
+
+			if (o instanceof PersonDepartureEvent) this.legsDelegate.handleEvent((PersonDepartureEvent) o);
+			if (o instanceof PersonArrivalEvent) this.legsDelegate.handleEvent((PersonArrivalEvent) o);
+			if (o instanceof LinkEnterEvent) this.legsDelegate.handleEvent((LinkEnterEvent) o);
+			if (o instanceof TeleportationArrivalEvent) this.legsDelegate.handleEvent((TeleportationArrivalEvent) o);
+			if (o instanceof TransitDriverStartsEvent) this.legsDelegate.handleEvent((TransitDriverStartsEvent) o);
+			if (o instanceof PersonEntersVehicleEvent) {
+				markUsedVehicle(((PersonEntersVehicleEvent) o).getVehicleId());
+				this.legsDelegate.handleEvent((PersonEntersVehicleEvent) o);
+			}
+			if (o instanceof VehicleArrivesAtFacilityEvent) this.legsDelegate.handleEvent((VehicleArrivesAtFacilityEvent) o);
+			if (o instanceof VehicleEntersTrafficEvent) this.legsDelegate.handleEvent((VehicleEntersTrafficEvent) o);
+			if (o instanceof VehicleLeavesTrafficEvent) this.legsDelegate.handleEvent((VehicleLeavesTrafficEvent) o);
+		}
+
+		private void handleActivityStart(ActivityStartEvent event) {
+			this.actsDelegate.handleEvent(event);
+			if (!StageActivityTypeIdentifier.isStageActivity( event.getActType() ) ) {
+				callTripScoring(event);
+			}
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.legsDelegate.reset(iteration);
+			this.actsDelegate.reset(iteration);
+			if (this.usedVehicles != null) {
+				this.usedVehicles.clear();
+			}
+			this.experienced.clear();
+		}
 	}
 
 }
@@ -0,0 +1,78 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SlabDataContainerProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+
+import java.util.Map;
+
+/**
+ * Provides the travel time data of all links of the network from one {@link TravelTimeDataSlab}.  The data of all
+ * links is created in advance, indexed by the index of the link ids, so both the event handling and the travel time
+ * queries just look it up in an array, and multiple threads can use it without any locking.
+ *
+ * Links that are not part of the network (or were created later) get their data from a map, as the other providers
+ * do.
+ */
+class SlabDataContainerProvider implements DataContainerProvider {
+
+	private final TravelTimeData[] linkData;
+	private final DataContainerProvider delegate;
+
+	/**
+	 * @param linkData is filled with the data of all links of the network
+	 */
+	SlabDataContainerProvider(Map<Id<Link>, TravelTimeData> linkData, TravelTimeDataFactory ttDataFactory, Network network,
+			int numSlots, boolean offHeap) {
+		int linkCount = network.getLinks().size();
+		TravelTimeDataSlab slab = offHeap ? TravelTimeDataSlab.createOffHeap(linkCount, numSlots) : TravelTimeDataSlab.createOnHeap(linkCount, numSlots);
+		this.linkData = new TravelTimeData[Id.getNumberOfIds(Link.class)];
+		int position = 0;
+		for (Link link : network.getLinks().values()) {
+			TravelTimeData data = slab.createLinkData(link, position++);
+			this.linkData[link.getId().index()] = data;
+			linkData.put(link.getId(), data);
+		}
+		this.delegate = new MapBasedDataContainerProvider(linkData, ttDataFactory);
+	}
+
+	@Override
+	public TravelTimeData getTravelTimeData(Id<Link> linkId, boolean createIfMissing) {
+		int index = linkId.index();
+		if (index < this.linkData.length) {
+			TravelTimeData data = this.linkData[index];
+			if (data != null) {
+				return data;
+			}
+		}
+		synchronized (this.delegate) {
+			return this.delegate.getTravelTimeData(linkId, createIfMissing);
+		}
+	}
+
+	@Override
+	public TravelTimeData getTravelTimeData(Link link, boolean createIfMissing) {
+		return getTravelTimeData(link.getId(), createIfMissing);
+	}
+
+}
@@ -42,6 +42,7 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
@@ -50,7 +51,10 @@ import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -65,7 +69,14 @@ import java.util.concurrent.ConcurrentHashMap;
  * is stored in {@link TravelTimeData}-objects. If a short binSize is used, it is useful to
  * use {@link TravelTimeDataHashMap},}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
- * {@link TravelTimeDataArray} is used.
+ * {@link TravelTimeDataArray} is used.  For large networks, {@link TravelTimeDataSlab} stores the data of all links
+ * in one slab of primitive values, optionally off-heap, instead of millions of small objects.
+ * <br>
+ * The events can be handled by multiple threads concurrently, e.g. by a parallel events manager, as long as the
+ * events of each vehicle are handled in order.  With {@link TravelTimeDataSlab}, this does not need any locks.
+ * <br>
+ * For very many link events, the event handling itself can be split among multiple threads, see
+ * {@link #getEventHandlers()}.
  *
  * @author dgrether
  * @author mrieser
@@ -78,6 +89,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	private static final String ERROR_STUCK_AND_LINKTOLINK = "Using the stuck feature with turning move travel times is not available. As the next link of a stucked" +
 											     "agent is not known the turning move travel time cannot be calculated!";
 
+	private final Network network;
 	private final double timeSlice;
 	private final int numSlots;
 	TimeSlotComputation aggregator;
@@ -87,9 +99,9 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private Map<Tuple<Id<Link>, Id<Link>>, TravelTimeData> linkToLinkData;
 
-	private final DataContainerProvider dataContainerProvider;
+	private DataContainerProvider dataContainerProvider;
 
-	private final Map<Id<Vehicle>, LinkEnterEvent> linkEnterEvents;
+	private final Map<Id<Vehicle>, LinkEnter> linkEnters;
 
 	private final Set<Id<Vehicle>> vehiclesToIgnore;
 	private final Set<String> analyzedModes;
@@ -102,6 +114,10 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private TravelTimeDataFactory ttDataFactory = null;
 
+	private int eventHandlerShards = 1;
+
+	private List<EventHandler> shards = null;
+
 	@Inject private QSimConfigGroup qsimConfig ;
 	TravelTimeGetter travelTimeGetter ;
 
@@ -116,6 +132,8 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		// This should be replaced by a builder if we need the functionality.  kai/mads, feb'19
 
 
+		calculator.eventHandlerShards = config.getEventHandlerShards();
+
 		// Customize micro-behavior of the TravelTimeCalculator based on config. Should not be necessary for most use cases.
 		switch ( config.getTravelTimeCalculatorType() ) {
 			case TravelTimeCalculatorArray:
@@ -124,6 +142,15 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			case TravelTimeCalculatorHashMap:
 				calculator.ttDataFactory = new TravelTimeDataHashMapFactory(network);
 				break;
+			case TravelTimeCalculatorSlab:
+			case TravelTimeCalculatorSlabOffHeap:
+				// the link to link travel times cannot be indexed by link, so they keep one array per pair of links
+				calculator.ttDataFactory = new TravelTimeDataArrayFactory(network, calculator.numSlots);
+				if (calculator.calculateLinkTravelTimes) {
+					calculator.dataContainerProvider = new SlabDataContainerProvider(calculator.linkData, calculator.ttDataFactory, network, calculator.numSlots,
+							config.getTravelTimeCalculatorType() == TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorSlabOffHeap);
+				}
+				break;
 			default:
 				throw new RuntimeException(config.getTravelTimeCalculatorType() + " is unknown!");
 		}
@@ -148,8 +175,8 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		// this injected constructor is not used when getSeparateModes is true
 		this(network, ttconfigGroup.getTraveltimeBinSize(), ttconfigGroup.getMaxTime(), ttconfigGroup.isCalculateLinkTravelTimes(),
 			  ttconfigGroup.isCalculateLinkToLinkTravelTimes(), ttconfigGroup.isFilterModes(), CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModesAsString() ) );
-		eventsManager.addHandler(this);
 		configure(this, ttconfigGroup, network);
+		this.getEventHandlers().forEach(eventsManager::addHandler);
 	}
 
 	@Deprecated // user builder instead.  kai, feb'19
@@ -177,6 +204,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		private Set<String> analyzedModes = null ;
 		private TravelTimeCalculatorConfigGroup ttcConfig;
 		private boolean toBeConfigured = false ;
+		private Integer eventHandlerShards = null ;
 
 		public Builder( Network network ) {
 			this.network = network ;
@@ -206,6 +234,13 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			this.analyzedModes = analyzedModes;
 		}
 
+		/**
+		 * Overrides the number of event handler shards of the config, see {@link TravelTimeCalculator#getEventHandlers()}.
+		 */
+		public void setEventHandlerShards( int eventHandlerShards ){
+			this.eventHandlerShards = eventHandlerShards;
+		}
+
 		public void configure ( TravelTimeCalculatorConfigGroup ttcConfig ) {
 			// yyyyyy this is a fix to get the outward API sorted out somewhat better.  kai, feb'19
 			// yyyyyy presumably would like to replace this with setters for {@link TravelTimeDataFactory} and {@link TravelTimeGetter}.  But it ain't that easy because
@@ -221,6 +256,9 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			if( toBeConfigured ){
 				TravelTimeCalculator.configure( abc, this.ttcConfig, this.network );
 			}
+			if( eventHandlerShards != null ){
+				abc.eventHandlerShards = eventHandlerShards;
+			}
 			return abc ;
 		}
 
@@ -228,6 +266,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private TravelTimeCalculator(final Network network, final double timeslice, final int maxTime,
 								 boolean calculateLinkTravelTimes, boolean calculateLinkToLinkTravelTimes, boolean filterModes, Set<String> analyzedModes) {
+		this.network = network;
 		this.calculateLinkTravelTimes = calculateLinkTravelTimes;
 		this.calculateLinkToLinkTravelTimes = calculateLinkToLinkTravelTimes;
 		this.filterAnalyzedModes = filterModes;
@@ -257,40 +296,86 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 			// assume that every link has 2 outgoing links as default
 			this.linkToLinkData = new ConcurrentHashMap<>((int) (network.getLinks().size() * 1.4 * 2));
 		}
-		this.linkEnterEvents = new ConcurrentHashMap<>();
+		this.linkEnters = new ConcurrentHashMap<>();
 
 		// if we just look at one mode, we need to ignore all vehicles with a different mode. However, the info re the mode is only in
 		// the vehicleEntersTraffic event.  So we need to memorize the ignored vehicles from there ...
-		this.vehiclesToIgnore = new HashSet<>();
+		this.vehiclesToIgnore = ConcurrentHashMap.newKeySet();
 
 		this.reset(0);
 	}
 
+	/**
+	 * Returns the event handlers that have to be added to the events manager, instead of the calculator itself.
+	 * <br>
+	 * With one event handler shard (the default), this is just the calculator.  With more, the link events are split
+	 * among the shards by the index of the link, and every shard handles the link events of its links only.  As the
+	 * shards are separate event handlers, a {@link org.matsim.core.events.ParallelEventsManager} runs each of them in
+	 * its own thread.  The enter and leave events of a vehicle on a link always go to the same shard, so every shard
+	 * keeps the link enter times in its own table, indexed by vehicle.  And as no two shards add travel times to the
+	 * same link, they do not need to be merged afterwards; the data of all links is just consolidated when it is read,
+	 * as usual.  The link to link travel times cannot be split by link, so they are not supported with more than one
+	 * shard.
+	 * <br>
+	 * The data containers of all links of the network are created here, before the shards handle any event, so the
+	 * shards only look them up and never modify the shared link data.  Link events on links that are not part of the
+	 * network are thus not supported by the shards.
+	 */
+	public List<EventHandler> getEventHandlers() {
+		if (this.eventHandlerShards <= 1) {
+			return List.of(this);
+		}
+		if (this.calculateLinkToLinkTravelTimes) {
+			throw new IllegalStateException("Link to link travel times are not supported with more than one event handler shard.");
+		}
+		if (this.shards == null) {
+			if (this.calculateLinkTravelTimes) {
+				for (Id<Link> linkId : this.network.getLinks().keySet()) {
+					this.dataContainerProvider.getTravelTimeData(linkId, true);
+				}
+			}
+			List<EventHandler> shards = new ArrayList<>(this.eventHandlerShards);
+			for (int i = 0; i < this.eventHandlerShards; i++) {
+				shards.add(new Shard(i, this.eventHandlerShards));
+			}
+			this.shards = List.copyOf(shards);
+		}
+		return this.shards;
+	}
+
 	@Override
 	public void handleEvent(final LinkEnterEvent e) {
+		if (this.shards != null) {
+			throw new IllegalStateException("The events are handled by the shards of the calculator. Add getEventHandlers() to the events manager instead of the calculator itself.");
+		}
 		/* if only some modes are analyzed, we check whether the vehicles
 		 * performs a trip with one of those modes. if not, we skip the event. */
 		if (filterAnalyzedModes && vehiclesToIgnore.contains(e.getVehicleId())) return;
 
-		LinkEnterEvent oldEvent = this.linkEnterEvents.put(e.getVehicleId(), e);
-		if ((oldEvent != null) && this.calculateLinkToLinkTravelTimes) {
-			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(oldEvent.getLinkId(), e.getLinkId());
+		LinkEnter linkEnter = this.linkEnters.get(e.getVehicleId());
+		if (linkEnter == null) {
+			linkEnter = new LinkEnter();
+			this.linkEnters.put(e.getVehicleId(), linkEnter);
+		} else if (this.calculateLinkToLinkTravelTimes) {
+			Tuple<Id<Link>, Id<Link>> fromToLink = new Tuple<>(linkEnter.linkId, e.getLinkId());
 			TravelTimeData data = getLinkToLinkTravelTimeData(fromToLink );
-			double enterTime = oldEvent.getTime();
+			double enterTime = linkEnter.time;
 
 			final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 			data.addTravelTime(timeSlot, e.getTime() - enterTime );
 			data.setNeedsConsolidation( true );
 		}
+		linkEnter.linkId = e.getLinkId();
+		linkEnter.time = e.getTime();
 	}
 
 	@Override
 	public void handleEvent(final LinkLeaveEvent e) {
 		if (this.calculateLinkTravelTimes) {
-			LinkEnterEvent oldEvent = this.linkEnterEvents.get(e.getVehicleId());
-			if (oldEvent != null) {
+			LinkEnter linkEnter = this.linkEnters.get(e.getVehicleId());
+			if (linkEnter != null) {
 				TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
-				double enterTime = oldEvent.getTime();
+				double enterTime = linkEnter.time;
 
 				final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 				data.addTravelTime(timeSlot, e.getTime() - enterTime );
@@ -314,7 +399,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a vehicle arrives.
 		 * otherwise, the activity duration would counted as travel time, when the
 		 * vehicle departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnters.remove(event.getVehicleId());
 
 		// try to remove vehicles from set with filtered vehicles
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
@@ -325,14 +410,14 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		/* remove EnterEvents from list when a bus stops on a link.
 		 * otherwise, the stop time would counted as travel time, when the
 		 * bus departs again and leaves the link! */
-		this.linkEnterEvents.remove(event.getVehicleId());
+		this.linkEnters.remove(event.getVehicleId());
 	}
 
 	@Override
 	public void handleEvent(VehicleAbortsEvent event) {
-		LinkEnterEvent e = this.linkEnterEvents.remove(event.getVehicleId());
+		LinkEnter e = this.linkEnters.remove(event.getVehicleId());
 		if (e != null) {
-			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
+			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.linkId, true);
 			data.setNeedsConsolidation( true );
 
 			//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
@@ -351,11 +436,121 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		if (filterAnalyzedModes) this.vehiclesToIgnore.remove(event.getVehicleId());
 	}
 
+	/**
+	 * The link which a vehicle entered last, and when.  The event itself is not kept, as the mobsim might re-use it for
+	 * other vehicles later, see {@link QSimConfigGroup#setUsingPooledLinkEvents(boolean)}.
+	 */
+	private static final class LinkEnter {
+		private Id<Link> linkId;
+		private double time;
+	}
+
+	/**
+	 * Handles the link events of the links with <code>link index % shardCount == shardIndex</code>, but the vehicle events
+	 * of all links, as they tell when to forget the enter time of the vehicle, or which vehicles to ignore.
+	 */
+	private final class Shard implements LinkEnterEventHandler, LinkLeaveEventHandler, VehicleEntersTrafficEventHandler,
+			VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler, VehicleAbortsEventHandler {
+
+		private final int shardIndex;
+		private final int shardCount;
+		private double[] enterTimes = new double[0];
+		private final BitSet vehiclesToIgnore = new BitSet();
+
+		Shard(int shardIndex, int shardCount) {
+			this.shardIndex = shardIndex;
+			this.shardCount = shardCount;
+		}
+
+		private boolean isOwnLink(Id<Link> linkId) {
+			return linkId.index() % this.shardCount == this.shardIndex;
+		}
+
+		private double removeEnterTime(int vehicleIndex) {
+			if (vehicleIndex >= this.enterTimes.length) {
+				return Double.NaN;
+			}
+			double enterTime = this.enterTimes[vehicleIndex];
+			this.enterTimes[vehicleIndex] = Double.NaN;
+			return enterTime;
+		}
+
+		private TravelTimeData getTravelTimeData(Id<Link> linkId) {
+			// the data of all links was created before the shards were, see getEventHandlers()
+			TravelTimeData data = dataContainerProvider.getTravelTimeData(linkId, false);
+			if (data == null) {
+				throw new IllegalStateException("Link " + linkId + " is not part of the network of the travel time calculator, which is not supported with more than one event handler shard.");
+			}
+			return data;
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent e) {
+			if (!isOwnLink(e.getLinkId())) return;
+			int vehicleIndex = e.getVehicleId().index();
+			if (filterAnalyzedModes && this.vehiclesToIgnore.get(vehicleIndex)) return;
+
+			if (vehicleIndex >= this.enterTimes.length) {
+				int oldLength = this.enterTimes.length;
+				this.enterTimes = Arrays.copyOf(this.enterTimes, Math.max(vehicleIndex + 1, oldLength * 2));
+				Arrays.fill(this.enterTimes, oldLength, this.enterTimes.length, Double.NaN);
+			}
+			this.enterTimes[vehicleIndex] = e.getTime();
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent e) {
+			if (!calculateLinkTravelTimes || !isOwnLink(e.getLinkId())) return;
+			double enterTime = removeEnterTime(e.getVehicleId().index());
+			if (!Double.isNaN(enterTime)) {
+				TravelTimeData data = getTravelTimeData(e.getLinkId());
+				data.addTravelTime(aggregator.getTimeSlotIndex(enterTime), e.getTime() - enterTime);
+				data.setNeedsConsolidation(true);
+			}
+		}
+
+		@Override
+		public void handleEvent(VehicleEntersTrafficEvent event) {
+			if (filterAnalyzedModes && !analyzedModes.contains(event.getNetworkMode())) {
+				this.vehiclesToIgnore.set(event.getVehicleId().index());
+			}
+		}
+
+		@Override
+		public void handleEvent(VehicleLeavesTrafficEvent event) {
+			removeEnterTime(event.getVehicleId().index());
+			this.vehiclesToIgnore.clear(event.getVehicleId().index());
+		}
+
+		@Override
+		public void handleEvent(VehicleArrivesAtFacilityEvent event) {
+			removeEnterTime(event.getVehicleId().index());
+		}
+
+		@Override
+		public void handleEvent(VehicleAbortsEvent event) {
+			double enterTime = removeEnterTime(event.getVehicleId().index());
+			if (!Double.isNaN(enterTime) && calculateLinkTravelTimes && isOwnLink(event.getLinkId())) {
+				getTravelTimeData(event.getLinkId()).setNeedsConsolidation(true);
+			}
+			this.vehiclesToIgnore.clear(event.getVehicleId().index());
+		}
+
+		@Override
+		public void reset(int iteration) {
+			Arrays.fill(this.enterTimes, Double.NaN);
+			this.vehiclesToIgnore.clear();
+			if (this.shardIndex == 0) {
+				// the calculator itself is not added to the events manager
+				TravelTimeCalculator.this.reset(iteration);
+			}
+		}
+	}
+
 	private TravelTimeData getLinkToLinkTravelTimeData( Tuple<Id<Link>, Id<Link>> fromLinkToLink ) {
 		TravelTimeData data = this.linkToLinkData.get(fromLinkToLink);
 		if ( null == data ) {
-			data = this.ttDataFactory.createTravelTimeData(fromLinkToLink.getFirst()) ;
-			this.linkToLinkData.put(fromLinkToLink, data);
+			data = this.linkToLinkData.computeIfAbsent(fromLinkToLink, key -> this.ttDataFactory.createTravelTimeData(key.getFirst()));
 		}
 		return data;
 	}
@@ -433,7 +628,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 				data.setNeedsConsolidation( false );
 			}
 		}
-		this.linkEnterEvents.clear();
+		this.linkEnters.clear();
 		this.vehiclesToIgnore.clear();
 	}
 
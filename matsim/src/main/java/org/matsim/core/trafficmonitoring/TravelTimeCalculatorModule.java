@@ -127,7 +127,7 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 			builder.setAnalyzedModes( CollectionUtils.stringToSet( mode ) );
 			builder.configure( config );
 			TravelTimeCalculator calculator = builder.build();
-			eventsManager.addHandler( calculator );
+			calculator.getEventHandlers().forEach( eventsManager::addHandler );
 			return calculator ;
 		}
 	}
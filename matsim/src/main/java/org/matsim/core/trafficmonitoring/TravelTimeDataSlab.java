@@ -0,0 +1,223 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataSlab.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import org.matsim.api.core.v01.network.Link;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Stores the travel time data of many links in one slab of primitive values, instead of one array per link as
+ * {@link TravelTimeDataArray} does.  With 1M links, this saves millions of small objects the garbage collector would
+ * have to look at, and with {@link #createOffHeap(int, int)}, the data is not even on the heap.
+ *
+ * For each link and time-bin, one long-value contains the count of the travel times as int-value in the higher
+ * 4 bytes, and the sum of the travel times as float-value in the lower 4 bytes.  If there is no travel time yet, the
+ * lower 4 bytes contain the free speed travel time once it was asked for, or a negative value before.  As both parts
+ * are in the same long-value, a travel time is added with a single compare-and-set operation, so multiple threads can
+ * add travel times without any locking.
+ *
+ * The {@link TravelTimeData} of a link is a view on its part of the slab, see {@link #createLinkData(Link, int)}.
+ */
+abstract class TravelTimeDataSlab {
+
+	static final long EMPTY = encode(0, -1.0f);
+
+	static long encode(int count, float value) {
+		return ((long) count << 32) | (Float.floatToRawIntBits(value) & 0xffffffffL);
+	}
+
+	static int count(long encoded) {
+		return (int) (encoded >>> 32);
+	}
+
+	static float value(long encoded) {
+		return Float.intBitsToFloat((int) encoded);
+	}
+
+	final int numSlots;
+
+	TravelTimeDataSlab(int numSlots) {
+		this.numSlots = numSlots;
+	}
+
+	static TravelTimeDataSlab createOnHeap(int linkCount, int numSlots) {
+		long size = (long) linkCount * numSlots;
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("The travel time data of " + size + " time-bins does not fit into an array. Store it off-heap instead.");
+		}
+		return new OnHeap((int) size, numSlots);
+	}
+
+	static TravelTimeDataSlab createOffHeap(int linkCount, int numSlots) {
+		return new OffHeap((long) linkCount * numSlots, numSlots);
+	}
+
+	abstract long get(long index);
+
+	abstract void set(long index, long value);
+
+	abstract boolean compareAndSet(long index, long expectedValue, long newValue);
+
+	abstract void fill(long fromIndex, long toIndex, long value);
+
+	/**
+	 * @param position the position of the link in the slab, from 0 to the number of links - 1
+	 */
+	TravelTimeData createLinkData(Link link, int position) {
+		return new LinkData(this, link, (long) position * this.numSlots);
+	}
+
+	private static final class OnHeap extends TravelTimeDataSlab {
+
+		private static final VarHandle LONG_ARRAY = MethodHandles.arrayElementVarHandle(long[].class);
+
+		private final long[] data;
+
+		OnHeap(int size, int numSlots) {
+			super(numSlots);
+			this.data = new long[size];
+			Arrays.fill(this.data, EMPTY);
+		}
+
+		@Override
+		long get(long index) {
+			return this.data[(int) index];
+		}
+
+		@Override
+		void set(long index, long value) {
+			this.data[(int) index] = value;
+		}
+
+		@Override
+		boolean compareAndSet(long index, long expectedValue, long newValue) {
+			return LONG_ARRAY.compareAndSet(this.data, (int) index, expectedValue, newValue);
+		}
+
+		@Override
+		void fill(long fromIndex, long toIndex, long value) {
+			Arrays.fill(this.data, (int) fromIndex, (int) toIndex, value);
+		}
+	}
+
+	/**
+	 * Stores the data in direct byte buffers.  As a single buffer is limited to 2 GB, the data is split into chunks.
+	 */
+	private static final class OffHeap extends TravelTimeDataSlab {
+
+		private static final VarHandle LONG_BUFFER = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+		private static final int CHUNK_BITS = 27; // 2^27 long-values = 1 GB per chunk
+		private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+		private final ByteBuffer[] chunks;
+
+		OffHeap(long size, int numSlots) {
+			super(numSlots);
+			int chunkCount = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+			this.chunks = new ByteBuffer[chunkCount];
+			for (int i = 0; i < chunkCount; i++) {
+				long chunkSize = Math.min(size - ((long) i << CHUNK_BITS), 1L << CHUNK_BITS);
+				// compare-and-set requires the long-values to be aligned
+				this.chunks[i] = ByteBuffer.allocateDirect((int) chunkSize * Long.BYTES + Long.BYTES).alignedSlice(Long.BYTES).order(ByteOrder.nativeOrder());
+			}
+			fill(0, size, EMPTY);
+		}
+
+		@Override
+		long get(long index) {
+			return (long) LONG_BUFFER.get(this.chunks[(int) (index >>> CHUNK_BITS)], (int) (index & CHUNK_MASK) << 3);
+		}
+
+		@Override
+		void set(long index, long value) {
+			LONG_BUFFER.set(this.chunks[(int) (index >>> CHUNK_BITS)], (int) (index & CHUNK_MASK) << 3, value);
+		}
+
+		@Override
+		boolean compareAndSet(long index, long expectedValue, long newValue) {
+			return LONG_BUFFER.compareAndSet(this.chunks[(int) (index >>> CHUNK_BITS)], (int) (index & CHUNK_MASK) << 3, expectedValue, newValue);
+		}
+
+		@Override
+		void fill(long fromIndex, long toIndex, long value) {
+			for (long index = fromIndex; index < toIndex; index++) {
+				set(index, value);
+			}
+		}
+	}
+
+	private static final class LinkData extends TravelTimeData {
+
+		private final TravelTimeDataSlab slab;
+		private final Link link;
+		private final long offset;
+
+		LinkData(TravelTimeDataSlab slab, Link link, long offset) {
+			this.slab = slab;
+			this.link = link;
+			this.offset = offset;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			this.slab.fill(this.offset, this.offset + this.slab.numSlots, EMPTY);
+		}
+
+		@Override
+		void setTravelTime(int timeSlot, double traveltime) {
+			this.slab.set(this.offset + timeSlot, encode(1, (float) traveltime));
+		}
+
+		@Override
+		void addTravelTime(int timeSlot, double traveltime) {
+			long index = this.offset + timeSlot;
+			long val;
+			long newVal;
+			do {
+				val = this.slab.get(index);
+				int cnt = count(val);
+				float sum = cnt == 0 ? 0.0f : value(val);
+				newVal = encode(cnt + 1, sum + (float) traveltime);
+			} while (!this.slab.compareAndSet(index, val, newVal));
+		}
+
+		@Override
+		double getTravelTime(int timeSlot, double now) {
+			long index = this.offset + timeSlot;
+			long val = this.slab.get(index);
+			int cnt = count(val);
+			float value = value(val);
+			if (cnt > 0) return (double) value / cnt;
+			if (value >= 0.0f) return value;
+
+			// no travel time was ever added, so just use freespeed
+			double freespeed = this.link.getLength() / this.link.getFreespeed(now);
+			this.slab.compareAndSet(index, val, encode(0, (float) freespeed)); // unless someone added a travel time in the meantime
+			return freespeed;
+		}
+	}
+
+}
@@ -29,6 +29,8 @@ import javax.xml.parsers.SAXParserFactory;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.population.io.PopulationReaderBinary;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -95,6 +97,10 @@ public class MatsimFileTypeGuesser extends DefaultHandler {
 
 		} else if (name.endsWith(".txt.gz") || name.endsWith(".txt")) {
 			this.fileType = FileType.Events;
+		} else if (name.endsWith(".bin") && EventsReaderBinary.isBinaryEventsFile(fileName)) {
+			this.fileType = FileType.Events;
+		} else if (name.endsWith(".bin") && PopulationReaderBinary.isBinaryPopulationFile(fileName)) {
+			this.fileType = FileType.Population;
 		} else if (name.endsWith(".mvi.gz") || name.endsWith(".mvi")) {
 			this.fileType = FileType.OTFVis;
 		} else if (name.endsWith(".veh.gz") || name.endsWith(".veh")) {
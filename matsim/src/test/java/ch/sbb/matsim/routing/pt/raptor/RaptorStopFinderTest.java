@@ -36,6 +36,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author rehmann / VSP
@@ -1842,6 +1843,60 @@ public class RaptorStopFinderTest {
         }
     }
 
+    /**
+     * Tests that access routes are only calculated once for requests from the same location to the same stop within
+     * the same time bin, and that the cached routes are adapted to the departure time.
+     */
+    @Test
+    public void testDefaultStopFinder_RouteCache() {
+        StopFinderFixture f0 = new StopFinderFixture(1., 1., 1., 1.);
+        AtomicInteger routingCalls = new AtomicInteger();
+        RoutingModule walkRouter = new TeleportationRoutingModule(TransportMode.walk, f0.scenario, 1000., 1.0);
+        Map<String, RoutingModule> routingModules = new HashMap<>();
+        routingModules.put(TransportMode.walk, request -> {
+            routingCalls.incrementAndGet();
+            return walkRouter.calcRoute(request);
+        });
+
+        f0.srrConfig.setUseIntermodalAccessEgress(true);
+        f0.srrConfig.setIntermodalAccessEgressRouteCacheSize(100);
+        SwissRailRaptorConfigGroup.IntermodalAccessEgressParameterSet walkAccess = new SwissRailRaptorConfigGroup.IntermodalAccessEgressParameterSet();
+        walkAccess.setMode(TransportMode.walk);
+        walkAccess.setMaxRadius(1200);
+        walkAccess.setInitialSearchRadius(1200);
+        walkAccess.setSearchExtensionRadius(0);
+        f0.srrConfig.addIntermodalAccessEgress(walkAccess);
+
+        SwissRailRaptorData data = SwissRailRaptorData.create(f0.scenario.getTransitSchedule(), null, RaptorUtils.createStaticConfig(f0.config), f0.scenario.getNetwork(), null);
+        RaptorParameters parameters = RaptorUtils.createParameters(f0.config);
+        DefaultRaptorStopFinder stopFinder = new DefaultRaptorStopFinder(new DefaultRaptorIntermodalAccessEgress(), routingModules);
+
+        List<InitialStop> stops = stopFinder.findStops(this.fromFac, this.toFac, f0.dummyPerson, 7 * 3600, null, parameters, data, RaptorStopFinder.Direction.ACCESS);
+        int stopCount = stops.size();
+        Assert.assertTrue(stopCount > 1);
+        Assert.assertEquals(stopCount, routingCalls.get());
+
+        List<InitialStop> cachedStops = stopFinder.findStops(this.fromFac, this.toFac, f0.dummyPerson, 7 * 3600 + 100, null, parameters, data, RaptorStopFinder.Direction.ACCESS);
+        Assert.assertEquals("the routes should have been taken from the cache.", stopCount, routingCalls.get());
+        Assert.assertEquals(stopCount, cachedStops.size());
+        for (int i = 0; i < stops.size(); i++) {
+            InitialStop stop = stops.get(i);
+            InitialStop cachedStop = cachedStops.get(i);
+            Assert.assertEquals(stop.stop, cachedStop.stop);
+            Assert.assertEquals(stop.accessCost, cachedStop.accessCost, 1e-7);
+            Assert.assertEquals(stop.accessTime, cachedStop.accessTime, 1e-7);
+            Leg leg = (Leg) stop.planElements.get(0);
+            Leg cachedLeg = (Leg) cachedStop.planElements.get(0);
+            Assert.assertNotSame(leg, cachedLeg);
+            Assert.assertEquals(7 * 3600, leg.getDepartureTime().seconds(), 1e-7);
+            Assert.assertEquals(7 * 3600 + 100, cachedLeg.getDepartureTime().seconds(), 1e-7);
+            Assert.assertEquals(leg.getRoute().getEndLinkId(), cachedLeg.getRoute().getEndLinkId());
+        }
+
+        stopFinder.findStops(this.fromFac, this.toFac, f0.dummyPerson, 8 * 3600, null, parameters, data, RaptorStopFinder.Direction.ACCESS);
+        Assert.assertEquals("a request in another time bin should not use the cache.", 2 * stopCount, routingCalls.get());
+    }
+
     private static class StopFinderFixture {
 
         final SwissRailRaptorConfigGroup srrConfig;
@@ -5,15 +5,25 @@
 package ch.sbb.matsim.routing.pt.raptor;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
 
 /**
  * @author mrieser / SBB
  */
 public class SwissRailRaptorDataTest {
 
+    @Rule
+    public MatsimTestUtils utils = new MatsimTestUtils();
+
     @Test
     public void testTransfersFromSchedule() {
         Fixture f = new Fixture();
@@ -82,4 +92,61 @@ public class SwissRailRaptorDataTest {
         Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.length, data4.transfers.length);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testParallelAndCachedTransfers() throws IOException {
+        Fixture f = new Fixture();
+        f.init();
+        f.schedule.getMinimalTransferTimes().set(Id.create(19, TransitStopFacility.class), Id.create(9, TransitStopFacility.class), 345);
+
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        raptorConfig.setNumberOfThreads(1);
+        SwissRailRaptorData expected = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+
+        raptorConfig.setNumberOfThreads(4);
+        assertSameData(expected, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null));
+
+        Path cacheDirectory = Path.of(this.utils.getOutputDirectory(), "transfers");
+        raptorConfig.setTransfersCacheDirectory(cacheDirectory.toString());
+        assertSameData(expected, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null));
+        Assert.assertEquals(1, countFiles(cacheDirectory));
+        assertSameData(expected, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null));
+        Assert.assertEquals(1, countFiles(cacheDirectory));
+
+        // other transfer settings need other transfers
+        raptorConfig.setMinimalTransferTime(600);
+        raptorConfig.setTransfersCacheDirectory(null);
+        SwissRailRaptorData expected2 = SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null);
+        Assert.assertEquals(600, expected2.transfers[0].transferTime);
+        raptorConfig.setTransfersCacheDirectory(cacheDirectory.toString());
+        assertSameData(expected2, SwissRailRaptorData.create(f.schedule, null, raptorConfig, f.network, null));
+        Assert.assertEquals(2, countFiles(cacheDirectory));
+    }
+
+    private static void assertSameData(SwissRailRaptorData expected, SwissRailRaptorData actual) {
+        Assert.assertEquals(expected.countStops, actual.countStops);
+        Assert.assertArrayEquals(expected.departures, actual.departures);
+        Assert.assertEquals(expected.routeStops.length, actual.routeStops.length);
+        for (int i = 0; i < expected.routeStops.length; i++) {
+            SwissRailRaptorData.RRouteStop expectedStop = expected.routeStops[i];
+            SwissRailRaptorData.RRouteStop actualStop = actual.routeStops[i];
+            Assert.assertSame(expectedStop.routeStop, actualStop.routeStop);
+            Assert.assertEquals(expectedStop.stopFacilityIndex, actualStop.stopFacilityIndex);
+            Assert.assertEquals(expectedStop.distanceAlongRoute, actualStop.distanceAlongRoute, 0.0);
+            Assert.assertEquals(expectedStop.indexFirstTransfer, actualStop.indexFirstTransfer);
+            Assert.assertEquals(expectedStop.countTransfers, actualStop.countTransfers);
+        }
+        Assert.assertEquals(expected.transfers.length, actual.transfers.length);
+        for (int i = 0; i < expected.transfers.length; i++) {
+            Assert.assertEquals(expected.transfers[i].fromRouteStop, actual.transfers[i].fromRouteStop);
+            Assert.assertEquals(expected.transfers[i].toRouteStop, actual.transfers[i].toRouteStop);
+            Assert.assertEquals(expected.transfers[i].transferTime, actual.transfers[i].transferTime);
+            Assert.assertEquals(expected.transfers[i].transferDistance, actual.transfers[i].transferDistance);
+        }
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
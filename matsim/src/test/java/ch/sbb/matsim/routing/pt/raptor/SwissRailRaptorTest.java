@@ -18,11 +18,13 @@ import org.matsim.api.core.v01.network.NetworkFactory;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ModeParams;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
 import org.matsim.core.router.DefaultRoutingModules;
@@ -46,6 +48,7 @@ import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.utils.objectattributes.attributable.AttributesImpl;
+import org.matsim.vehicles.Vehicle;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -700,6 +703,69 @@ public class SwissRailRaptorTest {
         assertRaptorRoute(routes.get(5), "06:40:12", "07:11:56", 1, 7.3466666);
     }
 
+    @Test
+    public void testRangeQuery_profileCache() {
+        Fixture f = new Fixture();
+        f.init();
+        SwissRailRaptor raptor = createTransitRouter(f.schedule, f.config, f.network);
+        // the routers read the config when routing, so the caching router needs its own
+        Fixture cachingFixture = new Fixture();
+        cachingFixture.init();
+        ConfigUtils.addOrGetModule(cachingFixture.config, SwissRailRaptorConfigGroup.class).setRangeQueryProfileCacheSize(10);
+        SwissRailRaptor cachingRaptor = createTransitRouter(cachingFixture.schedule, cachingFixture.config, cachingFixture.network);
+
+        Coord[] fromCoords = { new Coord(3800, 5100), new Coord(3900, 5050), new Coord(4000, 4950) };
+        Coord[] toCoords = { new Coord(28100, 4950), new Coord(16100, 10050), new Coord(23000, 5100) };
+        double[] depTimes = { 5.0 * 3600 + 50 * 60, 5.0 * 3600 + 55 * 60, 6.0 * 3600 + 10 * 60 };
+        for (Coord fromCoord : fromCoords) {
+            for (Coord toCoord : toCoords) {
+                for (double depTime : depTimes) {
+                    List<RaptorRoute> expected = raptor.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), depTime - 600, depTime, depTime + 3600, null, new AttributesImpl());
+                    List<RaptorRoute> routes = cachingRaptor.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), depTime - 600, depTime, depTime + 3600, null, new AttributesImpl());
+                    Assert.assertEquals(expected.size(), routes.size());
+                    for (int i = 0; i < expected.size(); i++) {
+                        assertRaptorRoute(routes.get(i), Time.writeTime(expected.get(i).getDepartureTime()), Time.writeTime(expected.get(i).getDepartureTime() + expected.get(i).getTravelTime()),
+                                expected.get(i).getNumberOfTransfers(), expected.get(i).getTotalCosts());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRangeQuery_profileCacheWithPersonDependentCosts() {
+        Fixture f = new Fixture();
+        f.init();
+        Fixture cachingFixture = new Fixture();
+        cachingFixture.init();
+        ConfigUtils.addOrGetModule(cachingFixture.config, SwissRailRaptorConfigGroup.class).setRangeQueryProfileCacheSize(10);
+        Person commuter = PopulationUtils.getFactory().createPerson(Id.createPersonId("commuter"));
+        Person tourist = PopulationUtils.getFactory().createPerson(Id.createPersonId("tourist"));
+        RaptorInVehicleCostCalculator inVehicleCostCalculator = new RaptorInVehicleCostCalculator() {
+            @Override
+            public double getInVehicleCost(double inVehicleTime, double marginalUtility_utl_s, Person person, Vehicle vehicle, RaptorParameters parameters, RouteSegmentIterator iterator) {
+                return inVehicleTime * -marginalUtility_utl_s * (person == tourist ? 3 : 1);
+            }
+        };
+        SwissRailRaptor raptor = new SwissRailRaptor.Builder(SwissRailRaptorData.create(f.schedule, null, RaptorUtils.createStaticConfig(f.config), f.network, null), f.config)
+                .with(inVehicleCostCalculator).build();
+        SwissRailRaptor cachingRaptor = new SwissRailRaptor.Builder(SwissRailRaptorData.create(cachingFixture.schedule, null, RaptorUtils.createStaticConfig(cachingFixture.config), cachingFixture.network, null), cachingFixture.config)
+                .with(inVehicleCostCalculator).build();
+
+        Coord fromCoord = new Coord(3800, 5100);
+        Coord toCoord = new Coord(16100, 10050);
+        double depTime = 5.0 * 3600 + 50 * 60;
+        for (Person person : new Person[] { commuter, tourist }) {
+            List<RaptorRoute> expected = raptor.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), depTime - 600, depTime, depTime + 3600, person, new AttributesImpl());
+            List<RaptorRoute> routes = cachingRaptor.calcRoutes(new FakeFacility(fromCoord), new FakeFacility(toCoord), depTime - 600, depTime, depTime + 3600, person, new AttributesImpl());
+            Assert.assertEquals(expected.size(), routes.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertRaptorRoute(routes.get(i), Time.writeTime(expected.get(i).getDepartureTime()), Time.writeTime(expected.get(i).getDepartureTime() + expected.get(i).getTravelTime()),
+                        expected.get(i).getNumberOfTransfers(), expected.get(i).getTotalCosts());
+            }
+        }
+    }
+
     private void assertRaptorRoute(RaptorRoute route, String depTime, String arrTime, int expectedTransfers, double expectedCost) {
         Assert.assertEquals("wrong number of transfers", expectedTransfers, route.getNumberOfTransfers());
         Assert.assertEquals("wrong departure time", Time.parseTime(depTime), route.getDepartureTime(), 0.99);
@@ -0,0 +1,142 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.MatsimFileTypeGuesser;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class EventsReaderBinaryTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			double time = 6 * 3600 + i * 2;
+			String p = Integer.toString(i % 37);
+			events.add(new ActivityEndEvent(time, Id.createPersonId(p), Id.createLinkId(i % 11), null, "home", new Coord(1234.5, -0.25 * i)));
+			events.add(new PersonDepartureEvent(time, Id.createPersonId(p), Id.createLinkId(i % 11), "car", "car"));
+			events.add(new VehicleEntersTrafficEvent(time, Id.createPersonId(p), Id.createLinkId(i % 11), Id.createVehicleId(p), "car", 1.0));
+			events.add(new LinkLeaveEvent(time + 0.5, Id.createVehicleId(p), Id.createLinkId(i % 11)));
+			events.add(new LinkEnterEvent(time + 1, Id.createVehicleId(p), Id.createLinkId(100 + i % 7)));
+			events.add(new PersonMoneyEvent(time + 1, Id.createPersonId(p), -1.5 * i, "toll", null));
+			GenericEvent generic = new GenericEvent("myType", time + 1);
+			generic.getAttributes().put("someKey", "value " + (i % 3));
+			generic.getAttributes().put("number", "0" + i);
+			events.add(generic);
+		}
+		return events;
+	}
+
+	private String writeEvents(List<Event> events) {
+		String filename = utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename, 600);
+		events.forEach(writer::handleEvent);
+		writer.closeFile();
+		return filename;
+	}
+
+	@Test
+	public void testRoundTrip() {
+		List<Event> events = createEvents();
+		String filename = writeEvents(events);
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		new MatsimEventsReader(manager).readFile(filename);
+		manager.finishProcessing();
+
+		assertEquals(events, collector.getEvents());
+	}
+
+	@Test
+	public void testTimeWindow_parallel() {
+		List<Event> events = createEvents();
+		String filename = writeEvents(events);
+
+		double from = 7 * 3600;
+		double to = 8 * 3600;
+		List<Event> expected = new ArrayList<>();
+		for (Event event : events) {
+			if (event.getTime() >= from && event.getTime() < to) {
+				expected.add(event);
+			}
+		}
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		EventsReaderBinary reader = new EventsReaderBinary(manager);
+		reader.setNumberOfThreads(4);
+		reader.readFile(filename, from, to);
+		manager.finishProcessing();
+
+		assertEquals(expected, collector.getEvents());
+	}
+
+	@Test
+	public void testCustomEventMapper() {
+		List<Event> events = createEvents();
+		String filename = writeEvents(events);
+
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		MatsimEventsReader reader = new MatsimEventsReader(manager);
+		reader.addCustomEventMapper("myType", event -> new EventsManagerImplTest.MyEvent(event.getTime()));
+		reader.readFile(filename);
+		manager.finishProcessing();
+
+		long myEvents = collector.getEvents().stream().filter(e -> e instanceof EventsManagerImplTest.MyEvent).count();
+		assertEquals(5000, myEvents);
+	}
+
+	@Test
+	public void testFileTypeGuesser() {
+		String filename = writeEvents(createEvents());
+		assertEquals(MatsimFileTypeGuesser.FileType.Events, new MatsimFileTypeGuesser(filename).getGuessedFileType());
+	}
+}
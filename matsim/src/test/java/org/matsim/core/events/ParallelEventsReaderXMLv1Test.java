@@ -0,0 +1,111 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelEventsReaderXMLv1Test.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class ParallelEventsReaderXMLv1Test {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private String writeEvents(List<Event> events) {
+		String filename = utils.getOutputDirectory() + "events.xml.gz";
+		EventWriterXML writer = new EventWriterXML(filename);
+		events.forEach(writer::handleEvent);
+		writer.closeFile();
+		return filename;
+	}
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			events.add(new PersonDepartureEvent(i, Id.createPersonId(i % 100), Id.createLinkId(i % 13), "car", "car"));
+			events.add(new LinkLeaveEvent(i, Id.createVehicleId(i % 100), Id.createLinkId(i % 13)));
+			events.add(new LinkEnterEvent(i, Id.createVehicleId(i % 100), Id.createLinkId(i % 17)));
+			GenericEvent generic = new GenericEvent("myType", i);
+			generic.getAttributes().put("value", "<&" + i + "\">");
+			events.add(generic);
+		}
+		return events;
+	}
+
+	private static List<Event> read(String filename, int numberOfThreads, boolean withMapper) {
+		EventsManager manager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		manager.addHandler(collector);
+		manager.initProcessing();
+		MatsimEventsReader reader = new MatsimEventsReader(manager);
+		if (withMapper) {
+			reader.addCustomEventMapper("myType", event -> new EventsManagerImplTest.MyEvent(event.getTime()));
+		}
+		reader.setNumberOfThreads(numberOfThreads);
+		reader.readFile(filename);
+		manager.finishProcessing();
+		return collector.getEvents();
+	}
+
+	@Test
+	public void testSameEventsAsSequentialReader() {
+		List<Event> events = createEvents();
+		String filename = writeEvents(events);
+
+		List<Event> sequential = read(filename, 1, false);
+		List<Event> parallel = read(filename, 4, false);
+
+		assertEquals(events, sequential);
+		assertEquals(sequential, parallel);
+	}
+
+	@Test
+	public void testCustomEventMapper() {
+		String filename = writeEvents(createEvents());
+
+		List<Event> parallel = read(filename, 3, true);
+
+		assertEquals(80000, parallel.size());
+		for (int i = 0; i < parallel.size(); i += 4) {
+			assertEquals(i / 4, parallel.get(i + 3).getTime(), 0.0);
+			assertEquals(EventsManagerImplTest.MyEvent.class, parallel.get(i + 3).getClass());
+		}
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testMissingFile() {
+		read(utils.getOutputDirectory() + "doesNotExist.xml.gz", 2, false);
+	}
+}
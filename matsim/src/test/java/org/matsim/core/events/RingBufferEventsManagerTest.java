@@ -0,0 +1,121 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManagerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class RingBufferEventsManagerTest {
+
+	private final Event e = new EventsManagerImplTest.MyEvent(5);
+
+	private EventsManagerImplTest.CountingMyEventHandler handler;
+
+	@Before
+	public void setUp() throws Exception {
+		handler = new EventsManagerImplTest.CountingMyEventHandler();
+	}
+
+	@Test
+	public void forgetInit() {
+		EventsManager m = new RingBufferEventsManager(false, 16);
+		m.addHandler(handler);
+
+		assertThrows(IllegalStateException.class, () -> m.processEvent(e));
+
+		m.initProcessing();
+		m.processEvent(e);
+		m.finishProcessing();
+
+		assertEquals(1, handler.counter);
+	}
+
+	@Test
+	public void lateHandler() {
+		EventsManager m = new RingBufferEventsManager(false, 16);
+		m.initProcessing();
+
+		assertThrows(IllegalStateException.class, () -> m.addHandler(handler));
+
+		m.finishProcessing();
+	}
+
+	@Test
+	public void testOrderIsKeptAcrossWrapArounds() {
+		// a ring much smaller than the number of events forces the producer to wait for the consumers
+		RingBufferEventsManager m = new RingBufferEventsManager(true, 2, 8);
+		EventsCollector collector1 = new EventsCollector();
+		EventsCollector collector2 = new EventsCollector();
+		m.addHandler(collector1);
+		m.addHandler(collector2);
+		m.addHandler(handler);
+
+		for (int iteration = 0; iteration < 2; iteration++) {
+			m.initProcessing();
+			for (int time = 0; time < 100; time++) {
+				EventArray array = new EventArray();
+				for (int i = 0; i < 20; i++) {
+					array.add(new LinkEnterEvent(time, Id.createVehicleId(i), Id.createLinkId(i)));
+				}
+				m.processEvents(array);
+				m.processEvent(new EventsManagerImplTest.MyEvent(time));
+				m.afterSimStep(time);
+
+				// all events of the time step must have been handled once afterSimStep returns
+				assertEquals(21 * (time + 1), collector1.getEvents().size());
+				assertEquals(time + 1, handler.counter);
+			}
+			m.finishProcessing();
+
+			List<Event> events = collector1.getEvents();
+			assertEquals(2100, events.size());
+			assertEquals(events, collector2.getEvents());
+			for (int time = 0; time < 100; time++) {
+				for (int i = 0; i < 20; i++) {
+					LinkEnterEvent event = (LinkEnterEvent) events.get(time * 21 + i);
+					assertEquals(time, event.getTime(), 0.0);
+					assertEquals(Id.createVehicleId(i), event.getVehicleId());
+				}
+				assertEquals(time, events.get(time * 21 + 20).getTime(), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testCrashingHandler() {
+		EventsManager m = new RingBufferEventsManager(true, 16);
+		m.addHandler(new EventsManagerImplTest.CrashingMyEventHandler());
+		m.initProcessing();
+		m.processEvent(e);
+
+		assertThrows(RuntimeException.class, () -> m.afterSimStep(5));
+	}
+}
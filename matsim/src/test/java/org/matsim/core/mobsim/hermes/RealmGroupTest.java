@@ -0,0 +1,141 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RealmGroupTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.hermes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.testcases.utils.MobsimTestScenarios;
+
+public class RealmGroupTest {
+
+	private static final int GRID_SIZE = 10;
+
+	@Before
+	public void prepareTest() {
+		Id.resetCaches();
+		ScenarioImporter.flush();
+		HermesConfigGroup.SIM_STEPS = 30 * 60 * 60;
+	}
+
+	@Test
+	public void testPartition() {
+		Scenario scenario = createScenario(1, 1.0);
+		int[] realmOfNode = RealmGroup.partition(scenario.getNetwork(), 4);
+
+		int[] nodesPerRealm = new int[4];
+		for (Node node : scenario.getNetwork().getNodes().values()) {
+			nodesPerRealm[realmOfNode[node.getId().index()]]++;
+		}
+		for (int count : nodesPerRealm) {
+			Assert.assertEquals(GRID_SIZE * GRID_SIZE / 4, count);
+		}
+		// the realms are spatial regions, so two opposite corners of the grid must be in different realms
+		Assert.assertNotEquals(realmOfNode[Id.createNodeId("0_0").index()], realmOfNode[Id.createNodeId((GRID_SIZE - 1) + "_" + (GRID_SIZE - 1)).index()]);
+	}
+
+	/**
+	 * Without congestion, the order in which agents enter a link does not matter, so the same events must be created.
+	 */
+	@Test
+	public void testSameEventsAsSingleRealm() {
+		List<Event> single = run(createScenario(1, 100.0));
+		List<Event> parallel = run(createScenario(4, 100.0));
+
+		assertSortedByTime(parallel);
+		Assert.assertEquals(single.size(), parallel.size());
+		Assert.assertEquals(toSortedStrings(single), toSortedStrings(parallel));
+		Assert.assertTrue(parallel.stream().anyMatch(e -> e instanceof LinkEnterEvent));
+	}
+
+	/**
+	 * With congestion, the realms influence each other but the results must still be reproducible.
+	 */
+	@Test
+	public void testDeterministicWithCongestion() {
+		List<Event> first = run(createScenario(3, 0.02));
+		prepareTest();
+		List<Event> second = run(createScenario(3, 0.02));
+
+		assertSortedByTime(first);
+		Assert.assertEquals(first.size(), second.size());
+		for (int i = 0; i < first.size(); i++) {
+			Assert.assertEquals(first.get(i).toString(), second.get(i).toString());
+		}
+	}
+
+	private static List<Event> run(Scenario scenario) {
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new HermesBuilder().build(scenario, events).run();
+		return collector.getEvents();
+	}
+
+	private static void assertSortedByTime(List<Event> events) {
+		for (int i = 1; i < events.size(); i++) {
+			Assert.assertTrue("events are not sorted at position " + i, events.get(i - 1).getTime() <= events.get(i).getTime());
+		}
+	}
+
+	private static List<String> toSortedStrings(List<Event> events) {
+		List<String> strings = new ArrayList<>(events.size());
+		for (Event event : events) {
+			strings.add(event.toString());
+		}
+		strings.sort(null);
+		return strings;
+	}
+
+	/**
+	 * Creates a grid network with 500 agents driving between random links.
+	 */
+	private static Scenario createScenario(int numberOfRealms, double capacityFactor) {
+		Config config = ConfigUtils.createConfig();
+		config.hermes().setNumberOfRealms(numberOfRealms);
+		config.hermes().setFlowCapacityFactor(capacityFactor);
+		config.hermes().setStorageCapacityFactor(capacityFactor);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		List<Link> links = MobsimTestScenarios.createGridNetwork(scenario.getNetwork(), GRID_SIZE, 500, 1800);
+		MobsimTestScenarios.createHomeWorkHomePopulation(scenario.getPopulation(), links, links, 500,
+				6 * 3600, 1800, 16 * 3600, 1800, i -> TransportMode.car);
+		return scenario;
+	}
+
+}
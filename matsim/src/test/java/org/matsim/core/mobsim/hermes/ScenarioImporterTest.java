@@ -0,0 +1,132 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScenarioImporterTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.hermes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class ScenarioImporterTest {
+
+	@Before
+	public void prepareTest() {
+		Id.resetCaches();
+		ScenarioImporter.flush();
+		HermesConfigGroup.SIM_STEPS = 30 * 60 * 60;
+	}
+
+	/**
+	 * Runs Hermes twice with the same scenario, changing the selected plan of one person by replanning and of another one
+	 * in place. The second run must create the same events as a run with a freshly imported scenario.
+	 */
+	@Test
+	public void testOnlyChangedPlansAreEncodedAgain() {
+		HermesTest.Fixture f = new HermesTest.Fixture();
+		for (int i = 0; i < 3; i++) {
+			addPerson(f, i, 6 * 3600 + i * 600);
+		}
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+
+		HermesTest.createHermes(f, events).run();
+		List<Event> firstRun = new ArrayList<>(collector.getEvents());
+		List<String> firstRunStrings = toStrings(firstRun);
+		collector.reset(1);
+
+		// replanning selects a modified copy of the plan
+		Person replanned = f.plans.getPersons().get(Id.createPersonId(0));
+		((Activity) replanned.createCopyOfSelectedPlanAndMakeSelected().getPlanElements().get(0)).setEndTime(7 * 3600);
+		// some code modifies the selected plan in place
+		Person modified = f.plans.getPersons().get(Id.createPersonId(1));
+		((Activity) modified.getSelectedPlan().getPlanElements().get(0)).setEndTime(8 * 3600);
+		HermesUtils.markSelectedPlanModified(modified);
+
+		HermesTest.createHermes(f, events).run();
+		List<String> secondRun = toStrings(collector.getEvents());
+
+		ScenarioImporter.flush();
+		EventsCollector freshCollector = new EventsCollector();
+		EventsManager freshEvents = EventsUtils.createEventsManager();
+		freshEvents.addHandler(freshCollector);
+		HermesTest.createHermes(f, freshEvents).run();
+
+		Assert.assertEquals(toStrings(freshCollector.getEvents()), secondRun);
+		Assert.assertEquals(7 * 3600, actEndTime(collector.getEvents(), 0), 0);
+		Assert.assertEquals(8 * 3600, actEndTime(collector.getEvents(), 1), 0);
+		// the events of the unchanged person are new ones, so the events of the first run are not modified
+		Assert.assertNotSame(actEnd(firstRun, 2), actEnd(collector.getEvents(), 2));
+		Assert.assertEquals(firstRunStrings, toStrings(firstRun));
+	}
+
+	private static void addPerson(HermesTest.Fixture f, int id, double endTime) {
+		Person person = PopulationUtils.getFactory().createPerson(Id.create(id, Person.class));
+		Plan plan = PersonUtils.createAndAddPlan(person, true);
+		Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+		a1.setEndTime(endTime);
+		Leg leg = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+		TripStructureUtils.setRoutingMode(leg, TransportMode.car);
+		NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+		route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+		leg.setRoute(route);
+		PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+		f.plans.addPerson(person);
+	}
+
+	private static ActivityEndEvent actEnd(List<Event> events, int personId) {
+		for (Event event : events) {
+			if (event instanceof ActivityEndEvent actEnd && actEnd.getPersonId().equals(Id.createPersonId(personId))) {
+				return actEnd;
+			}
+		}
+		throw new AssertionError("no activity end event for person " + personId);
+	}
+
+	private static double actEndTime(List<Event> events, int personId) {
+		return actEnd(events, personId).getTime();
+	}
+
+	private static List<String> toStrings(List<Event> events) {
+		List<String> strings = new ArrayList<>();
+		for (Event event : events) {
+			strings.add(event.toString());
+		}
+		return strings;
+	}
+}
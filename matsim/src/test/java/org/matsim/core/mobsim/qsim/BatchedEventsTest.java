@@ -0,0 +1,162 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchedEventsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimEngineScheduling;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.utils.MobsimTestScenarios;
+
+public class BatchedEventsTest {
+
+	private static final int GRID_SIZE = 10;
+
+	private static final Pattern ID_ATTRIBUTE = Pattern.compile(" (person|vehicle|link)=\"([^\"]*)\"");
+
+	/**
+	 * With one thread, the batches are passed on in the order in which the events were thrown.
+	 */
+	@Test
+	public void testSameEventsWithOneThread() {
+		Config config = createConfig(1);
+		List<String> expected = run(config);
+		config.qsim().setUsingBatchedEvents(true);
+		assertSameEvents(expected, run(config));
+	}
+
+	@Test
+	public void testSameEventsWithSeveralThreads() {
+		assertSameEventsWhenBatched(createConfig(4));
+	}
+
+	@Test
+	public void testSameEventsWithWorkStealing() {
+		Config config = createConfig(4);
+		config.qsim().setNetsimEngineScheduling(NetsimEngineScheduling.workStealing);
+		assertSameEventsWhenBatched(config);
+	}
+
+	@Test
+	public void testSameEventsWithParallelActivityAndTeleportationEngines() {
+		Config config = createConfig(4);
+		config.qsim().setUsingParallelActivityAndTeleportationEngines(true);
+		assertSameEventsWhenBatched(config);
+	}
+
+	/**
+	 * With several threads, the events of different persons and vehicles within a time step may be passed on in a
+	 * different order than without batching, but the events of every person and every vehicle must stay in order.  The
+	 * batches are passed on in a fixed order, so two runs with batching must give exactly the same sequence of events.
+	 */
+	private static void assertSameEventsWhenBatched(Config config) {
+		List<String> expected = run(config);
+		config.qsim().setUsingBatchedEvents(true);
+		List<String> actual = run(config);
+		Assert.assertEquals(groupByPersonAndVehicle(expected), groupByPersonAndVehicle(actual));
+		assertSameEvents(actual, run(config));
+	}
+
+	/**
+	 * Splits the events into the sequences of the single persons and vehicles, keeping their order.  Events without
+	 * person and vehicle are grouped by their link.
+	 */
+	private static Map<String, List<String>> groupByPersonAndVehicle(List<String> events) {
+		Map<String, List<String>> groups = new HashMap<>();
+		for (String event : events) {
+			String link = null;
+			boolean grouped = false;
+			Matcher matcher = ID_ATTRIBUTE.matcher(event);
+			while (matcher.find()) {
+				if (matcher.group(1).equals("link")) {
+					link = matcher.group(2);
+				} else {
+					groups.computeIfAbsent(matcher.group(1) + "=" + matcher.group(2), k -> new ArrayList<>()).add(event);
+					grouped = true;
+				}
+			}
+			if (!grouped) {
+				groups.computeIfAbsent("link=" + link, k -> new ArrayList<>()).add(event);
+			}
+		}
+		return groups;
+	}
+
+	private static void assertSameEvents(List<String> expected, List<String> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+	private static List<String> run(Config config) {
+		MatsimRandom.reset();
+		Scenario scenario = createScenario(config);
+		EventsManager events = EventsUtils.createEventsManager();
+		List<String> recorded = new ArrayList<>();
+		events.addHandler((BasicEventHandler) event -> recorded.add(event.toString()));
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new QSimBuilder(config)
+				.useDefaults()
+				.build(scenario, events)
+				.run();
+		return recorded;
+	}
+
+	private static Config createConfig(int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setStuckTime(100);
+		return config;
+	}
+
+	/**
+	 * A grid network with low capacities where 2000 agents drive or walk between random links and back.
+	 */
+	private static Scenario createScenario(Config config) {
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		List<Link> links = MobsimTestScenarios.createGridNetwork(scenario.getNetwork(), GRID_SIZE, 200, 400);
+		MobsimTestScenarios.createHomeWorkHomePopulation(scenario.getPopulation(), links, links, 2000,
+				6 * 3600, 1800, 8 * 3600, 1800, i -> i % 4 == 0 ? TransportMode.walk : TransportMode.car);
+		return scenario;
+	}
+
+}
@@ -0,0 +1,106 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelActivityAndTeleportationEnginesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.utils.MobsimTestScenarios;
+
+public class ParallelActivityAndTeleportationEnginesTest {
+
+	/**
+	 * The events of the activity ends and arrivals of a time step are passed on in the order of the agents, so all
+	 * events come out in the same order as without threads.  The netsim engine collects its events per thread, too, so
+	 * its events come out in the same order in both runs.
+	 */
+	@Test
+	public void testSameEventsWithSeveralThreads() {
+		List<String> expected = run(false, true, TransportMode.walk, TransportMode.car);
+		List<String> actual = run(true, true, TransportMode.walk, TransportMode.car);
+
+		assertSameEvents(expected, actual);
+	}
+
+	/**
+	 * Without batched events, the events of the parallel activity and teleportation engines are still passed on in the
+	 * order of the agents.  All agents walk, since the netsim engine would throw its events in the order of its threads.
+	 */
+	@Test
+	public void testSameEventsWithSeveralThreadsWithoutBatchedEvents() {
+		List<String> expected = run(false, false, TransportMode.walk);
+		List<String> actual = run(true, false, TransportMode.walk);
+
+		assertSameEvents(expected, actual);
+	}
+
+	private static void assertSameEvents(List<String> expected, List<String> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+	private static List<String> run(boolean parallel, boolean batchedEvents, String... modes) {
+		MatsimRandom.reset();
+		Scenario scenario = createScenario(parallel, batchedEvents, modes);
+		EventsManager events = EventsUtils.getParallelFeedableInstance(EventsUtils.createEventsManager());
+		List<String> recorded = new ArrayList<>();
+		events.addHandler((BasicEventHandler) event -> recorded.add(event.toString()));
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new QSimBuilder(scenario.getConfig())
+				.useDefaults()
+				.build(scenario, events)
+				.run();
+		return recorded;
+	}
+
+	/**
+	 * A corridor in both directions where 4000 agents end their activities within a few seconds and travel with the
+	 * given modes to one of a few links.
+	 */
+	private static Scenario createScenario(boolean parallel, boolean batchedEvents, String... modes) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setUsingParallelActivityAndTeleportationEngines(parallel);
+		config.qsim().setUsingBatchedEvents(batchedEvents);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		List<Link> links = MobsimTestScenarios.createCorridorNetwork(scenario.getNetwork(), 10, 500, 100000, 10, true);
+		MobsimTestScenarios.createHomeWorkHomePopulation(scenario.getPopulation(), links.subList(0, 3), links.subList(7, 10), 4000,
+				6 * 3600, 10, 7 * 3600, 10, i -> modes[i % modes.length]);
+		return scenario;
+	}
+}
@@ -0,0 +1,117 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PackedQNetworkFactoryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.inject.Singleton;
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.AbstractQSimModule;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.utils.MobsimTestScenarios;
+
+public class PackedQNetworkFactoryTest {
+
+	private static final int GRID_SIZE = 10;
+
+	/**
+	 * With congestion, every difference in the flow and storage capacities would change the events.
+	 */
+	@Test
+	public void testSameEventsAsDefaultFactory() {
+		assertSameEvents(run(false, true), run(true, true));
+	}
+
+	@Test
+	public void testSameEventsAsDefaultFactoryWithoutFastCapacityUpdate() {
+		assertSameEvents(run(false, false), run(true, false));
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testRejectsOtherTrafficDynamics() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setTrafficDynamics(TrafficDynamics.kinematicWaves);
+		new PackedQNetworkFactory(EventsUtils.createEventsManager(), ScenarioUtils.createScenario(config));
+	}
+
+	private static void assertSameEvents(List<String> expected, List<String> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+	private static List<String> run(boolean packed, boolean fastCapacityUpdate) {
+		MatsimRandom.reset();
+		Scenario scenario = createScenario(fastCapacityUpdate);
+		EventsManager events = EventsUtils.createEventsManager();
+		List<String> recorded = new ArrayList<>();
+		events.addHandler((BasicEventHandler) event -> recorded.add(event.toString()));
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		QSimBuilder builder = new QSimBuilder(scenario.getConfig()).useDefaults();
+		if (packed) {
+			builder.addOverridingQSimModule(new AbstractQSimModule() {
+				@Override
+				protected void configureQSim() {
+					bind(QNetworkFactory.class).to(PackedQNetworkFactory.class).in(Singleton.class);
+				}
+			});
+		}
+		QSim qsim = builder.build(scenario, events);
+		QLaneI lane = ((QLinkI) qsim.getNetsimNetwork().getNetsimLinks().values().iterator().next()).getAcceptingQLane();
+		Assert.assertEquals(packed, lane instanceof PackedQueueLane);
+		qsim.run();
+		return recorded;
+	}
+
+	/**
+	 * A grid network with low capacities where 2000 agents drive between random links and back.
+	 */
+	private static Scenario createScenario(boolean fastCapacityUpdate) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setUsingFastCapacityUpdate(fastCapacityUpdate);
+		config.qsim().setStuckTime(100);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		List<Link> links = MobsimTestScenarios.createGridNetwork(scenario.getNetwork(), GRID_SIZE, 200, 400);
+		MobsimTestScenarios.createHomeWorkHomePopulation(scenario.getPopulation(), links, links, 2000,
+				6 * 3600, 1800, 8 * 3600, 1800, i -> TransportMode.car);
+		return scenario;
+	}
+
+}
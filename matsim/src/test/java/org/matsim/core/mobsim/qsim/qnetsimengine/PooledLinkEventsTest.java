@@ -0,0 +1,183 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PooledLinkEventsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.testcases.utils.MobsimTestScenarios;
+
+public class PooledLinkEventsTest {
+
+	@Test
+	public void testSameEventsWithPooling() {
+		EventsRecorder withoutPooling = run(false, 1);
+		EventsRecorder withPooling = run(true, 1);
+
+		Assert.assertEquals(withoutPooling.events, withPooling.events);
+		Assert.assertEquals(withoutPooling.linkEvents, withoutPooling.linkEventInstances.size());
+		// instances are re-used in later time steps
+		Assert.assertTrue(withPooling.linkEventInstances.size() < withPooling.linkEvents / 10);
+	}
+
+	@Test
+	public void testSameEventsWithPoolingAndThreads() {
+		EventsRecorder withoutPooling = run(false, 2);
+		EventsRecorder withPooling = run(true, 2);
+
+		List<String> expected = new ArrayList<>(withoutPooling.events);
+		List<String> actual = new ArrayList<>(withPooling.events);
+		Collections.sort(expected);
+		Collections.sort(actual);
+		Assert.assertEquals(expected, actual);
+	}
+
+	/**
+	 * The travel time calculator keeps the enter time and link of every vehicle until it leaves the link again, i.e.
+	 * beyond the time step of the link enter event.
+	 */
+	@Test
+	public void testSameTravelTimesWithPooling() {
+		TravelTimeCalculator withoutPooling = runTravelTimeCalculator(false);
+		TravelTimeCalculator withPooling = runTravelTimeCalculator(true);
+
+		Network network = createScenario(false, 1).getNetwork();
+		for (Link link : network.getLinks().values()) {
+			for (double time = 6 * 3600; time < 7 * 3600; time += 300) {
+				Assert.assertEquals(withoutPooling.getLinkTravelTimes().getLinkTravelTime(link, time, null, null),
+						withPooling.getLinkTravelTimes().getLinkTravelTime(link, time, null, null), 1e-10);
+				Link toLink = network.getLinks().get(Id.createLinkId(Integer.parseInt(link.getId().toString()) + 1));
+				if (toLink != null) {
+					Assert.assertEquals(withoutPooling.getLinkToLinkTravelTimes().getLinkToLinkTravelTime(link, toLink, time, null, null),
+							withPooling.getLinkToLinkTravelTimes().getLinkToLinkTravelTime(link, toLink, time, null, null), 1e-10);
+				}
+			}
+		}
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testRequiresSynchronizedEvents() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setUsingPooledLinkEvents(true);
+		config.parallelEventHandling().setNumberOfThreads(2);
+		config.parallelEventHandling().setSynchronizeOnSimSteps(false);
+		config.checkConsistency();
+	}
+
+	private static EventsRecorder run(boolean pooled, int numberOfThreads) {
+		EventsRecorder recorder = new EventsRecorder();
+		run(createScenario(pooled, numberOfThreads), recorder);
+		return recorder;
+	}
+
+	private static TravelTimeCalculator runTravelTimeCalculator(boolean pooled) {
+		Scenario scenario = createScenario(pooled, 1);
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(scenario.getNetwork());
+		builder.setCalculateLinkToLinkTravelTimes(true);
+		TravelTimeCalculator calculator = builder.build();
+		run(scenario, calculator);
+		return calculator;
+	}
+
+	private static void run(Scenario scenario, EventHandler handler) {
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler(handler);
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new QSimBuilder(scenario.getConfig())
+				.useDefaults()
+				.build(scenario, events)
+				.run();
+	}
+
+	/**
+	 * Converts the events to strings right away, as pooled events must not be kept.
+	 */
+	private static class EventsRecorder implements BasicEventHandler {
+		final List<String> events = new ArrayList<>();
+		final Map<Event, Boolean> linkEventInstances = new IdentityHashMap<>();
+		int linkEvents = 0;
+
+		@Override
+		public void handleEvent(Event event) {
+			this.events.add(event.toString());
+			if (event instanceof LinkEnterEvent || event instanceof LinkLeaveEvent) {
+				this.linkEventInstances.put(event, Boolean.TRUE);
+				this.linkEvents++;
+			}
+		}
+	}
+
+	/**
+	 * A corridor of 10 links where 100 agents depart one after the other on the first link.
+	 */
+	private static Scenario createScenario(boolean pooled, int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setUsingPooledLinkEvents(pooled);
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		MobsimTestScenarios.createCorridorNetwork(scenario.getNetwork(), 10, 500, 1800, 1, false);
+
+		Population population = scenario.getPopulation();
+		for (int i = 0; i < 100; i++) {
+			Person person = population.getFactory().createPerson(Id.createPersonId(i));
+			Plan plan = population.getFactory().createPlan();
+			Activity home = population.getFactory().createActivityFromLinkId("h", Id.createLinkId(0));
+			home.setEndTime(6 * 3600 + i * 5);
+			plan.addActivity(home);
+			Leg leg = population.getFactory().createLeg(TransportMode.car);
+			plan.addLeg(leg);
+			plan.addActivity(population.getFactory().createActivityFromLinkId("w", Id.createLinkId(9)));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return scenario;
+	}
+}
@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineWithWorkStealingTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetsimEngineScheduling;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.utils.MobsimTestScenarios;
+
+public class QNetsimEngineWithWorkStealingTest {
+
+	private static final int GRID_SIZE = 15;
+
+	@Test
+	public void testWorkStealingEngineIsUsed() {
+		Scenario scenario = createScenario(NetsimEngineScheduling.workStealing, 2, 1800);
+		QSim qsim = new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, EventsUtils.createEventsManager());
+		Assert.assertEquals(QNetsimEngineWithWorkStealing.class, qsim.getChildInjector().getInstance(QNetsimEngineI.class).getClass());
+	}
+
+	/**
+	 * With one thread, the nodes and links are moved in the same order as by the static partitioning.
+	 */
+	@Test
+	public void testSameEventsWithOneThread() {
+		List<String> expected = run(NetsimEngineScheduling.staticPartitioning, 1, 300);
+		List<String> actual = run(NetsimEngineScheduling.workStealing, 1, 300);
+		assertSameEvents(expected, actual);
+	}
+
+	/**
+	 * Without congestion, the order in which the threads move the vehicles does not matter.
+	 */
+	@Test
+	public void testSameEventsWithSeveralThreads() {
+		List<String> expected = run(NetsimEngineScheduling.staticPartitioning, 4, 100000);
+		List<String> actual = run(NetsimEngineScheduling.workStealing, 4, 100000);
+		Collections.sort(expected);
+		Collections.sort(actual);
+		assertSameEvents(expected, actual);
+	}
+
+	private static void assertSameEvents(List<String> expected, List<String> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+	private static List<String> run(NetsimEngineScheduling scheduling, int numberOfThreads, double capacity) {
+		MatsimRandom.reset();
+		Scenario scenario = createScenario(scheduling, numberOfThreads, capacity);
+		EventsManager events = EventsUtils.createEventsManager();
+		List<String> recorded = new ArrayList<>();
+		events.addHandler((BasicEventHandler) event -> recorded.add(event.toString()));
+
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		new QSimBuilder(scenario.getConfig())
+				.useDefaults()
+				.build(scenario, events)
+				.run();
+		return recorded;
+	}
+
+	/**
+	 * A grid network where 2000 agents drive between random links.
+	 */
+	private static Scenario createScenario(NetsimEngineScheduling scheduling, int numberOfThreads, double capacity) {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNetsimEngineScheduling(scheduling);
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		List<Link> links = MobsimTestScenarios.createGridNetwork(scenario.getNetwork(), GRID_SIZE, 500, capacity);
+		MobsimTestScenarios.createHomeWorkHomePopulation(scenario.getPopulation(), links, links, 2000,
+				6 * 3600, 3600, 8 * 3600, 3600, i -> TransportMode.car);
+		return scenario;
+	}
+
+}
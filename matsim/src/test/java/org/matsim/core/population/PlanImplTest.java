@@ -22,12 +22,17 @@ package org.matsim.core.population;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
@@ -37,12 +42,24 @@ import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.mobsim.framework.Mobsim;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.MobsimTestScenarios;
 
 public class PlanImplTest {
 
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
 	static private final Logger log = LogManager.getLogger(PlanImplTest.class);
 
 	/**
@@ -376,4 +393,105 @@ public class PlanImplTest {
 		Assert.assertTrue(p.getPlanElements().get(3) instanceof Activity);
 	}
 
+	@Test
+	public void testPackPlanElements() {
+		Plan plan = PopulationUtils.createPlan();
+		Activity home = PopulationUtils.createAndAddActivityFromCoord(plan, "h", new Coord(10.5, -20));
+		home.setEndTime(7 * 3600);
+		home.setLinkId(Id.create("1", Link.class));
+		home.getAttributes().putAttribute("age", 42);
+		Leg leg = PopulationUtils.createAndAddLeg(plan, TransportMode.car);
+		leg.setRoutingMode(TransportMode.car);
+		leg.setDepartureTime(7 * 3600);
+		leg.setTravelTime(123.25);
+		Route route = RouteUtils.createLinkNetworkRouteImpl(Id.create("1", Link.class), Id.create("2", Link.class));
+		leg.setRoute(route);
+		Activity interaction = PopulationUtils.createStageActivityFromCoordLinkIdAndModePrefix(new Coord(1, 2, 3), Id.create("2", Link.class), TransportMode.car);
+		plan.addActivity(interaction);
+		plan.addLeg(PopulationUtils.createLeg(TransportMode.walk));
+		Activity work = PopulationUtils.createAndAddActivityFromLinkId(plan, "w", Id.create("2", Link.class));
+		work.setStartTime(7.5 * 3600 + 0.1);
+		work.setMaximumDuration(-8 * 3600);
+		String expected = plan.getPlanElements().toString();
+
+		Assert.assertTrue(PopulationUtils.packPlanElements(plan));
+		Assert.assertTrue(((PlanImpl) plan).isPacked());
+		Assert.assertEquals(5, plan.getPlanElements().size());
+		Assert.assertFalse(((PlanImpl) plan).isPacked());
+
+		Assert.assertEquals(expected, plan.getPlanElements().toString());
+		Activity home2 = (Activity) plan.getPlanElements().get(0);
+		Assert.assertNotSame(home, home2);
+		Assert.assertEquals(home.getCoord(), home2.getCoord());
+		Assert.assertFalse(home2.getCoord().hasZ());
+		Assert.assertEquals(42, home2.getAttributes().getAttribute("age"));
+		Assert.assertTrue(home2.getStartTime().isUndefined());
+		Leg leg2 = (Leg) plan.getPlanElements().get(1);
+		Assert.assertEquals(TransportMode.car, leg2.getRoutingMode());
+		Assert.assertEquals(123.25, leg2.getTravelTime().seconds(), 0.0);
+		Assert.assertSame(route, leg2.getRoute());
+		Activity interaction2 = (Activity) plan.getPlanElements().get(2);
+		Assert.assertSame(interaction.getClass(), interaction2.getClass());
+		Assert.assertEquals(3.0, interaction2.getCoord().getZ(), 0.0);
+		Leg walk2 = (Leg) plan.getPlanElements().get(3);
+		Assert.assertNull(walk2.getRoutingMode());
+		Assert.assertTrue(walk2.getDepartureTime().isUndefined());
+		Activity work2 = (Activity) plan.getPlanElements().get(4);
+		Assert.assertNull(work2.getCoord());
+		Assert.assertEquals(7.5 * 3600 + 0.1, work2.getStartTime().seconds(), 0.0);
+		Assert.assertEquals(-8 * 3600, work2.getMaximumDuration().seconds(), 0.0);
+		Assert.assertTrue(work2.getEndTime().isUndefined());
+
+		// changes after unpacking are kept when packing again
+		work2.setEndTime(17 * 3600);
+		PopulationUtils.packPlanElements(plan);
+		Assert.assertEquals(17 * 3600, PopulationUtils.getLastActivity(plan).getEndTime().seconds(), 0.0);
+	}
+
+	@Test
+	public void testUnselectedPlansArePackedDuringMobsim() {
+		Config config = ConfigUtils.createConfig();
+		config.controler().setOutputDirectory(utils.getOutputDirectory());
+		config.controler().setLastIteration(0);
+		config.controler().setCreateGraphs(false);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setDumpDataAtEnd(false);
+		config.plans().setPackingUnselectedPlans(true);
+		for (String type : new String[] { "h", "w" }) {
+			ActivityParams params = new ActivityParams(type);
+			params.setTypicalDuration(8 * 3600);
+			config.planCalcScore().addActivityParams(params);
+		}
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		List<Link> links = MobsimTestScenarios.createCorridorNetwork(scenario.getNetwork(), 5, 1000, 3600, 1, true);
+		MobsimTestScenarios.createHomeWorkHomePopulation(scenario.getPopulation(), links.subList(0, 1), links.subList(4, 5), 10,
+				7 * 3600, 600, 17 * 3600, 600, i -> TransportMode.car);
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			Plan selectedPlan = person.getSelectedPlan();
+			person.createCopyOfSelectedPlanAndMakeSelected();
+			person.setSelectedPlan(selectedPlan);
+		}
+
+		List<Boolean> packedDuringMobsim = new ArrayList<>();
+		Controler controler = new Controler(scenario);
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				bindMobsim().toInstance((Mobsim) () -> {
+					for (Person person : scenario.getPopulation().getPersons().values()) {
+						for (Plan plan : person.getPlans()) {
+							if (plan != person.getSelectedPlan()) {
+								packedDuringMobsim.add(((PlanImpl) plan).isPacked());
+							}
+						}
+					}
+				});
+			}
+		});
+		controler.run();
+
+		Assert.assertEquals(10, packedDuringMobsim.size());
+		Assert.assertFalse("unselected plans should still be packed when the mobsim runs", packedDuringMobsim.contains(false));
+	}
+
 }
@@ -0,0 +1,280 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationReaderBinaryTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.MatsimFileTypeGuesser;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.vehicles.PersonVehicles;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleUtils;
+
+public class PopulationReaderBinaryTest {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testRoundTrip() {
+		final Population population = createPopulation(3);
+
+		final String file = utils.getOutputDirectory() + "/population.bin";
+		new PopulationWriter(population).write(file);
+
+		Assert.assertTrue(PopulationReaderBinary.isBinaryPopulationFile(file));
+		Assert.assertEquals(MatsimFileTypeGuesser.FileType.Population, new MatsimFileTypeGuesser(file).getGuessedFileType());
+
+		final Scenario readScenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReader(readScenario).readPopulationFile(file);
+
+		assertSamePopulation(population, readScenario.getPopulation());
+	}
+
+	@Test
+	public void testParallelRoundTrip() {
+		final Population population = createPopulation(2 * PopulationWriterBinary.PERSONS_PER_BLOCK + 17);
+
+		final PopulationWriterBinary writer = new PopulationWriterBinary();
+		writer.setNumberOfThreads(4);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writer.write(population, out);
+
+		final Scenario sequentialScenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		new PopulationReaderBinary(sequentialScenario).readStream(new ByteArrayInputStream(out.toByteArray()));
+
+		final Scenario parallelScenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		final PopulationReaderBinary reader = new PopulationReaderBinary(parallelScenario);
+		reader.setNumberOfThreads(4);
+		reader.readStream(new ByteArrayInputStream(out.toByteArray()));
+
+		assertSamePopulation(population, sequentialScenario.getPopulation());
+		assertSamePopulation(population, parallelScenario.getPopulation());
+		Assert.assertEquals("persons must be added in the order they were written",
+				List.copyOf(PopulationUtils.getSortedPersons(population).keySet()),
+				List.copyOf(parallelScenario.getPopulation().getPersons().keySet()));
+	}
+
+	@Test
+	public void testXmlIsNotBinary() {
+		final Population population = createPopulation(1);
+		final String file = utils.getOutputDirectory() + "/population.xml";
+		new PopulationWriter(population).write(file);
+
+		Assert.assertFalse(PopulationReaderBinary.isBinaryPopulationFile(file));
+	}
+
+	@Test
+	public void testReadPopulationByName() {
+		final Population population = createPopulation(2);
+
+		final String binaryFile = utils.getOutputDirectory() + "/population.bin";
+		new PopulationWriter(population).write(binaryFile);
+		assertSamePopulation(population, PopulationUtils.readPopulation(binaryFile));
+
+		// only the magic bytes decide, an xml file ending with .bin is still read as xml
+		final String xmlFile = utils.getOutputDirectory() + "/population_xml.bin";
+		new PopulationWriter(population).writeV6(xmlFile);
+		Assert.assertFalse(PopulationReaderBinary.isBinaryPopulationFile(xmlFile));
+		// (xml rounds the times to seconds, so only compare the persons)
+		Assert.assertEquals(population.getPersons().keySet(), PopulationUtils.readPopulation(xmlFile).getPersons().keySet());
+	}
+
+	private static Population createPopulation(int size) {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		final PopulationFactory pf = population.getFactory();
+		population.setName("binary test population");
+		population.getAttributes().putAttribute("year", 2023);
+
+		for (int i = 0; i < size; i++) {
+			final Person person = pf.createPerson(Id.createPersonId("person_" + i));
+			person.getAttributes().putAttribute("age", 20 + i % 50);
+			person.getAttributes().putAttribute("income", 1234.5 * i);
+			person.getAttributes().putAttribute("employed", i % 2 == 0);
+			person.getAttributes().putAttribute("ticks", 1L << 40);
+			person.getAttributes().putAttribute("name", i % 3 == 0 ? "Ümlaut & <friends>" : "plain");
+
+			final Map<String, Id<Vehicle>> vehicles = new HashMap<>();
+			vehicles.put(TransportMode.car, Id.createVehicleId("car_" + i));
+			VehicleUtils.insertVehicleIdsIntoAttributes(person, vehicles);
+
+			final Plan plan = pf.createPlan();
+			plan.setScore(-12.5 + i);
+			plan.setType("default");
+			plan.getAttributes().putAttribute("origin", "test");
+
+			final Activity home = pf.createActivityFromCoord("home", new Coord(i, 2 * i));
+			home.setLinkId(Id.createLinkId("1"));
+			home.setEndTime(7 * 3600 + i);
+			home.getAttributes().putAttribute("zone", "z" + (i % 10));
+			plan.addActivity(home);
+
+			final Leg walk = pf.createLeg(TransportMode.walk);
+			walk.setRoutingMode(TransportMode.car);
+			walk.setDepartureTime(7 * 3600 + i);
+			walk.setTravelTime(12.75);
+			final GenericRouteImpl walkRoute = new GenericRouteImpl(Id.createLinkId("1"), Id.createLinkId("1"));
+			walkRoute.setDistance(10.0);
+			walkRoute.setTravelTime(12.75);
+			walk.setRoute(walkRoute);
+			plan.addLeg(walk);
+
+			plan.addActivity(PopulationUtils.createStageActivityFromCoordLinkIdAndModePrefix(new Coord(i, 2 * i), Id.createLinkId("1"), TransportMode.car));
+
+			final Leg car = pf.createLeg(TransportMode.car);
+			car.setRoutingMode(TransportMode.car);
+			final NetworkRoute carRoute = RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"),
+					List.of(Id.createLinkId("2"), Id.createLinkId("3"), Id.createLinkId("2" + i)), Id.createLinkId("4"));
+			carRoute.setVehicleId(Id.createVehicleId("car_" + i));
+			carRoute.setDistance(1234.0);
+			car.setRoute(carRoute);
+			car.getAttributes().putAttribute("enterVehicleTime", 25200.0);
+			plan.addLeg(car);
+
+			final Activity work = pf.createActivityFromLinkId("work", Id.createLinkId("4"));
+			work.setCoord(new Coord(1000, 1000, -12.5));
+			work.setFacilityId(Id.create("facility_" + (i % 7), org.matsim.facilities.ActivityFacility.class));
+			work.setStartTime(8 * 3600);
+			work.setMaximumDuration(8 * 3600 + 0.5);
+			plan.addActivity(work);
+
+			person.addPlan(plan);
+
+			final Plan unselected = pf.createPlan();
+			unselected.addActivity(pf.createActivityFromCoord("home", new Coord(i, 2 * i)));
+			person.addPlan(unselected);
+			person.setSelectedPlan(i % 2 == 0 ? plan : unselected);
+
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	private static void assertSamePopulation(Population expected, Population actual) {
+		Assert.assertEquals(expected.getName(), actual.getName());
+		Assert.assertEquals(expected.getAttributes().getAttribute("year"), actual.getAttributes().getAttribute("year"));
+		Assert.assertEquals(expected.getPersons().size(), actual.getPersons().size());
+
+		for (Person person : expected.getPersons().values()) {
+			final Person readPerson = actual.getPersons().get(person.getId());
+			Assert.assertNotNull("missing person " + person.getId(), readPerson);
+			assertSameAttributes(person.getAttributes(), readPerson.getAttributes());
+			Assert.assertEquals(VehicleUtils.getVehicleIds(person), VehicleUtils.getVehicleIds(readPerson));
+			Assert.assertEquals(person.getPlans().size(), readPerson.getPlans().size());
+			Assert.assertEquals(person.getPlans().indexOf(person.getSelectedPlan()),
+					readPerson.getPlans().indexOf(readPerson.getSelectedPlan()));
+
+			for (int p = 0; p < person.getPlans().size(); p++) {
+				final Plan plan = person.getPlans().get(p);
+				final Plan readPlan = readPerson.getPlans().get(p);
+				Assert.assertEquals(plan.getScore(), readPlan.getScore());
+				Assert.assertEquals(plan.getType(), readPlan.getType());
+				assertSameAttributes(plan.getAttributes(), readPlan.getAttributes());
+				Assert.assertEquals(plan.getPlanElements().size(), readPlan.getPlanElements().size());
+
+				for (int e = 0; e < plan.getPlanElements().size(); e++) {
+					final PlanElement pe = plan.getPlanElements().get(e);
+					final PlanElement readPe = readPlan.getPlanElements().get(e);
+					Assert.assertEquals(pe.getClass(), readPe.getClass());
+					if (pe instanceof Activity act) {
+						assertSameActivity(act, (Activity) readPe);
+					} else {
+						assertSameLeg((Leg) pe, (Leg) readPe);
+					}
+				}
+			}
+		}
+	}
+
+	private static void assertSameAttributes(Attributes expected, Attributes actual) {
+		Assert.assertEquals(expected.getAsMap().keySet(), actual.getAsMap().keySet());
+		for (Map.Entry<String, Object> e : expected.getAsMap().entrySet()) {
+			if (e.getValue() instanceof PersonVehicles) {
+				// no equals(), compared by VehicleUtils.getVehicleIds()
+				Assert.assertEquals(PersonVehicles.class, actual.getAttribute(e.getKey()).getClass());
+			} else {
+				Assert.assertEquals(e.getValue(), actual.getAttribute(e.getKey()));
+			}
+		}
+	}
+
+	private static void assertSameActivity(Activity act, Activity readAct) {
+		Assert.assertEquals(act.getType(), readAct.getType());
+		Assert.assertEquals(act.getCoord(), readAct.getCoord());
+		if (act.getCoord() != null && act.getCoord().hasZ()) {
+			Assert.assertEquals(act.getCoord().getZ(), readAct.getCoord().getZ(), MatsimTestUtils.EPSILON);
+		}
+		Assert.assertEquals(act.getLinkId(), readAct.getLinkId());
+		Assert.assertEquals(act.getFacilityId(), readAct.getFacilityId());
+		Assert.assertEquals(act.getStartTime(), readAct.getStartTime());
+		Assert.assertEquals(act.getEndTime(), readAct.getEndTime());
+		Assert.assertEquals(act.getMaximumDuration(), readAct.getMaximumDuration());
+		assertSameAttributes(act.getAttributes(), readAct.getAttributes());
+	}
+
+	private static void assertSameLeg(Leg leg, Leg readLeg) {
+		Assert.assertEquals(leg.getMode(), readLeg.getMode());
+		Assert.assertEquals(leg.getRoutingMode(), readLeg.getRoutingMode());
+		Assert.assertEquals(leg.getDepartureTime(), readLeg.getDepartureTime());
+		Assert.assertEquals(leg.getTravelTime(), readLeg.getTravelTime());
+		assertSameAttributes(leg.getAttributes(), readLeg.getAttributes());
+
+		Assert.assertEquals(leg.getRoute().getRouteType(), readLeg.getRoute().getRouteType());
+		Assert.assertEquals(leg.getRoute().getStartLinkId(), readLeg.getRoute().getStartLinkId());
+		Assert.assertEquals(leg.getRoute().getEndLinkId(), readLeg.getRoute().getEndLinkId());
+		Assert.assertEquals(leg.getRoute().getDistance(), readLeg.getRoute().getDistance(), MatsimTestUtils.EPSILON);
+		Assert.assertEquals(leg.getRoute().getTravelTime(), readLeg.getRoute().getTravelTime());
+		if (leg.getRoute() instanceof NetworkRoute route) {
+			final NetworkRoute readRoute = (NetworkRoute) readLeg.getRoute();
+			Assert.assertEquals(route.getLinkIds(), readRoute.getLinkIds());
+			Assert.assertEquals(route.getVehicleId(), readRoute.getVehicleId());
+		} else {
+			Assert.assertEquals(leg.getRoute().getRouteDescription(), readLeg.getRoute().getRouteDescription());
+		}
+	}
+
+}
@@ -34,6 +34,7 @@ import org.matsim.core.population.routes.NetworkRoute;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -300,4 +301,76 @@ public class MediumCompressedNetworkRouteTest extends AbstractNetworkRouteTest {
 		}
 	}
 
+	/**
+	 * Tests that the links are correctly decoded with decreasing and far apart link indices,
+	 * and in any order they are accessed.
+	 */
+	@Test
+	public void testGetLinks_deltaEncoding() {
+		List<Id<Link>> linkIds = new ArrayList<>();
+		for (String id : new String[] { "delta-b", "delta-a", "delta-c", "delta-a", "delta-a" }) {
+			linkIds.add(Id.create(id, Link.class));
+		}
+		for (int i = 0; i < 200_000; i++) {
+			Id.create("delta-filler-" + i, Link.class); // push the indices of the next links far away
+		}
+		linkIds.add(Id.create("delta-far", Link.class));
+		linkIds.add(linkIds.get(0));
+
+		NetworkRoute route = new MediumCompressedNetworkRoute(linkIds.get(0), linkIds.get(1));
+		route.setLinkIds(linkIds.get(0), linkIds, linkIds.get(1));
+
+		List<Id<Link>> linksId2 = route.getLinkIds();
+		Assert.assertEquals("wrong number of links.", linkIds.size(), linksId2.size());
+		for (int i = 0; i < linkIds.size(); i++) {
+			Assert.assertEquals("different link at position " + i, linkIds.get(i), linksId2.get(i));
+			Assert.assertEquals("different link when accessed again at position " + i, linkIds.get(i), linksId2.get(i));
+		}
+		for (int i = linkIds.size() - 1; i >= 0; i--) {
+			Assert.assertEquals("different link in reverse order at position " + i, linkIds.get(i), linksId2.get(i));
+		}
+		Iterator<Id<Link>> iter = linksId2.iterator();
+		for (Id<Link> linkId : linkIds) {
+			Assert.assertTrue(iter.hasNext());
+			Assert.assertEquals(linkId, iter.next());
+		}
+		Assert.assertFalse(iter.hasNext());
+		Assert.assertEquals(linkIds, linksId2);
+	}
+
+	/**
+	 * Tests that the list returned by {@link MediumCompressedNetworkRoute#getLinkIds()}
+	 * reflects changes of the route, like the list of {@link org.matsim.core.population.routes.LinkNetworkRouteImpl}.
+	 */
+	@Test
+	public void testGetLinks_viewReflectsChanges() {
+		Network network = createTestNetwork();
+		Link link1 = network.getLinks().get(Id.create("1", Link.class));
+		Link link2 = network.getLinks().get(Id.create("2", Link.class));
+		Link link3 = network.getLinks().get(Id.create("3", Link.class));
+		Link link4 = network.getLinks().get(Id.create("4", Link.class));
+
+		NetworkRoute route = new MediumCompressedNetworkRoute(link1.getId(), link4.getId());
+		List<Id<Link>> view = route.getLinkIds();
+		Assert.assertTrue(view.isEmpty());
+
+		route.setLinkIds(link1.getId(), List.of(link2.getId(), link3.getId()), link4.getId());
+		Assert.assertEquals(List.of(link2.getId(), link3.getId()), view);
+
+		route.setLinkIds(link1.getId(), List.of(link3.getId()), link4.getId());
+		Assert.assertEquals(1, view.size());
+		Assert.assertEquals(link3.getId(), view.get(0));
+
+		try {
+			view.get(1);
+			Assert.fail("expected IndexOutOfBoundsException.");
+		} catch (IndexOutOfBoundsException expected) {
+		}
+		try {
+			view.add(link4.getId());
+			Assert.fail("expected UnsupportedOperationException.");
+		} catch (UnsupportedOperationException expected) {
+		}
+	}
+
 }
@@ -0,0 +1,182 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ReRouteIfTravelTimesChangedTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.StrategyConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.replanning.PlanStrategy;
+import org.matsim.core.router.PlanRoutingMetadata;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.core.utils.timing.TimeInterpretation;
+
+public class ReRouteIfTravelTimesChangedTest {
+
+	@Test
+	public void testHaveTravelTimesChanged() {
+		Scenario scenario = createScenario();
+		Plan plan = scenario.getPopulation().getPersons().get(Id.createPersonId("1")).getSelectedPlan();
+		Leg leg = (Leg) plan.getPlanElements().get(1);
+		NetworkRoute route = (NetworkRoute) leg.getRoute();
+
+		TravelTime congested = (link, time, p, vehicle) -> 105;
+
+		Assert.assertFalse("unchanged travel times",
+				createModule(scenario, new FreeSpeedTravelTime(), 0.1).haveTravelTimesChanged(plan));
+		Assert.assertFalse("change below threshold",
+				createModule(scenario, congested, 0.1).haveTravelTimesChanged(plan));
+		Assert.assertTrue("change above threshold",
+				createModule(scenario, congested, 0.01).haveTravelTimesChanged(plan));
+
+		leg.setRoute(null);
+		Assert.assertTrue("legs without route need to be routed",
+				createModule(scenario, new FreeSpeedTravelTime(), 0.1).haveTravelTimesChanged(plan));
+		leg.setRoute(route);
+
+		PlanRoutingMetadata.markRouted(plan, 5);
+		Assert.assertFalse("routed with the travel times of the last mobsim",
+				createModule(scenario, congested, 0.01, 5).haveTravelTimesChanged(plan));
+		Assert.assertTrue("routed with older travel times",
+				createModule(scenario, congested, 0.01, 6).haveTravelTimesChanged(plan));
+		leg.setRoute(null);
+		Assert.assertTrue("legs without route need to be routed in any case",
+				createModule(scenario, congested, 0.01, 5).haveTravelTimesChanged(plan));
+	}
+
+	/**
+	 * The strategy works on a copy of the selected plan, which must know that its routes were computed with the current
+	 * travel times.
+	 */
+	@Test
+	public void testStrategyUsesRoutingMetadata() {
+		Scenario scenario = createScenario();
+		Person person = scenario.getPopulation().getPersons().get(Id.createPersonId("1"));
+		Plan plan = person.getSelectedPlan();
+		plan.setScore(0.0);
+		NetworkRoute route = (NetworkRoute) ((Leg) plan.getPlanElements().get(1)).getRoute();
+		PlanRoutingMetadata.markRouted(plan, 5);
+		scenario.getConfig().strategy().setTravelTimeChangeThresholdForReRoute(0.01);
+
+		TravelTime congested = (link, time, p, vehicle) -> 105;
+		Injector injector = Guice.createInjector(new AbstractModule() {
+			@Override
+			protected void configure() {
+				bind(Scenario.class).toInstance(scenario);
+				bind(StrategyConfigGroup.class).toInstance(scenario.getConfig().strategy());
+				bind(TripRouter.class).toProvider(() -> new TripRouter.Builder(scenario.getConfig())
+						.setRoutingModule(TransportMode.car, request -> {
+							Leg leg = PopulationUtils.createLeg(TransportMode.car);
+							leg.setTravelTime(105);
+							leg.setRoute(RouteUtils.createGenericRouteImpl(request.getFromFacility().getLinkId(), request.getToFacility().getLinkId()));
+							return Collections.singletonList(leg);
+						})
+						.build());
+				bind(new TypeLiteral<Map<String, TravelTime>>() {}).toInstance(Map.of(TransportMode.car, congested));
+				bind(TimeInterpretation.class).toInstance(TimeInterpretation.create(scenario.getConfig()));
+			}
+		});
+		PlanStrategy strategy = injector.getInstance(org.matsim.core.replanning.strategies.ReRouteIfTravelTimesChanged.class).get();
+
+		strategy.init(() -> 5);
+		strategy.run(person);
+		strategy.finish();
+
+		Assert.assertEquals(2, person.getPlans().size());
+		Assert.assertNotSame(plan, person.getSelectedPlan());
+		Leg leg = (Leg) person.getSelectedPlan().getPlanElements().get(1);
+		Assert.assertTrue("the copy must not be re-routed", leg.getRoute() instanceof NetworkRoute);
+		Assert.assertEquals(route.getLinkIds(), ((NetworkRoute) leg.getRoute()).getLinkIds());
+		Assert.assertEquals(5, PlanRoutingMetadata.get(person.getSelectedPlan()).getRoutedIteration());
+		Assert.assertFalse(PlanRoutingMetadata.isValidated(person.getSelectedPlan()));
+	}
+
+	/**
+	 * A corridor of three links and a person with a car trip over it, routed with free speed travel times.
+	 */
+	private static Scenario createScenario() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("1"), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("2"), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId("3"), new Coord(2000, 0));
+		Node n4 = NetworkUtils.createAndAddNode(network, Id.createNodeId("4"), new Coord(3000, 0));
+		Link l1 = NetworkUtils.createAndAddLink(network, Id.createLinkId("1"), n1, n2, 1000, 10, 3600, 1);
+		Link l2 = NetworkUtils.createAndAddLink(network, Id.createLinkId("2"), n2, n3, 1000, 10, 3600, 1);
+		Link l3 = NetworkUtils.createAndAddLink(network, Id.createLinkId("3"), n3, n4, 1000, 10, 3600, 1);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Person person = pf.createPerson(Id.createPersonId("1"));
+		Plan plan = pf.createPlan();
+		person.addPlan(plan);
+		Activity home = pf.createActivityFromLinkId("h", l1.getId());
+		home.setEndTime(8 * 3600);
+		plan.addActivity(home);
+		Leg leg = pf.createLeg(TransportMode.car);
+		leg.setDepartureTime(8 * 3600);
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(l1.getId(), Arrays.asList(l2.getId()), l3.getId());
+		route.setTravelTime(100); // free speed travel time on link 2, the start and end links are not counted
+		leg.setRoute(route);
+		plan.addLeg(leg);
+		plan.addActivity(pf.createActivityFromLinkId("w", l3.getId()));
+		scenario.getPopulation().addPerson(person);
+		return scenario;
+	}
+
+	private static ReRouteIfTravelTimesChanged createModule(Scenario scenario, TravelTime travelTime, double threshold) {
+		return new ReRouteIfTravelTimesChanged(scenario, () -> null, Map.of(TransportMode.car, travelTime),
+				TimeInterpretation.create(scenario.getConfig()), threshold);
+	}
+
+	private static ReRouteIfTravelTimesChanged createModule(Scenario scenario, TravelTime travelTime, double threshold, int iteration) {
+		ReRouteIfTravelTimesChanged module = createModule(scenario, travelTime, threshold);
+		module.beforePrepareReplanningHook(() -> iteration);
+		return module;
+	}
+
+}
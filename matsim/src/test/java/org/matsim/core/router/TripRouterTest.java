@@ -20,10 +20,21 @@
 package org.matsim.core.router;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import jakarta.inject.Provider;
 
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
@@ -33,10 +44,14 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.utils.misc.OptionalTime;
 import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.FacilitiesUtils;
+import org.matsim.facilities.Facility;
 import org.matsim.utils.objectattributes.attributable.Attributes;
+import org.matsim.utils.objectattributes.attributable.AttributesImpl;
 
 /**
  * @author thibautd
@@ -164,6 +179,102 @@ public class TripRouterTest {
 				TripRouter.insertTrip( plan , o , trip , d ) );
 	}
 
+	@Test
+	public void testRoutingModulesPerThread() throws Exception {
+		List<RoutingModule> createdModules = new ArrayList<>();
+		TripRouter tripRouter = new TripRouter( createCarProviders( createdModules::add ), ConfigUtils.createConfig(), null );
+		assertEquals( "modules should only be created when needed", 0, createdModules.size() );
+
+		Facility facility = FacilitiesUtils.wrapLinkAndCoord( null, new Coord( 0, 0 ) );
+		RoutingModule mainThreadModule = tripRouter.getRoutingModule( "car" );
+		RoutingModule[] otherThreadModule = new RoutingModule[1];
+		Thread thread = new Thread( () -> {
+			tripRouter.calcRoute( "car", facility, facility, 0, null, new AttributesImpl() );
+			tripRouter.calcRoute( "car", facility, facility, 0, null, new AttributesImpl() );
+			otherThreadModule[0] = tripRouter.getRoutingModule( "car" );
+		} );
+		thread.start();
+		thread.join();
+		tripRouter.calcRoute( "car", facility, facility, 0, null, new AttributesImpl() );
+
+		assertEquals( "every thread should have its own module", 2, createdModules.size() );
+		assertSame( mainThreadModule, tripRouter.getRoutingModule( "car" ) );
+		assertSame( createdModules.get( 1 ), otherThreadModule[0] );
+	}
+
+	@Test
+	public void testReleasedRoutingModulesAreReused() throws Exception {
+		List<RoutingModule> createdModules = new ArrayList<>();
+		TripRouter tripRouter = new TripRouter( createCarProviders( createdModules::add ), ConfigUtils.createConfig(), null );
+
+		RoutingModule[] threadModules = new RoutingModule[2];
+		for (int i = 0; i < threadModules.length; i++) {
+			int index = i;
+			Thread thread = new Thread( () -> {
+				threadModules[index] = tripRouter.getRoutingModule( "car" );
+				tripRouter.releaseRoutingModules();
+			} );
+			thread.start();
+			thread.join();
+		}
+
+		assertEquals( "the released module should have been handed over", 1, createdModules.size() );
+		assertSame( threadModules[0], threadModules[1] );
+	}
+
+	@Test
+	public void testRoutingModulesAreNotKeptByThreads() throws Exception {
+		List<WeakReference<RoutingModule>> createdModules = new ArrayList<>();
+		TripRouter tripRouter = new TripRouter( createCarProviders( module -> createdModules.add( new WeakReference<>( module ) ) ),
+				ConfigUtils.createConfig(), null );
+
+		// the threads of the pool live on after the router is discarded, like in a mobsim or a long-running service
+		ExecutorService pool = Executors.newFixedThreadPool( 2 );
+		try {
+			routeInPool( tripRouter, pool );
+			tripRouter.getRoutingModule( "car" );
+			assertTrue( createdModules.size() >= 2 );
+
+			tripRouter = null;
+			for (int i = 0; i < 50 && createdModules.stream().anyMatch( reference -> reference.get() != null ); i++) {
+				System.gc();
+				Thread.sleep( 20 );
+			}
+			for (WeakReference<RoutingModule> reference : createdModules) {
+				assertNull( "the modules should be gone together with the router", reference.get() );
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void routeInPool( TripRouter tripRouter, ExecutorService pool ) throws Exception {
+		Facility facility = FacilitiesUtils.wrapLinkAndCoord( null, new Coord( 0, 0 ) );
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			futures.add( pool.submit( () -> tripRouter.calcRoute( "car", facility, facility, 0, null, new AttributesImpl() ) ) );
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+	}
+
+	private static Map<String, Provider<RoutingModule>> createCarProviders( Consumer<RoutingModule> createdModules ) {
+		Map<String, Provider<RoutingModule>> providers = new HashMap<>();
+		providers.put( "car", () -> {
+			// not a lambda, so every call creates a new instance
+			RoutingModule module = new RoutingModule() {
+				@Override
+				public List<? extends PlanElement> calcRoute( RoutingRequest request ) {
+					return List.of( PopulationUtils.createLeg( "car" ) );
+				}
+			};
+			createdModules.accept( module );
+			return module;
+		} );
+		return providers;
+	}
+
 	private static class EqualsActivity implements Activity {
 		private final Activity delegate ;
 		@Override
@@ -25,20 +25,31 @@ package org.matsim.core.router.old;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.controler.Injector;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.*;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutilityFactory;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.ScenarioByInstanceModule;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
@@ -50,8 +61,11 @@ import org.matsim.facilities.Facility;
 import org.matsim.testcases.MatsimTestUtils;
 import org.matsim.vehicles.Vehicle;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PlanRouterTest {
 
@@ -147,4 +161,134 @@ public class PlanRouterTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void routesPlansInBatches() {
+        Config batchedConfig = ConfigUtils.createConfig();
+        batchedConfig.plansCalcRoute().setRoutingRandomness(0.);
+        batchedConfig.plansCalcRoute().setBatchedNetworkRouting(true);
+        Scenario batchedScenario = createGridScenario(batchedConfig);
+        CountingTravelDisutilityFactory batchedDisutilityFactory = new CountingTravelDisutilityFactory();
+        TripRouter batchedTripRouter = createTripRouter(batchedScenario, batchedDisutilityFactory);
+        Assert.assertTrue(((NetworkRoutingModule) batchedTripRouter.getRoutingModule("car")).isRoutingInBatches());
+
+        Config config = ConfigUtils.createConfig();
+        config.plansCalcRoute().setRoutingRandomness(0.);
+        Scenario scenario = createGridScenario(config);
+        TripRouter tripRouter = createTripRouter(scenario, new OnlyTimeDependentTravelDisutilityFactory());
+        Assert.assertFalse(((NetworkRoutingModule) tripRouter.getRoutingModule("car")).isRoutingInBatches());
+
+        List<Plan> batchedPlans = new ArrayList<>();
+        for (Person person : batchedScenario.getPopulation().getPersons().values()) {
+            batchedPlans.add(person.getSelectedPlan());
+        }
+        new PlanRouter(batchedTripRouter, TimeInterpretation.create(batchedConfig)).run(batchedPlans);
+        PlanRouter planRouter = new PlanRouter(tripRouter, TimeInterpretation.create(config));
+        for (Person person : scenario.getPopulation().getPersons().values()) {
+            planRouter.run(person.getSelectedPlan());
+        }
+        // the shared searches of the batches are the only ones without person
+        Assert.assertTrue("no plans were routed in batches", batchedDisutilityFactory.queriesWithoutPerson.get() > 0);
+
+        // the travel disutilities of the scenario are constant and do not depend on the person, so batching must not
+        // change any route
+        for (Person person : scenario.getPopulation().getPersons().values()) {
+            List<Leg> expected = TripStructureUtils.getLegs(person.getSelectedPlan());
+            List<Leg> actual = TripStructureUtils.getLegs(batchedScenario.getPopulation().getPersons().get(person.getId()).getSelectedPlan());
+            Assert.assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assert.assertEquals(expected.get(i).getTravelTime().seconds(), actual.get(i).getTravelTime().seconds(), 1e-6);
+                Assert.assertEquals(expected.get(i).getRoute().getStartLinkId(), actual.get(i).getRoute().getStartLinkId());
+                Assert.assertEquals(expected.get(i).getRoute().getEndLinkId(), actual.get(i).getRoute().getEndLinkId());
+                Assert.assertEquals("route of person " + person.getId(), ((NetworkRoute) expected.get(i).getRoute()).getLinkIds(),
+                        ((NetworkRoute) actual.get(i).getRoute()).getLinkIds());
+            }
+        }
+    }
+
+    private static TripRouter createTripRouter(Scenario scenario, TravelDisutilityFactory disutilityFactory) {
+        com.google.inject.Injector injector = Injector.createInjector(scenario.getConfig(), new AbstractModule() {
+            @Override
+            public void install() {
+                install(new TripRouterModule());
+                install(new ScenarioByInstanceModule(scenario));
+                install(new TimeInterpretationModule());
+                addTravelTimeBinding("car").toInstance(new FreeSpeedTravelTime());
+                addTravelDisutilityFactoryBinding("car").toInstance(disutilityFactory);
+            }
+        });
+        return injector.getInstance(TripRouter.class);
+    }
+
+    private static class CountingTravelDisutilityFactory implements TravelDisutilityFactory {
+
+        private final AtomicInteger queriesWithoutPerson = new AtomicInteger();
+
+        @Override
+        public TravelDisutility createTravelDisutility(TravelTime timeCalculator) {
+            TravelDisutility delegate = new OnlyTimeDependentTravelDisutilityFactory().createTravelDisutility(timeCalculator);
+            return new TravelDisutility() {
+                @Override
+                public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+                    if (person == null) {
+                        queriesWithoutPerson.incrementAndGet();
+                    }
+                    return delegate.getLinkTravelDisutility(link, time, person, vehicle);
+                }
+
+                @Override
+                public double getLinkMinimumTravelDisutility(Link link) {
+                    return delegate.getLinkMinimumTravelDisutility(link);
+                }
+            };
+        }
+    }
+
+    /**
+     * A 10x10 grid with random link lengths, and persons driving from a few home links to random work links and back.
+     */
+    private static Scenario createGridScenario(Config config) {
+        Scenario scenario = ScenarioUtils.createScenario(config);
+        Network network = scenario.getNetwork();
+        Random random = new Random(4711);
+        int size = 10;
+        Node[][] nodes = new Node[size][size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 500, y * 500));
+            }
+        }
+        List<Link> links = new ArrayList<>();
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                for (Node to : new Node[] { x + 1 < size ? nodes[x + 1][y] : null, y + 1 < size ? nodes[x][y + 1] : null }) {
+                    if (to != null) {
+                        Node from = nodes[x][y];
+                        links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "-" + to.getId()), from, to, 500 + random.nextInt(500), 10, 1000, 1));
+                        links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(to.getId() + "-" + from.getId()), to, from, 500 + random.nextInt(500), 10, 1000, 1));
+                    }
+                }
+            }
+        }
+
+        PopulationFactory pf = scenario.getPopulation().getFactory();
+        for (int i = 0; i < 200; i++) {
+            Person person = pf.createPerson(Id.createPersonId(i));
+            Plan plan = pf.createPlan();
+            Link homeLink = links.get(i % 3);
+            Link workLink = links.get(random.nextInt(links.size()));
+            Activity home = pf.createActivityFromLinkId("home", homeLink.getId());
+            home.setEndTime(7 * 3600 + random.nextInt(900));
+            plan.addActivity(home);
+            plan.addLeg(pf.createLeg("car"));
+            Activity work = pf.createActivityFromLinkId("work", workLink.getId());
+            work.setEndTime(17 * 3600);
+            plan.addActivity(work);
+            plan.addLeg(pf.createLeg("car"));
+            plan.addActivity(pf.createActivityFromLinkId("home", homeLink.getId()));
+            person.addPlan(plan);
+            scenario.getPopulation().addPerson(person);
+        }
+        return scenario;
+    }
+
+}
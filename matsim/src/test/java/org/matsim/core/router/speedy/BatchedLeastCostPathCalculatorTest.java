@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchedLeastCostPathCalculatorTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.speedy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.vehicles.Vehicle;
+
+public class BatchedLeastCostPathCalculatorTest {
+
+	@Test
+	public void testSameCostsAsDijkstra() {
+		Network network = createGridNetwork(15, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph graph = new SpeedyGraph(network);
+		LeastCostPathCalculator dijkstra = new SpeedyDijkstra(graph, travelTimeCostCalculator, travelTimeCostCalculator);
+		CountingCalculator delegate = new CountingCalculator(dijkstra);
+		BatchedLeastCostPathCalculator batch = new BatchedLeastCostPathCalculator(graph, travelTimeCostCalculator, travelTimeCostCalculator,
+				delegate, BatchedLeastCostPathCalculator.DEFAULT_TIME_BIN_SIZE, 2);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		List<Node[]> requests = new ArrayList<>();
+		List<Double> times = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			for (int j = 0; j < 30; j++) {
+				Node to = nodes.get(random.nextInt(nodes.size()));
+				double time = 8 * 3600 + random.nextInt(900);
+				batch.addRequest(from, to, time);
+				requests.add(new Node[] {from, to});
+				times.add(time);
+			}
+		}
+		batch.calculateRequests();
+
+		for (int i = 0; i < requests.size(); i++) {
+			Node from = requests.get(i)[0];
+			Node to = requests.get(i)[1];
+			Path expected = dijkstra.calcLeastCostPath(from, to, times.get(i), null, null);
+			Path actual = batch.calcLeastCostPath(from, to, times.get(i), null, null);
+
+			Assert.assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+			Assert.assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+			Assert.assertEquals(from, actual.getFromNode());
+			Assert.assertEquals(to, actual.getToNode());
+			Assert.assertEquals(actual.links.size() + 1, actual.nodes.size());
+			for (int l = 0; l < actual.links.size(); l++) {
+				Assert.assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				Assert.assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+		}
+		Assert.assertEquals("all requests should have been answered by the batch", 0, delegate.count);
+	}
+
+	@Test
+	public void testUnpreparedRequestsUseDelegate() {
+		Network network = createGridNetwork(5, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		SpeedyGraph graph = new SpeedyGraph(network);
+		LeastCostPathCalculator dijkstra = new SpeedyDijkstra(graph, travelTimeCostCalculator, travelTimeCostCalculator);
+		CountingCalculator delegate = new CountingCalculator(dijkstra);
+		BatchedLeastCostPathCalculator batch = new BatchedLeastCostPathCalculator(graph, travelTimeCostCalculator, travelTimeCostCalculator,
+				delegate, 900, 2);
+
+		Node from = network.getNodes().get(Id.createNodeId("0_0"));
+		Node to1 = network.getNodes().get(Id.createNodeId("4_4"));
+		Node to2 = network.getNodes().get(Id.createNodeId("2_3"));
+		Node to3 = network.getNodes().get(Id.createNodeId("3_1"));
+		batch.addRequest(from, to1, 8 * 3600);
+		batch.addRequest(from, to2, 8 * 3600 + 60);
+		batch.calculateRequests();
+
+		batch.calcLeastCostPath(from, to1, 8 * 3600 + 300, null, null);
+		batch.calcLeastCostPath(from, to2, 8 * 3600, null, null);
+		Assert.assertEquals(0, delegate.count);
+
+		batch.calcLeastCostPath(from, to3, 8 * 3600, null, null); // other end node
+		Assert.assertEquals(1, delegate.count);
+		batch.calcLeastCostPath(from, to1, 8 * 3600 + 900, null, null); // other time bin
+		Assert.assertEquals(2, delegate.count);
+
+		batch.clearRequests();
+		batch.calcLeastCostPath(from, to1, 8 * 3600, null, null);
+		Assert.assertEquals(3, delegate.count);
+	}
+
+	private static class CountingCalculator implements LeastCostPathCalculator {
+		private final LeastCostPathCalculator delegate;
+		private int count = 0;
+
+		CountingCalculator(LeastCostPathCalculator delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Path calcLeastCostPath(Node fromNode, Node toNode, double starttime, Person person,
+				Vehicle vehicle) {
+			this.count++;
+			return this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+		}
+	}
+
+	/**
+	 * A grid with links in both directions, random lengths and speeds, and some parallel links.
+	 */
+	private static Network createGridNetwork(int size, Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 500, y * 500));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					createLinks(network, nodes[x][y], nodes[x + 1][y], random);
+				}
+				if (y + 1 < size) {
+					createLinks(network, nodes[x][y], nodes[x][y + 1], random);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void createLinks(Network network, Node a, Node b, Random random) {
+		int parallelLinks = random.nextInt(10) == 0 ? 2 : 1;
+		for (int i = 0; i < parallelLinks; i++) {
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(a.getId() + "-" + b.getId() + "-" + i), a, b,
+					500 + random.nextInt(500), 5 + random.nextInt(30), 1000, 1);
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(b.getId() + "-" + a.getId() + "-" + i), b, a,
+					500 + random.nextInt(500), 5 + random.nextInt(30), 1000, 1);
+		}
+	}
+}
@@ -20,11 +20,28 @@
 
 package org.matsim.core.router.speedy;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
 import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser
@@ -39,4 +56,152 @@ public class SpeedyALTTest extends AbstractLeastCostPathCalculatorTest {
 		return new SpeedyALT(altData, travelTimeCostCalculator, travelTimeCostCalculator);
 	}
 
+	@Test
+	public void testLandmarksCacheFile() throws IOException {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = createGridNetwork(network, 6);
+		SpeedyGraph graph = new SpeedyGraph(network);
+		FreespeedTravelTimeAndDisutility travelCosts = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		Path cacheDirectory = Path.of(utils.getOutputDirectory(), "landmarks");
+
+		SpeedyALTData computed = SpeedyALTData.load(graph, 4, SpeedyALTData.getMinLinkCosts(graph, travelCosts), cacheDirectory);
+		Assert.assertEquals(1, countFiles(cacheDirectory));
+		SpeedyALTData read = SpeedyALTData.load(graph, 4, SpeedyALTData.getMinLinkCosts(graph, travelCosts), cacheDirectory);
+		Assert.assertEquals(1, countFiles(cacheDirectory));
+
+		Assert.assertEquals(computed.getMinTravelCostPerLength(), read.getMinTravelCostPerLength(), 0.0);
+		for (Node node : network.getNodes().values()) {
+			int nodeIdx = node.getId().index();
+			Assert.assertEquals(computed.getNodeDeadend(nodeIdx), read.getNodeDeadend(nodeIdx));
+			for (int l = 0; l < computed.getLandmarksCount(); l++) {
+				Assert.assertEquals(computed.getTravelCostFromLandmark(nodeIdx, l), read.getTravelCostFromLandmark(nodeIdx, l), 0.0);
+				Assert.assertEquals(computed.getTravelCostToLandmark(nodeIdx, l), read.getTravelCostToLandmark(nodeIdx, l), 0.0);
+			}
+		}
+		LeastCostPathCalculator.Path path = new SpeedyALT(read, travelCosts, travelCosts).calcLeastCostPath(nodes[0][0], nodes[5][5], 0, null, null);
+		Assert.assertEquals(new SpeedyALT(computed, travelCosts, travelCosts).calcLeastCostPath(nodes[0][0], nodes[5][5], 0, null, null).travelCost, path.travelCost, 1e-9);
+
+		// other minimal travel costs need other landmarks
+		PlanCalcScoreConfigGroup otherScoring = new PlanCalcScoreConfigGroup();
+		otherScoring.getModes().get(TransportMode.car).setMarginalUtilityOfTraveling(-12.0);
+		FreespeedTravelTimeAndDisutility otherTravelCosts = new FreespeedTravelTimeAndDisutility(otherScoring);
+		SpeedyALTData.load(graph, 4, SpeedyALTData.getMinLinkCosts(graph, otherTravelCosts), cacheDirectory);
+		Assert.assertEquals(2, countFiles(cacheDirectory));
+	}
+
+	@Test
+	public void testTimeDependentLandmarks() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = createGridNetwork(network, 10);
+		// the links to the east are congested from 7 to 9 am
+		TravelTime travelTime = (link, time, person, vehicle) -> {
+			double freeTravelTime = link.getLength() / link.getFreespeed();
+			boolean congested = link.getId().toString().endsWith("_e") && time >= 7 * 3600 && time < 9 * 3600;
+			return congested ? 5 * freeTravelTime : freeTravelTime;
+		};
+		double marginalCostOfTime = 1.0 / 300;
+		TravelDisutility travelCosts = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return travelTime.getLinkTravelTime(link, time, person, vehicle) * marginalCostOfTime + 0.001 * link.getLength();
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return link.getLength() / link.getFreespeed() * marginalCostOfTime + 0.001 * link.getLength();
+			}
+		};
+		SpeedyGraph graph = new SpeedyGraph(network);
+		SpeedyALTData staticData = new SpeedyALTData(graph, 4, travelCosts);
+		double[] minLinkCosts = SpeedyALTData.getMinLinkCosts(graph, travelCosts);
+		SpeedyTDALTData tdData = new SpeedyTDALTData(staticData, minLinkCosts, travelTime, marginalCostOfTime, 1800, 1800, 450, null);
+
+		Assert.assertSame(staticData, tdData.getLandmarks(2 * 3600));
+		Assert.assertNotSame(staticData, tdData.getLandmarks(7 * 3600));
+		Assert.assertNotSame(staticData, tdData.getLandmarks(7.5 * 3600));
+		Assert.assertSame(staticData, tdData.getLandmarks(8 * 3600)); // the time window reaches beyond the congestion
+		Assert.assertSame(staticData, tdData.getLandmarks(12 * 3600));
+
+		LeastCostPathCalculator dijkstra = new SpeedyDijkstra(graph, travelTime, travelCosts);
+		// without time horizon, longer trips do not end within the time window and have to be computed with the static landmarks
+		SpeedyTDALTData shortTdData = new SpeedyTDALTData(staticData, minLinkCosts, travelTime, marginalCostOfTime, 1800, 0, 450, null);
+		for (SpeedyTDALTData data : new SpeedyTDALTData[] { tdData, shortTdData }) {
+			LeastCostPathCalculator alt = new SpeedyALT(data, travelTime, travelCosts);
+			for (double time : new double[] { 2 * 3600, 7 * 3600, 7.4 * 3600, 7.9 * 3600, 12 * 3600 }) {
+				for (Node fromNode : new Node[] { nodes[0][0], nodes[0][9], nodes[4][5] }) {
+					for (Node toNode : network.getNodes().values()) {
+						double expected = dijkstra.calcLeastCostPath(fromNode, toNode, time, null, null).travelCost;
+						Assert.assertEquals(expected, alt.calcLeastCostPath(fromNode, toNode, time, null, null).travelCost, 1e-9);
+					}
+				}
+			}
+		}
+
+		// the landmarks of the previous iteration are reused as long as the travel times do not change
+		SpeedyTDALTData nextTdData = new SpeedyTDALTData(staticData, minLinkCosts, travelTime, marginalCostOfTime, 1800, 1800, 450, tdData);
+		Assert.assertSame(tdData.getLandmarks(7 * 3600), nextTdData.getLandmarks(7 * 3600));
+	}
+
+	/**
+	 * The routing modules create a travel disutility per thread and replanning, but the time-dependent landmarks are
+	 * only computed once per iteration.
+	 */
+	@Test
+	public void testTimeDependentLandmarksSharedPerIteration() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = createGridNetwork(network, 10);
+		int[] calls = { 0 };
+		TravelTime travelTime = (link, time, person, vehicle) -> {
+			calls[0]++;
+			double freeTravelTime = link.getLength() / link.getFreespeed();
+			return link.getId().toString().endsWith("_e") && time >= 7 * 3600 && time < 9 * 3600 ? 5 * freeTravelTime : freeTravelTime;
+		};
+		int[] iteration = { 0 };
+		SpeedyALTFactory factory = new SpeedyALTFactory(null, 1.0 / 300, 900);
+		factory.setIterationCounter(() -> iteration[0]);
+
+		factory.createPathCalculator(network, new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()), travelTime)
+				.calcLeastCostPath(nodes[0][0], nodes[9][0], 7 * 3600, null, null);
+		Assert.assertTrue(calls[0] > 10 * network.getLinks().size());
+
+		calls[0] = 0;
+		factory.createPathCalculator(network, new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()), travelTime)
+				.calcLeastCostPath(nodes[0][0], nodes[9][0], 7 * 3600, null, null);
+		Assert.assertTrue("the landmarks must not be computed again", calls[0] < network.getLinks().size());
+
+		iteration[0]++;
+		calls[0] = 0;
+		factory.createPathCalculator(network, new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()), travelTime)
+				.calcLeastCostPath(nodes[0][0], nodes[9][0], 7 * 3600, null, null);
+		Assert.assertTrue("the landmarks must be computed again in the next iteration", calls[0] > 10 * network.getLinks().size());
+	}
+
+	private static Node[][] createGridNetwork(Network network, int size) {
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId("lm_" + x + "_" + y), new Coord(x * 100, y * 100));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId("lm_" + x + "_" + y + "_e"), nodes[x][y], nodes[x + 1][y], 100, 10 + y, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId("lm_" + x + "_" + y + "_w"), nodes[x + 1][y], nodes[x][y], 100, 10 + y, 1000, 1);
+				}
+				if (y + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId("lm_" + x + "_" + y + "_n"), nodes[x][y], nodes[x][y + 1], 100, 10 + x, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId("lm_" + x + "_" + y + "_s"), nodes[x][y + 1], nodes[x][y], 100, 10 + x, 1000, 1);
+				}
+			}
+		}
+		return nodes;
+	}
+
+	private static long countFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
 }
@@ -0,0 +1,194 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SpeedyCCHTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.speedy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.AbstractLeastCostPathCalculatorTest;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class SpeedyCCHTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new SpeedyCCHFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	@Test
+	public void testSameCostsAsDijkstra() {
+		Network network = createGridNetwork(15, new Random(4711));
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		LeastCostPathCalculator dijkstra = new SpeedyDijkstra(new SpeedyGraph(network), travelTimeCostCalculator, travelTimeCostCalculator);
+		LeastCostPathCalculator cch = new SpeedyCCHFactory().createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			Path expected = dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null);
+			Path actual = cch.calcLeastCostPath(from, to, 8 * 3600, null, null);
+
+			Assert.assertEquals(expected.travelCost, actual.travelCost, 1e-6);
+			Assert.assertEquals(expected.travelTime, actual.travelTime, 1e-6);
+			Assert.assertEquals(from, actual.getFromNode());
+			Assert.assertEquals(to, actual.getToNode());
+			Assert.assertEquals(actual.links.size() + 1, actual.nodes.size());
+			for (int l = 0; l < actual.links.size(); l++) {
+				Assert.assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				Assert.assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+		}
+	}
+
+	/**
+	 * The direct link gets expensive at 08:00, so the route only uses it before.
+	 */
+	@Test
+	public void testTimeBins() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.createNodeId(3), new Coord(500, 500));
+		Link direct = NetworkUtils.createAndAddLink(network, Id.createLinkId("direct"), n1, n2, 1000, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("13"), n1, n3, 800, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("32"), n3, n2, 800, 10, 1000, 1);
+
+		TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed() * (link == direct && time >= 8 * 3600 ? 10 : 1);
+		TravelDisutility travelDisutility = new TravelDisutility() {
+			@Override
+			public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+				return travelTime.getLinkTravelTime(link, time, person, vehicle);
+			}
+
+			@Override
+			public double getLinkMinimumTravelDisutility(Link link) {
+				return link.getLength() / link.getFreespeed();
+			}
+		};
+		LeastCostPathCalculator cch = new SpeedyCCHFactory().createPathCalculator(network, travelDisutility, travelTime);
+
+		Assert.assertEquals(List.of(direct), cch.calcLeastCostPath(n1, n2, 7 * 3600, null, null).links);
+		Assert.assertEquals(2, cch.calcLeastCostPath(n1, n2, 8 * 3600, null, null).links.size());
+		Assert.assertEquals(160, cch.calcLeastCostPath(n1, n2, 8 * 3600 + 1800, null, null).travelTime, 1e-6);
+	}
+
+	/**
+	 * The routing modules create a travel disutility per thread and replanning, but the travel costs are only
+	 * customized once per iteration.
+	 */
+	@Test
+	public void testCustomizationSharedPerIteration() {
+		Network network = createGridNetwork(5, new Random(4711));
+		Node from = network.getNodes().get(Id.createNodeId("0_0"));
+		Node to = network.getNodes().get(Id.createNodeId("4_4"));
+		int[] iteration = { 0 };
+		int[] calls = { 0 };
+		SpeedyCCHFactory factory = new SpeedyCCHFactory();
+		factory.setIterationCounter(() -> iteration[0]);
+
+		factory.createPathCalculator(network, new CountingTravelDisutility(calls), new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()))
+				.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		Assert.assertTrue(calls[0] >= network.getLinks().size());
+
+		calls[0] = 0;
+		Path path = factory.createPathCalculator(network, new CountingTravelDisutility(calls), new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()))
+				.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		Assert.assertEquals("the travel costs must not be customized again", path.links.size(), calls[0]);
+
+		iteration[0]++;
+		calls[0] = 0;
+		factory.createPathCalculator(network, new CountingTravelDisutility(calls), new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup()))
+				.calcLeastCostPath(from, to, 8 * 3600, null, null);
+		Assert.assertTrue("the travel costs must be customized again in the next iteration", calls[0] >= network.getLinks().size());
+	}
+
+	private static class CountingTravelDisutility implements TravelDisutility {
+		private final int[] calls;
+
+		CountingTravelDisutility(int[] calls) {
+			this.calls = calls;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			this.calls[0]++;
+			return link.getLength() / link.getFreespeed();
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+	/**
+	 * A grid with links in both directions, random lengths and speeds, and some parallel links.
+	 */
+	private static Network createGridNetwork(int size, Random random) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 500, y * 500));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					createLinks(network, nodes[x][y], nodes[x + 1][y], random);
+				}
+				if (y + 1 < size) {
+					createLinks(network, nodes[x][y], nodes[x][y + 1], random);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void createLinks(Network network, Node a, Node b, Random random) {
+		int parallelLinks = random.nextInt(10) == 0 ? 2 : 1;
+		for (int i = 0; i < parallelLinks; i++) {
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(a.getId() + "-" + b.getId() + "-" + i), a, b,
+					500 + random.nextInt(500), 5 + random.nextInt(30), 1000, 1);
+			NetworkUtils.createAndAddLink(network, Id.createLinkId(b.getId() + "-" + a.getId() + "-" + i), b, a,
+					500 + random.nextInt(500), 5 + random.nextInt(30), 1000, 1);
+		}
+	}
+}
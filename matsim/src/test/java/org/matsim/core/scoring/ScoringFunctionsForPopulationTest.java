@@ -27,22 +27,45 @@ import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.events.PersonScoreEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.ControlerListenerManagerImpl;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author mrieser / Simunto GmbH
@@ -135,19 +158,149 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals(1.234+2.345, rsf.separateScoreSum, 1e-7);
 	}
 
+	@Test
+	public void testShardedScoring() {
+		Map<Id<Person>, List<String>> unshardedPassedOn = new HashMap<>();
+		Map<Id<Person>, List<String>> shardedPassedOn = new HashMap<>();
+		Set<Thread> shardedPassingOnThreads = ConcurrentHashMap.newKeySet();
+		Map<Id<Person>, RecordingScoringFunction> unsharded = runCarAndRideScenario(1, EventsUtils.createEventsManager(), unshardedPassedOn, ConcurrentHashMap.newKeySet());
+		Map<Id<Person>, RecordingScoringFunction> sharded = runCarAndRideScenario(3, EventsUtils.createParallelEventsManager(), shardedPassedOn, shardedPassingOnThreads);
+
+		Assert.assertEquals(7, unsharded.size());
+		Assert.assertEquals(unsharded.keySet(), sharded.keySet());
+		for (Id<Person> personId : unsharded.keySet()) {
+			RecordingScoringFunction expected = unsharded.get(personId);
+			RecordingScoringFunction actual = sharded.get(personId);
+			Assert.assertEquals(1, expected.legs.size());
+			Assert.assertEquals(2, expected.activities.size());
+			Assert.assertEquals(1, expected.tripCounter);
+			Assert.assertEquals(expected.tripCounter, actual.tripCounter);
+			Assert.assertEquals(expected.linkEnterCounter, actual.linkEnterCounter);
+			Assert.assertEquals(expected.activities.size(), actual.activities.size());
+			Assert.assertEquals(expected.legs.size(), actual.legs.size());
+			Leg expectedLeg = expected.legs.get(0);
+			Leg actualLeg = actual.legs.get(0);
+			Assert.assertEquals(expectedLeg.getMode(), actualLeg.getMode());
+			Assert.assertEquals(expectedLeg.getRoute().getStartLinkId(), actualLeg.getRoute().getStartLinkId());
+			Assert.assertEquals(expectedLeg.getRoute().getEndLinkId(), actualLeg.getRoute().getEndLinkId());
+			Assert.assertEquals(((NetworkRoute) expectedLeg.getRoute()).getLinkIds(), ((NetworkRoute) actualLeg.getRoute()).getLinkIds());
+			Assert.assertEquals(expectedLeg.getRoute().getDistance(), actualLeg.getRoute().getDistance(), 1e-7);
+			Assert.assertEquals(expectedLeg.getTravelTime(), actualLeg.getTravelTime());
+		}
+		// the drivers see the link enter events of their vehicles, the passenger does not
+		Assert.assertEquals(2, unsharded.get(Id.create("driver0", Person.class)).linkEnterCounter);
+		Assert.assertEquals(0, unsharded.get(Id.create("passenger", Person.class)).linkEnterCounter);
+		// the passenger and the driver are handled by different shards
+		Assert.assertNotEquals(Id.create("passenger", Person.class).index() % 3, Id.create("driver0", Person.class).index() % 3);
+		Route passengerRoute = sharded.get(Id.create("passenger", Person.class)).legs.get(0).getRoute();
+		Assert.assertEquals(Id.create("1", Link.class), passengerRoute.getStartLinkId());
+		Assert.assertEquals(Id.create("2", Link.class), passengerRoute.getEndLinkId());
+
+		// the other leg and activity handlers get the legs and activities of each person in order, but only after the mobsim
+		Assert.assertEquals(List.of("home", TransportMode.ride, "work"), unshardedPassedOn.get(Id.create("passenger", Person.class)));
+		Assert.assertEquals(unshardedPassedOn, shardedPassedOn);
+		Assert.assertEquals(Set.of(Thread.currentThread()), shardedPassingOnThreads);
+	}
+
+	/**
+	 * Six drivers driving from link 1 to link 3, and a passenger riding with the first one.
+	 *
+	 * @param passedOn is filled with the activity types and leg modes which are passed to the other handlers
+	 * @param passingOnThreads is filled with the threads in which they are passed
+	 */
+	private static Map<Id<Person>, RecordingScoringFunction> runCarAndRideScenario(int shards, EventsManager eventsManager,
+			Map<Id<Person>, List<String>> passedOn, Set<Thread> passingOnThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.planCalcScore().setEventHandlerShards(shards);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(100, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(200, 0));
+		Node n4 = NetworkUtils.createAndAddNode(network, Id.create("4", Node.class), new Coord(300, 0));
+		Id<Link> link1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), n1, n2, 100, 10, 1000, 1).getId();
+		Id<Link> link2 = NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), n2, n3, 100, 10, 1000, 1).getId();
+		Id<Link> link3 = NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), n3, n4, 100, 10, 1000, 1).getId();
+
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		Id<Person> passengerId = Id.create("passenger", Person.class);
+		population.addPerson(pf.createPerson(passengerId));
+		for (int i = 0; i < 6; i++) {
+			population.addPerson(pf.createPerson(Id.create("driver" + i, Person.class)));
+		}
+
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsToActivities eventsToActivities = new EventsToActivities();
+		EventsToLegs eventsToLegs = new EventsToLegs(scenario);
+		Map<Id<Person>, RecordingScoringFunction> scoringFunctions = new ConcurrentHashMap<>();
+		ScoringFunctionFactory scoringFunctionFactory = person -> {
+			RecordingScoringFunction sf = new RecordingScoringFunction();
+			scoringFunctions.put(person.getId(), sf);
+			return sf;
+		};
+		new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, config);
+		eventsToLegs.addLegHandler(leg -> {
+			passingOnThreads.add(Thread.currentThread());
+			passedOn.computeIfAbsent(leg.getAgentId(), id -> new ArrayList<>()).add(leg.getLeg().getMode());
+		});
+		eventsToActivities.addActivityHandler(activity -> {
+			passingOnThreads.add(Thread.currentThread());
+			passedOn.computeIfAbsent(activity.getAgentId(), id -> new ArrayList<>()).add(activity.getActivity().getType());
+		});
+		controlerListenerManager.fireControlerIterationStartsEvent(0, false);
+
+		eventsManager.initProcessing();
+		for (int i = 0; i < 6; i++) {
+			double time = 7 * 3600 + i * 100;
+			Id<Person> driverId = Id.create("driver" + i, Person.class);
+			Id<Vehicle> vehicleId = Id.create("car" + i, Vehicle.class);
+			eventsManager.processEvent(new ActivityEndEvent(time, driverId, link1, null, "home"));
+			eventsManager.processEvent(new PersonDepartureEvent(time, driverId, link1, TransportMode.car, TransportMode.car));
+			eventsManager.processEvent(new PersonEntersVehicleEvent(time, driverId, vehicleId));
+			if (i == 0) {
+				eventsManager.processEvent(new ActivityEndEvent(time, passengerId, link1, null, "home"));
+				eventsManager.processEvent(new PersonDepartureEvent(time, passengerId, link1, TransportMode.ride, TransportMode.ride));
+				eventsManager.processEvent(new PersonEntersVehicleEvent(time, passengerId, vehicleId));
+			}
+			eventsManager.processEvent(new VehicleEntersTrafficEvent(time, driverId, link1, vehicleId, TransportMode.car, 1.0));
+			eventsManager.processEvent(new LinkEnterEvent(time + 10, vehicleId, link2));
+			if (i == 0) {
+				eventsManager.processEvent(new PersonLeavesVehicleEvent(time + 15, passengerId, vehicleId));
+				eventsManager.processEvent(new PersonArrivalEvent(time + 15, passengerId, link2, TransportMode.ride));
+				eventsManager.processEvent(new ActivityStartEvent(time + 15, passengerId, link2, null, "work"));
+			}
+			eventsManager.processEvent(new LinkEnterEvent(time + 20, vehicleId, link3));
+			eventsManager.processEvent(new VehicleLeavesTrafficEvent(time + 30, driverId, link3, vehicleId, TransportMode.car, 1.0));
+			eventsManager.processEvent(new PersonLeavesVehicleEvent(time + 30, driverId, vehicleId));
+			eventsManager.processEvent(new PersonArrivalEvent(time + 30, driverId, link3, TransportMode.car));
+			eventsManager.processEvent(new ActivityStartEvent(time + 30, driverId, link3, null, "work"));
+		}
+		eventsManager.finishProcessing();
+		// (an injected EventsToActivities finishes itself after the mobsim, too)
+		eventsToActivities.finish();
+		controlerListenerManager.fireControlerAfterMobsimEvent(0, false);
+		return scoringFunctions;
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
 		TripStructureUtils.Trip lastTrip = null;
 		int separateScoreCounter = 0;
 		double separateScoreSum = 0;
+		int linkEnterCounter = 0;
+		final List<Activity> activities = new ArrayList<>();
+		final List<Leg> legs = new ArrayList<>();
 
 		@Override
 		public void handleActivity(Activity activity) {
+			this.activities.add(activity);
 		}
 
 		@Override
 		public void handleLeg(Leg leg) {
+			this.legs.add(leg);
 		}
 
 		@Override
@@ -181,6 +334,9 @@ public class ScoringFunctionsForPopulationTest {
 
 		@Override
 		public void handleEvent(Event event) {
+			if (event instanceof LinkEnterEvent) {
+				this.linkEnterCounter++;
+			}
 		}
 	}
 
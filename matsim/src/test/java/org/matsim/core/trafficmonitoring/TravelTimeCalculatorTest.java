@@ -27,6 +27,10 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -43,6 +47,9 @@ import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
@@ -54,6 +61,7 @@ import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.scenario.MutableScenario;
@@ -641,4 +649,94 @@ public class TravelTimeCalculatorTest {
 		Assert.assertEquals("Filtering analyzed transport modes is enabled, but no modes set. Therefore, use default (=car)", 100.0,
 				ttc.getLinkTravelTimes().getLinkTravelTime(link2, 200, null, null), 1e-8);
 	}
+
+	@Test public void testEventHandlerShards() {
+		Network network = NetworkUtils.createNetwork();
+		List<Link> links = new ArrayList<>();
+		Node prevNode = NetworkUtils.createAndAddNode(network, Id.createNodeId("0"), new Coord(0, 0));
+		for (int i = 1; i <= 10; i++) {
+			Node node = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 100, 0));
+			links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), prevNode, node, 100, 10, 3600, 1));
+			prevNode = node;
+		}
+
+		// every 10th vehicle is a bike, every 7th stops at a facility on link 5
+		List<Event> eventsList = new ArrayList<>();
+		for (int v = 0; v < 300; v++) {
+			Id<Person> personId = Id.createPersonId(v);
+			Id<Vehicle> vehId = Id.createVehicleId(v);
+			String mode = v % 10 == 0 ? TransportMode.bike : TransportMode.car;
+			double time = 6 * 3600 + v * 37;
+			eventsList.add(new VehicleEntersTrafficEvent(time, personId, links.get(0).getId(), vehId, mode, 1.0));
+			for (int i = 0; i < links.size(); i++) {
+				Link link = links.get(i);
+				if (i > 0) {
+					eventsList.add(new LinkEnterEvent(time, vehId, link.getId()));
+				}
+				if (i == 4 && v % 7 == 0) {
+					eventsList.add(new VehicleArrivesAtFacilityEvent(time + 5, vehId, Id.create("stop", TransitStopFacility.class), 0));
+					time += 60;
+				}
+				time += 10 + (v % 5) * 3 + i;
+				eventsList.add(new LinkLeaveEvent(time, vehId, link.getId()));
+			}
+			eventsList.add(new VehicleLeavesTrafficEvent(time, personId, links.get(9).getId(), vehId, mode, 1.0));
+		}
+		eventsList.sort(Comparator.comparingDouble(Event::getTime));
+
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(network);
+		builder.setFilterModes(true);
+		builder.setAnalyzedModes(Set.of(TransportMode.car));
+		TravelTimeCalculator ttc = builder.build();
+		builder.setEventHandlerShards(3);
+		TravelTimeCalculator shardedTtc = builder.build();
+		Assert.assertEquals(1, ttc.getEventHandlers().size());
+		Assert.assertEquals(3, shardedTtc.getEventHandlers().size());
+
+		EventsManager events = EventsUtils.createEventsManager();
+		ttc.getEventHandlers().forEach(events::addHandler);
+		EventsManager parallelEvents = EventsUtils.createParallelEventsManager();
+		shardedTtc.getEventHandlers().forEach(parallelEvents::addHandler);
+		for (int iteration = 0; iteration < 2; iteration++) {
+			for (EventsManager em : new EventsManager[] { events, parallelEvents }) {
+				em.resetHandlers(iteration);
+				em.initProcessing();
+				eventsList.forEach(em::processEvent);
+				em.finishProcessing();
+			}
+			for (Link link : links) {
+				for (double time = 6 * 3600; time < 10 * 3600; time += 300) {
+					Assert.assertEquals(ttc.getLinkTravelTimes().getLinkTravelTime(link, time, null, null),
+							shardedTtc.getLinkTravelTimes().getLinkTravelTime(link, time, null, null), MatsimTestUtils.EPSILON);
+				}
+			}
+		}
+		// the vehicles depart on the first link, so there is no travel time for it
+		Assert.assertEquals(10.0, shardedTtc.getLinkTravelTimes().getLinkTravelTime(links.get(0), 7 * 3600, null, null), MatsimTestUtils.EPSILON);
+		Assert.assertTrue(shardedTtc.getLinkTravelTimes().getLinkTravelTime(links.get(5), 7 * 3600, null, null) > 15.0);
+	}
+
+	@Test public void testEventHandlerShardsRejectLinksOutsideNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId("1"), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId("2"), new Coord(100, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("1"), node1, node2, 100, 10, 3600, 1);
+
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(network);
+		builder.setEventHandlerShards(2);
+		TravelTimeCalculator ttc = builder.build();
+
+		// the data of the network links is created before the shards handle any event, other links are not known
+		Id<Link> otherLinkId = Id.createLinkId("notInNetwork");
+		Id<Vehicle> vehId = Id.createVehicleId("1");
+		try {
+			for (EventHandler handler : ttc.getEventHandlers()) {
+				((LinkEnterEventHandler) handler).handleEvent(new LinkEnterEvent(100, vehId, otherLinkId));
+				((LinkLeaveEventHandler) handler).handleEvent(new LinkLeaveEvent(110, vehId, otherLinkId));
+			}
+			Assert.fail("Expected an IllegalStateException.");
+		} catch (IllegalStateException e) {
+			log.info("Caught expected exception: " + e.getMessage());
+		}
+	}
 }
@@ -0,0 +1,132 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeDataSlabTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2026 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class TravelTimeDataSlabTest {
+
+	@Test
+	public void testAddAndGetTravelTimes() {
+		Network network = NetworkUtils.createNetwork();
+		Node from = NetworkUtils.createNode(Id.createNodeId("1"));
+		Node to = NetworkUtils.createNode(Id.createNodeId("2"));
+		Link link = NetworkUtils.createLink(Id.createLinkId("1-2"), from, to, network, 100, 10, 10, 1);
+
+		for (TravelTimeDataSlab slab : new TravelTimeDataSlab[] { TravelTimeDataSlab.createOnHeap(3, 24), TravelTimeDataSlab.createOffHeap(3, 24) }) {
+			TravelTimeData data = slab.createLinkData(link, 1);
+			TravelTimeData otherData = slab.createLinkData(link, 2);
+			assertEquals(10.0, data.getTravelTime(12, 12 * 900), MatsimTestUtils.EPSILON);
+
+			data.addTravelTime(12, 20);
+			data.addTravelTime(12, 30);
+			data.addTravelTime(12, 31);
+			assertEquals(27.0, data.getTravelTime(12, 12 * 900), MatsimTestUtils.EPSILON);
+			assertEquals(10.0, data.getTravelTime(13, 13 * 900), MatsimTestUtils.EPSILON);
+			assertEquals(10.0, otherData.getTravelTime(12, 12 * 900), MatsimTestUtils.EPSILON);
+
+			data.setTravelTime(13, 111);
+			assertEquals(111.0, data.getTravelTime(13, 13 * 900), MatsimTestUtils.EPSILON);
+			data.addTravelTime(13, 101);
+			assertEquals(106.0, data.getTravelTime(13, 13 * 900), MatsimTestUtils.EPSILON);
+
+			otherData.addTravelTime(0, 50);
+			data.resetTravelTimes();
+			assertEquals(10.0, data.getTravelTime(12, 12 * 900), MatsimTestUtils.EPSILON);
+			assertEquals(10.0, data.getTravelTime(13, 13 * 900), MatsimTestUtils.EPSILON);
+			assertEquals(50.0, otherData.getTravelTime(0, 0), MatsimTestUtils.EPSILON);
+		}
+	}
+
+	@Test
+	public void testConcurrentAddTravelTimes() {
+		Network network = NetworkUtils.createNetwork();
+		Node from = NetworkUtils.createNode(Id.createNodeId("1"));
+		Node to = NetworkUtils.createNode(Id.createNodeId("2"));
+		Link link = NetworkUtils.createLink(Id.createLinkId("1-2"), from, to, network, 100, 10, 10, 1);
+
+		TravelTimeData data = TravelTimeDataSlab.createOnHeap(1, 4).createLinkData(link, 0);
+		IntStream.range(0, 40000).parallel().forEach(i -> data.addTravelTime(i % 4, 10 + (i % 4) + 2 * (i % 2)));
+		// every slot gets 10'000 times the same travel time
+		for (int slot = 0; slot < 4; slot++) {
+			assertEquals(10 + slot + 2 * (slot % 2), data.getTravelTime(slot, slot * 900), MatsimTestUtils.EPSILON);
+		}
+	}
+
+	@Test
+	public void testTravelTimeCalculatorWithSlab() {
+		Network network = NetworkUtils.createNetwork();
+		List<Link> links = new ArrayList<>();
+		Node prevNode = NetworkUtils.createAndAddNode(network, Id.createNodeId("0"), new Coord(0, 0));
+		for (int i = 1; i <= 10; i++) {
+			Node node = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * 100, 0));
+			links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), prevNode, node, 100, 10, 3600, 1));
+			prevNode = node;
+		}
+
+		for (TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType type : new TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType[] {
+				TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorSlab,
+				TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType.TravelTimeCalculatorSlabOffHeap }) {
+			TravelTimeCalculatorConfigGroup ttcConfig = new TravelTimeCalculatorConfigGroup();
+			ttcConfig.setTravelTimeCalculatorType(type.toString());
+			TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(network);
+			builder.configure(ttcConfig);
+			TravelTimeCalculator ttcalc = builder.build();
+
+			// 1000 vehicles drive over all links, handled by multiple threads, but every vehicle by a single thread
+			IntStream.range(0, 1000).parallel().forEach(v -> {
+				Id<Vehicle> vehId = Id.createVehicleId(v);
+				double time = 7 * 3600 + v % 100;
+				for (Link link : links) {
+					ttcalc.handleEvent(new LinkEnterEvent(time, vehId, link.getId()));
+					time += 20 + 2 * (v % 2);
+					ttcalc.handleEvent(new LinkLeaveEvent(time, vehId, link.getId()));
+				}
+			});
+
+			TravelTime travelTime = ttcalc.getLinkTravelTimes();
+			assertEquals(21.0, travelTime.getLinkTravelTime(links.get(0), 7 * 3600, null, null), MatsimTestUtils.EPSILON);
+			assertEquals(10.0, travelTime.getLinkTravelTime(links.get(0), 6 * 3600, null, null), MatsimTestUtils.EPSILON);
+
+			ttcalc.reset(1);
+			assertEquals(10.0, travelTime.getLinkTravelTime(links.get(0), 7 * 3600, null, null), MatsimTestUtils.EPSILON);
+		}
+	}
+
+}
@@ -44,6 +44,7 @@ import org.matsim.core.controler.PrepareForSimImpl;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PersonPrepareForSim;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.router.PlanRoutingMetadata;
 import org.matsim.core.router.TripStructureUtils;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.pt.routes.DefaultTransitPassengerRoute;
@@ -476,12 +477,96 @@ public class PersonPrepareForSimTest {
 		Assert.assertEquals(route, ((DefaultTransitPassengerRoute) leg.getRoute()).getRouteId());
 	}
 
+	@Test
+	public void testSkippingValidatedPlans() {
+		Scenario sc = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		createAndAddNetwork(sc);
+		Id<Link> link1id = Id.createLinkId("1");
+
+		Population pop = sc.getPopulation();
+		PopulationFactory pf = pop.getFactory();
+		Person person = pf.createPerson(Id.create("1", Person.class));
+		Plan plan = pf.createPlan();
+		Activity activity1 = pf.createActivityFromCoord("h", new Coord((double) 10, -10));
+		plan.addActivity(activity1);
+		Leg leg = pf.createLeg(TransportMode.walk);
+		TripStructureUtils.setRoutingMode(leg, TransportMode.walk);
+		plan.addLeg(leg);
+		plan.addActivity(pf.createActivityFromCoord("w", new Coord((double) 1900, -10)));
+		person.addPlan(plan);
+		pop.addPerson(person);
+
+		// the counting router does not set a route, so the plan would be routed again every time it is not skipped
+		CountingRouter router = new CountingRouter();
+		PersonPrepareForSim prepareForSim = new PersonPrepareForSim(router, sc);
+		prepareForSim.setSkippingValidatedPlans(3);
+		prepareForSim.run(person);
+
+		Assert.assertEquals(1, router.count);
+		Assert.assertEquals(link1id, activity1.getLinkId());
+		Assert.assertTrue(PlanRoutingMetadata.isValidated(plan));
+		Assert.assertEquals(3, PlanRoutingMetadata.get(plan).getValidatedIteration());
+		Assert.assertEquals(3, PlanRoutingMetadata.get(plan).getRoutedIteration());
+		Assert.assertEquals(2, PlanRoutingMetadata.get(plan).getTravelTimesIteration());
+
+		prepareForSim.run(person);
+		Assert.assertEquals("validated plan should be skipped", 1, router.count);
+
+		PlanRoutingMetadata.reset(plan);
+		prepareForSim.run(person);
+		Assert.assertEquals("reset plan should be checked again", 2, router.count);
+
+		new PersonPrepareForSim(router, sc).run(person);
+		Assert.assertEquals("validated plans are only skipped if configured", 3, router.count);
+	}
+
+	@Test
+	public void testSkippingPackedPlans() {
+		Scenario sc = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		createAndAddNetwork(sc);
+
+		Population pop = sc.getPopulation();
+		PopulationFactory pf = pop.getFactory();
+		Person person = pf.createPerson(Id.create("1", Person.class));
+		Plan plan = pf.createPlan();
+		plan.addActivity(pf.createActivityFromCoord("h", new Coord((double) 10, -10)));
+		Leg leg = pf.createLeg(TransportMode.walk);
+		TripStructureUtils.setRoutingMode(leg, TransportMode.walk);
+		plan.addLeg(leg);
+		plan.addActivity(pf.createActivityFromCoord("w", new Coord((double) 1900, -10)));
+		person.addPlan(plan);
+		pop.addPerson(person);
+		Plan unselectedPlan = person.createCopyOfSelectedPlanAndMakeSelected();
+		person.setSelectedPlan(plan);
+		PopulationUtils.packPlanElements(unselectedPlan);
+
+		CountingRouter router = new CountingRouter();
+		PersonPrepareForSim prepareForSim = new PersonPrepareForSim(router, sc);
+		prepareForSim.setSkippingPackedPlans();
+		prepareForSim.run(person);
+
+		Assert.assertEquals("only the selected plan should be checked", 1, router.count);
+		Assert.assertTrue("the unselected plan should not be unpacked", PopulationUtils.isPacked(unselectedPlan));
+
+		new PersonPrepareForSim(router, sc).run(person);
+		Assert.assertEquals("packed plans are only skipped if configured", 3, router.count);
+		Assert.assertFalse(PopulationUtils.isPacked(unselectedPlan));
+	}
+
 	private static class DummyRouter implements PlanAlgorithm {
 		@Override
 		public void run(final Plan plan) {
 		}
 	}
 	
+	private static class CountingRouter implements PlanAlgorithm {
+		int count = 0;
+		@Override
+		public void run(final Plan plan) {
+			this.count++;
+		}
+	}
+	
 	private Link createAndAddNetwork(Scenario sc) {
 		Network net = sc.getNetwork();
 		Link link1;
@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MobsimTestScenarios.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2023 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.testcases.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.TripStructureUtils;
+
+/**
+ * Small synthetic networks and populations for tests which compare the events of different mobsim setups.
+ */
+public final class MobsimTestScenarios {
+
+	private MobsimTestScenarios() {
+	}
+
+	/**
+	 * Creates a square grid of <code>gridSize</code> x <code>gridSize</code> nodes, with links in both directions between
+	 * neighbouring nodes.  The nodes are named "x_y", the links "fromNode-toNode".  All links have a free speed of 10 m/s
+	 * and one lane.
+	 *
+	 * @return the created links
+	 */
+	public static List<Link> createGridNetwork(Network network, int gridSize, double linkLength, double capacity) {
+		Node[][] nodes = new Node[gridSize][gridSize];
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * linkLength, y * linkLength));
+			}
+		}
+		List<Link> links = new ArrayList<>();
+		for (int x = 0; x < gridSize; x++) {
+			for (int y = 0; y < gridSize; y++) {
+				if (x + 1 < gridSize) {
+					links.add(createGridLink(network, nodes[x][y], nodes[x + 1][y], linkLength, capacity));
+					links.add(createGridLink(network, nodes[x + 1][y], nodes[x][y], linkLength, capacity));
+				}
+				if (y + 1 < gridSize) {
+					links.add(createGridLink(network, nodes[x][y], nodes[x][y + 1], linkLength, capacity));
+					links.add(createGridLink(network, nodes[x][y + 1], nodes[x][y], linkLength, capacity));
+				}
+			}
+		}
+		return links;
+	}
+
+	private static Link createGridLink(Network network, Node from, Node to, double length, double capacity) {
+		Id<Link> id = Id.createLinkId(from.getId() + "-" + to.getId());
+		return NetworkUtils.createAndAddLink(network, id, from, to, length, 10, capacity, 1);
+	}
+
+	/**
+	 * Creates a straight corridor of <code>numberOfLinks</code> links, named "0", "1", ..., with a free speed of 10 m/s.
+	 * If requested, the links in the opposite direction are named "r0", "r1", ....
+	 *
+	 * @return the links in the forward direction
+	 */
+	public static List<Link> createCorridorNetwork(Network network, int numberOfLinks, double linkLength, double capacity,
+			double lanes, boolean withReverseLinks) {
+		Node[] nodes = new Node[numberOfLinks + 1];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(i * linkLength, 0));
+		}
+		List<Link> links = new ArrayList<>();
+		for (int i = 0; i < numberOfLinks; i++) {
+			links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), nodes[i], nodes[i + 1], linkLength, 10, capacity, lanes));
+			if (withReverseLinks) {
+				NetworkUtils.createAndAddLink(network, Id.createLinkId("r" + i), nodes[i + 1], nodes[i], linkLength, 10, capacity, lanes);
+			}
+		}
+		return links;
+	}
+
+	/**
+	 * Adds persons with a home-work-home plan between random home and work links.  The activities end at random times
+	 * within the given number of seconds after the given end times.  The random numbers are always drawn from the same
+	 * seed, so the population is the same every time.
+	 *
+	 * @param modes returns the mode of the legs of the i-th person
+	 */
+	public static void createHomeWorkHomePopulation(Population population, List<Link> homeLinks, List<Link> workLinks,
+			int numberOfPersons, double homeEndTime, int homeEndSpread, double workEndTime, int workEndSpread, IntFunction<String> modes) {
+		Random random = new Random(4711);
+		PopulationFactory factory = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = factory.createPerson(Id.createPersonId(i));
+			Plan plan = factory.createPlan();
+			Link home = homeLinks.get(random.nextInt(homeLinks.size()));
+			Link work = workLinks.get(random.nextInt(workLinks.size()));
+			String mode = modes.apply(i);
+			Activity h = factory.createActivityFromLinkId("h", home.getId());
+			h.setEndTime(homeEndTime + random.nextInt(homeEndSpread));
+			plan.addActivity(h);
+			plan.addLeg(createLeg(factory, mode));
+			Activity w = factory.createActivityFromLinkId("w", work.getId());
+			w.setEndTime(workEndTime + random.nextInt(workEndSpread));
+			plan.addActivity(w);
+			plan.addLeg(createLeg(factory, mode));
+			plan.addActivity(factory.createActivityFromLinkId("h", home.getId()));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+	}
+
+	private static Leg createLeg(PopulationFactory factory, String mode) {
+		Leg leg = factory.createLeg(mode);
+		TripStructureUtils.setRoutingMode(leg, mode);
+		return leg;
+	}
+
+}